@@ -1,6 +1,7 @@
 package org.jolokia.backend;
 
 import java.io.IOException;
+import java.io.Writer;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.*;
@@ -8,6 +9,7 @@ import java.util.*;
 import javax.management.*;
 
 import org.jolokia.backend.executor.NotChangedException;
+import org.jolokia.backend.executor.TimeBudget;
 import org.jolokia.config.ConfigKey;
 import org.jolokia.config.Configuration;
 import org.jolokia.converter.Converters;
@@ -16,6 +18,7 @@ import org.jolokia.detector.ServerHandle;
 import org.jolokia.discovery.AgentDetails;
 import org.jolokia.discovery.AgentDetailsHolder;
 import org.jolokia.history.HistoryStore;
+import org.jolokia.notification.RequestExecutor;
 import org.jolokia.request.JmxRequest;
 import org.jolokia.restrictor.AllowAllRestrictor;
 import org.jolokia.restrictor.Restrictor;
@@ -80,6 +83,9 @@ public class BackendManager implements AgentDetailsHolder {
     // --> http://www.cs.umd.edu/~pugh/java/memoryModel/DoubleCheckedLocking.html)
     private volatile Initializer initializer;
 
+    // Executor for requests sampled by notification subscriptions, guarded by this
+    private RequestExecutor subscriptionExecutor;
+
     // Details about the agent inclding the server handle
     private AgentDetails agentDetails;
 
@@ -154,6 +160,8 @@ public class BackendManager implements AgentDetailsHolder {
             time = System.currentTimeMillis();
         }
         JSONObject json;
+        // The time budget is bound to the current thread so that it is visible to the executors
+        TimeBudget.attach(TimeBudget.start(pJmxReq.getParameterAsInt(ConfigKey.TIMEOUT)));
         try {
             json = callRequestDispatcher(pJmxReq);
 
@@ -167,6 +175,8 @@ public class BackendManager implements AgentDetailsHolder {
             json.put("request",pJmxReq.toJSON());
             json.put("status",304);
             json.put("timestamp",System.currentTimeMillis() / 1000);
+        } finally {
+            TimeBudget.attach(null);
         }
 
         if (debug) {
@@ -177,6 +187,33 @@ public class BackendManager implements AgentDetailsHolder {
         return json;
     }
 
+    /**
+     * Whether the metrics endpoint is enabled
+     *
+     * @return true if metrics are configured for export
+     */
+    public boolean isMetricsEnabled() {
+        lazyInitIfNeeded();
+        return localDispatcher.isMetricsEnabled();
+    }
+
+    /**
+     * Write the configured metrics in the OpenMetrics text format. Only MBeans of the
+     * local MBeanServers are considered.
+     *
+     * @param pWriter writer to write the metrics to
+     * @throws IOException if writing fails
+     * @throws SecurityException if reading the metrics is not allowed
+     */
+    public void writeMetrics(Writer pWriter) throws IOException {
+        lazyInitIfNeeded();
+        long time = isDebug() ? System.currentTimeMillis() : 0;
+        localDispatcher.writeMetrics(pWriter);
+        if (isDebug()) {
+            debug("Metrics collection time: " + (System.currentTimeMillis() - time) + " ms");
+        }
+    }
+
     /**
      * Convert a Throwable to a JSON object so that it can be included in an error response
      *
@@ -197,6 +234,20 @@ public class BackendManager implements AgentDetailsHolder {
         }
     }
 
+    /**
+     * Set the executor used for sampling the requests of notification subscriptions. It is
+     * responsible for converting errors into error responses. Without an executor, subscriptions
+     * are not supported.
+     *
+     * @param pExecutor executor performing the sampled requests
+     */
+    public synchronized void setSubscriptionExecutor(RequestExecutor pExecutor) {
+        subscriptionExecutor = pExecutor;
+        if (initializer == null) {
+            localDispatcher.initSubscriptions(pExecutor);
+        }
+    }
+
     /**
      * Remove MBeans
      */
@@ -332,14 +383,25 @@ public class BackendManager implements AgentDetailsHolder {
                                                      restrictor,
                                                      pConfig,
                                                      logHandler);
-        ServerHandle serverHandle = localDispatcher.getServerHandle();
+        final ServerHandle serverHandle = localDispatcher.getServerHandle();
         requestDispatchers = createRequestDispatchers(pConfig, converters,serverHandle,restrictor);
         requestDispatchers.add(localDispatcher);
 
         // Backendstore for remembering agent state
         initMBeans(pConfig);
 
-        agentDetails.setServerInfo(serverHandle.getVendor(),serverHandle.getProduct(),serverHandle.getVersion());
+        // Subscribed requests are sampled with the full request processing
+        if (subscriptionExecutor != null) {
+            localDispatcher.initSubscriptions(subscriptionExecutor);
+        }
+
+        // The server might be detected in the background
+        localDispatcher.whenServerDetected(new Runnable() {
+            /** {@inheritDoc} */
+            public void run() {
+                agentDetails.setServerInfo(serverHandle.getVendor(),serverHandle.getProduct(),serverHandle.getVersion());
+            }
+        });
     }
 
     private void initLimits(Configuration pConfig) {
@@ -453,6 +515,7 @@ public class BackendManager implements AgentDetailsHolder {
                     maxDepth(pJmxReq.getParameterAsInt(ConfigKey.MAX_DEPTH)).
                     maxCollectionSize(pJmxReq.getParameterAsInt(ConfigKey.MAX_COLLECTION_SIZE)).
                     maxObjects(pJmxReq.getParameterAsInt(ConfigKey.MAX_OBJECTS)).
+                    columnarTabularData("columnar".equals(pJmxReq.getParameter(ConfigKey.TABULAR_FORMAT))).
                     faultHandler(pJmxReq.getValueFaultHandler()).
                     useAttributeFilter(pJmxReq.getPathParts() != null).
                     build();
@@ -1,6 +1,7 @@
 package org.jolokia.backend;
 
 import javax.management.*;
+import javax.management.openmbean.TabularData;
 
 import org.jolokia.history.*;
 import org.jolokia.util.DebugStore;
@@ -34,6 +35,7 @@ public class Config implements ConfigMBean,MBeanRegistration {
     // Stores for various informations
     private HistoryStore historyStore;
     private DebugStore debugStore;
+    private AttributeSampler sampler;
 
     // MBean Objectname under which this bean should be registered
     private String objectName;
@@ -43,11 +45,13 @@ public class Config implements ConfigMBean,MBeanRegistration {
      *
      * @param pHistoryStore history store where to hold historical values
      * @param pDebugStore debug store for holding debug messages
+     * @param pSampler sampler for reading attributes in the background
      * @param pOName object name under which to register this MBean
      */
-    public Config(HistoryStore pHistoryStore, DebugStore pDebugStore, String pOName) {
+    public Config(HistoryStore pHistoryStore, DebugStore pDebugStore, AttributeSampler pSampler, String pOName) {
         historyStore = pHistoryStore;
         debugStore = pDebugStore;
+        sampler = pSampler;
         objectName = pOName;
     }
 
@@ -79,6 +83,23 @@ public class Config implements ConfigMBean,MBeanRegistration {
         historyStore.reset();
     }
 
+    /** {@inheritDoc} */
+    public void setSamplingForAttribute(String pMBean, String pAttribute, String pPath, int pMaxEntries, long pMaxDuration)
+            throws MalformedObjectNameException {
+        HistoryKey key = new HistoryKey(pMBean,pAttribute,pPath,null);
+        sampler.configure(key, limitOrNull(pMaxEntries, pMaxDuration));
+    }
+
+    /** {@inheritDoc} */
+    public void resetSampling() {
+        sampler.reset();
+    }
+
+    /** {@inheritDoc} */
+    public TabularData getSampleAggregates() {
+        return sampler.getAggregatesAsTabularData();
+    }
+
     /** {@inheritDoc} */
     public String debugInfo() {
         return debugStore.debugInfo();
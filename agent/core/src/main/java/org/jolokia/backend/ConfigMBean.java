@@ -3,6 +3,7 @@ package org.jolokia.backend;
 import java.io.IOException;
 
 import javax.management.MalformedObjectNameException;
+import javax.management.openmbean.TabularData;
 
 /*
  * Copyright 2009-2013 Roland Huss
@@ -103,6 +104,29 @@ public interface ConfigMBean {
      */
     void resetHistoryEntries();
 
+    /**
+     * Switch on background sampling for a numeric attribute of a local MBean. The attribute is read in the
+     * configured sampling interval and the aggregated samples can be obtained with {@link #getSampleAggregates()}.
+     * If <code>pMaxEntries</code> and <code>pMaxDuration</code> is 0 then sampling is switched off.
+     *
+     * If either <code>pMaxEntries</code> or <code>pMaxDuration</code> 0, then the given limit applies. If both are != 0,
+     * then both limits are applied simultaneously.
+     *
+     * @param pMBean MBean object name
+     * @param pAttribute attribute name
+     * @param pPath inner path (optional)
+     * @param pMaxEntries max number of samples to keep
+     * @param pMaxDuration maximum duration for how long to keep a sample (in seconds)
+     * @throws MalformedObjectNameException if the given name is not proper object name
+     */
+    void setSamplingForAttribute(String pMBean,String pAttribute,String pPath,int pMaxEntries,long pMaxDuration)
+            throws MalformedObjectNameException;
+
+    /**
+     * Remove all samples and switch off sampling for all attributes
+     */
+    void resetSampling();
+
     /**
      * Get latest debug information if debugging is switched on. The returned output
      * will not take more than {@link #getMaxDebugEntries()} lines.
@@ -141,6 +165,17 @@ public interface ConfigMBean {
      */
     void setHistoryMaxEntries(int pLimit);
 
+    /**
+     * Get the aggregated samples of all attributes for which sampling is switched on. The result is
+     * indexed by MBean name (<code>mbean</code>) and attribute (<code>attribute</code>, with the path appended
+     * after a slash) and contains for every attribute the number of samples (<code>count</code>), their minimum,
+     * maximum and average (<code>min</code>, <code>max</code>, <code>avg</code>), the latest value
+     * (<code>last</code>) with its <code>timestamp</code> and the change per second (<code>rate</code>).
+     *
+     * @return the aggregated samples
+     */
+    TabularData getSampleAggregates();
+
     /**
      * Check, whether debugging is switched on
      * @return state of debugging
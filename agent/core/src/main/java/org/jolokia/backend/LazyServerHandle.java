@@ -0,0 +1,160 @@
+package org.jolokia.backend;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+
+import javax.management.*;
+
+import org.jolokia.backend.executor.MBeanServerExecutor;
+import org.jolokia.config.Configuration;
+import org.jolokia.detector.ServerHandle;
+import org.jolokia.request.JmxRequest;
+import org.jolokia.util.LogHandler;
+import org.json.simple.JSONObject;
+
+/**
+ * Server handle standing in for the handle of a server detection which runs in the background.
+ * Information about the server blocks until the detection has finished. Hooks which are called for
+ * every request or MBean registration don't wait: Until the detection has finished no request
+ * preprocessing is done and MBeans are registered in the default way.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+class LazyServerHandle extends ServerHandle {
+
+    private final CountDownLatch detected = new CountDownLatch(1);
+
+    // The detected handle, guarded by listeners
+    private volatile ServerHandle delegate;
+
+    // Actions to run when detection has finished
+    private final List<Runnable> listeners = new ArrayList<Runnable>();
+
+    /**
+     * Constructor for a handle whose server is still to be detected
+     */
+    LazyServerHandle() {
+        super(null, null, null, null);
+    }
+
+    /**
+     * Set the detected handle and run all waiting actions
+     *
+     * @param pHandle the detected handle
+     */
+    void setDetected(ServerHandle pHandle) {
+        List<Runnable> actions;
+        synchronized (listeners) {
+            delegate = pHandle;
+            detected.countDown();
+            actions = new ArrayList<Runnable>(listeners);
+            listeners.clear();
+        }
+        for (Runnable action : actions) {
+            action.run();
+        }
+    }
+
+    /**
+     * Run an action as soon as the server has been detected. If the detection has already finished
+     * the action is run immediately, otherwise by the detecting thread.
+     *
+     * @param pAction action to run
+     */
+    void whenDetected(Runnable pAction) {
+        synchronized (listeners) {
+            if (delegate == null) {
+                listeners.add(pAction);
+                return;
+            }
+        }
+        pAction.run();
+    }
+
+    /**
+     * Get the detected handle, waiting for the detection to finish if necessary
+     *
+     * @return the detected handle
+     */
+    ServerHandle getDetected() {
+        try {
+            detected.await();
+        } catch (InterruptedException exp) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the server detection", exp);
+        }
+        return delegate;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getVendor() {
+        return getDetected().getVendor();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getProduct() {
+        return getDetected().getProduct();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getVersion() {
+        return getDetected().getVersion();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Map<String, String> getExtraInfo(MBeanServerExecutor pServerManager) {
+        return getDetected().getExtraInfo(pServerManager);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void preDispatch(MBeanServerExecutor pMBeanServerExecutor, JmxRequest pJmxReq) {
+        ServerHandle handle = delegate;
+        if (handle != null) {
+            handle.preDispatch(pMBeanServerExecutor, pJmxReq);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void postDetect(MBeanServerExecutor pServerManager, Configuration pConfig, LogHandler pLoghandler) {
+        getDetected().postDetect(pServerManager, pConfig, pLoghandler);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ObjectName registerMBeanAtServer(MBeanServer pServer, Object pMBean, String pName)
+            throws MBeanRegistrationException, InstanceAlreadyExistsException, NotCompliantMBeanException, MalformedObjectNameException {
+        ServerHandle handle = delegate;
+        return handle != null ?
+                handle.registerMBeanAtServer(pServer, pMBean, pName) :
+                super.registerMBeanAtServer(pServer, pMBean, pName);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public JSONObject toJSONObject(MBeanServerExecutor pServerManager) {
+        return getDetected().toJSONObject(pServerManager);
+    }
+}
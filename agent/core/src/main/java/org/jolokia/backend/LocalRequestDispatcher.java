@@ -16,6 +16,8 @@ package org.jolokia.backend;
  * limitations under the License.
  */
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.UUID;
 
 import javax.management.*;
@@ -28,13 +30,18 @@ import org.jolokia.detector.ServerHandle;
 import org.jolokia.discovery.JolokiaDiscovery;
 import org.jolokia.discovery.JolokiaDiscoveryMBean;
 import org.jolokia.handler.JsonRequestHandler;
+import org.jolokia.handler.NotificationHandler;
 import org.jolokia.handler.RequestHandlerManager;
+import org.jolokia.history.AttributeSampler;
 import org.jolokia.history.HistoryStore;
+import org.jolokia.metrics.MetricsCollector;
+import org.jolokia.notification.RequestExecutor;
 import org.jolokia.request.JmxRequest;
 import org.jolokia.restrictor.Restrictor;
 import org.jolokia.util.DebugStore;
 import org.jolokia.util.LogHandler;
 import org.jolokia.util.NetworkUtil;
+import org.jolokia.util.RequestType;
 
 /**
  * Dispatcher which dispatches to one or more local {@link javax.management.MBeanServer}.
@@ -52,6 +59,15 @@ public class LocalRequestDispatcher implements RequestDispatcher {
 
     private RequestHandlerManager requestHandlerManager;
 
+    // Collector for the metrics endpoint
+    private MetricsCollector metricsCollector;
+
+    // Background sampler for attributes, managed by the config MBean
+    private AttributeSampler sampler;
+
+    // Discovery MBean, null if not registered by this dispatcher
+    private JolokiaDiscovery discovery;
+
     // An (optional) qualifier for registering MBeans.
     private String qualifier;
 
@@ -77,7 +93,13 @@ public class LocalRequestDispatcher implements RequestDispatcher {
         // Request handling manager 
         requestHandlerManager =
                 new RequestHandlerManager(pConfig,pConverters,mBeanServerHandler.getServerHandle(),pRestrictor);
+        requestHandlerManager.listenForRegistrationChanges(mBeanServerHandler.getMBeanServerManager());
 
+        metricsCollector = new MetricsCollector(pConfig.get(ConfigKey.METRICS),pRestrictor);
+        sampler = new AttributeSampler(mBeanServerHandler.getMBeanServerManager(),pRestrictor,
+                                       pConfig.getAsInt(ConfigKey.SAMPLING_INTERVAL),
+                                       pConfig.getAsInt(ConfigKey.SAMPLING_MAX_ENTRIES),
+                                       pLogHandler);
     }
 
     // Can handle any request
@@ -101,7 +123,7 @@ public class LocalRequestDispatcher implements RequestDispatcher {
 
     /**
      * Initialise this request dispatcher, which will register a {@link ConfigMBean} for easy external
-     * access to the {@link HistoryStore} and {@link DebugStore}. Also a {@link JolokiaDiscoveryMBean}
+     * access to the {@link HistoryStore}, the {@link DebugStore} and the {@link AttributeSampler}. Also a {@link JolokiaDiscoveryMBean}
      * is registered
      *
      * @param pHistoryStore history store to be managed from within an MBean
@@ -116,7 +138,7 @@ public class LocalRequestDispatcher implements RequestDispatcher {
         // Register the Config MBean
         String oName = createObjectNameWithQualifier(Config.OBJECT_NAME);
         try {
-            Config config = new Config(pHistoryStore,pDebugStore,oName);
+            Config config = new Config(pHistoryStore,pDebugStore,sampler,oName);
             mBeanServerHandler.registerMBean(config,oName);
         } catch (InstanceAlreadyExistsException exp) {
             String alternativeOName = oName + ",uuid=" + UUID.randomUUID();
@@ -126,7 +148,7 @@ public class LocalRequestDispatcher implements RequestDispatcher {
                 // a random number, but this can already be performed with a qualifier
                 log.info(oName + " is already registered. Adding it with " + alternativeOName + ", but you should revise your setup in " +
                          "order to either use a qualifier or ensure, that only a single agent gets registered (otherwise history functionality might not work)");
-                Config config = new Config(pHistoryStore,pDebugStore,alternativeOName);
+                Config config = new Config(pHistoryStore,pDebugStore,sampler,alternativeOName);
                 mBeanServerHandler.registerMBean(config,alternativeOName);
             } catch (InstanceAlreadyExistsException e) {
                 log.error("Cannot even register fallback MBean with name " + alternativeOName + ". Should never happen. Really.",e);
@@ -137,7 +159,7 @@ public class LocalRequestDispatcher implements RequestDispatcher {
         // jmx4perl version < 0.80
         String legacyOName = createObjectNameWithQualifier(Config.LEGACY_OBJECT_NAME);
         try {
-            Config legacyConfig = new Config(pHistoryStore,pDebugStore,legacyOName);
+            Config legacyConfig = new Config(pHistoryStore,pDebugStore,sampler,legacyOName);
             mBeanServerHandler.registerMBean(legacyConfig,legacyOName);
         } catch (InstanceAlreadyExistsException exp) {
             log.info("Cannot register (legacy) MBean handler for config store with name " + legacyOName + " since it already exists. " +
@@ -145,7 +167,9 @@ public class LocalRequestDispatcher implements RequestDispatcher {
         }
 
         try {
-            mBeanServerHandler.registerMBean(new JolokiaDiscovery(agentId,log),JolokiaDiscoveryMBean.OBJECT_NAME);
+            JolokiaDiscovery jolokiaDiscovery = new JolokiaDiscovery(agentId,log);
+            mBeanServerHandler.registerMBean(jolokiaDiscovery,JolokiaDiscoveryMBean.OBJECT_NAME);
+            discovery = jolokiaDiscovery;
         } catch (InstanceAlreadyExistsException e) {
             // Ignore since there is already one registered.
             log.info("Jolokia Discovery MBean registration is skipped because there is already one registered.");
@@ -153,11 +177,48 @@ public class LocalRequestDispatcher implements RequestDispatcher {
     }
 
     /**
-     * Unregister the config MBean
+     * Enable subscriptions for notification clients by providing the executor used for
+     * sampling the subscribed requests.
+     *
+     * @param pExecutor executor performing the sampled requests
+     */
+    public void initSubscriptions(RequestExecutor pExecutor) {
+        NotificationHandler handler =
+                (NotificationHandler) requestHandlerManager.getRequestHandler(RequestType.NOTIFICATION);
+        handler.getDelegate().setRequestExecutor(pExecutor);
+    }
+
+    /**
+     * Whether metrics are configured for export
+     *
+     * @return true if metrics can be obtained with {@link #writeMetrics(Writer)}
+     */
+    public boolean isMetricsEnabled() {
+        return metricsCollector.isEnabled();
+    }
+
+    /**
+     * Write the configured metrics of the local MBeanServers in the OpenMetrics text format
+     *
+     * @param pWriter writer to write to
+     * @throws IOException if writing fails
+     */
+    public void writeMetrics(Writer pWriter) throws IOException {
+        metricsCollector.collect(mBeanServerHandler.getMBeanServerManager(),pWriter);
+    }
+
+    /**
+     * Unregister the config MBean and release all resources held by the request handlers
      *
      * @throws JMException if unregistration fails
      */
     public void destroy() throws JMException {
+        requestHandlerManager.destroy();
+        metricsCollector.clear();
+        sampler.reset();
+        if (discovery != null) {
+            discovery.destroy();
+        }
         mBeanServerHandler.destroy();
     }
 
@@ -169,6 +230,15 @@ public class LocalRequestDispatcher implements RequestDispatcher {
         return mBeanServerHandler.getServerHandle();
     }
 
+    /**
+     * Run an action as soon as the server has been detected, which might happen in the background
+     *
+     * @param pAction action to run
+     */
+    public void whenServerDetected(Runnable pAction) {
+        mBeanServerHandler.whenServerDetected(pAction);
+    }
+
     private String createObjectNameWithQualifier(String pOName) {
         return pOName + (qualifier != null ? "," + qualifier : "");
     }
@@ -18,14 +18,20 @@ package org.jolokia.backend;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Callable;
 
 import javax.management.*;
 
 import org.jolokia.backend.executor.AbstractMBeanServerExecutor;
+import org.jolokia.backend.executor.Bulkhead;
+import org.jolokia.backend.executor.MBeanRoutingIndex;
 import org.jolokia.backend.executor.NotChangedException;
+import org.jolokia.backend.executor.TimeBudget;
 import org.jolokia.detector.ServerDetector;
 import org.jolokia.handler.JsonRequestHandler;
+import org.jolokia.request.JmxObjectNameRequest;
 import org.jolokia.request.JmxRequest;
+import org.jolokia.util.RequestType;
 
 /**
  * Singleton responsible for doing the merging of all MBeanServer detected.
@@ -104,9 +110,19 @@ public class MBeanServerExecutorLocal extends AbstractMBeanServerExecutor implem
         AttributeNotFoundException attrException = null;
         InstanceNotFoundException objNotFoundException = null;
 
-        for (MBeanServerConnection conn : getMBeanServers()) {
+        TimeBudget budget = TimeBudget.current();
+        ObjectName oName = pJmxReq instanceof JmxObjectNameRequest ? ((JmxObjectNameRequest) pJmxReq).getObjectName() : null;
+        MBeanRoutingIndex.Route route = route(oName);
+        for (MBeanServerConnection conn : route) {
+            budget.check(oName);
+            long start = System.nanoTime();
             try {
-                return pRequestHandler.handleRequest(conn, pJmxReq);
+                Object ret = dispatch(pRequestHandler, conn, pJmxReq, oName);
+                if (attrException == null) {
+                    // Only the first server holding the MBean is remembered
+                    route.found(conn);
+                }
+                return ret;
             } catch (InstanceNotFoundException exp) {
                 // Remember exceptions for later use
                 objNotFoundException = exp;
@@ -114,19 +130,62 @@ public class MBeanServerExecutorLocal extends AbstractMBeanServerExecutor implem
                 attrException = exp;
             } catch (IOException exp) {
                 throw new IllegalStateException("I/O Error while dispatching",exp);
+            } finally {
+                if (oName != null) {
+                    trackIfSlow(budget, oName, start);
+                }
             }
         }
         if (attrException != null) {
             throw attrException;
         }
+        route.notFound();
         // Must be there, otherwise we would not have left the loop
         throw objNotFoundException;
     }
 
+    // Let the handler process the request, isolated within the bulkhead if configured. Operations
+    // are never isolated, since they can take a long time on purpose (e.g. for creating a heap dump).
+    private <R extends JmxRequest> Object dispatch(final JsonRequestHandler<R> pRequestHandler, final MBeanServerConnection pConn,
+                                                   final R pJmxReq, ObjectName pName)
+            throws MBeanException, ReflectionException, AttributeNotFoundException, InstanceNotFoundException,
+                   NotChangedException, IOException {
+        Bulkhead isolation = getBulkhead();
+        if (isolation == null || pName == null || pJmxReq.getType() == RequestType.EXEC) {
+            return pRequestHandler.handleRequest(pConn, pJmxReq);
+        }
+        try {
+            return isolation.call(pName, new Callable<Object>() {
+                /** {@inheritDoc} */
+                public Object call() throws Exception {
+                    return pRequestHandler.handleRequest(pConn, pJmxReq);
+                }
+            });
+        } catch (MBeanException exp) {
+            throw exp;
+        } catch (ReflectionException exp) {
+            throw exp;
+        } catch (AttributeNotFoundException exp) {
+            throw exp;
+        } catch (InstanceNotFoundException exp) {
+            throw exp;
+        } catch (NotChangedException exp) {
+            throw exp;
+        } catch (IOException exp) {
+            throw exp;
+        } catch (RuntimeException exp) {
+            throw exp;
+        } catch (Exception exp) {
+            throw new IllegalStateException("Error while dispatching to " + pName + ": " + exp,exp);
+        }
+    }
+
     /**
      * Lifecycle method called at the end of life for this object.
      */
     public void destroy() {
+        shutdownTraversalPool();
+        setBulkhead(null);
         unregisterFromMBeanNotifications();
         mbeanServers.destroy();
     }
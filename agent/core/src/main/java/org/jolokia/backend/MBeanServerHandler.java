@@ -3,11 +3,16 @@ package org.jolokia.backend;
 import java.io.IOException;
 import java.lang.management.ManagementFactory;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.management.*;
 
+import org.jolokia.backend.executor.Bulkhead;
+import org.jolokia.backend.executor.BulkheadMBean;
 import org.jolokia.backend.executor.MBeanServerExecutor;
 import org.jolokia.backend.executor.NotChangedException;
+import org.jolokia.backend.executor.RegistrationJournal;
 import org.jolokia.backend.plugin.MBeanPlugin;
 import org.jolokia.backend.plugin.MBeanPluginContext;
 import org.jolokia.config.ConfigKey;
@@ -15,6 +20,7 @@ import org.jolokia.config.Configuration;
 import org.jolokia.detector.*;
 import org.jolokia.handler.JsonRequestHandler;
 import org.jolokia.request.JmxRequest;
+import org.jolokia.util.DaemonThreadFactory;
 import org.jolokia.util.LogHandler;
 import org.jolokia.util.ServiceObjectFactory;
 import org.json.simple.JSONObject;
@@ -47,6 +53,9 @@ import org.json.simple.parser.ParseException;
  */
 public class MBeanServerHandler implements MBeanServerHandlerMBean, MBeanRegistration {
 
+    // Maximum number of detectors which are run concurrently
+    private static final int MAX_DETECTION_THREADS = 4;
+
     // The object dealing with all MBeanServers
     private MBeanServerExecutorLocal mBeanServerManager;
 
@@ -73,8 +82,12 @@ public class MBeanServerHandler implements MBeanServerHandlerMBean, MBeanRegistr
         qualifier = pConfig.get(ConfigKey.MBEAN_QUALIFIER);
         List<ServerDetector> detectors = lookupDetectors();
         mBeanServerManager = new MBeanServerExecutorLocal(detectors);
+        mBeanServerManager.setTraversalParallelism(pConfig.getAsInt(ConfigKey.TRAVERSAL_PARALLELISM));
+        mBeanServerManager.setRegistrationJournalSize(pConfig.getAsInt(ConfigKey.LIST_JOURNAL_SIZE));
+        mBeanServerManager.setRoutingIndexEnabled(pConfig.getAsBoolean(ConfigKey.MBEAN_ROUTING_INDEX));
         initServerHandle(pConfig, pLogHandler, detectors);
         initMBean();
+        initBulkhead(pConfig);
         initPlugins(pConfig, pLogHandler);
     }
 
@@ -113,6 +126,10 @@ public class MBeanServerHandler implements MBeanServerHandlerMBean, MBeanRegistr
                 mBeanServerManager.each(pObjectName,pCallback);
             }
 
+            public <R> void each(ObjectName pObjectName, MBeanFetchCallback<R> pCallback, long pTimeout) throws IOException, ReflectionException, MBeanException {
+                mBeanServerManager.each(pObjectName,pCallback,pTimeout);
+            }
+
             public <R> R call(ObjectName pObjectName, MBeanAction<R> pMBeanAction, Object... pExtraArgs) throws IOException, ReflectionException, MBeanException, AttributeNotFoundException, InstanceNotFoundException {
                 return mBeanServerManager.call(pObjectName,pMBeanAction,pExtraArgs);
             }
@@ -124,21 +141,50 @@ public class MBeanServerHandler implements MBeanServerHandlerMBean, MBeanRegistr
             public boolean hasMBeansListChangedSince(long pTimestamp) {
                 return mBeanServerManager.hasMBeansListChangedSince(pTimestamp);
             }
+
+            public RegistrationJournal.Changes getRegistrationChangesSince(long pSequence) {
+                return mBeanServerManager.getRegistrationChangesSince(pSequence);
+            }
         };
     }
 
 
     /**
-     * Initialize the server handle.
+     * Initialize the server handle. If configured, the detection runs in the background and
+     * a {@link LazyServerHandle} is used until the server has been detected.
+     *
      * @param pConfig configuration passed through to the server detectors
      * @param pLogHandler used for putting out diagnostic messags
      * @param pDetectors all detectors known
      */
-    private void initServerHandle(Configuration pConfig, LogHandler pLogHandler, List<ServerDetector> pDetectors) {
-        serverHandle = detectServers(pDetectors, pLogHandler);
-        if (serverHandle != null) {
-            serverHandle.postDetect(mBeanServerManager, pConfig, pLogHandler);
+    private void initServerHandle(final Configuration pConfig, final LogHandler pLogHandler, final List<ServerDetector> pDetectors) {
+        if (!pConfig.getAsBoolean(ConfigKey.LAZY_SERVER_DETECTION)) {
+            serverHandle = detectServers(pDetectors, pLogHandler);
+            if (serverHandle != null) {
+                serverHandle.postDetect(mBeanServerManager, pConfig, pLogHandler);
+            }
+            return;
         }
+        final LazyServerHandle lazyHandle = new LazyServerHandle();
+        serverHandle = lazyHandle;
+        Thread detection = new Thread(new Runnable() {
+            /** {@inheritDoc} */
+            public void run() {
+                ServerHandle handle = null;
+                try {
+                    handle = detectServers(pDetectors, pLogHandler);
+                    if (handle != null) {
+                        handle.postDetect(mBeanServerManager, pConfig, pLogHandler);
+                    }
+                } catch (RuntimeException exp) {
+                    pLogHandler.error("Error while detecting the server: " + exp, exp);
+                } finally {
+                    lazyHandle.setDetected(handle != null ? handle : new NullServerHandle());
+                }
+            }
+        }, "jolokia-server-detection");
+        detection.setDaemon(true);
+        detection.start();
     }
 
     /**
@@ -247,6 +293,20 @@ public class MBeanServerHandler implements MBeanServerHandlerMBean, MBeanRegistr
         return serverHandle;
     }
 
+    /**
+     * Run an action as soon as the server has been detected. If the server is already known, the
+     * action is run immediately, otherwise it is run by the thread detecting the server in the background.
+     *
+     * @param pAction action to run
+     */
+    public void whenServerDetected(Runnable pAction) {
+        if (serverHandle instanceof LazyServerHandle) {
+            ((LazyServerHandle) serverHandle).whenDetected(pAction);
+        } else {
+            pAction.run();
+        }
+    }
+
     // =================================================================================
 
     /**
@@ -269,6 +329,45 @@ public class MBeanServerHandler implements MBeanServerHandlerMBean, MBeanRegistr
         }
     }
 
+    /**
+     * Isolate MBean calls if a bulkhead timeout is configured and register the bulkhead
+     * as MBean for monitoring its circuit breakers.
+     *
+     * @param pConfig agent configuration
+     */
+    private void initBulkhead(Configuration pConfig) {
+        int timeout = pConfig.getAsInt(ConfigKey.BULKHEAD_TIMEOUT);
+        if (timeout <= 0) {
+            return;
+        }
+        Bulkhead bulkhead = new Bulkhead(Bulkhead.Scope.fromName(pConfig.get(ConfigKey.BULKHEAD_SCOPE)),
+                                         pConfig.getAsInt(ConfigKey.BULKHEAD_MAX_CALLS),
+                                         timeout,
+                                         pConfig.getAsInt(ConfigKey.CIRCUIT_BREAKER_THRESHOLD),
+                                         pConfig.getAsInt(ConfigKey.CIRCUIT_BREAKER_DELAY),
+                                         mBeanServerManager.getSlowMBeanTracker());
+        mBeanServerManager.setBulkhead(bulkhead);
+        String name = BulkheadMBean.OBJECT_NAME + (qualifier != null ? "," + qualifier : "");
+        try {
+            registerMBean(bulkhead, name);
+        } catch (InstanceAlreadyExistsException exp) {
+            // Another agent within the same JVM has registered its bulkhead already
+            registerMBeanQuietly(bulkhead, name + ",uuid=" + UUID.randomUUID());
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalStateException("Internal Error: Bulkhead name " + name + " is malformed",e);
+        } catch (NotCompliantMBeanException e) {
+            throw new IllegalStateException("Internal Error: " + Bulkhead.class.getName() + " is not a compliant MBean",e);
+        }
+    }
+
+    private void registerMBeanQuietly(Object pMBean, String pName) {
+        try {
+            registerMBean(pMBean, pName);
+        } catch (JMException exp) {
+            // Monitoring of the bulkhead is not essential, so we go on without it
+        }
+    }
+
     // Lookup all registered detectors + a default detector
     public static List<ServerDetector> lookupDetectors() {
         List<ServerDetector> detectors =
@@ -283,23 +382,102 @@ public class MBeanServerHandler implements MBeanServerHandlerMBean, MBeanRegistr
     }
 
     // Detect the server by delegating it to a set of predefined detectors. These will be created
-    // by a lookup mechanism, queried and thrown away after this method
-    private ServerHandle detectServers(List<ServerDetector> pDetectors, LogHandler pLogHandler) {
-        // Now detect the server
-        for (ServerDetector detector : pDetectors) {
-            try {
-                ServerHandle info = detector.detect(mBeanServerManager);
+    // by a lookup mechanism, queried and thrown away after this method. Detectors which are applicable
+    // run concurrently, but the first detector in the list which detects a server wins. Detectors
+    // coming after a detector which has already found the server are skipped or cancelled.
+    // Visible for testing
+    ServerHandle detectServers(List<ServerDetector> pDetectors, final LogHandler pLogHandler) {
+        List<ServerDetector> detectors = filterApplicableDetectors(pDetectors, pLogHandler);
+        if (detectors.size() <= 1) {
+            return detectors.isEmpty() ? null : detectServer(detectors.get(0), pLogHandler);
+        }
+        // Position of the first detector known to have found the server
+        final AtomicInteger winner = new AtomicInteger(detectors.size());
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(detectors.size(), MAX_DETECTION_THREADS),
+                                                            new DaemonThreadFactory("jolokia-detector-"));
+        try {
+            List<Future<ServerHandle>> results = new ArrayList<Future<ServerHandle>>();
+            for (int i = 0; i < detectors.size(); i++) {
+                final ServerDetector detector = detectors.get(i);
+                final int position = i;
+                results.add(pool.submit(new Callable<ServerHandle>() {
+                    /** {@inheritDoc} */
+                    public ServerHandle call() {
+                        if (winner.get() < position) {
+                            // A detector with a higher priority has already found the server
+                            return null;
+                        }
+                        ServerHandle info = detectServer(detector, pLogHandler);
+                        if (info != null) {
+                            int current;
+                            do {
+                                current = winner.get();
+                            } while (position < current && !winner.compareAndSet(current, position));
+                        }
+                        return info;
+                    }
+                }));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                ServerHandle info = results.get(i).get();
                 if (info != null) {
+                    // The remaining detectors are not needed anymore
+                    for (Future<ServerHandle> result : results.subList(i + 1, results.size())) {
+                        result.cancel(true);
+                    }
                     return info;
                 }
+            }
+            return null;
+        } catch (InterruptedException exp) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException exp) {
+            // Cannot happen since detectServer() doesn't throw any exception
+            throw new IllegalStateException("Internal: Error while detecting the server: " + exp.getCause(), exp.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private ServerHandle detectServer(ServerDetector pDetector, LogHandler pLogHandler) {
+        try {
+            return pDetector.detect(mBeanServerManager);
+        } catch (Exception exp) {
+            // We are defensive here and wont stop the servlet because
+            // there is a problem with the server detection. A error will be logged
+            // nevertheless, though.
+            pLogHandler.error("Error while using detector " + pDetector.getClass().getSimpleName() + ": " + exp,exp);
+            return null;
+        }
+    }
+
+    // Skip all detectors whose preconditions are not met, checked against a single snapshot of
+    // the registered domains. Only detectors extending AbstractServerDetector declare preconditions,
+    // all others are always used.
+    private List<ServerDetector> filterApplicableDetectors(List<ServerDetector> pDetectors, LogHandler pLogHandler) {
+        Set<String> domains;
+        try {
+            domains = Collections.unmodifiableSet(mBeanServerManager.getDomains());
+        } catch (IOException exp) {
+            // Cannot happen for local MBeanServers, use all detectors then
+            return pDetectors;
+        } catch (RuntimeException exp) {
+            // e.g. a SecurityException, use all detectors then
+            return pDetectors;
+        }
+        List<ServerDetector> ret = new ArrayList<ServerDetector>();
+        for (ServerDetector detector : pDetectors) {
+            try {
+                if (!(detector instanceof AbstractServerDetector) ||
+                    ((AbstractServerDetector) detector).isApplicable(domains)) {
+                    ret.add(detector);
+                }
             } catch (Exception exp) {
-                // We are defensive here and wont stop the servlet because
-                // there is a problem with the server detection. A error will be logged
-                // nevertheless, though.
-                pLogHandler.error("Error while using detector " + detector.getClass().getSimpleName() + ": " + exp,exp);
+                pLogHandler.error("Error while checking detector " + detector.getClass().getSimpleName() + ": " + exp,exp);
             }
         }
-        return null;
+        return ret;
     }
 
     // =====================================================================================
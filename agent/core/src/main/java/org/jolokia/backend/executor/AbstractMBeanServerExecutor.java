@@ -17,10 +17,13 @@ package org.jolokia.backend.executor;
  */
 
 import java.io.IOException;
+import java.security.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import javax.management.*;
 
+import org.jolokia.util.DaemonThreadFactory;
 import org.jolokia.util.JmxUtil;
 
 /**
@@ -34,6 +37,44 @@ public abstract class AbstractMBeanServerExecutor implements MBeanServerExecutor
     // Timestamp of last MBeanServer change in milliseconds
     private long lastMBeanRegistrationChange;
 
+    /**
+     * Default number of registration changes remembered for incremental list requests
+     */
+    public static final int DEFAULT_JOURNAL_SIZE = 1000;
+
+    // Recent registration changes
+    private volatile RegistrationJournal registrationJournal = new RegistrationJournal(DEFAULT_JOURNAL_SIZE);
+
+    // Number of chunks per thread into which a parallel traversal is split
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    // Idle time in seconds after which traversal threads are stopped
+    private static final int TRAVERSAL_THREAD_KEEP_ALIVE = 60;
+
+    // Pool for fetching MBean data concurrently, null if MBeans are visited sequentially
+    private ExecutorService traversalPool;
+
+    // Maximum number of threads for a traversal
+    private volatile int traversalParallelism = 1;
+
+    // MBeans which used up the time budget of a request
+    private final SlowMBeanTracker slowMBeanTracker = new SlowMBeanTracker();
+
+    // Isolation of MBean calls, null if MBeans are called directly
+    private volatile Bulkhead bulkhead;
+
+    // Routing of MBean accesses, null if all servers are asked
+    private volatile MBeanRoutingIndex routingIndex;
+
+    // Whether routing should be used when registration notifications are received, guarded by this
+    private boolean routingIndexEnabled = true;
+
+    // Whether we are registered for registration notifications, guarded by this
+    private boolean notificationsRegistered;
+
+    // Listeners to which registration notifications are forwarded (e.g. for evicting cached meta data)
+    private final List<NotificationListener> registrationListeners = new CopyOnWriteArrayList<NotificationListener>();
+
     /**
      * Get all MBeanServers
      *
@@ -56,7 +97,7 @@ public abstract class AbstractMBeanServerExecutor implements MBeanServerExecutor
     public void each(ObjectName pObjectName, MBeanEachCallback pCallback) throws IOException, ReflectionException, MBeanException {
         try {
             Set<ObjectName> visited = new HashSet<ObjectName>();
-            for (MBeanServerConnection server : getMBeanServers()) {
+            for (MBeanServerConnection server : getMBeanServersFor(pObjectName)) {
                 // Query for a full name is the same as a direct lookup
                 for (ObjectName nameObject : server.queryNames(pObjectName, null)) {
                     // Don't add if already visited previously
@@ -74,26 +115,65 @@ public abstract class AbstractMBeanServerExecutor implements MBeanServerExecutor
         }
     }
 
+    /** {@inheritDoc} */
+    public <R> void each(ObjectName pObjectName, MBeanFetchCallback<R> pCallback, long pTimeout)
+            throws IOException, ReflectionException, MBeanException {
+        long start = System.nanoTime();
+        long timeout = pTimeout > 0 ? TimeUnit.MILLISECONDS.toNanos(pTimeout) : 0;
+        List<MBeanServerConnection> servers = new ArrayList<MBeanServerConnection>();
+        List<ObjectName> names = new ArrayList<ObjectName>();
+        Set<ObjectName> visited = new HashSet<ObjectName>();
+        for (MBeanServerConnection server : getMBeanServersFor(pObjectName)) {
+            for (ObjectName nameObject : server.queryNames(pObjectName, null)) {
+                if (visited.add(nameObject)) {
+                    servers.add(server);
+                    names.add(nameObject);
+                }
+            }
+        }
+        try {
+            ExecutorService pool = getTraversalPool();
+            if (pool == null || names.size() < 2) {
+                for (int i = 0; i < names.size(); i++) {
+                    if (timeout > 0 && System.nanoTime() - start > timeout) {
+                        throw traversalTimeout(pObjectName, pTimeout);
+                    }
+                    // The callback is expected to fail fast (e.g. by using call()) when the time budget
+                    // of the request is used up
+                    pCallback.merge(names.get(i), pCallback.fetch(servers.get(i), names.get(i)));
+                }
+            } else {
+                eachParallel(pool, servers, names, pCallback, start, timeout, pObjectName, pTimeout);
+            }
+        } catch (InstanceNotFoundException exp) {
+            throw new IllegalArgumentException("Cannot find MBean " +
+                                               (pObjectName != null ? "(MBean " + pObjectName + ")" : "") + ": " + exp,exp);
+        }
+    }
+
     /** {@inheritDoc} */
     public <T> T call(ObjectName pObjectName, MBeanAction<T> pMBeanAction, Object ... pExtraArgs)
             throws IOException, ReflectionException, MBeanException, AttributeNotFoundException, InstanceNotFoundException {
         InstanceNotFoundException objNotFoundException = null;
-        for (MBeanServerConnection server : getMBeanServers()) {
-            // Only the first MBeanServer holding the MBean wins
+        TimeBudget budget = TimeBudget.current();
+        MBeanRoutingIndex.Route route = route(pObjectName);
+        for (MBeanServerConnection server : route) {
+            budget.check(pObjectName);
+            long start = System.nanoTime();
+            // Only the first MBeanServer holding the MBean wins. If the routing index knows
+            // this server, it is tried first so that no InstanceNotFoundException is thrown on the way.
             try {
-                // Still to decide: Should we check eagerly or let an InstanceNotFound Exception
-                // bubble ? Exception bubbling was the former behaviour, so it is left in. However,
-                // it would be interesting how large the performance impact is here. All unit tests BTW are
-                // prepared for switching the guard below on or off.
-
-                //if (server.isRegistered(pObjectName)) {
-                return pMBeanAction.execute(server, pObjectName, pExtraArgs);
-                //}
+                T ret = execute(server, pObjectName, pMBeanAction, pExtraArgs);
+                route.found(server);
+                return ret;
             } catch (InstanceNotFoundException exp) {
                 // Remember exceptions for later use
                 objNotFoundException = exp;
+            } finally {
+                trackIfSlow(budget, pObjectName, start);
             }
         }
+        route.notFound();
 
         // Must be != null, otherwise we would not have left the loop
         throw objNotFoundException;
@@ -109,12 +189,161 @@ public abstract class AbstractMBeanServerExecutor implements MBeanServerExecutor
     /** {@inheritDoc} */
     public Set<ObjectName> queryNames(ObjectName pObjectName) throws IOException {
         Set<ObjectName> names = new LinkedHashSet<ObjectName>();
-        for (MBeanServerConnection server : getMBeanServers()) {
+        for (MBeanServerConnection server : getMBeanServersFor(pObjectName)) {
             names.addAll(server.queryNames(pObjectName,null));
         }
         return names;
     }
 
+    /**
+     * Get the MBeanServers to try for accessing a single MBean. If the server holding the MBean
+     * is known, it comes first. Callers should report the server on which the MBean has been found
+     * to the returned route, so that later accesses go straight to this server.
+     *
+     * @param pObjectName MBean to access
+     * @return the servers to try in this order
+     */
+    protected MBeanRoutingIndex.Route route(ObjectName pObjectName) {
+        MBeanRoutingIndex index = routingIndex;
+        return index != null ?
+                index.route(pObjectName, getMBeanServers()) :
+                new MBeanRoutingIndex.Route(getMBeanServers());
+    }
+
+    /**
+     * Switch routing of MBean accesses on or off. With routing, accesses to a single MBean go to the
+     * MBeanServer known to hold it and queries skip servers without any MBean of the queried domain.
+     * Routing relies on the registration notifications of the MBeanServers, so it is only active when
+     * the executor has registered for these notifications.
+     *
+     * @param pEnabled whether to route MBean accesses
+     */
+    public synchronized void setRoutingIndexEnabled(boolean pEnabled) {
+        routingIndexEnabled = pEnabled;
+        routingIndex = pEnabled && notificationsRegistered ? new MBeanRoutingIndex() : null;
+    }
+
+    /**
+     * Get the domains of all MBeans registered at any of the MBeanServers. This is much cheaper than
+     * querying for MBean names, so it can be used for a quick check whether certain MBeans can exist at all.
+     *
+     * @return union of the domains of all MBeanServers
+     * @throws IOException if called remotely and an IOError occured.
+     */
+    public Set<String> getDomains() throws IOException {
+        Set<String> domains = new HashSet<String>();
+        for (MBeanServerConnection server : getMBeanServers()) {
+            domains.addAll(Arrays.asList(server.getDomains()));
+        }
+        return domains;
+    }
+
+    /**
+     * Set the maximum number of threads used for fetching MBean data concurrently in
+     * {@link #each(ObjectName, MBeanFetchCallback, long)}. The threads are shared by all requests.
+     *
+     * @param pParallelism number of threads. With 1 or less MBeans are visited sequentially.
+     */
+    public synchronized void setTraversalParallelism(int pParallelism) {
+        shutdownTraversalPool();
+        traversalParallelism = Math.max(1, pParallelism);
+        if (traversalParallelism > 1) {
+            ThreadPoolExecutor pool =
+                    new ThreadPoolExecutor(traversalParallelism, traversalParallelism,
+                                           TRAVERSAL_THREAD_KEEP_ALIVE, TimeUnit.SECONDS,
+                                           new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory("jolokia-traversal-"));
+            pool.allowCoreThreadTimeOut(true);
+            traversalPool = pool;
+        }
+    }
+
+    /**
+     * Get the MBeans which used up the time budget of a request
+     *
+     * @return tracker for slow MBeans
+     */
+    public SlowMBeanTracker getSlowMBeanTracker() {
+        return slowMBeanTracker;
+    }
+
+    /**
+     * Remember the given MBean as slow if the time budget of the current request expired while accessing it
+     *
+     * @param pBudget budget of the current request
+     * @param pName MBean accessed
+     * @param pStart start time of the access in nanoseconds
+     */
+    protected void trackIfSlow(TimeBudget pBudget, ObjectName pName, long pStart) {
+        if (pBudget.isExpired()) {
+            slowMBeanTracker.record(pName, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - pStart));
+        }
+    }
+
+    /**
+     * Isolate MBean calls done via {@link #call(ObjectName, MBeanAction, Object...)} with a bulkhead.
+     * A previously set bulkhead is shut down.
+     *
+     * @param pBulkhead bulkhead to use or null for calling MBeans directly
+     */
+    public synchronized void setBulkhead(Bulkhead pBulkhead) {
+        if (bulkhead != null) {
+            bulkhead.shutdown();
+        }
+        bulkhead = pBulkhead;
+    }
+
+    /**
+     * Get the bulkhead used for isolating MBean calls
+     *
+     * @return the bulkhead or null if MBeans are called directly
+     */
+    public Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    /**
+     * Stop the threads used for parallel traversal. Afterwards MBeans are visited sequentially.
+     */
+    public synchronized void shutdownTraversalPool() {
+        if (traversalPool != null) {
+            traversalPool.shutdownNow();
+            traversalPool = null;
+        }
+        traversalParallelism = 1;
+    }
+
+    // Execute an action directly or isolated within the bulkhead
+    private <T> T execute(final MBeanServerConnection pServer, final ObjectName pName,
+                          final MBeanAction<T> pAction, final Object... pExtraArgs)
+            throws IOException, ReflectionException, MBeanException, AttributeNotFoundException, InstanceNotFoundException {
+        Bulkhead isolation = bulkhead;
+        if (isolation == null) {
+            return pAction.execute(pServer, pName, pExtraArgs);
+        }
+        try {
+            return isolation.call(pName, new Callable<T>() {
+                /** {@inheritDoc} */
+                public T call() throws Exception {
+                    return pAction.execute(pServer, pName, pExtraArgs);
+                }
+            });
+        } catch (IOException exp) {
+            throw exp;
+        } catch (ReflectionException exp) {
+            throw exp;
+        } catch (MBeanException exp) {
+            throw exp;
+        } catch (AttributeNotFoundException exp) {
+            throw exp;
+        } catch (InstanceNotFoundException exp) {
+            throw exp;
+        } catch (RuntimeException exp) {
+            throw exp;
+        } catch (Exception exp) {
+            throw new IllegalStateException("Error while calling " + pName + ": " + exp,exp);
+        }
+    }
+
     /**
      * Add this executor as listener for MBeanServer notification so that we can update
      * the local timestamp for when the set of registered MBeans has changed last.
@@ -133,12 +362,24 @@ public abstract class AbstractMBeanServerExecutor implements MBeanServerExecutor
         if (lastExp != null) {
             throw new IllegalStateException(errors.substring(0,errors.length()-1),lastExp);
         }
+        // Changes are known from now on
+        registrationJournal.activate();
+        synchronized (this) {
+            notificationsRegistered = true;
+            if (routingIndexEnabled) {
+                routingIndex = new MBeanRoutingIndex();
+            }
+        }
     }
 
     /**
      * Unregister us as listener from every registered server
      */
     public void unregisterFromMBeanNotifications() {
+        synchronized (this) {
+            notificationsRegistered = false;
+            routingIndex = null;
+        }
         Set<MBeanServerConnection> servers = getMBeanServers();
         Exception lastExp = null;
         StringBuilder errors = new StringBuilder();
@@ -154,11 +395,63 @@ public abstract class AbstractMBeanServerExecutor implements MBeanServerExecutor
         }
     }
 
+    /**
+     * Add a listener which gets the registration notifications received by this executor, i.e.
+     * for every registration and unregistration of an MBean at one of its MBeanServers. Notifications
+     * are only received as long as this executor is registered for them
+     * (see {@link #registerForMBeanNotifications()}).
+     *
+     * @param pListener listener to add
+     */
+    public void addRegistrationListener(NotificationListener pListener) {
+        registrationListeners.add(pListener);
+    }
+
+    /**
+     * Remove a listener added with {@link #addRegistrationListener(NotificationListener)}
+     *
+     * @param pListener listener to remove
+     */
+    public void removeRegistrationListener(NotificationListener pListener) {
+        registrationListeners.remove(pListener);
+    }
+
     /** {@inheritDoc} */
     // Remember current timestamp
     public void handleNotification(Notification pNotification, Object pHandback) {
         // Update timestamp
         lastMBeanRegistrationChange = System.currentTimeMillis();
+        if (pNotification instanceof MBeanServerNotification) {
+            ObjectName name = ((MBeanServerNotification) pNotification).getMBeanName();
+            boolean registered = MBeanServerNotification.REGISTRATION_NOTIFICATION.equals(pNotification.getType());
+            registrationJournal.record(name, registered);
+            MBeanRoutingIndex index = routingIndex;
+            if (index != null) {
+                index.record(name, registered);
+            }
+            for (NotificationListener listener : registrationListeners) {
+                listener.handleNotification(pNotification, pHandback);
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    public RegistrationJournal.Changes getRegistrationChangesSince(long pSequence) {
+        return registrationJournal.getChangesSince(pSequence);
+    }
+
+    /**
+     * Set the number of registration changes remembered for incremental list requests.
+     * Changes recorded so far are dropped.
+     *
+     * @param pSize maximum number of changes in the journal
+     */
+    public synchronized void setRegistrationJournalSize(int pSize) {
+        RegistrationJournal journal = new RegistrationJournal(pSize);
+        if (registrationJournal.isActive()) {
+            journal.activate();
+        }
+        registrationJournal = journal;
     }
 
     /** {@inheritDoc} */
@@ -166,9 +459,173 @@ public abstract class AbstractMBeanServerExecutor implements MBeanServerExecutor
         return (lastMBeanRegistrationChange / 1000) >= pTimestamp;
     }
 
+    // Servers which might hold MBeans matching the given name, in merge order
+    private Collection<MBeanServerConnection> getMBeanServersFor(ObjectName pObjectName) throws IOException {
+        MBeanRoutingIndex index = routingIndex;
+        Set<MBeanServerConnection> servers = getMBeanServers();
+        if (index == null || pObjectName == null || pObjectName.isDomainPattern()) {
+            return servers;
+        }
+        if (!pObjectName.isPattern()) {
+            MBeanServerConnection owner = index.getOwner(pObjectName);
+            if (owner != null && servers.contains(owner) && owner.isRegistered(pObjectName)) {
+                return Collections.singletonList(owner);
+            }
+        }
+        List<MBeanServerConnection> ret = new ArrayList<MBeanServerConnection>(servers.size());
+        for (MBeanServerConnection server : servers) {
+            if (index.mightHoldDomain(server, pObjectName.getDomain())) {
+                ret.add(server);
+            }
+        }
+        return ret;
+    }
+
+    private synchronized ExecutorService getTraversalPool() {
+        return traversalPool;
+    }
+
+    // Fetch in chunks of consecutive MBeans and merge the chunks in their original order
+    private <R> void eachParallel(ExecutorService pPool, List<MBeanServerConnection> pServers, List<ObjectName> pNames,
+                                  MBeanFetchCallback<R> pCallback, long pStart, long pTimeout,
+                                  ObjectName pObjectName, long pTimeoutMillis)
+            throws IOException, ReflectionException, MBeanException, InstanceNotFoundException {
+        int size = pNames.size();
+        int nrChunks = Math.min(size, traversalParallelism * CHUNKS_PER_THREAD);
+        int chunkSize = (size + nrChunks - 1) / nrChunks;
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        AccessControlContext accessContext = AccessController.getContext();
+        TimeBudget budget = TimeBudget.current();
+        List<Future<List<R>>> futures = new ArrayList<Future<List<R>>>();
+        int idx = 0;
+        try {
+            for (int from = 0; from < size; from += chunkSize) {
+                int to = Math.min(from + chunkSize, size);
+                futures.add(pPool.submit(new FetchTask<R>(pCallback, pServers.subList(from, to), pNames.subList(from, to),
+                                                          contextClassLoader, accessContext, budget)));
+            }
+            for (Future<List<R>> future : futures) {
+                List<R> chunk = waitForChunk(future, pStart, pTimeout, budget, pObjectName, pTimeoutMillis);
+                if (chunk == null) {
+                    // Time budget of the request is used up
+                    break;
+                }
+                for (R data : chunk) {
+                    pCallback.merge(pNames.get(idx++), data);
+                }
+            }
+        } catch (RejectedExecutionException exp) {
+            throw new IllegalStateException("Cannot visit MBeans " + pObjectName + " since the agent is shutting down",exp);
+        } finally {
+            // Stop outstanding fetches when the traversal has failed or the time is over
+            for (Future<List<R>> future : futures) {
+                future.cancel(true);
+            }
+        }
+        // Remaining MBeans are handed to the callback within this thread, which fails fast
+        // now that the budget is used up, so that the result contains an entry for every MBean.
+        for (; idx < size; idx++) {
+            pCallback.merge(pNames.get(idx), pCallback.fetch(pServers.get(idx), pNames.get(idx)));
+        }
+    }
+
+    // Wait for a chunk. Returns null if the request's time budget is used up before the chunk is ready.
+    private <R> List<R> waitForChunk(Future<List<R>> pFuture, long pStart, long pTimeout, TimeBudget pBudget,
+                                     ObjectName pObjectName, long pTimeoutMillis)
+            throws IOException, ReflectionException, MBeanException, InstanceNotFoundException {
+        long traversalRemaining = pTimeout > 0 ? pTimeout - (System.nanoTime() - pStart) : Long.MAX_VALUE;
+        long budgetRemaining = pBudget.isLimited() ? TimeUnit.MILLISECONDS.toNanos(pBudget.getRemaining()) : Long.MAX_VALUE;
+        try {
+            if (traversalRemaining == Long.MAX_VALUE && budgetRemaining == Long.MAX_VALUE) {
+                return pFuture.get();
+            } else {
+                return pFuture.get(Math.max(Math.min(traversalRemaining, budgetRemaining), 0), TimeUnit.NANOSECONDS);
+            }
+        } catch (TimeoutException exp) {
+            if (budgetRemaining <= traversalRemaining) {
+                return null;
+            }
+            throw traversalTimeout(pObjectName, pTimeoutMillis);
+        } catch (InterruptedException exp) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while visiting MBeans " + pObjectName,exp);
+        } catch (ExecutionException exp) {
+            Throwable cause = exp.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof ReflectionException) {
+                throw (ReflectionException) cause;
+            } else if (cause instanceof MBeanException) {
+                throw (MBeanException) cause;
+            } else if (cause instanceof InstanceNotFoundException) {
+                throw (InstanceNotFoundException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Error while visiting MBeans " + pObjectName + ": " + cause,cause);
+        }
+    }
+
+    private RequestTimeoutException traversalTimeout(ObjectName pObjectName, long pTimeoutMillis) {
+        return new RequestTimeoutException("Could not visit all MBeans " + (pObjectName != null ? pObjectName + " " : "") +
+                                         "within " + pTimeoutMillis + " ms");
+    }
+
     // Helper method for adding the exception for an appropriate error message
     private Exception updateErrorMsg(StringBuilder pErrors, Exception exp) {
         pErrors.append(exp.getClass()).append(": ").append(exp.getMessage()).append("\n");
         return exp;
     }
+
+    // Fetch the data of consecutive MBeans within a pool thread. The fetches run with the access control
+    // context of the caller, so that the MBeanServer sees the caller's Subject for its authorization checks.
+    private static final class FetchTask<R> implements Callable<List<R>>, PrivilegedExceptionAction<List<R>> {
+
+        private final MBeanFetchCallback<R> callback;
+        private final List<MBeanServerConnection> servers;
+        private final List<ObjectName> names;
+        private final ClassLoader contextClassLoader;
+        private final AccessControlContext accessContext;
+        private final TimeBudget budget;
+
+        private FetchTask(MBeanFetchCallback<R> pCallback, List<MBeanServerConnection> pServers, List<ObjectName> pNames,
+                          ClassLoader pContextClassLoader, AccessControlContext pAccessContext, TimeBudget pBudget) {
+            callback = pCallback;
+            servers = pServers;
+            names = pNames;
+            contextClassLoader = pContextClassLoader;
+            accessContext = pAccessContext;
+            budget = pBudget;
+        }
+
+        /** {@inheritDoc} */
+        public List<R> call() throws Exception {
+            Thread thread = Thread.currentThread();
+            ClassLoader oldClassLoader = thread.getContextClassLoader();
+            thread.setContextClassLoader(contextClassLoader);
+            TimeBudget.attach(budget);
+            try {
+                return AccessController.doPrivileged(this, accessContext);
+            } catch (PrivilegedActionException exp) {
+                throw exp.getException();
+            } finally {
+                TimeBudget.attach(null);
+                thread.setContextClassLoader(oldClassLoader);
+            }
+        }
+
+        /** {@inheritDoc} */
+        public List<R> run() throws Exception {
+            List<R> ret = new ArrayList<R>(names.size());
+            for (int i = 0; i < names.size(); i++) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException();
+                }
+                ret.add(callback.fetch(servers.get(i), names.get(i)));
+            }
+            return ret;
+        }
+    }
 }
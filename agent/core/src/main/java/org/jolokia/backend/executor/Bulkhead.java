@@ -0,0 +1,388 @@
+package org.jolokia.backend.executor;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.security.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.management.ObjectName;
+
+import org.jolokia.util.DaemonThreadFactory;
+
+/**
+ * Isolation of MBean calls. Every call is executed in a separate thread and the calling thread
+ * waits at most for the configured call timeout (or the remaining {@link TimeBudget} of the request),
+ * so that a hanging MBean cannot block the agent's request threads. The number of calls which run
+ * concurrently is limited per domain or per MBean, so that hanging calls occupy only a bounded number
+ * of threads.
+ *
+ * MBeans which repeatedly time out are short-circuited: after <code>failureThreshold</code> consecutive
+ * timeouts the circuit of the MBean is opened and calls fail immediately for <code>openDuration</code>
+ * milliseconds. Afterwards a single trial call is let through, which either closes the circuit again or
+ * opens it for another period.
+ *
+ * All failures caused by the bulkhead are reported as {@link RequestTimeoutException}.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+public class Bulkhead implements BulkheadMBean {
+
+    /**
+     * Partitioning of the concurrency limit
+     */
+    public enum Scope {
+        /** Calls to MBeans of the same domain share a limit */
+        DOMAIN,
+        /** Each MBean has its own limit */
+        MBEAN;
+
+        /**
+         * Lookup a scope by its name (case insensitive)
+         *
+         * @param pName name of the scope
+         * @return the scope
+         * @throws IllegalArgumentException if no such scope exists
+         */
+        public static Scope fromName(String pName) {
+            for (Scope scope : values()) {
+                if (scope.name().equalsIgnoreCase(pName)) {
+                    return scope;
+                }
+            }
+            throw new IllegalArgumentException("Invalid bulkhead scope '" + pName + "' (known: domain, mbean)");
+        }
+    }
+
+    // Idle time in seconds after which threads are stopped
+    private static final int THREAD_KEEP_ALIVE = 60;
+
+    private final Scope scope;
+    private final int maxConcurrentCalls;
+    private final long callTimeout;
+    private final int failureThreshold;
+    private final long openDuration;
+    private final SlowMBeanTracker slowMBeanTracker;
+
+    private final ExecutorService pool;
+
+    // Number of running calls per partition. Partitions without running calls are removed.
+    private final Map<String, Integer> activeCalls = new HashMap<String, Integer>();
+
+    // Circuits of MBeans which have timed out recently, keyed by canonical name
+    private final Map<String, Circuit> circuits = new HashMap<String, Circuit>();
+
+    private long timedOutCalls;
+    private long rejectedCalls;
+
+    /**
+     * Create a bulkhead
+     *
+     * @param pScope how to partition the concurrency limit
+     * @param pMaxConcurrentCalls maximum number of calls running concurrently within a partition, 0 or less for no limit
+     * @param pCallTimeout timeout in milliseconds for a single call, 0 or less for waiting only as long as
+     *                     the time budget of the request allows
+     * @param pFailureThreshold number of consecutive timeouts after which the circuit of an MBean is opened,
+     *                          0 or less for never opening a circuit
+     * @param pOpenDuration time in milliseconds a circuit stays open
+     * @param pSlowMBeanTracker tracker where timed out MBeans are recorded
+     */
+    public Bulkhead(Scope pScope, int pMaxConcurrentCalls, long pCallTimeout,
+                    int pFailureThreshold, long pOpenDuration, SlowMBeanTracker pSlowMBeanTracker) {
+        scope = pScope;
+        maxConcurrentCalls = pMaxConcurrentCalls;
+        callTimeout = pCallTimeout;
+        failureThreshold = pFailureThreshold;
+        openDuration = pOpenDuration;
+        slowMBeanTracker = pSlowMBeanTracker;
+        pool = new ThreadPoolExecutor(0, Integer.MAX_VALUE, THREAD_KEEP_ALIVE, TimeUnit.SECONDS,
+                                      new SynchronousQueue<Runnable>(), new DaemonThreadFactory("jolokia-bulkhead-"));
+    }
+
+    /**
+     * Execute a call to an MBean in isolation
+     *
+     * @param pName MBean which is called
+     * @param pCall the call itself
+     * @param <T> result type
+     * @return the result of the call
+     * @throws RequestTimeoutException if the call is rejected or does not return in time
+     * @throws Exception the exception thrown by the call itself
+     */
+    public <T> T call(ObjectName pName, Callable<T> pCall) throws Exception {
+        String name = pName.getCanonicalName();
+        checkCircuit(name);
+        String partition = scope == Scope.DOMAIN ? pName.getDomain() : name;
+        try {
+            acquire(partition);
+        } catch (RequestTimeoutException exp) {
+            releaseTrial(name);
+            throw exp;
+        }
+        IsolatedCall<T> future = new IsolatedCall<T>(pCall, partition, Thread.currentThread().getContextClassLoader(),
+                                                     AccessController.getContext());
+        try {
+            pool.execute(future);
+        } catch (RejectedExecutionException exp) {
+            release(partition);
+            releaseTrial(name);
+            throw new IllegalStateException("Cannot call " + pName + " since the agent is shutting down",exp);
+        }
+        return waitForCall(pName, name, future);
+    }
+
+    /**
+     * Stop the threads of this bulkhead. Calls which are still running are interrupted.
+     */
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /** {@inheritDoc} */
+    public synchronized int getActiveCalls() {
+        int ret = 0;
+        for (Integer count : activeCalls.values()) {
+            ret += count;
+        }
+        return ret;
+    }
+
+    /** {@inheritDoc} */
+    public synchronized long getTimedOutCalls() {
+        return timedOutCalls;
+    }
+
+    /** {@inheritDoc} */
+    public synchronized long getRejectedCalls() {
+        return rejectedCalls;
+    }
+
+    /** {@inheritDoc} */
+    public synchronized String[] getOpenCircuits() {
+        long now = System.currentTimeMillis();
+        List<String> ret = new ArrayList<String>();
+        for (Map.Entry<String, Circuit> entry : circuits.entrySet()) {
+            Circuit circuit = entry.getValue();
+            if (circuit.isOpen(now)) {
+                ret.add(entry.getKey() + " (" + circuit.timeouts + " timeouts, open for " +
+                        (circuit.openUntil - now) + " ms)");
+            }
+        }
+        return ret.toArray(new String[ret.size()]);
+    }
+
+    /** {@inheritDoc} */
+    public String[] getSlowMBeans() {
+        Map<ObjectName, SlowMBeanTracker.Stats> slow = slowMBeanTracker.getSlowMBeans();
+        List<String> ret = new ArrayList<String>();
+        for (Map.Entry<ObjectName, SlowMBeanTracker.Stats> entry : slow.entrySet()) {
+            SlowMBeanTracker.Stats stats = entry.getValue();
+            ret.add(entry.getKey().getCanonicalName() + " (" + stats.getCount() + " times, max " +
+                    stats.getMaxDuration() + " ms, last at " + new Date(stats.getLastTime()) + ")");
+        }
+        return ret.toArray(new String[ret.size()]);
+    }
+
+    /** {@inheritDoc} */
+    public synchronized void resetCircuits() {
+        circuits.clear();
+    }
+
+    // ========================================================================================
+
+    private <T> T waitForCall(ObjectName pName, String pCanonicalName, Future<T> pFuture) throws Exception {
+        TimeBudget budget = TimeBudget.current();
+        long start = System.nanoTime();
+        long callRemaining = callTimeout > 0 ? TimeUnit.MILLISECONDS.toNanos(callTimeout) : Long.MAX_VALUE;
+        long budgetRemaining = budget.isLimited() ? TimeUnit.MILLISECONDS.toNanos(budget.getRemaining()) : Long.MAX_VALUE;
+        try {
+            T ret;
+            if (callRemaining == Long.MAX_VALUE && budgetRemaining == Long.MAX_VALUE) {
+                ret = pFuture.get();
+            } else {
+                ret = pFuture.get(Math.min(callRemaining, budgetRemaining), TimeUnit.NANOSECONDS);
+            }
+            closeCircuit(pCanonicalName);
+            return ret;
+        } catch (TimeoutException exp) {
+            // The call keeps its slot within the partition until it really returns
+            pFuture.cancel(true);
+            if (budgetRemaining < callRemaining) {
+                // Not the MBean's fault, so the circuit is not affected. The executor
+                // records the MBean as slow anyway since the budget is used up.
+                releaseTrial(pCanonicalName);
+                throw new RequestTimeoutException("Time budget of " + budget.getTimeout() +
+                                                  " ms exceeded while calling " + pName);
+            }
+            slowMBeanTracker.record(pName, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            recordTimeout(pCanonicalName);
+            throw new RequestTimeoutException("Call to " + pName + " did not return within " + callTimeout + " ms");
+        } catch (ExecutionException exp) {
+            // The MBean answered, even when with an exception
+            closeCircuit(pCanonicalName);
+            Throwable cause = exp.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw exp;
+        } catch (InterruptedException exp) {
+            pFuture.cancel(true);
+            releaseTrial(pCanonicalName);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while calling " + pName,exp);
+        }
+    }
+
+    private synchronized void checkCircuit(String pName) {
+        Circuit circuit = circuits.get(pName);
+        if (circuit == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (circuit.isOpen(now) || circuit.trialRunning) {
+            rejectedCalls++;
+            throw new RequestTimeoutException("Call to " + pName + " skipped since it timed out " +
+                                              circuit.timeouts + " times in a row");
+        }
+        if (circuit.openUntil > 0) {
+            // Half open: Let a single call through
+            circuit.trialRunning = true;
+        }
+    }
+
+    private synchronized void closeCircuit(String pName) {
+        circuits.remove(pName);
+    }
+
+    private synchronized void releaseTrial(String pName) {
+        Circuit circuit = circuits.get(pName);
+        if (circuit != null) {
+            circuit.trialRunning = false;
+        }
+    }
+
+    private synchronized void recordTimeout(String pName) {
+        timedOutCalls++;
+        if (failureThreshold <= 0) {
+            return;
+        }
+        Circuit circuit = circuits.get(pName);
+        if (circuit == null) {
+            circuit = new Circuit();
+            circuits.put(pName, circuit);
+        }
+        circuit.timeouts++;
+        circuit.trialRunning = false;
+        if (circuit.timeouts >= failureThreshold) {
+            circuit.openUntil = System.currentTimeMillis() + openDuration;
+        }
+    }
+
+    private synchronized void acquire(String pPartition) {
+        Integer count = activeCalls.get(pPartition);
+        int current = count != null ? count : 0;
+        if (maxConcurrentCalls > 0 && current >= maxConcurrentCalls) {
+            rejectedCalls++;
+            throw new RequestTimeoutException("Too many running calls (" + current + ") for " +
+                                              (scope == Scope.DOMAIN ? "domain " : "MBean ") + pPartition);
+        }
+        activeCalls.put(pPartition, current + 1);
+    }
+
+    private synchronized void release(String pPartition) {
+        Integer count = activeCalls.get(pPartition);
+        if (count == null || count <= 1) {
+            activeCalls.remove(pPartition);
+        } else {
+            activeCalls.put(pPartition, count - 1);
+        }
+    }
+
+    // State of the circuit for a single MBean
+    private static final class Circuit {
+        // Number of consecutive timeouts
+        private int timeouts;
+        // Time in milliseconds until the circuit is open, 0 if it has never been opened
+        private long openUntil;
+        // Whether a trial call for a half open circuit is running
+        private boolean trialRunning;
+
+        private boolean isOpen(long pNow) {
+            return pNow < openUntil;
+        }
+    }
+
+    // Task for a call which frees its slot exactly once: when the call is finally done or,
+    // if it is cancelled before it has started, right away. The call runs with the access control
+    // context of the caller, so that the MBeanServer and the restrictor see the caller's Subject.
+    private final class IsolatedCall<T> extends FutureTask<T> {
+
+        private final String partition;
+
+        // Set by whoever is responsible for releasing the slot, the call itself or the cancellation
+        private final AtomicBoolean claimed;
+
+        private IsolatedCall(Callable<T> pCall, String pPartition, ClassLoader pContextClassLoader,
+                             AccessControlContext pAccessContext) {
+            this(pCall, pPartition, pContextClassLoader, pAccessContext, new AtomicBoolean());
+        }
+
+        private IsolatedCall(final Callable<T> pCall, final String pPartition, final ClassLoader pContextClassLoader,
+                             final AccessControlContext pAccessContext, final AtomicBoolean pClaimed) {
+            super(new Callable<T>() {
+                /** {@inheritDoc} */
+                public T call() throws Exception {
+                    if (!pClaimed.compareAndSet(false, true)) {
+                        // Cancelled before start, the slot has already been released
+                        throw new CancellationException();
+                    }
+                    Thread thread = Thread.currentThread();
+                    ClassLoader oldClassLoader = thread.getContextClassLoader();
+                    thread.setContextClassLoader(pContextClassLoader);
+                    try {
+                        return AccessController.doPrivileged(new PrivilegedExceptionAction<T>() {
+                            /** {@inheritDoc} */
+                            public T run() throws Exception {
+                                return pCall.call();
+                            }
+                        }, pAccessContext);
+                    } catch (PrivilegedActionException exp) {
+                        throw exp.getException();
+                    } finally {
+                        thread.setContextClassLoader(oldClassLoader);
+                        release(pPartition);
+                    }
+                }
+            });
+            partition = pPartition;
+            claimed = pClaimed;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        protected void done() {
+            // A call which is still running keeps its slot until it really returns
+            if (isCancelled() && claimed.compareAndSet(false, true)) {
+                release(partition);
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.jolokia.backend.executor;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * MBean interface for monitoring the {@link Bulkhead} and its circuit breakers
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+public interface BulkheadMBean {
+
+    /**
+     * Name of MBean used for registration
+     */
+    String OBJECT_NAME = "jolokia:type=Bulkhead";
+
+    /**
+     * Get the number of MBean calls which are currently running, including calls which
+     * have timed out but did not return yet
+     *
+     * @return number of running calls
+     */
+    int getActiveCalls();
+
+    /**
+     * Get the number of calls which have been abandoned because they exceeded the call timeout
+     *
+     * @return number of timed out calls
+     */
+    long getTimedOutCalls();
+
+    /**
+     * Get the number of calls which have been rejected, either because too many calls to the same
+     * domain or MBean were running or because the circuit of the MBean was open
+     *
+     * @return number of rejected calls
+     */
+    long getRejectedCalls();
+
+    /**
+     * Get the MBeans whose circuit is currently open, i.e. which are not called
+     * because of repeated timeouts
+     *
+     * @return canonical names of the MBeans along with the time until the circuit is half-open again
+     */
+    String[] getOpenCircuits();
+
+    /**
+     * Get the MBeans which have recently been slow
+     *
+     * @return canonical names of the MBeans along with their statistics
+     */
+    String[] getSlowMBeans();
+
+    /**
+     * Close all circuits so that all MBeans are called again
+     */
+    void resetCircuits();
+}
@@ -0,0 +1,206 @@
+package org.jolokia.backend.executor;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+
+/**
+ * Index for routing MBean accesses to the MBeanServers which hold the MBean when several MBeanServers
+ * are in use. It remembers the server on which an MBean has been found (its owner) and the domains
+ * of every server. Both are filled lazily on access and are kept up to date with the registration
+ * notifications of the MBeanServers, so the index is only valid as long as these notifications are received.
+ *
+ * The index never claims that an MBean doesn't exist: an unknown owner leads to asking all servers
+ * in their merge order. Owners are only remembered when no registration change happened in between, so
+ * that a concurrent registration can't leave a wrong owner behind.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+public class MBeanRoutingIndex {
+
+    // Server which holds an MBean, first in merge order
+    private final Map<ObjectName, MBeanServerConnection> owners = new ConcurrentHashMap<ObjectName, MBeanServerConnection>();
+
+    // Domains of every server
+    private final Map<MBeanServerConnection, Set<String>> domains = new ConcurrentHashMap<MBeanServerConnection, Set<String>>();
+
+    // Incremented for every registration change, guarded by this
+    private long version;
+
+    /**
+     * Create the route for accessing the given MBean. If the owner of the MBean is known it comes
+     * first, followed by the other servers in their merge order.
+     *
+     * @param pName MBean name, patterns are not routed
+     * @param pServers all servers in merge order
+     * @return route to the MBean
+     */
+    Route route(ObjectName pName, Set<MBeanServerConnection> pServers) {
+        long currentVersion = getVersion();
+        MBeanServerConnection owner = pName != null && !pName.isPattern() ? owners.get(pName) : null;
+        if (owner == null || !pServers.contains(owner)) {
+            return new Route(this, pName, pServers, currentVersion);
+        }
+        List<MBeanServerConnection> servers = new ArrayList<MBeanServerConnection>(pServers.size());
+        servers.add(owner);
+        for (MBeanServerConnection server : pServers) {
+            if (server != owner) {
+                servers.add(server);
+            }
+        }
+        return new Route(this, pName, servers, currentVersion);
+    }
+
+    /**
+     * Get the owner of an MBean if known
+     *
+     * @param pName MBean name
+     * @return the server which holds the MBean or null if not known
+     */
+    MBeanServerConnection getOwner(ObjectName pName) {
+        return owners.get(pName);
+    }
+
+    /**
+     * Check whether a server might hold MBeans of a given domain. The domains of a server are
+     * fetched on first access.
+     *
+     * @param pServer server to check
+     * @param pDomain domain, which must not be a pattern
+     * @return false if the server definitely holds no MBean of this domain
+     * @throws IOException if the domains could not be fetched
+     */
+    boolean mightHoldDomain(MBeanServerConnection pServer, String pDomain) throws IOException {
+        Set<String> serverDomains = domains.get(pServer);
+        if (serverDomains == null) {
+            long currentVersion = getVersion();
+            serverDomains = new HashSet<String>(Arrays.asList(pServer.getDomains()));
+            synchronized (this) {
+                // A new domain might have been registered in the meantime
+                if (currentVersion == version) {
+                    domains.put(pServer, serverDomains);
+                }
+            }
+        }
+        return serverDomains.contains(pDomain);
+    }
+
+    /**
+     * Update the index for a registration change
+     *
+     * @param pName MBean registered or unregistered
+     * @param pRegistered true for a registration
+     */
+    synchronized void record(ObjectName pName, boolean pRegistered) {
+        version++;
+        owners.remove(pName);
+        if (pRegistered) {
+            // We don't know which server sent the notification, so every server which doesn't know the
+            // domain yet has to fetch its domains again. Domains of unregistered MBeans are kept, which
+            // only costs a needless query.
+            Iterator<Set<String>> it = domains.values().iterator();
+            while (it.hasNext()) {
+                if (!it.next().contains(pName.getDomain())) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Forget the owner of an MBean, e.g. when it couldn't be found there
+     *
+     * @param pName MBean name
+     */
+    void forget(ObjectName pName) {
+        owners.remove(pName);
+    }
+
+    private synchronized long getVersion() {
+        return version;
+    }
+
+    private synchronized void found(ObjectName pName, MBeanServerConnection pServer, long pVersion) {
+        if (pVersion == version) {
+            owners.put(pName, pServer);
+        }
+    }
+
+    // ==========================================================================================
+
+    /**
+     * Servers to try for accessing a single MBean
+     */
+    public static final class Route implements Iterable<MBeanServerConnection> {
+
+        private final MBeanRoutingIndex index;
+        private final ObjectName name;
+        private final Collection<MBeanServerConnection> servers;
+        private final long version;
+
+        /**
+         * Route which tries all servers in merge order and which is not remembered
+         *
+         * @param pServers servers to try
+         */
+        Route(Collection<MBeanServerConnection> pServers) {
+            this(null, null, pServers, 0);
+        }
+
+        private Route(MBeanRoutingIndex pIndex, ObjectName pName, Collection<MBeanServerConnection> pServers, long pVersion) {
+            index = pIndex;
+            name = pName;
+            servers = pServers;
+            version = pVersion;
+        }
+
+        /** {@inheritDoc} */
+        public Iterator<MBeanServerConnection> iterator() {
+            return servers.iterator();
+        }
+
+        /**
+         * Remember the server on which the MBean has been found. This must only be called
+         * if all servers tried before didn't hold the MBean and the access really reached the MBean
+         * on the given server. Actions which don't touch the MBean itself must check its registration
+         * and throw an {@link javax.management.InstanceNotFoundException} instead of returning normally
+         * when the server doesn't hold the MBean, otherwise a wrong owner gets remembered.
+         *
+         * @param pServer server holding the MBean
+         */
+        public void found(MBeanServerConnection pServer) {
+            if (index != null && name != null && !name.isPattern()) {
+                index.found(name, pServer, version);
+            }
+        }
+
+        /**
+         * Forget the owner of the MBean when it could not be found on any server
+         */
+        public void notFound() {
+            if (index != null && name != null) {
+                index.forget(name);
+            }
+        }
+    }
+}
@@ -51,6 +51,26 @@ public interface MBeanServerExecutor {
     void each(ObjectName pObjectName, MBeanEachCallback pCallback)
             throws IOException, ReflectionException, MBeanException;
 
+    /**
+     * Iterate over all MBeans like {@link #each(ObjectName, MBeanEachCallback)}, but split the work into
+     * fetching the data of a single MBean, which might be done concurrently, and merging the fetched data,
+     * which is always done within the calling thread. The data is merged in the same order in which
+     * {@link #each(ObjectName, MBeanEachCallback)} would visit the MBeans, so the result does not depend on
+     * the number of threads used.
+     *
+     * @param pObjectName object name to lookup, which can be a pattern in which case a query is performed.
+     * @param pCallback the callback for fetching and merging the data of every MBean found
+     * @param pTimeout time budget in milliseconds for the whole traversal. 0 or less means no limit.
+     * @param <R> type of the data fetched for a single MBean
+     *
+     * @throws IOException
+     * @throws ReflectionException
+     * @throws MBeanException
+     * @throws IllegalStateException if the traversal did not finish within the time budget
+     */
+    <R> void each(ObjectName pObjectName, MBeanFetchCallback<R> pCallback, long pTimeout)
+            throws IOException, ReflectionException, MBeanException;
+
     /**
      * Call an action an the first MBeanServer on which the action does not throw an InstanceNotFoundException
      * will considered to be successful and this method returns with the return value of the succesful
@@ -96,6 +116,16 @@ public interface MBeanServerExecutor {
      */
     boolean hasMBeansListChangedSince(long pTimestamp);
 
+    /**
+     * Get the MBeans which have been registered or unregistered since the given sequence number.
+     * The returned changes are incomplete if the changes can't be provided (e.g. because too many changes
+     * happened in between), in which case a full lookup is required.
+     *
+     * @param pSequence sequence number as returned with previously obtained changes
+     * @return the changes along with the current sequence number
+     */
+    RegistrationJournal.Changes getRegistrationChangesSince(long pSequence);
+
     /**
      * This callback is used together with {@link #each(ObjectName, MBeanEachCallback)} for iterating over all
      * active MBeanServers. The callback is responsible on its own to collect the information queried.
@@ -116,6 +146,42 @@ public interface MBeanServerExecutor {
                 throws ReflectionException, InstanceNotFoundException, IOException, MBeanException;
     }
 
+    /**
+     * Callback used together with {@link #each(ObjectName, MBeanFetchCallback, long)}.
+     *
+     * @param <R> type of the data fetched for a single MBean
+     */
+    interface MBeanFetchCallback<R> {
+        /**
+         * Fetch the data of a single MBean. This method might be called concurrently from multiple threads
+         * and must not modify any shared state.
+         *
+         * @param pConn MBeanServer holding the MBean
+         * @param pName name of the MBean
+         * @return the fetched data which is given to {@link #merge(ObjectName, Object)} later on
+         * @throws ReflectionException
+         * @throws InstanceNotFoundException
+         * @throws IOException
+         * @throws MBeanException
+         */
+        R fetch(MBeanServerConnection pConn, ObjectName pName)
+                throws ReflectionException, InstanceNotFoundException, IOException, MBeanException;
+
+        /**
+         * Merge the fetched data of an MBean into the overall result. This method is called sequentially
+         * in the order in which the MBeans are found.
+         *
+         * @param pName name of the MBean
+         * @param pData data as returned by {@link #fetch(MBeanServerConnection, ObjectName)}
+         * @throws ReflectionException
+         * @throws InstanceNotFoundException
+         * @throws IOException
+         * @throws MBeanException
+         */
+        void merge(ObjectName pName, R pData)
+                throws ReflectionException, InstanceNotFoundException, IOException, MBeanException;
+    }
+
     /**
      * A MBeanAction represent a single action on a MBeanServer for a given object name. The action is free
      * to throw a {@link InstanceNotFoundException} or {@link AttributeNotFoundException} if the object name or attribute
@@ -135,7 +201,8 @@ public interface MBeanServerExecutor {
          *
          * @throws ReflectionException
          * @throws InstanceNotFoundException if the MBean does not exist. For {@link #call(ObjectName, MBeanAction, Object...)} this
-         *         implies to try the next MBeanServer.
+         *         implies to try the next MBeanServer. It must be thrown and not be returned as result, since a normal
+         *         return means that the MBean has been found on the given MBeanServer.
          * @throws IOException
          * @throws MBeanException
          * @throws AttributeNotFoundException if an attribute is read, this exception indicates, that the attribute is not
@@ -0,0 +1,175 @@
+package org.jolokia.backend.executor;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.*;
+
+import javax.management.ObjectName;
+
+/**
+ * Bounded journal of MBean registrations and unregistrations. Every change gets a sequence
+ * number, so that clients can ask for the changes since the sequence number they have seen last.
+ * Only the most recent changes are kept; if older changes are requested, the caller has to fall
+ * back to a full lookup.
+ *
+ * Sequence numbers start with the creation time of the journal in milliseconds. This way, sequence numbers
+ * handed out by a previous instance (e.g. before an agent restart) are in practice always older than the
+ * journal and lead to a full lookup instead of a wrong delta.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+public class RegistrationJournal {
+
+    // Ring buffer of changes, the change with sequence s is stored at s % capacity
+    private final ObjectName[] names;
+    private final boolean[] registered;
+
+    // Sequence number of the last change
+    private long sequence;
+
+    // Sequence number before the first recorded change
+    private final long initialSequence;
+
+    // Whether changes are recorded at all
+    private boolean active;
+
+    /**
+     * Create a journal
+     *
+     * @param pCapacity maximum number of changes to remember
+     */
+    public RegistrationJournal(int pCapacity) {
+        names = new ObjectName[Math.max(pCapacity, 1)];
+        registered = new boolean[names.length];
+        initialSequence = System.currentTimeMillis();
+        sequence = initialSequence;
+    }
+
+    /**
+     * Start recording. Before this, the journal doesn't know about any changes
+     * and can't provide deltas.
+     */
+    public synchronized void activate() {
+        active = true;
+    }
+
+    /**
+     * Whether changes are recorded
+     *
+     * @return true if the journal has been activated
+     */
+    public synchronized boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Record a change
+     *
+     * @param pName MBean which has been registered or unregistered
+     * @param pRegistered true for a registration, false for an unregistration
+     */
+    public synchronized void record(ObjectName pName, boolean pRegistered) {
+        sequence++;
+        int idx = (int) (sequence % names.length);
+        names[idx] = pName;
+        registered[idx] = pRegistered;
+    }
+
+    /**
+     * Get the sequence number of the last change
+     *
+     * @return current sequence number
+     */
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Get the changes after the given sequence number.
+     *
+     * @param pSequence sequence number as returned by a previous call
+     * @return the changes, which are incomplete if the journal can't provide all changes since the given
+     *         sequence number
+     */
+    public synchronized Changes getChangesSince(long pSequence) {
+        long oldest = Math.max(initialSequence, sequence - names.length);
+        if (!active || pSequence < oldest || pSequence > sequence) {
+            return new Changes(sequence, false, Collections.<ObjectName>emptySet(), Collections.<ObjectName>emptySet());
+        }
+        // A name which is registered again after an unregistration is reported as added, since its
+        // meta data might have changed. A name registered and unregistered in between is reported as removed.
+        Set<ObjectName> added = new LinkedHashSet<ObjectName>();
+        Set<ObjectName> removed = new LinkedHashSet<ObjectName>();
+        for (long s = pSequence + 1; s <= sequence; s++) {
+            int idx = (int) (s % names.length);
+            if (registered[idx]) {
+                removed.remove(names[idx]);
+                added.add(names[idx]);
+            } else {
+                added.remove(names[idx]);
+                removed.add(names[idx]);
+            }
+        }
+        return new Changes(sequence, true, added, removed);
+    }
+
+    /**
+     * Changes of the MBean registrations since a given sequence number
+     */
+    public static final class Changes {
+        private final long sequence;
+        private final boolean complete;
+        private final Set<ObjectName> added;
+        private final Set<ObjectName> removed;
+
+        private Changes(long pSequence, boolean pComplete, Set<ObjectName> pAdded, Set<ObjectName> pRemoved) {
+            sequence = pSequence;
+            complete = pComplete;
+            added = pAdded;
+            removed = pRemoved;
+        }
+
+        /**
+         * @return sequence number of the last change included
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * @return false if the journal couldn't provide all changes, so that a full lookup is required
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+
+        /**
+         * @return names of MBeans which have been registered
+         */
+        public Set<ObjectName> getAdded() {
+            return added;
+        }
+
+        /**
+         * @return names of MBeans which have been unregistered
+         */
+        public Set<ObjectName> getRemoved() {
+            return removed;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.jolokia.backend.executor;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Exception thrown when the time budget of a request is exhausted before
+ * an MBean could be accessed.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+public class RequestTimeoutException extends IllegalStateException {
+
+    private static final long serialVersionUID = 42L;
+
+    /**
+     * Constructor
+     *
+     * @param pMessage error message
+     */
+    public RequestTimeoutException(String pMessage) {
+        super(pMessage);
+    }
+}
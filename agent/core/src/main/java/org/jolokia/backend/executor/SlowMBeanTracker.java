@@ -0,0 +1,139 @@
+package org.jolokia.backend.executor;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.*;
+
+import javax.management.ObjectName;
+
+/**
+ * Bookkeeping of MBeans whose access used up the time budget of a request. Only the
+ * most recently seen slow MBeans are remembered.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+public class SlowMBeanTracker {
+
+    /**
+     * Maximum number of MBeans remembered
+     */
+    public static final int MAX_ENTRIES = 100;
+
+    private final Map<ObjectName, Stats> slowMBeans =
+            new LinkedHashMap<ObjectName, Stats>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<ObjectName, Stats> pEldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            };
+
+    /**
+     * Record a slow access
+     *
+     * @param pName MBean accessed
+     * @param pDuration duration of the access in milliseconds
+     */
+    public synchronized void record(ObjectName pName, long pDuration) {
+        Stats stats = slowMBeans.get(pName);
+        if (stats == null) {
+            stats = new Stats();
+            slowMBeans.put(pName, stats);
+        }
+        stats.count++;
+        stats.lastDuration = pDuration;
+        stats.maxDuration = Math.max(stats.maxDuration, pDuration);
+        stats.lastTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Check whether an MBean has been slow before
+     *
+     * @param pName MBean to check
+     * @return true if the MBean has been recorded as slow
+     */
+    public synchronized boolean isSlow(ObjectName pName) {
+        return slowMBeans.containsKey(pName);
+    }
+
+    /**
+     * Get a snapshot of all slow MBeans
+     *
+     * @return map with the MBean names as keys and the statistics as values
+     */
+    public synchronized Map<ObjectName, Stats> getSlowMBeans() {
+        Map<ObjectName, Stats> ret = new LinkedHashMap<ObjectName, Stats>();
+        for (Map.Entry<ObjectName, Stats> e : slowMBeans.entrySet()) {
+            ret.put(e.getKey(), e.getValue().copy());
+        }
+        return ret;
+    }
+
+    /**
+     * Forget about all slow MBeans
+     */
+    public synchronized void clear() {
+        slowMBeans.clear();
+    }
+
+    /**
+     * Statistics for a single slow MBean
+     */
+    public static final class Stats {
+        private int count;
+        private long lastDuration;
+        private long maxDuration;
+        private long lastTime;
+
+        private Stats copy() {
+            Stats ret = new Stats();
+            ret.count = count;
+            ret.lastDuration = lastDuration;
+            ret.maxDuration = maxDuration;
+            ret.lastTime = lastTime;
+            return ret;
+        }
+
+        /**
+         * @return how often the MBean has been slow
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * @return duration of the last slow access in milliseconds
+         */
+        public long getLastDuration() {
+            return lastDuration;
+        }
+
+        /**
+         * @return longest duration of a slow access in milliseconds
+         */
+        public long getMaxDuration() {
+            return maxDuration;
+        }
+
+        /**
+         * @return epoch time in milliseconds of the last slow access
+         */
+        public long getLastTime() {
+            return lastTime;
+        }
+    }
+}
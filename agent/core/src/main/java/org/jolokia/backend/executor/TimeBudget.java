@@ -0,0 +1,136 @@
+package org.jolokia.backend.executor;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time budget of the request which is currently processed. The budget is attached to the
+ * processing thread by the {@link org.jolokia.backend.BackendManager}, so that the
+ * {@link MBeanServerExecutor}s can check it before accessing an MBean without passing
+ * it through all handlers.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+public final class TimeBudget {
+
+    /**
+     * Budget without any time limit
+     */
+    public static final TimeBudget UNLIMITED = new TimeBudget(0);
+
+    // Budget of the request processed by the current thread
+    private static final ThreadLocal<TimeBudget> CURRENT = new ThreadLocal<TimeBudget>();
+
+    // Timeout in milliseconds, 0 if unlimited
+    private final long timeout;
+
+    // Start in nanoseconds
+    private final long start;
+
+    private TimeBudget(long pTimeout) {
+        timeout = pTimeout;
+        start = System.nanoTime();
+    }
+
+    /**
+     * Start a new budget
+     *
+     * @param pTimeout timeout in milliseconds. 0 or less means no limit.
+     * @return the started budget
+     */
+    public static TimeBudget start(long pTimeout) {
+        return pTimeout > 0 ? new TimeBudget(pTimeout) : UNLIMITED;
+    }
+
+    /**
+     * Get the budget attached to the current thread
+     *
+     * @return the current budget or {@link #UNLIMITED} if no budget is attached
+     */
+    public static TimeBudget current() {
+        TimeBudget budget = CURRENT.get();
+        return budget != null ? budget : UNLIMITED;
+    }
+
+    /**
+     * Attach a budget to the current thread
+     *
+     * @param pBudget budget to attach. If null or {@link #UNLIMITED}, the current budget is removed.
+     */
+    public static void attach(TimeBudget pBudget) {
+        if (pBudget == null || pBudget == UNLIMITED) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(pBudget);
+        }
+    }
+
+    /**
+     * Whether this budget has a time limit at all
+     *
+     * @return true if limited
+     */
+    public boolean isLimited() {
+        return timeout > 0;
+    }
+
+    /**
+     * Whether the budget is used up
+     *
+     * @return true if this budget is limited and the time is over
+     */
+    public boolean isExpired() {
+        return timeout > 0 && getElapsed() >= timeout;
+    }
+
+    /**
+     * Remaining time of this budget
+     *
+     * @return remaining time in milliseconds (0 if expired) or {@link Long#MAX_VALUE} for an unlimited budget
+     */
+    public long getRemaining() {
+        return timeout > 0 ? Math.max(timeout - getElapsed(), 0) : Long.MAX_VALUE;
+    }
+
+    /**
+     * Get the configured timeout
+     *
+     * @return timeout in milliseconds or 0 if unlimited
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Verify that there is still time left for accessing the given MBean
+     *
+     * @param pName MBean which is going to be accessed
+     * @throws RequestTimeoutException if the budget is used up
+     */
+    public void check(Object pName) {
+        if (isExpired()) {
+            throw new RequestTimeoutException("Time budget of " + timeout + " ms exceeded before accessing " + pName);
+        }
+    }
+
+    // Elapsed time in milliseconds
+    private long getElapsed() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
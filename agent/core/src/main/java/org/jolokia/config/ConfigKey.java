@@ -37,6 +37,17 @@ public enum ConfigKey {
      */
     HISTORY_MAX_ENTRIES("historyMaxEntries",true, false, "10"),
 
+    /**
+     * Interval in milliseconds in which attributes configured for sampling are read
+     * in the background
+     */
+    SAMPLING_INTERVAL("samplingInterval",true, false, "1000"),
+
+    /**
+     * Maximum number of samples to keep for a single sampled attribute
+     */
+    SAMPLING_MAX_ENTRIES("samplingMaxEntries",true, false, "3600"),
+
     /**
      * Whether debug is switched on or not
      */
@@ -47,6 +58,76 @@ public enum ConfigKey {
      */
     DEBUG_MAX_ENTRIES("debugMaxEntries",true, false, "100"),
 
+    /**
+     * Maximum number of notifications to keep per notification client. If more
+     * notifications arrive before they are fetched, the oldest ones are dropped.
+     */
+    NOTIFICATION_MAX_QUEUE_SIZE("notificationMaxQueueSize",true, false, "1000"),
+
+    /**
+     * Time in milliseconds after which a notification client is removed
+     * together with its listeners when it has not been active.
+     */
+    NOTIFICATION_CLIENT_TIMEOUT("notificationClientTimeout",true, false, "300000"),
+
+    /**
+     * Maximum number of parsed requests to cache for repeated, identical GET URLs
+     * and POST bodies. Set to 0 (the default) for switching off the cache.
+     */
+    REQUEST_CACHE_SIZE("requestCacheSize",true, false, "0"),
+
+    /**
+     * Maximum number of threads used for fetching the data of MBeans concurrently when a
+     * <code>read</code> with an MBean pattern or a <code>list</code> request visits many MBeans.
+     * The default of 1 visits all MBeans sequentially within the request thread.
+     */
+    TRAVERSAL_PARALLELISM("traversalParallelism",true, false, "1"),
+
+    /**
+     * Time budget in milliseconds for visiting the MBeans of a <code>read</code> with an MBean
+     * pattern or a <code>list</code> request. The request fails when the budget is exceeded.
+     * By default there is no limit.
+     */
+    TRAVERSAL_TIMEOUT("traversalTimeout",true, true),
+
+    /**
+     * Time budget in milliseconds for a single request. When the budget is used up, attributes
+     * and MBeans which have not been visited yet are reported via the value fault handler, i.e. as
+     * errors within the result if <code>ignoreErrors</code> is set or by failing the request otherwise.
+     * By default there is no limit.
+     */
+    TIMEOUT("timeout",true, true),
+
+    /**
+     * Timeout in milliseconds for a single MBean call. If set, MBean calls are executed isolated in
+     * a bulkhead so that a hanging MBean does not block the request thread. By default, MBeans are
+     * called directly.
+     */
+    BULKHEAD_TIMEOUT("bulkheadTimeout",true, false, "0"),
+
+    /**
+     * How calls are grouped for limiting the number of concurrent calls within the bulkhead:
+     * "domain" for all MBeans of a domain or "mbean" for every single MBean.
+     */
+    BULKHEAD_SCOPE("bulkheadScope",true, false, "domain"),
+
+    /**
+     * Maximum number of concurrent calls per domain or MBean within the bulkhead.
+     * Further calls are rejected. 0 means no limit.
+     */
+    BULKHEAD_MAX_CALLS("bulkheadMaxCalls",true, false, "4"),
+
+    /**
+     * Number of consecutive timeouts after which an MBean is not called anymore for
+     * some time (see {@link #CIRCUIT_BREAKER_DELAY}). 0 switches the circuit breaker off.
+     */
+    CIRCUIT_BREAKER_THRESHOLD("circuitBreakerThreshold",true, false, "3"),
+
+    /**
+     * Time in milliseconds for which an MBean is not called after it has repeatedly timed out
+     */
+    CIRCUIT_BREAKER_DELAY("circuitBreakerDelay",true, false, "30000"),
+
     /**
      * Request Dispatcher to use in addition to the local dispatcher.
      */
@@ -80,6 +161,21 @@ public enum ConfigKey {
      */
     MAX_OBJECTS("maxObjects",true, true),
 
+    /**
+     * Format for tabular data which does not represent an MXBean map. "map" (the default) returns
+     * nested maps keyed by the index values, "columnar" returns the column names once followed
+     * by an array with the values of each row.
+     */
+    TABULAR_FORMAT("tabularFormat",true, true, "map"),
+
+    /**
+     * Layout of the value returned for a read request with an MBean pattern. If set to "columnar",
+     * the MBean names and the attribute names are returned once, followed by a row with the attribute
+     * values for every MBean. Otherwise (the default) a map with the MBean names as keys and maps of
+     * attribute names and values as values is returned.
+     */
+    READ_FORMAT("readFormat",false, true),
+
     /**
      * Custom restrictor to be used instead of default one
      */
@@ -178,6 +274,44 @@ public enum ConfigKey {
      */
     IF_MODIFIED_SINCE("ifModifiedSince",false,true),
 
+    /**
+     * For LIST requests, return only the MBeans which have been registered or
+     * unregistered since the given sequence number. The sequence number is
+     * returned by every list request using this option. If the changes
+     * since this sequence number are not known anymore, the full list is
+     * returned.
+     */
+    LIST_SINCE("since",false,true),
+
+    /**
+     * Number of MBean registration changes remembered for incremental list requests
+     * (see {@link #LIST_SINCE}).
+     */
+    LIST_JOURNAL_SIZE("listJournalSize",true, false, "1000"),
+
+    /**
+     * Whether accesses to a single MBean are routed to the MBeanServer known to hold it and
+     * queries skip MBeanServers without the queried domain. The routing is kept up to date by
+     * MBean registration notifications, so it can be switched off for MBeanServers which don't
+     * emit them reliably.
+     */
+    MBEAN_ROUTING_INDEX("mbeanRoutingIndex",true, false, "true"),
+
+    /**
+     * Whether to keep the result of list requests without a path in a cache which
+     * is updated incrementally when MBeans are registered or unregistered. Changes
+     * of the meta data of an MBean while it is registered are not detected.
+     */
+    LIST_CACHE("listCache",true, false, "false"),
+
+    /**
+     * Rules selecting the MBean attributes which are exported in the OpenMetrics text format
+     * below the path <code>/metrics</code>. Rules are separated by semicolons and have the format
+     * <code>&lt;mbean pattern&gt;[/&lt;attribute&gt;[/&lt;inner path&gt;]]</code>. The metrics
+     * endpoint is switched off unless rules are given.
+     */
+    METRICS("metrics",true, false),
+
     /**
      * Whether to enable listening and responding to discovery multicast requests
      * for discovering agent details.
@@ -306,6 +440,13 @@ public enum ConfigKey {
      */
     DETECTOR_OPTIONS("detectorOptions",true, false),
 
+    /**
+     * Whether to detect the server in the background. The agent can then serve requests
+     * right away, information about the server (e.g. for version requests) is provided
+     * as soon as the detection has finished.
+     */
+    LAZY_SERVER_DETECTION("lazyServerDetection",true, false, "false"),
+
     /**
      * Extra options which are passed to {@link MBeanPlugin}. As for {@link #DETECTOR_OPTIONS}, the value
      * must be a JSON object in string representation where the keys are MBean plugin ids and the values are
@@ -8,6 +8,7 @@ import java.util.Stack;
 import javax.management.AttributeNotFoundException;
 
 import org.jolokia.converter.object.StringToObjectConverter;
+import org.jolokia.util.PathCursor;
 import org.json.simple.JSONArray;
 
 /*
@@ -33,7 +34,7 @@ import org.json.simple.JSONArray;
  * @author roland
  * @since Apr 19, 2009
  */
-public class ArrayExtractor implements Extractor {
+public class ArrayExtractor implements PathExtractor {
 
     /** {@inheritDoc} */
     public Class getType() {
@@ -41,6 +42,12 @@ public class ArrayExtractor implements Extractor {
         return null;
     }
 
+    /** {@inheritDoc} */
+    public Object extractObject(ObjectToJsonConverter pConverter, Object pValue, Stack<String> pPathParts, boolean jsonify)
+            throws AttributeNotFoundException {
+        return extractObject(pConverter, pValue, PathCursor.fromStack(pPathParts), jsonify);
+    }
+
     /**
      * Extract an array and, if to be jsonified, put it into an {@link JSONArray}. An index can be used (on top of
      * the extra args stack) in order to specify a single value within the array.
@@ -48,21 +55,21 @@ public class ArrayExtractor implements Extractor {
      * @param pConverter the global converter in order to be able do dispatch for
      *        serializing inner data types
      * @param pValue the value to convert (must be an aary)
-     * @param pPathParts extra arguments stack, which is popped to get an index for extracting a single element
-     *                   of the array
+     * @param pPath path whose current element is used as index for extracting a single element
+     *              of the array
      * @param jsonify whether to convert to a JSON object/list or whether the plain object
      *        should be returned. The later is required for writing an inner value
      * @return the extracted object
      * @throws AttributeNotFoundException
      * @throws IndexOutOfBoundsException if an index is used which points outside the given list
      */
-    public Object extractObject(ObjectToJsonConverter pConverter, Object pValue, Stack<String> pPathParts,boolean jsonify) throws AttributeNotFoundException {
+    public Object extractObject(ObjectToJsonConverter pConverter, Object pValue, PathCursor pPath,boolean jsonify) throws AttributeNotFoundException {
         int length = pConverter.getCollectionLength(Array.getLength(pValue));
-        String pathPart = pPathParts.isEmpty() ? null : pPathParts.pop();
+        String pathPart = pPath.isEmpty() ? null : pPath.current();
         if (pathPart != null) {
-            return extractWithPath(pConverter, pValue, pPathParts, jsonify, pathPart);
+            return extractWithPath(pConverter, pValue, pPath.next(), jsonify, pathPart);
         } else {
-            return jsonify ? extractArray(pConverter, pValue, pPathParts, jsonify, length) : pValue;
+            return jsonify ? extractArray(pConverter, pValue, pPath.next(), jsonify, length) : pValue;
         }
     }
 
@@ -105,13 +112,12 @@ public class ArrayExtractor implements Extractor {
         return true;
     }
 
-    private List<Object> extractArray(ObjectToJsonConverter pConverter, Object pValue, Stack<String> pPath, boolean jsonify, int pLength) throws AttributeNotFoundException {
+    private List<Object> extractArray(ObjectToJsonConverter pConverter, Object pValue, PathCursor pPath, boolean jsonify, int pLength) throws AttributeNotFoundException {
         List<Object> ret = new JSONArray();
         for (int i = 0; i < pLength; i++) {
-            Stack<String> path = (Stack<String>) pPath.clone();
             try {
                 Object obj = Array.get(pValue, i);
-                ret.add(pConverter.extractObject(obj, path, jsonify));
+                ret.add(pConverter.extractObject(obj, pPath, jsonify));
             } catch (ValueFaultHandler.AttributeFilteredException exp) {
                 // Filtered ...
             }
@@ -122,7 +128,7 @@ public class ArrayExtractor implements Extractor {
         return ret;
     }
 
-    private Object extractWithPath(ObjectToJsonConverter pConverter, Object pValue, Stack<String> pPath, boolean jsonify, String pPathPart) throws AttributeNotFoundException {
+    private Object extractWithPath(ObjectToJsonConverter pConverter, Object pValue, PathCursor pPath, boolean jsonify, String pPathPart) throws AttributeNotFoundException {
         try {
             Object obj = Array.get(pValue, Integer.parseInt(pPathPart));
             return pConverter.extractObject(obj, pPath, jsonify);
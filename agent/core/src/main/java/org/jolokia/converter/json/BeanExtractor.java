@@ -11,7 +11,7 @@ import java.util.*;
 import javax.management.AttributeNotFoundException;
 
 import org.jolokia.converter.object.StringToObjectConverter;
-import org.jolokia.util.EscapeUtil;
+import org.jolokia.util.PathCursor;
 import org.json.simple.JSONAware;
 import org.json.simple.JSONObject;
 
@@ -38,7 +38,7 @@ import org.json.simple.JSONObject;
  * @author roland
  * @since Apr 19, 2009
  */
-public class BeanExtractor implements Extractor {
+public class BeanExtractor implements PathExtractor {
 
     private static final Set<Class> FINAL_CLASSES = new HashSet<Class>(Arrays.asList(
             String.class,
@@ -71,22 +71,28 @@ public class BeanExtractor implements Extractor {
         return Object.class;
     }
 
+    /** {@inheritDoc} */
+    public Object extractObject(ObjectToJsonConverter pConverter, Object pValue, Stack<String> pPathParts, boolean jsonify)
+            throws AttributeNotFoundException {
+        return extractObject(pConverter, pValue, PathCursor.fromStack(pPathParts), jsonify);
+    }
+
     /** {@inheritDoc} */
     @SuppressWarnings("PMD.CompareObjectsWithEquals")
     public Object extractObject(ObjectToJsonConverter pConverter, Object pValue,
-                                Stack<String> pPathParts, boolean jsonify)
+                                PathCursor pPathParts, boolean jsonify)
             throws AttributeNotFoundException {
         // Wrap fault handler if a wildcard path pattern is present
         ValueFaultHandler faultHandler = pConverter.getValueFaultHandler();
-        String pathPart = pPathParts.isEmpty() ? null : pPathParts.pop();
+        String pathPart = pPathParts.isEmpty() ? null : pPathParts.current();
         if (pathPart != null) {
             // Still some path elements available, so dive deeper
             Object attributeValue = extractBeanPropertyValue(pValue, pathPart, faultHandler);
-            return pConverter.extractObject(attributeValue, pPathParts, jsonify);
+            return pConverter.extractObject(attributeValue, pPathParts.next(), jsonify);
         } else {
             if (jsonify) {
                 // We need the jsonfied value from here on.
-                return exctractJsonifiedValue(pConverter, pValue, pPathParts);
+                return exctractJsonifiedValue(pConverter, pValue, pPathParts.next());
             } else {
                 // No jsonification requested, hence we are returning the object itself
                 return pValue;
@@ -141,9 +147,19 @@ public class BeanExtractor implements Extractor {
         return true;
     }
 
+    /**
+     * Check whether values of the given class are returned as they are when converting to JSON
+     *
+     * @param pClazz class to check
+     * @return true if the value itself is the JSON representation
+     */
+    static boolean isFinalClass(Class pClazz) {
+        return FINAL_CLASSES.contains(pClazz);
+    }
+
     // =====================================================================================================
 
-    private Object exctractJsonifiedValue(ObjectToJsonConverter pConverter, Object pValue, Stack<String> pPathParts)
+    private Object exctractJsonifiedValue(ObjectToJsonConverter pConverter, Object pValue, PathCursor pPathParts)
             throws AttributeNotFoundException {
         if (pValue.getClass().isPrimitive() || FINAL_CLASSES.contains(pValue.getClass()) || pValue instanceof JSONAware) {
             // No further diving, use these directly
@@ -160,12 +176,11 @@ public class BeanExtractor implements Extractor {
         }
     }
 
-    private Object extractBeanValues(ObjectToJsonConverter pConverter, Object pValue, Stack<String> pPathParts, List<String> pAttributes) throws AttributeNotFoundException {
+    private Object extractBeanValues(ObjectToJsonConverter pConverter, Object pValue, PathCursor pPathParts, List<String> pAttributes) throws AttributeNotFoundException {
         Map ret = new JSONObject();
         for (String attribute : pAttributes) {
-            Stack path = (Stack) pPathParts.clone();
             try {
-                ret.put(attribute, extractJsonifiedPropertyValue(pConverter, pValue, attribute, path));
+                ret.put(attribute, extractJsonifiedPropertyValue(pConverter, pValue, attribute, pPathParts));
             } catch (ValueFaultHandler.AttributeFilteredException exp) {
                 // Skip it since we are doing a path with wildcards, filtering out non-matchin attrs.
            }
@@ -178,20 +193,20 @@ public class BeanExtractor implements Extractor {
     }
 
     @SuppressWarnings("PMD.CompareObjectsWithEquals")
-    private Object extractJsonifiedPropertyValue(ObjectToJsonConverter pConverter, Object pValue, String pAttribute, Stack<String> pPathParts)
+    private Object extractJsonifiedPropertyValue(ObjectToJsonConverter pConverter, Object pValue, String pAttribute, PathCursor pPathParts)
             throws AttributeNotFoundException {
         ValueFaultHandler faultHandler = pConverter.getValueFaultHandler();
         Object value = extractBeanPropertyValue(pValue, pAttribute, faultHandler);
         if (value == null) {
             if (!pPathParts.isEmpty()) {
                 faultHandler.handleException(new AttributeNotFoundException(
-                        "Cannot apply remaining path " + EscapeUtil.combineToPath(pPathParts) + " on value null"));
+                        "Cannot apply remaining path " + pPathParts + " on value null"));
             }
             return null;
         } else if (value == pValue) {
             if (!pPathParts.isEmpty()) {
                 faultHandler.handleException(new AttributeNotFoundException(
-                        "Cannot apply remaining path " + EscapeUtil.combineToPath(pPathParts) + " on a cycle"));
+                        "Cannot apply remaining path " + pPathParts + " on a cycle"));
             }
             // Break Cycle
             return "[this]";
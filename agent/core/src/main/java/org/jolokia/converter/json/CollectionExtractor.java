@@ -22,6 +22,7 @@ import java.util.*;
 import javax.management.AttributeNotFoundException;
 
 import org.jolokia.converter.object.StringToObjectConverter;
+import org.jolokia.util.PathCursor;
 import org.json.simple.JSONArray;
 
 /**
@@ -33,13 +34,19 @@ import org.json.simple.JSONArray;
  * @author roland
  * @since 18.10.11
  */
-public class CollectionExtractor implements Extractor {
+public class CollectionExtractor implements PathExtractor {
 
     /** {@inheritDoc} */
     public Class getType() {
         return Collection.class;
     }
 
+    /** {@inheritDoc} */
+    public Object extractObject(ObjectToJsonConverter pConverter, Object pValue, Stack<String> pPathParts, boolean jsonify)
+            throws AttributeNotFoundException {
+        return extractObject(pConverter, pValue, PathCursor.fromStack(pPathParts), jsonify);
+    }
+
     /**
      * Converts a collection to an JSON array. No path access is supported here
      *
@@ -51,18 +58,18 @@ public class CollectionExtractor implements Extractor {
      *        should be returned. The later is required for writing an inner value
      * @return the extracted object
      */
-    public Object extractObject(ObjectToJsonConverter pConverter, Object pValue, Stack<String> pPathParts, boolean jsonify) throws AttributeNotFoundException {
+    public Object extractObject(ObjectToJsonConverter pConverter, Object pValue, PathCursor pPathParts, boolean jsonify) throws AttributeNotFoundException {
         Collection collection = (Collection) pValue;
-        String pathPart = pPathParts.isEmpty() ? null : pPathParts.pop();
+        String pathPart = pPathParts.isEmpty() ? null : pPathParts.current();
         int length = pConverter.getCollectionLength(collection.size());
         if (pathPart != null) {
-            return extractWithPath(pConverter, collection, pPathParts, jsonify, pathPart, length);
+            return extractWithPath(pConverter, collection, pPathParts.next(), jsonify, pathPart, length);
         } else {
-            return jsonify ? extractListAsJson(pConverter, collection, pPathParts, length) : collection;
+            return jsonify ? extractListAsJson(pConverter, collection, pPathParts.next(), length) : collection;
         }
     }
 
-    private Object extractWithPath(ObjectToJsonConverter pConverter, Collection pCollection, Stack<String> pPathParts, boolean pJsonify, String pPathPart,int pLength) throws AttributeNotFoundException {
+    private Object extractWithPath(ObjectToJsonConverter pConverter, Collection pCollection, PathCursor pPathParts, boolean pJsonify, String pPathPart,int pLength) throws AttributeNotFoundException {
         try {
             int idx = Integer.parseInt(pPathPart);
             return pConverter.extractObject(getElement(pCollection,idx,pLength), pPathParts, pJsonify);
@@ -90,13 +97,12 @@ public class CollectionExtractor implements Extractor {
         throw new IndexOutOfBoundsException("Collection index " + pIdx + " larger than size " + pLength);
     }
 
-    private Object extractListAsJson(ObjectToJsonConverter pConverter, Collection pCollection, Stack<String> pPathParts, int pLength) throws AttributeNotFoundException {
+    private Object extractListAsJson(ObjectToJsonConverter pConverter, Collection pCollection, PathCursor pPathParts, int pLength) throws AttributeNotFoundException {
         List ret = new JSONArray();
         Iterator it = pCollection.iterator();
         for (int i = 0;i < pLength; i++) {
             Object val = it.next();
-            Stack<String> path = (Stack<String>) pPathParts.clone();
-            ret.add(pConverter.extractObject(val, path, true));
+            ret.add(pConverter.extractObject(val, pPathParts, true));
         }
         return ret;
     }
@@ -9,6 +9,7 @@ import javax.management.openmbean.CompositeData;
 import javax.management.openmbean.InvalidKeyException;
 
 import org.jolokia.converter.object.StringToObjectConverter;
+import org.jolokia.util.PathCursor;
 import org.json.simple.JSONObject;
 
 /*
@@ -34,37 +35,42 @@ import org.json.simple.JSONObject;
  * @author roland
  * @since Apr 19, 2009
  */
-public class CompositeDataExtractor implements Extractor {
+public class CompositeDataExtractor implements PathExtractor {
 
     /** {@inheritDoc} */
     public Class getType() {
         return CompositeData.class;
     }
 
+    /** {@inheritDoc} */
+    public Object extractObject(ObjectToJsonConverter pConverter, Object pValue, Stack<String> pPathParts, boolean jsonify)
+            throws AttributeNotFoundException {
+        return extractObject(pConverter, pValue, PathCursor.fromStack(pPathParts), jsonify);
+    }
+
     /** {@inheritDoc} */
     @SuppressWarnings("PMD.PreserveStackTrace")
     public Object extractObject(ObjectToJsonConverter pConverter, Object pValue,
-                                Stack<String> pPathParts,boolean jsonify) throws AttributeNotFoundException {
+                                PathCursor pPathParts,boolean jsonify) throws AttributeNotFoundException {
         CompositeData cd = (CompositeData) pValue;
 
-        String pathPart = pPathParts.isEmpty() ? null : pPathParts.pop();
+        String pathPart = pPathParts.isEmpty() ? null : pPathParts.current();
         if (pathPart != null) {
             try {
-                return pConverter.extractObject(cd.get(pathPart), pPathParts, jsonify);
+                return pConverter.extractObject(cd.get(pathPart), pPathParts.next(), jsonify);
             } catch (InvalidKeyException exp) {
                 return pConverter.getValueFaultHandler().handleException(new AttributeNotFoundException("Invalid path '" + pathPart + "'"));
             }
         } else {
-            return jsonify ? extractCompleteCdAsJson(pConverter, cd, pPathParts) : cd;
+            return jsonify ? extractCompleteCdAsJson(pConverter, cd, pPathParts.next()) : cd;
         }
     }
 
-    private Object extractCompleteCdAsJson(ObjectToJsonConverter pConverter, CompositeData pData, Stack<String> pPath) throws AttributeNotFoundException {
+    private Object extractCompleteCdAsJson(ObjectToJsonConverter pConverter, CompositeData pData, PathCursor pPath) throws AttributeNotFoundException {
         JSONObject ret = new JSONObject();
         for (String key : (Set<String>) pData.getCompositeType().keySet()) {
-            Stack<String> path = (Stack<String>) pPath.clone();
             try {
-                ret.put(key, pConverter.extractObject(pData.get(key), path, true));
+                ret.put(key, pConverter.extractObject(pData.get(key), pPath, true));
             } catch (ValueFaultHandler.AttributeFilteredException exp) {
                 // Ignore this key;
             }
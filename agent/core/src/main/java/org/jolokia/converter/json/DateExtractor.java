@@ -8,6 +8,7 @@ import javax.management.AttributeNotFoundException;
 
 import org.jolokia.converter.object.StringToObjectConverter;
 import org.jolokia.util.DateUtil;
+import org.jolokia.util.PathCursor;
 
 /*
  * Copyright 2009-2013 Roland Huss
@@ -33,7 +34,7 @@ import org.jolokia.util.DateUtil;
  * @author roland
  * @since 17.04.11
  */
-public class DateExtractor implements Extractor {
+public class DateExtractor implements PathExtractor {
 
     /** {@inheritDoc} */
     public Class getType() {
@@ -41,12 +42,18 @@ public class DateExtractor implements Extractor {
     }
 
     /** {@inheritDoc} */
-    public Object extractObject(ObjectToJsonConverter pConverter, Object pValue, Stack<String> pPathParts, boolean jsonify) throws AttributeNotFoundException {
+    public Object extractObject(ObjectToJsonConverter pConverter, Object pValue, Stack<String> pPathParts, boolean jsonify)
+            throws AttributeNotFoundException {
+        return extractObject(pConverter, pValue, PathCursor.fromStack(pPathParts), jsonify);
+    }
+
+    /** {@inheritDoc} */
+    public Object extractObject(ObjectToJsonConverter pConverter, Object pValue, PathCursor pPathParts, boolean jsonify) throws AttributeNotFoundException {
         if (!jsonify) {
             return pValue;
         }
         Date date = (Date) pValue;
-        String pathPart = pPathParts.isEmpty() ? null : pPathParts.pop();
+        String pathPart = pPathParts.isEmpty() ? null : pPathParts.current();
         if (pathPart != null) {
             if (!"time".equals(pathPart)) {
                 return pConverter.getValueFaultHandler().handleException(
@@ -6,6 +6,7 @@ import java.util.Stack;
 import javax.management.AttributeNotFoundException;
 
 import org.jolokia.converter.object.StringToObjectConverter;
+import org.jolokia.util.PathCursor;
 
 /**
  * Extractor for extracting enums. Enums are represented by the canonical name (Enum.name()).
@@ -13,7 +14,7 @@ import org.jolokia.converter.object.StringToObjectConverter;
  * @author roland
  * @since 18.02.13
  */
-public class EnumExtractor implements Extractor {
+public class EnumExtractor implements PathExtractor {
 
     /** {@inheritDoc} */
     public Class getType() {
@@ -21,8 +22,14 @@ public class EnumExtractor implements Extractor {
     }
 
     /** {@inheritDoc} */
-    public Object extractObject(ObjectToJsonConverter pConverter, Object pValue, Stack<String> pPathPart, boolean jsonify) throws AttributeNotFoundException {
-        String pathPart = pPathPart.isEmpty() ? null : pPathPart.pop();
+    public Object extractObject(ObjectToJsonConverter pConverter, Object pValue, Stack<String> pPathParts, boolean jsonify)
+            throws AttributeNotFoundException {
+        return extractObject(pConverter, pValue, PathCursor.fromStack(pPathParts), jsonify);
+    }
+
+    /** {@inheritDoc} */
+    public Object extractObject(ObjectToJsonConverter pConverter, Object pValue, PathCursor pPathPart, boolean jsonify) throws AttributeNotFoundException {
+        String pathPart = pPathPart.isEmpty() ? null : pPathPart.current();
         Enum en = (Enum) pValue;
         String name = en.name();
         if (pathPart != null) {
@@ -51,13 +51,17 @@ public final class JsonConvertOptions {
     // extracting of an value fails
     private ValueFaultHandler faultHandler;
 
+    // Whether tabular data should be returned in columnar form
+    private boolean columnarTabularData;
+
     // Use a builder to construct this object
     private JsonConvertOptions(int pMaxDepth, int pMaxCollectionSize, int pMaxObjects,
-                               ValueFaultHandler pFaultHandler) {
+                               ValueFaultHandler pFaultHandler, boolean pColumnarTabularData) {
         maxDepth = pMaxDepth;
         maxCollectionSize = pMaxCollectionSize;
         maxObjects = pMaxObjects;
         faultHandler = pFaultHandler;
+        columnarTabularData = pColumnarTabularData;
     }
 
     /**
@@ -91,6 +95,20 @@ public final class JsonConvertOptions {
                 pCollectionSize;
     }
 
+    /**
+     * Check whether a value with the given structure can be converted without hitting any limit
+     *
+     * @param pDepth number of nesting levels of the value
+     * @param pMaxCollectionSize size of the largest collection within the value
+     * @param pObjectCount number of objects within the value
+     * @return true if no limit would truncate the value
+     */
+    public boolean isWithinLimits(int pDepth, int pMaxCollectionSize, int pObjectCount) {
+        return !maxDepthReached(pDepth - 1) &&
+               !maxObjectExceeded(pObjectCount) &&
+               getCollectionSizeTruncated(pMaxCollectionSize) == pMaxCollectionSize;
+    }
+
     /**
      * Get the configure fault handler which determines, how extractions fault are dealt with
      *
@@ -100,6 +118,16 @@ public final class JsonConvertOptions {
         return faultHandler;
     }
 
+    /**
+     * Whether tabular data (other than MXBean maps) should be converted into the columnar form
+     * with the column names and an array of value rows
+     *
+     * @return true for the columnar form, false for nested maps
+     */
+    public boolean isColumnarTabularData() {
+        return columnarTabularData;
+    }
+
     // ===================================================================================
 
     /**
@@ -117,6 +145,7 @@ public final class JsonConvertOptions {
 
         private ValueFaultHandler faultHandler;
         private boolean useAttributeFilter;
+        private boolean columnarTabularData;
 
         /**
          * Default constructor using default hard limits
@@ -204,6 +233,18 @@ public final class JsonConvertOptions {
             useAttributeFilter = pUseFilter;
             return this;
         }
+
+        /**
+         * Whether tabular data should be returned in columnar form
+         *
+         * @param pColumnar true for the columnar form, false for the default nested maps
+         * @return this builder
+         */
+        public Builder columnarTabularData(boolean pColumnar) {
+            columnarTabularData = pColumnar;
+            return this;
+        }
+
         /**
          * Build the convert options and reset this builder
          *
@@ -213,10 +254,11 @@ public final class JsonConvertOptions {
             ValueFaultHandler handler = useAttributeFilter ?
                     new PathAttributeFilterValueFaultHandler(faultHandler) :
                     faultHandler;
-            JsonConvertOptions opts = new JsonConvertOptions(maxDepth,maxCollectionSize,maxObjects,handler);
+            JsonConvertOptions opts = new JsonConvertOptions(maxDepth,maxCollectionSize,maxObjects,handler,columnarTabularData);
             maxDepth = 0;
             maxCollectionSize = 0;
             maxObjects = 0;
+            columnarTabularData = false;
             return opts;
         }
 
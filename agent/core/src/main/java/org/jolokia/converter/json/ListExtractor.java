@@ -7,6 +7,7 @@ import java.util.Stack;
 import javax.management.AttributeNotFoundException;
 
 import org.jolokia.converter.object.StringToObjectConverter;
+import org.jolokia.util.PathCursor;
 import org.json.simple.JSONArray;
 
 /*
@@ -32,13 +33,19 @@ import org.json.simple.JSONArray;
  * @author roland
  * @since Apr 19, 2009
  */
-public class ListExtractor implements Extractor {
+public class ListExtractor implements PathExtractor {
 
     /** {@inheritDoc} */
     public Class getType() {
         return List.class;
     }
 
+    /** {@inheritDoc} */
+    public Object extractObject(ObjectToJsonConverter pConverter, Object pValue, Stack<String> pPathParts, boolean jsonify)
+            throws AttributeNotFoundException {
+        return extractObject(pConverter, pValue, PathCursor.fromStack(pPathParts), jsonify);
+    }
+
     /**
      * Extract a list and, if to be jsonified, put it into an {@link JSONArray}. An index can be used (on top of
      * the extra args stack) in order to specify a single value within the list.
@@ -46,7 +53,7 @@ public class ListExtractor implements Extractor {
      * @param pConverter the global converter in order to be able do dispatch for
      *        serializing inner data types
      * @param pValue the value to convert (must be a {@link List})
-     * @param pPathParts extra arguments stack, which is popped to get an index for extracting a single element
+     * @param pPathParts path whose current element is used as index for extracting a single element
      *                   of the list
      * @param jsonify whether to convert to a JSON object/list or whether the plain object
      *        should be returned. The later is required for writing an inner value
@@ -54,15 +61,15 @@ public class ListExtractor implements Extractor {
      * @throws AttributeNotFoundException
      * @throws IndexOutOfBoundsException if an index is used which points outside the given list
      */
-    public Object extractObject(ObjectToJsonConverter pConverter, Object pValue, Stack<String> pPathParts,boolean jsonify)
+    public Object extractObject(ObjectToJsonConverter pConverter, Object pValue, PathCursor pPathParts,boolean jsonify)
             throws AttributeNotFoundException {
         List list = (List) pValue;
         int length = pConverter.getCollectionLength(list.size());
-        String pathPart = pPathParts.isEmpty() ? null : pPathParts.pop();
+        String pathPart = pPathParts.isEmpty() ? null : pPathParts.current();
         if (pathPart != null) {
-            return extractWithPath(pConverter, list, pPathParts, jsonify, pathPart);
+            return extractWithPath(pConverter, list, pPathParts.next(), jsonify, pathPart);
         } else {
-            return jsonify ? extractListAsJson(pConverter, list, pPathParts, length) : list;
+            return jsonify ? extractListAsJson(pConverter, list, pPathParts.next(), length) : list;
         }
     }
 
@@ -106,7 +113,7 @@ public class ListExtractor implements Extractor {
         return true;
     }
 
-    private Object extractWithPath(ObjectToJsonConverter pConverter, List pList, Stack<String> pStack, boolean jsonify, String pPathPart) throws AttributeNotFoundException {
+    private Object extractWithPath(ObjectToJsonConverter pConverter, List pList, PathCursor pStack, boolean jsonify, String pPathPart) throws AttributeNotFoundException {
         try {
             int idx = Integer.parseInt(pPathPart);
             return pConverter.extractObject(pList.get(idx), pStack, jsonify);
@@ -121,12 +128,11 @@ public class ListExtractor implements Extractor {
         }
     }
 
-    private Object extractListAsJson(ObjectToJsonConverter pConverter, List pList, Stack<String> pPath, int pLength) throws AttributeNotFoundException {
+    private Object extractListAsJson(ObjectToJsonConverter pConverter, List pList, PathCursor pPath, int pLength) throws AttributeNotFoundException {
         List ret = new JSONArray();
         for (int i = 0;i < pLength; i++) {
-            Stack<String> path = (Stack<String>) pPath.clone();
             try {
-                ret.add(pConverter.extractObject(pList.get(i), path, true));
+                ret.add(pConverter.extractObject(pList.get(i), pPath, true));
             } catch (ValueFaultHandler.AttributeFilteredException exp) {
                 // This element is filtered out, next one ...
             }
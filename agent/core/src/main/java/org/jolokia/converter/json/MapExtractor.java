@@ -7,6 +7,7 @@ import java.util.Stack;
 import javax.management.AttributeNotFoundException;
 
 import org.jolokia.converter.object.StringToObjectConverter;
+import org.jolokia.util.PathCursor;
 import org.json.simple.JSONObject;
 
 /*
@@ -32,7 +33,7 @@ import org.json.simple.JSONObject;
  * @author roland
  * @since Apr 19, 2009
  */
-public class MapExtractor implements Extractor {
+public class MapExtractor implements PathExtractor {
     private static final int MAX_STRING_LENGTH = 400;
 
     /** {@inheritDoc} */
@@ -40,6 +41,12 @@ public class MapExtractor implements Extractor {
         return Map.class;
     }
 
+    /** {@inheritDoc} */
+    public Object extractObject(ObjectToJsonConverter pConverter, Object pValue, Stack<String> pPathParts, boolean jsonify)
+            throws AttributeNotFoundException {
+        return extractObject(pConverter, pValue, PathCursor.fromStack(pPathParts), jsonify);
+    }
+
     /**
      * Convert a Map to JSON (if <code>jsonify</code> is <code>true</code>). If a path is used, the
      * path is interpreted as a key into the map. The key in the path is a string and is compared agains
@@ -48,32 +55,31 @@ public class MapExtractor implements Extractor {
      * @param pConverter the global converter in order to be able do dispatch for
      *        serializing inner data types
      * @param pValue the value to convert which must be a {@link Map}
-     * @param pPathParts extra argument stack which on top must be a key into the map
+     * @param pPathParts path whose current element must be a key into the map
      * @param jsonify whether to convert to a JSON object/list or whether the plain object
      *        should be returned. The later is required for writing an inner value
      * @return the extracted object
      * @throws AttributeNotFoundException
      */
     public Object extractObject(ObjectToJsonConverter pConverter, Object pValue,
-                                Stack<String> pPathParts,boolean jsonify) throws AttributeNotFoundException {
+                                PathCursor pPathParts,boolean jsonify) throws AttributeNotFoundException {
         Map<Object,Object> map = (Map<Object,Object>) pValue;
         int length = pConverter.getCollectionLength(map.size());
-        String pathParth = pPathParts.isEmpty() ? null : pPathParts.pop();
+        String pathParth = pPathParts.isEmpty() ? null : pPathParts.current();
         if (pathParth != null) {
-            return extractMapValueWithPath(pConverter, pValue, pPathParts, jsonify, map, pathParth);
+            return extractMapValueWithPath(pConverter, pValue, pPathParts.next(), jsonify, map, pathParth);
         } else {
-            return jsonify ? extractMapValues(pConverter, pPathParts, jsonify, map, length) : map;
+            return jsonify ? extractMapValues(pConverter, pPathParts.next(), jsonify, map, length) : map;
         }
     }
 
-    private JSONObject extractMapValues(ObjectToJsonConverter pConverter, Stack<String> pPathParts, boolean jsonify, Map<Object, Object> pMap, int pLength) throws AttributeNotFoundException {
+    private JSONObject extractMapValues(ObjectToJsonConverter pConverter, PathCursor pPathParts, boolean jsonify, Map<Object, Object> pMap, int pLength) throws AttributeNotFoundException {
         JSONObject ret = new JSONObject();
         int i = 0;
         for(Map.Entry entry : pMap.entrySet()) {
-            Stack<String> paths = (Stack<String>) pPathParts.clone();
             try {
                 ret.put(entry.getKey(),
-                        pConverter.extractObject(entry.getValue(), paths, jsonify));
+                        pConverter.extractObject(entry.getValue(), pPathParts, jsonify));
                 if (++i > pLength) {
                     break;
                 }
@@ -88,7 +94,7 @@ public class MapExtractor implements Extractor {
         return ret;
     }
 
-    private Object extractMapValueWithPath(ObjectToJsonConverter pConverter, Object pValue, Stack<String> pPathParts, boolean jsonify, Map<Object, Object> pMap, String pPathParth) throws AttributeNotFoundException {
+    private Object extractMapValueWithPath(ObjectToJsonConverter pConverter, Object pValue, PathCursor pPathParts, boolean jsonify, Map<Object, Object> pMap, String pPathParth) throws AttributeNotFoundException {
         for (Map.Entry entry : pMap.entrySet()) {
             // We dont access the map via a lookup since the key
             // are potentially object but we have to deal with string
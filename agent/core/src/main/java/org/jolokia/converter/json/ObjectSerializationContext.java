@@ -24,6 +24,11 @@ import org.jolokia.converter.json.ValueFaultHandler;
  * Context class for holding and counting limits. It can also take care
  * about cycles, i.e. the context knows when an object is visited the second time.
  *
+ * A context is meant to be reused: {@link #reset(JsonConvertOptions)} prepares it for the next
+ * serialization without allocating new tracking structures. Objects are tracked by identity in an
+ * array backed stack and an open addressing hash set, so that neither the objects' own
+ * <code>hashCode()</code> nor <code>equals()</code> is called.
+ *
  * @author roland
  */
 class ObjectSerializationContext {
@@ -39,9 +44,21 @@ class ObjectSerializationContext {
             Date.class
                                                                                    ));
 
-    private Set   objectsInCallStack = new HashSet();
-    private Stack callStack          = new Stack();
-    private final JsonConvertOptions options;
+    // Initial capacity of the call stack, the visited set has twice this size
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Tracking structures larger than this are not kept when the context is reset
+    private static final int MAX_RETAINED_CAPACITY = 1024;
+
+    // Objects in the call stack, including simple types and null
+    private Object[] callStack = new Object[INITIAL_CAPACITY];
+    private int      stackSize;
+
+    // Open addressing hash set (linear probing) with the non simple objects of the call stack
+    private Object[] objectsInCallStack = new Object[2 * INITIAL_CAPACITY];
+    private int      visitedSize;
+
+    private JsonConvertOptions options;
 
     private int objectCount = 0;
 
@@ -54,6 +71,36 @@ class ObjectSerializationContext {
         options = pOpts;
     }
 
+    /**
+     * Prepare this context for a new serialization with the given options. All objects
+     * still tracked are forgotten.
+     *
+     * @param pOpts options used for parsing
+     */
+    void reset(JsonConvertOptions pOpts) {
+        clear();
+        options = pOpts;
+    }
+
+    /**
+     * Forget all tracked objects so that they are not referenced anymore
+     */
+    void clear() {
+        if (callStack.length > MAX_RETAINED_CAPACITY) {
+            callStack = new Object[INITIAL_CAPACITY];
+            objectsInCallStack = new Object[2 * INITIAL_CAPACITY];
+        } else {
+            Arrays.fill(callStack, 0, stackSize, null);
+            if (visitedSize > 0) {
+                Arrays.fill(objectsInCallStack, null);
+            }
+        }
+        stackSize = 0;
+        visitedSize = 0;
+        objectCount = 0;
+        options = null;
+    }
+
     /**
      * Check, whether a given object has been already seen
      *
@@ -61,7 +108,7 @@ class ObjectSerializationContext {
      * @return true if the object has been already visited
      */
     boolean alreadyVisited(Object object) {
-        return objectsInCallStack.contains(object);
+        return visitedSize > 0 && objectsInCallStack[indexOf(object)] != null;
     }
 
     /**
@@ -70,7 +117,7 @@ class ObjectSerializationContext {
      * @return true if the max depth limit has been reached
      */
     public boolean maxDepthReached() {
-        return options.maxDepthReached(objectsInCallStack.size());
+        return options.maxDepthReached(visitedSize);
     }
 
     /**
@@ -102,6 +149,15 @@ class ObjectSerializationContext {
         return options.getValueFaultHandler();
     }
 
+    /**
+     * Whether tabular data should be converted into the columnar form
+     *
+     * @return true for the columnar form
+     */
+    boolean isColumnarTabularData() {
+        return options.isColumnarTabularData();
+    }
+
     // =====================================================
     // Tracking methods
 
@@ -111,10 +167,13 @@ class ObjectSerializationContext {
      * @param object to push
      */
     void push(Object object) {
-        callStack.push(object);
+        if (stackSize == callStack.length) {
+            callStack = Arrays.copyOf(callStack, 2 * stackSize);
+        }
+        callStack[stackSize++] = object;
 
         if (object != null && !SIMPLE_TYPES.contains(object.getClass())) {
-            objectsInCallStack.add(object);
+            addVisited(object);
         }
         objectCount++;
     }
@@ -124,10 +183,77 @@ class ObjectSerializationContext {
      * @return the object popped
      */
     Object pop() {
-        Object ret = callStack.pop();
+        if (stackSize == 0) {
+            throw new EmptyStackException();
+        }
+        Object ret = callStack[--stackSize];
+        callStack[stackSize] = null;
         if (ret != null && !SIMPLE_TYPES.contains(ret.getClass())) {
-            objectsInCallStack.remove(ret);
+            removeVisited(ret);
         }
         return ret;
     }
+
+    // =====================================================
+    // Identity hash set
+
+    // Slot of the given object or the free slot where it would be inserted
+    private int indexOf(Object pObject) {
+        Object[] table = objectsInCallStack;
+        int mask = table.length - 1;
+        int i = hash(pObject, mask);
+        while (table[i] != null && table[i] != pObject) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void addVisited(Object pObject) {
+        int i = indexOf(pObject);
+        if (objectsInCallStack[i] == null) {
+            objectsInCallStack[i] = pObject;
+            // Keep the load factor below 1/2
+            if (++visitedSize * 2 > objectsInCallStack.length) {
+                resizeVisited();
+            }
+        }
+    }
+
+    private void removeVisited(Object pObject) {
+        Object[] table = objectsInCallStack;
+        int mask = table.length - 1;
+        int i = indexOf(pObject);
+        if (table[i] == null) {
+            return;
+        }
+        table[i] = null;
+        visitedSize--;
+        // Move up entries of the same probe sequence so that lookups don't stop at the hole
+        int j = (i + 1) & mask;
+        while (table[j] != null) {
+            int home = hash(table[j], mask);
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                table[i] = table[j];
+                table[j] = null;
+                i = j;
+            }
+            j = (j + 1) & mask;
+        }
+    }
+
+    private void resizeVisited() {
+        Object[] old = objectsInCallStack;
+        objectsInCallStack = new Object[old.length * 2];
+        for (Object o : old) {
+            if (o != null) {
+                objectsInCallStack[indexOf(o)] = o;
+            }
+        }
+    }
+
+    private static int hash(Object pObject, int pMask) {
+        int h = System.identityHashCode(pObject);
+        // Spread the bits, identity hash codes are often clustered in the low bits
+        return (h ^ (h >>> 16)) & pMask;
+    }
 }
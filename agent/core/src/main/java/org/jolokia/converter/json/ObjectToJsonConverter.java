@@ -3,11 +3,13 @@ package org.jolokia.converter.json;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.management.AttributeNotFoundException;
 
 import org.jolokia.converter.object.StringToObjectConverter;
-import org.jolokia.util.EscapeUtil;
+import org.jolokia.util.PathCursor;
+import org.jolokia.util.SerializedJson;
 import org.jolokia.util.ServiceObjectFactory;
 
 /*
@@ -45,9 +47,26 @@ public final class ObjectToJsonConverter {
 
     private ArrayExtractor arrayExtractor;
 
+    // Extractor used for plain objects, which must be last in the list of handlers
+    private BeanExtractor beanExtractor;
+
+    // Extractor to use for a given class, looked up from the handlers on first use.
+    private final Map<Class, Extractor> extractorCache = new ConcurrentHashMap<Class, Extractor>();
+
+    // Maximum number of classes for which the extractor is cached
+    private static final int MAX_CACHED_EXTRACTORS = 1000;
+
     // Thread-Local set in order to prevent infinite recursions
     private ThreadLocal<ObjectSerializationContext> stackContextLocal = new ThreadLocal<ObjectSerializationContext>();
 
+    // Maximum number of idle serialization contexts kept for reuse
+    private static final int MAX_POOLED_CONTEXTS = 16;
+
+    // Serialization contexts which can be reused. They are not kept in the thread local
+    // between requests so that container threads don't hold on to them.
+    private final ObjectSerializationContext[] contextPool = new ObjectSerializationContext[MAX_POOLED_CONTEXTS];
+    private int pooledContexts;
+
     // Used for converting string to objects when setting attributes
     private StringToObjectConverter stringToObjectConverter;
 
@@ -86,7 +105,8 @@ public final class ObjectToJsonConverter {
         handlers.add(new DateExtractor());
 
         // Must be last in handlers, used default algorithm
-        handlers.add(new BeanExtractor());
+        beanExtractor = new BeanExtractor();
+        handlers.add(beanExtractor);
 
         arrayExtractor = new ArrayExtractor();
 
@@ -107,8 +127,16 @@ public final class ObjectToJsonConverter {
      */
     public Object convertToJson(Object pValue, List<String> pPathParts, JsonConvertOptions pOptions)
             throws AttributeNotFoundException {
-        Stack<String> extraStack = pPathParts != null ? EscapeUtil.reversePath(pPathParts) : new Stack<String>();
-        return extractObjectWithContext(pValue, extraStack, pOptions, true);
+        PathCursor path = pPathParts != null ? PathCursor.of(pPathParts) : PathCursor.EMPTY;
+        if (pValue instanceof SerializedJson) {
+            // Already converted, unless a path or the limits require to look into it
+            SerializedJson json = (SerializedJson) pValue;
+            if (path.isEmpty() && pOptions.isWithinLimits(json.getDepth(), json.getMaxCollectionSize(), json.getObjectCount())) {
+                return json;
+            }
+            return extractObjectWithContext(json.getValue(), path, pOptions, true);
+        }
+        return extractObjectWithContext(pValue, path, pOptions, true);
     }
 
     /**
@@ -117,7 +145,7 @@ public final class ObjectToJsonConverter {
      *
      * @param pOuterObject the object to dive in
      * @param pNewValue the value to set
-     * @param pPathParts the path within the outer object. This object will be modified and be a modifiable list.
+     * @param pPathParts the path within the outer object. The list is not modified.
      * @return the old value
      *
      * @throws AttributeNotFoundException
@@ -126,13 +154,13 @@ public final class ObjectToJsonConverter {
      */
     public Object setInnerValue(Object pOuterObject, Object pNewValue, List<String> pPathParts)
             throws AttributeNotFoundException, IllegalAccessException, InvocationTargetException {
-        String lastPathElement = pPathParts.remove(pPathParts.size()-1);
-        Stack<String> extraStack = EscapeUtil.reversePath(pPathParts);
+        String lastPathElement = pPathParts.get(pPathParts.size()-1);
+        PathCursor path = PathCursor.of(pPathParts.subList(0, pPathParts.size()-1));
 
         // Get the object pointed to do with path-1
         // We are using no limits here, since a path must have been given (see above), and hence we should
         // be save anyway.
-        Object inner = extractObjectWithContext(pOuterObject, extraStack, JsonConvertOptions.DEFAULT, false);
+        Object inner = extractObjectWithContext(pOuterObject, path, JsonConvertOptions.DEFAULT, false);
 
         // Set the attribute pointed to by the path elements
         // (depending of the parent object's type)
@@ -151,16 +179,17 @@ public final class ObjectToJsonConverter {
      * {@link #setInnerValue(Object, Object, List)} instead.
      *
      * @param pValue value to extract from
-     * @param pPathParts stack for diving into the object
+     * @param pPathParts path for diving into the object. The cursor is never modified, so it can be
+     *                   shared when an extractor branches out into multiple values (e.g. for wildcards).
      * @param pJsonify whether a JSON representation {@link org.json.simple.JSONObject}
      * @return extracted object either in native format or as {@link org.json.simple.JSONObject}
      * @throws AttributeNotFoundException if an attribute is not found during traversal
      */
-    public Object extractObject(Object pValue, Stack<String> pPathParts, boolean pJsonify)
+    public Object extractObject(Object pValue, PathCursor pPathParts, boolean pJsonify)
             throws AttributeNotFoundException {
         ObjectSerializationContext stackContext = stackContextLocal.get();
         String limitReached = checkForLimits(pValue, stackContext);
-        Stack<String> pathStack = pPathParts != null ? pPathParts : new Stack<String>();
+        PathCursor path = pPathParts != null ? pPathParts : PathCursor.EMPTY;
         if (limitReached != null) {
             return limitReached;
         }
@@ -168,22 +197,48 @@ public final class ObjectToJsonConverter {
             stackContext.push(pValue);
 
             if (pValue == null) {
-                return pathStack.isEmpty() ?
+                return path.isEmpty() ?
                         null :
                         stackContext.getValueFaultHandler().handleException(
                                 new AttributeNotFoundException("Cannot apply a path to an null value"));
             }
 
-            if (pValue.getClass().isArray()) {
+            Class clazz = pValue.getClass();
+            if (clazz.isArray()) {
                 // Special handling for arrays
-                return arrayExtractor.extractObject(this,pValue,pathStack,pJsonify);
+                return arrayExtractor.extractObject(this,pValue,path,pJsonify);
             }
-            return callHandler(pValue, pathStack, pJsonify);
+            Extractor handler = getHandler(clazz);
+            if (pJsonify && path.isEmpty() && handler == beanExtractor && BeanExtractor.isFinalClass(clazz)) {
+                // Shortcut for the most common leaf values (strings, numbers, booleans)
+                return pValue;
+            }
+            return handler instanceof PathExtractor ?
+                    ((PathExtractor) handler).extractObject(this,pValue,path,pJsonify) :
+                    // Extractors with a stack get a fresh one, since they modify it
+                    handler.extractObject(this,pValue,path.toStack(),pJsonify);
         } finally {
             stackContext.pop();
         }
     }
 
+    /**
+     * Same as {@link #extractObject(Object, PathCursor, boolean)} but with the path given as
+     * stack with the first element on top. The stack is left untouched.
+     *
+     * @param pValue value to extract from
+     * @param pPathParts path for diving into the object, can be null
+     * @param pJsonify whether a JSON representation {@link org.json.simple.JSONObject}
+     * @return extracted object either in native format or as {@link org.json.simple.JSONObject}
+     * @throws AttributeNotFoundException if an attribute is not found during traversal
+     * @deprecated use {@link #extractObject(Object, PathCursor, boolean)} instead
+     */
+    @Deprecated
+    public Object extractObject(Object pValue, Stack<String> pPathParts, boolean pJsonify)
+            throws AttributeNotFoundException {
+        return extractObject(pValue, PathCursor.fromStack(pPathParts), pJsonify);
+    }
+
     /**
      * Handle a value which means to dive into the internal of a complex object
      * (if <code>pExtraArgs</code> is not null) and/or to convert
@@ -191,7 +246,7 @@ public final class ObjectToJsonConverter {
      *
      *
      * @param pValue value to extract from
-     * @param pExtraArgs stack used for diving in to the value
+     * @param pExtraArgs path used for diving in to the value
      * @param pOpts options from which various processing
      *        parameters (like maxDepth, maxCollectionSize and maxObjects) are taken and put
      *        into context in order to influence the object traversal.
@@ -199,7 +254,7 @@ public final class ObjectToJsonConverter {
      * @return extracted value, either natively or as JSON
      * @throws AttributeNotFoundException if during traversal an attribute is not found as specified in the stack
      */
-    private Object extractObjectWithContext(Object pValue, Stack<String> pExtraArgs, JsonConvertOptions pOpts, boolean pJsonify)
+    private Object extractObjectWithContext(Object pValue, PathCursor pExtraArgs, JsonConvertOptions pOpts, boolean pJsonify)
             throws AttributeNotFoundException {
         Object jsonResult;
         setupContext(pOpts);
@@ -257,6 +312,17 @@ public final class ObjectToJsonConverter {
         return ctx.getCollectionSizeTruncated(originalLength);
     }
 
+    /**
+     * Whether tabular data should be converted into the columnar form as configured
+     * for the current conversion.
+     *
+     * @return true for the columnar form, false for nested maps
+     */
+    boolean isColumnarTabularData() {
+        ObjectSerializationContext ctx = stackContextLocal.get();
+        return ctx.isColumnarTabularData();
+    }
+
     /**
      * Get the fault handler used for dealing with exceptions during value extraction.
      *
@@ -271,7 +337,16 @@ public final class ObjectToJsonConverter {
      * Clear the context used for counting objects and limits
      */
     void clearContext() {
+        ObjectSerializationContext stackContext = stackContextLocal.get();
         stackContextLocal.remove();
+        if (stackContext != null) {
+            stackContext.clear();
+            synchronized (contextPool) {
+                if (pooledContexts < MAX_POOLED_CONTEXTS) {
+                    contextPool[pooledContexts++] = stackContext;
+                }
+            }
+        }
     }
 
     /**
@@ -288,7 +363,18 @@ public final class ObjectToJsonConverter {
      * @param pOpts options used for parsing.
      */
     void setupContext(JsonConvertOptions pOpts) {
-        ObjectSerializationContext stackContext = new ObjectSerializationContext(pOpts);
+        ObjectSerializationContext stackContext = null;
+        synchronized (contextPool) {
+            if (pooledContexts > 0) {
+                stackContext = contextPool[--pooledContexts];
+                contextPool[pooledContexts] = null;
+            }
+        }
+        if (stackContext != null) {
+            stackContext.reset(pOpts);
+        } else {
+            stackContext = new ObjectSerializationContext(pOpts);
+        }
         stackContextLocal.set(stackContext);
     }
 
@@ -322,17 +408,26 @@ public final class ObjectToJsonConverter {
 
 
 
-    private Object callHandler(Object pValue, Stack<String> pPathParts, boolean pJsonify)
-            throws AttributeNotFoundException {
-        Class pClazz = pValue.getClass();
-        for (Extractor handler : handlers) {
-            if (handler.getType() != null && handler.getType().isAssignableFrom(pClazz)) {
-                return handler.extractObject(this,pValue,pPathParts,pJsonify);
+    // Get the extractor used for serializing objects of the given class. Since the handlers are fixed
+    // after construction, the result of the lookup is remembered.
+    private Extractor getHandler(Class pClazz) {
+        Extractor ret = extractorCache.get(pClazz);
+        if (ret == null) {
+            for (Extractor handler : handlers) {
+                if (handler.getType() != null && handler.getType().isAssignableFrom(pClazz)) {
+                    ret = handler;
+                    break;
+                }
+            }
+            if (ret == null) {
+                throw new IllegalStateException("Internal error: No handler found for class " + pClazz);
+            }
+            if (extractorCache.size() >= MAX_CACHED_EXTRACTORS) {
+                extractorCache.clear();
             }
+            extractorCache.put(pClazz, ret);
         }
-        throw new IllegalStateException(
-                "Internal error: No handler found for class " + pClazz +
-                    " (object: " + pValue + ", extraArgs: " + pPathParts + ")");
+        return ret;
     }
 
 
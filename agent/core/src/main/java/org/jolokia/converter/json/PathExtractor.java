@@ -0,0 +1,51 @@
+package org.jolokia.converter.json;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import javax.management.AttributeNotFoundException;
+
+import org.jolokia.util.PathCursor;
+
+/**
+ * Extractor which walks down a path with an immutable {@link PathCursor} instead of
+ * a mutable stack. All built-in extractors implement this interface. Extractors which
+ * only implement {@link Extractor} are still supported, they get called with a fresh
+ * stack for every value.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+public interface PathExtractor extends Extractor {
+
+    /**
+     * Extract an object from pValue. In the simplest case, this is the value itself.
+     * For more complex data types, it is converted into a JSON structure if possible
+     * (and if 'jsonify' is true). If pPath is not empty, this returns only a substructure,
+     * specified by the path starting at the cursor's current element
+     *
+     * @param pConverter the global converter in order to be able do dispatch for
+     *        serializing inner data types
+     * @param pValue the value to convert
+     * @param pPath the remaining path, never null
+     * @param jsonify whether to convert to a JSON object/list or whether the plain object
+     *        should be returned. The later is required for writing an inner value
+     * @return the extracted object
+     * @throws AttributeNotFoundException if the inner path does not exist.
+     */
+    Object extractObject(ObjectToJsonConverter pConverter,Object pValue, PathCursor pPath,boolean jsonify)
+            throws AttributeNotFoundException;
+}
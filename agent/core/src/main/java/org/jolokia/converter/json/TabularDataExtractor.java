@@ -2,11 +2,13 @@ package org.jolokia.converter.json;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.management.*;
 import javax.management.openmbean.*;
 
 import org.jolokia.converter.object.StringToObjectConverter;
+import org.jolokia.util.PathCursor;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 
@@ -31,13 +33,25 @@ import org.json.simple.JSONObject;
  * @author roland
  * @since Apr 19, 2009
  */
-public class TabularDataExtractor implements Extractor {
+public class TabularDataExtractor implements PathExtractor {
+
+    // Maximum number of tabular types for which the layout is cached
+    private static final int MAX_LAYOUTS = 1000;
+
+    // Layout per tabular type, which is the same for all values of a type
+    private final Map<TabularType, TabularLayout> layouts = new ConcurrentHashMap<TabularType, TabularLayout>();
 
     /** {@inheritDoc} */
     public Class getType() {
         return TabularData.class;
     }
 
+    /** {@inheritDoc} */
+    public Object extractObject(ObjectToJsonConverter pConverter, Object pValue, Stack<String> pPathParts, boolean jsonify)
+            throws AttributeNotFoundException {
+        return extractObject(pConverter, pValue, PathCursor.fromStack(pPathParts), jsonify);
+    }
+
     /**
      * <p>
      *  Extract a {@link TabularData}. The JSON representation of a tabular data is different,
@@ -88,6 +102,20 @@ public class TabularDataExtractor implements Extractor {
      *        ]
      *      }
      *  </pre>
+     *  If the columnar format is requested (processing parameter <code>tabularFormat=columnar</code>), all
+     *  tabular data except MXBean maps are returned in a compact form where the column names are given only once
+     *  and each row is an array of its values in the order of the column names:
+     *  <pre>
+     *      {
+     *        "indexNames" : [ "key", "innerkey" ],
+     *        "columns" : [ "innerkey", "item", "key" ],
+     *        "values" : [
+     *           [ "myinner1", "value1", "mykey1" ],
+     *           [ "myinner2", "value2", "mykey1" ],
+     *           ...
+     *        ]
+     *      }
+     *  </pre>
      * </p>
      * <p>
      *   Accessing {@link TabularData} with a path is only supported for simple type keys, i.e. each index name must point
@@ -108,25 +136,29 @@ public class TabularDataExtractor implements Extractor {
      * @throws AttributeNotFoundException
      */
     public Object extractObject(ObjectToJsonConverter pConverter, Object pValue,
-                                Stack<String> pPathParts,boolean pJsonify) throws AttributeNotFoundException {
+                                PathCursor pPathParts,boolean pJsonify) throws AttributeNotFoundException {
         TabularData td = (TabularData) pValue;
-        String tdPath = pPathParts.isEmpty() ? null : pPathParts.pop();
+        String tdPath = pPathParts.isEmpty() ? null : pPathParts.current();
         if (tdPath != null) {
             try {
-                pPathParts.push(tdPath); // Need it later on for the index
                 CompositeData cd = extractCompositeDataFromPath(td, pPathParts);
+                // The index consumes one path element per index name
+                PathCursor rest = pPathParts.skip(td.getTabularType().getIndexNames().size());
                 return pConverter.extractObject(
-                        cd != null && checkForMxBeanMap(td.getTabularType()) ? cd.get("value") : cd,
-                        pPathParts, pJsonify);
+                        cd != null && getLayout(td.getTabularType()).mxBeanMap ? cd.get("value") : cd,
+                        rest, pJsonify);
             } catch (AttributeNotFoundException exp) {
                 ValueFaultHandler faultHandler = pConverter.getValueFaultHandler();
                 return faultHandler.handleException(exp);
             }
         } else {
             if (pJsonify) {
-                return checkForMxBeanMap(td.getTabularType()) ?
-                        convertMxBeanMapToJson(td,pPathParts,pConverter) :
-                        convertTabularDataToJson(td, pPathParts, pConverter);
+                // A wildcard applies to all rows
+                PathCursor rest = pPathParts.next();
+                TabularLayout layout = getLayout(td.getTabularType());
+                return layout.mxBeanMap ?
+                        convertMxBeanMapToJson(td,rest,pConverter) :
+                        convertTabularDataToJson(td, layout, rest, pConverter);
             } else {
                 return td;
             }
@@ -135,6 +167,19 @@ public class TabularDataExtractor implements Extractor {
 
     // ====================================================================================================
 
+    // Lookup the layout of a tabular type, which is cached since it is needed for every conversion
+    private TabularLayout getLayout(TabularType pType) {
+        TabularLayout layout = layouts.get(pType);
+        if (layout == null) {
+            layout = new TabularLayout(pType);
+            if (layouts.size() >= MAX_LAYOUTS) {
+                layouts.clear();
+            }
+            layouts.put(pType, layout);
+        }
+        return layout;
+    }
+
     /**
      * Check whether the given tabular type represents a MXBean map. See the
      * {@link javax.management.MXBean} specification for
@@ -143,25 +188,27 @@ public class TabularDataExtractor implements Extractor {
      * @param pType type of tabular data to convert
      * @return true if this type represents an MXBean map, false otherwise.
      */
-    private boolean checkForMxBeanMap(TabularType pType) {
+    private static boolean checkForMxBeanMap(TabularType pType) {
         CompositeType rowType = pType.getRowType();
         return rowType.containsKey("key") && rowType.containsKey("value") && rowType.keySet().size() == 2
                // Only convert to map for simple types for all others use normal conversion. See #105 for details.
                && rowType.getType("key") instanceof  SimpleType;
     }
 
-    private Object convertTabularDataToJson(TabularData pTd, Stack<String> pExtraArgs, ObjectToJsonConverter pConverter)
+    private Object convertTabularDataToJson(TabularData pTd, TabularLayout pLayout, PathCursor pExtraArgs,
+                                            ObjectToJsonConverter pConverter)
             throws AttributeNotFoundException {
-        TabularType type = pTd.getTabularType();
-        if (hasComplexKeys(type)) {
+        if (pExtraArgs.isEmpty() && pConverter.isColumnarTabularData()) {
+            return convertToColumns(pTd, pLayout, pConverter);
+        } else if (pLayout.complexKeys) {
             return convertTabularDataDirectly(pTd, pExtraArgs, pConverter);
         } else {
-            return convertToMaps(pTd, pExtraArgs, pConverter);
+            return convertToMaps(pTd, pLayout, pExtraArgs, pConverter);
         }
     }
 
     // Check, whether all keys are simple types or not
-    private boolean hasComplexKeys(TabularType pType) {
+    private static boolean hasComplexKeys(TabularType pType) {
         List<String> indexes = pType.getIndexNames();
         CompositeType rowType = pType.getRowType();
         for (String index : indexes) {
@@ -173,25 +220,24 @@ public class TabularDataExtractor implements Extractor {
     }
 
     // Convert tabular data to (nested) maps. Path access is allowed here
-    private Object convertToMaps(TabularData pTd, Stack<String> pExtraArgs, ObjectToJsonConverter pConverter) throws AttributeNotFoundException {
+    private Object convertToMaps(TabularData pTd, TabularLayout pLayout, PathCursor pExtraArgs, ObjectToJsonConverter pConverter)
+            throws AttributeNotFoundException {
         JSONObject ret = new JSONObject();
-        TabularType type = pTd.getTabularType();
-        List<String> indexNames = type.getIndexNames();
+        List<String> indexNames = pLayout.indexNames;
 
         boolean found = false;
         for (CompositeData cd : (Collection<CompositeData>) pTd.values()) {
-            Stack<String> path = (Stack<String>) pExtraArgs.clone();
             try {
                 JSONObject targetJSONObject = ret;
                 // TODO: Check whether all keys can be represented as simple types. If not, well
                 // we dont do any magic and return the tabular data as an array.
                 for (int i = 0; i < indexNames.size() - 1; i++) {
-                    Object indexValue = pConverter.extractObject(cd.get(indexNames.get(i)), null, true);
+                    Object indexValue = pConverter.extractObject(cd.get(indexNames.get(i)), PathCursor.EMPTY, true);
                     targetJSONObject = getNextMap(targetJSONObject, indexValue);
                 }
-                Object row = pConverter.extractObject(cd, path, true);
+                Object row = pConverter.extractObject(cd, pExtraArgs, true);
                 String finalIndex = indexNames.get(indexNames.size() - 1);
-                Object finalIndexValue = pConverter.extractObject(cd.get(finalIndex), null, true);
+                Object finalIndexValue = pConverter.extractObject(cd.get(finalIndex), PathCursor.EMPTY, true);
                 targetJSONObject.put(finalIndexValue, row);
                 found = true;
             } catch (ValueFaultHandler.AttributeFilteredException exp) {
@@ -205,9 +251,9 @@ public class TabularDataExtractor implements Extractor {
     }
 
     // Convert to a direct representation of the tabular data
-    private Object convertTabularDataDirectly(TabularData pTd, Stack<String> pExtraArgs, ObjectToJsonConverter pConverter)
+    private Object convertTabularDataDirectly(TabularData pTd, PathCursor pExtraArgs, ObjectToJsonConverter pConverter)
             throws AttributeNotFoundException {
-        if (!pExtraArgs.empty()) {
+        if (!pExtraArgs.isEmpty()) {
             throw new IllegalArgumentException("Cannot use a path for converting tabular data with complex keys (" +
                                                pTd.getTabularType().getRowType() + ")");
         }
@@ -229,6 +275,29 @@ public class TabularDataExtractor implements Extractor {
         return ret;
     }
 
+    // Convert to the column names and an array of value rows
+    private Object convertToColumns(TabularData pTd, TabularLayout pLayout, ObjectToJsonConverter pConverter)
+            throws AttributeNotFoundException {
+        JSONObject ret = new JSONObject();
+        JSONArray indexNames = new JSONArray();
+        indexNames.addAll(pLayout.indexNames);
+        ret.put("indexNames", indexNames);
+        JSONArray columns = new JSONArray();
+        columns.addAll(Arrays.asList(pLayout.columns));
+        ret.put("columns", columns);
+
+        JSONArray values = new JSONArray();
+        for (CompositeData cd : (Collection<CompositeData>) pTd.values()) {
+            JSONArray row = new JSONArray();
+            for (String column : pLayout.columns) {
+                row.add(pConverter.extractObject(cd.get(column), PathCursor.EMPTY, true));
+            }
+            values.add(row);
+        }
+        ret.put("values", values);
+        return ret;
+    }
+
     private JSONObject getNextMap(JSONObject pJsonObject, Object pKey) {
         JSONObject ret = (JSONObject) pJsonObject.get(pKey);
         if (ret == null) {
@@ -238,20 +307,22 @@ public class TabularDataExtractor implements Extractor {
         return ret;
     }
 
-    private CompositeData extractCompositeDataFromPath(TabularData pTd, Stack<String> pPathStack)
+    private CompositeData extractCompositeDataFromPath(TabularData pTd, PathCursor pPath)
             throws AttributeNotFoundException {
         // We first try it as a key
         TabularType type = pTd.getTabularType();
         List<String> indexNames = type.getIndexNames();
-        checkPathFitsIndexNames(pPathStack, indexNames);
+        checkPathFitsIndexNames(pPath, indexNames);
 
         Object keys[] = new Object[indexNames.size()];
         CompositeType rowType = type.getRowType();
         List<String> pathPartsUsed = new ArrayList<String>();
+        PathCursor path = pPath;
         for (int i = 0; i < indexNames.size(); i++) {
-            String path = pPathStack.pop();
-            pathPartsUsed.add(path);
-            keys[i] = getKey(rowType, indexNames.get(i), path);
+            String part = path.current();
+            pathPartsUsed.add(part);
+            keys[i] = getKey(rowType, indexNames.get(i), part);
+            path = path.next();
         }
         if (pTd.containsKey(keys)) {
             return pTd.get(keys);
@@ -260,8 +331,8 @@ public class TabularDataExtractor implements Extractor {
         }
     }
 
-    private void checkPathFitsIndexNames(Stack<String> pPathStack, List<String> pIndexNames) throws AttributeNotFoundException {
-        if (pIndexNames.size() > pPathStack.size()) {
+    private void checkPathFitsIndexNames(PathCursor pPath, List<String> pIndexNames) throws AttributeNotFoundException {
+        if (pIndexNames.size() > pPath.size()) {
             StringBuilder buf = new StringBuilder();
             for (int i = 0; i < pIndexNames.size(); i++) {
                 buf.append(pIndexNames.get(i));
@@ -305,16 +376,15 @@ public class TabularDataExtractor implements Extractor {
         }
     }
 
-    private Object convertMxBeanMapToJson(TabularData pTd, Stack<String> pExtraArgs, ObjectToJsonConverter pConverter)
+    private Object convertMxBeanMapToJson(TabularData pTd, PathCursor pExtraArgs, ObjectToJsonConverter pConverter)
             throws AttributeNotFoundException {
         JSONObject ret = new JSONObject();
         for (Object rowObject : pTd.values()) {
             CompositeData row = (CompositeData) rowObject;
-            Stack<String> path = (Stack<String>) pExtraArgs.clone();
             Object keyObject = row.get("key");
             if (keyObject != null) {
                 try {
-                    Object value = pConverter.extractObject(row.get("value"), path, true);
+                    Object value = pConverter.extractObject(row.get("value"), pExtraArgs, true);
                     ret.put(keyObject.toString(), value);
                 } catch (ValueFaultHandler.AttributeFilteredException exp) {
                     // Skip to next object since attribute was filtered
@@ -328,6 +398,29 @@ public class TabularDataExtractor implements Extractor {
         return ret;
     }
 
+    // Properties of a tabular type which determine how its values are converted
+    private static final class TabularLayout {
+
+        // Whether the type represents an MXBean map
+        private final boolean mxBeanMap;
+
+        // Whether any index is not of a simple type
+        private final boolean complexKeys;
+
+        private final List<String> indexNames;
+
+        // Names of all items in a row
+        private final String[] columns;
+
+        private TabularLayout(TabularType pType) {
+            mxBeanMap = checkForMxBeanMap(pType);
+            complexKeys = hasComplexKeys(pType);
+            indexNames = pType.getIndexNames();
+            Set<String> keys = pType.getRowType().keySet();
+            columns = keys.toArray(new String[keys.size()]);
+        }
+    }
+
     /**
      * Throws always {@link IllegalArgumentException} since tabular data is immutable
      */
@@ -7,6 +7,7 @@ import javax.management.AttributeNotFoundException;
 
 import org.jolokia.converter.json.*;
 import org.jolokia.converter.object.StringToObjectConverter;
+import org.jolokia.util.PathCursor;
 import org.json.simple.JSONObject;
 
 /*
@@ -38,7 +39,7 @@ import org.json.simple.JSONObject;
  * @author roland
  * @since Jul 27, 2009
  */
-public abstract class SimplifierExtractor<T> implements Extractor {
+public abstract class SimplifierExtractor<T> implements PathExtractor {
 
     private final Map<String, AttributeExtractor<T>> extractorMap;
 
@@ -64,22 +65,27 @@ public abstract class SimplifierExtractor<T> implements Extractor {
     /** {@inheritDoc} */
     public Object extractObject(ObjectToJsonConverter pConverter, Object pValue, Stack<String> pPathParts, boolean jsonify)
             throws AttributeNotFoundException {
-        String path = pPathParts.isEmpty() ? null : pPathParts.pop();
+        return extractObject(pConverter, pValue, PathCursor.fromStack(pPathParts), jsonify);
+    }
+
+    /** {@inheritDoc} */
+    public Object extractObject(ObjectToJsonConverter pConverter, Object pValue, PathCursor pPathParts, boolean jsonify)
+            throws AttributeNotFoundException {
+        String path = pPathParts.isEmpty() ? null : pPathParts.current();
         ValueFaultHandler faultHandler = pConverter.getValueFaultHandler();
         if (path != null) {
-            return extractWithPath(pConverter, pValue, pPathParts, jsonify, path, faultHandler);
+            return extractWithPath(pConverter, pValue, pPathParts.next(), jsonify, path, faultHandler);
         } else {
-            return jsonify ? extractAll(pConverter, (T) pValue, pPathParts, jsonify) : pValue;
+            return jsonify ? extractAll(pConverter, (T) pValue, pPathParts.next(), jsonify) : pValue;
         }
     }
 
-    private Object extractAll(ObjectToJsonConverter pConverter, T pValue, Stack<String> pPathParts, boolean jsonify) throws AttributeNotFoundException {
+    private Object extractAll(ObjectToJsonConverter pConverter, T pValue, PathCursor pPathParts, boolean jsonify) throws AttributeNotFoundException {
         JSONObject ret = new JSONObject();
         for (Map.Entry<String, AttributeExtractor<T>> entry : extractorMap.entrySet()) {
-            Stack<String> paths = (Stack<String>) pPathParts.clone();
             try {
                 Object value = entry.getValue().extract(pValue);
-                ret.put(entry.getKey(),pConverter.extractObject(value, paths, jsonify));
+                ret.put(entry.getKey(),pConverter.extractObject(value, pPathParts, jsonify));
             } catch (AttributeExtractor.SkipAttributeException e) {
                 // Skip this one ...
                 continue;
@@ -95,7 +101,7 @@ public abstract class SimplifierExtractor<T> implements Extractor {
         return ret;
     }
 
-    private Object extractWithPath(ObjectToJsonConverter pConverter, Object pValue, Stack<String> pPathParts, boolean jsonify, String pPath, ValueFaultHandler pFaultHandler) throws AttributeNotFoundException {
+    private Object extractWithPath(ObjectToJsonConverter pConverter, Object pValue, PathCursor pPathParts, boolean jsonify, String pPath, ValueFaultHandler pFaultHandler) throws AttributeNotFoundException {
         AttributeExtractor<T> extractor = extractorMap.get(pPath);
         if (extractor == null) {
             return pFaultHandler.handleException(new AttributeNotFoundException("Illegal path element " + pPath + " for object " + pValue));
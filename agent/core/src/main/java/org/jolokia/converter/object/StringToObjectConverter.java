@@ -1,5 +1,7 @@
 package org.jolokia.converter.object;
 
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Modifier;
@@ -8,6 +10,7 @@ import java.math.BigInteger;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.management.ObjectName;
 
@@ -87,6 +90,13 @@ public class StringToObjectConverter {
         TYPE_SIGNATURE_MAP.put("D",double.class);
     }
 
+    // Maximum number of conversion plans kept per class loader
+    static final int MAX_PLANS = 1000;
+
+    // Conversion plans per context class loader, since the type names are resolved with
+    // this class loader. The plans don't refer to classes strongly, so they don't keep a class loader alive.
+    private final Map<ClassLoader, Map<String, ConversionPlan>> plans = new WeakHashMap<ClassLoader, Map<String, ConversionPlan>>();
+
     /**
      * Prepare a value from a either a given object or its string representation.
      * If the value is already assignable to the given class name it is returned directly.
@@ -99,7 +109,8 @@ public class StringToObjectConverter {
         if (pValue == null) {
             return null;
         } else {
-            Class expectedClass = ClassUtil.classForName(pExpectedClassName);
+            ConversionPlan plan = getConversionPlan(pExpectedClassName);
+            Class expectedClass = plan.getType();
             Object param = null;
             if (expectedClass != null) {
                 param = prepareValue(expectedClass,pValue);
@@ -111,7 +122,7 @@ public class StringToObjectConverter {
                 // later on (e.g. conversion of pArgument.toString()) which will throw
                 // an exception at this point if conversion can not be done
 
-                return convertFromString(pExpectedClassName, pValue.toString());
+                return plan.convert(pValue.toString());
             }
             return param;
         }
@@ -176,23 +187,6 @@ public class StringToObjectConverter {
         }
     }
     
-    private Object convertByConstructor(String pType, String pValue) {
-        Class<?> expectedClass = ClassUtil.classForName(pType);
-        if (expectedClass != null) {
-            for (Constructor<?> constructor : expectedClass.getConstructors()) {
-                // only support only 1 constructor parameter
-                if (constructor.getParameterTypes().length == 1 &&
-                    constructor.getParameterTypes()[0].isAssignableFrom(String.class)) {
-                    try {
-                        return constructor.newInstance(pValue);
-                    } catch (Exception ignore) { }
-                }
-            }
-        }
-        
-        return null;
-    }
-
     /**
      * Deserialize a string representation to an object for a given type
      *
@@ -201,55 +195,32 @@ public class StringToObjectConverter {
      * @return the converted value
      */
     public Object convertFromString(String pType, String pValue) {
-        String value = convertSpecialStringTags(pValue);
-
-        if (value == null) {
-            return null;
-        }
-        if (pType.startsWith("[") && pType.length() >= 2) {
-            return convertToArray(pType, value);
-        }
-
-        Parser parser = PARSER_MAP.get(pType);
-        if (parser != null) {
-            return parser.extract(value);
-        }
-        
-        Object cValue = convertByConstructor(pType, pValue);
-        if (cValue != null) {
-        	return cValue;
-        }
-        
-        throw new IllegalArgumentException(
-                "Cannot convert string " + value + " to type " +
-                        pType + " because no converter could be found");
+        return getConversionPlan(pType).convert(pValue);
     }
 
-    // Convert an array
-    private Object convertToArray(String pType, String pValue) {
-        // It's an array
-        String t = pType.substring(1,2);
-        Class valueType;
-        if (t.equals("L")) {
-            // It's an object-type
-            String oType = pType.substring(2,pType.length()-1).replace('/','.');
-            valueType = ClassUtil.classForName(oType);
-            if (valueType == null) {
-                throw new IllegalArgumentException("No class of type " + oType + "found");
-            }
-        } else {
-            valueType = TYPE_SIGNATURE_MAP.get(t);
-            if (valueType == null) {
-                throw new IllegalArgumentException("Cannot convert to unknown array type " + t);
+    // Get the plan for converting to the given type, which is created only once
+    private ConversionPlan getConversionPlan(String pType) {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        Map<String, ConversionPlan> loaderPlans;
+        synchronized (plans) {
+            loaderPlans = plans.get(loader);
+            if (loaderPlans == null) {
+                loaderPlans = new ConcurrentHashMap<String, ConversionPlan>();
+                plans.put(loader, loaderPlans);
             }
         }
-        String[] values = EscapeUtil.splitAsArray(pValue, EscapeUtil.PATH_ESCAPE, ",");
-        Object ret = Array.newInstance(valueType,values.length);
-        int i = 0;
-        for (String value : values) {
-            Array.set(ret,i++,value.equals("[null]") ? null : convertFromString(valueType.getCanonicalName(),value));
+        ConversionPlan plan = loaderPlans.get(pType);
+        if (plan == null || !plan.isValid()) {
+            plan = new ConversionPlan(pType);
+            // A class which could not be found might become available later on
+            if (plan.isResolved()) {
+                if (loaderPlans.size() >= MAX_PLANS) {
+                    loaderPlans.clear();
+                }
+                loaderPlans.put(pType, plan);
+            }
         }
-        return ret;
+        return plan;
     }
 
     // Convert a list to an array of the given type
@@ -279,6 +250,129 @@ public class StringToObjectConverter {
 
 
 
+    // ===========================================================================
+
+    /**
+     * Plan for converting a string to a certain type. The lookups for the class of the type name
+     * and the parser are done once when the plan is created.
+     */
+    private static final class ConversionPlan {
+
+        private final String type;
+
+        // Class for the type name, null if it cannot be loaded (e.g. for primitive types)
+        private final Reference<Class<?>> typeClass;
+
+        // Parser for well known types
+        private final Parser parser;
+
+        // For arrays: class and plan for the elements, or the error if the element type is not supported
+        private final Reference<Class<?>> elementClass;
+        private final ConversionPlan elementPlan;
+        private final String arrayError;
+
+        private ConversionPlan(String pType) {
+            type = pType;
+            typeClass = reference(ClassUtil.classForName(pType));
+            if (pType.startsWith("[") && pType.length() >= 2) {
+                Class<?> elementType = null;
+                String error = null;
+                String t = pType.substring(1,2);
+                if (t.equals("L")) {
+                    // It's an object-type
+                    String oType = pType.substring(2,pType.length()-1).replace('/','.');
+                    elementType = ClassUtil.classForName(oType);
+                    if (elementType == null) {
+                        error = "No class of type " + oType + "found";
+                    }
+                } else {
+                    elementType = TYPE_SIGNATURE_MAP.get(t);
+                    if (elementType == null) {
+                        error = "Cannot convert to unknown array type " + t;
+                    }
+                }
+                elementClass = reference(elementType);
+                elementPlan = elementType != null ? new ConversionPlan(elementType.getCanonicalName()) : null;
+                arrayError = error;
+                parser = null;
+            } else {
+                elementClass = null;
+                elementPlan = null;
+                arrayError = null;
+                parser = PARSER_MAP.get(pType);
+            }
+        }
+
+        // Class for the type name or null
+        Class<?> getType() {
+            return typeClass != null ? typeClass.get() : null;
+        }
+
+        // Whether a class or a parser has been found for the type (and for the element type of an array)
+        boolean isResolved() {
+            if (elementPlan != null) {
+                return elementPlan.isResolved();
+            }
+            return arrayError == null && (typeClass != null || parser != null);
+        }
+
+        // A plan gets invalid when a class it refers to has been garbage collected
+        boolean isValid() {
+            return (typeClass == null || typeClass.get() != null) &&
+                   (elementClass == null || elementClass.get() != null) &&
+                   (elementPlan == null || elementPlan.isValid());
+        }
+
+        Object convert(String pValue) {
+            String value = convertSpecialStringTags(pValue);
+
+            if (value == null) {
+                return null;
+            }
+            if (elementPlan != null || arrayError != null) {
+                return convertToArray(value);
+            }
+            if (parser != null) {
+                return parser.extract(value);
+            }
+            // Constructors are not kept in the plan, since they would keep the class and its class loader alive
+            Class<?> clazz = getType();
+            if (clazz != null) {
+                for (Constructor<?> constructor : clazz.getConstructors()) {
+                    // only support only 1 constructor parameter
+                    if (constructor.getParameterTypes().length == 1 &&
+                        constructor.getParameterTypes()[0].isAssignableFrom(String.class)) {
+                        try {
+                            return constructor.newInstance(pValue);
+                        } catch (Exception ignore) { }
+                    }
+                }
+            }
+            throw new IllegalArgumentException(
+                    "Cannot convert string " + value + " to type " +
+                    type + " because no converter could be found");
+        }
+
+        // Convert an array
+        private Object convertToArray(String pValue) {
+            Class<?> valueType = elementClass != null ? elementClass.get() : null;
+            if (valueType == null) {
+                throw new IllegalArgumentException(arrayError != null ? arrayError : "No class for array type " + type + " found");
+            }
+            String[] values = EscapeUtil.splitAsArray(pValue, EscapeUtil.PATH_ESCAPE, ",");
+            Object ret = Array.newInstance(valueType,values.length);
+            int i = 0;
+            for (String value : values) {
+                Array.set(ret,i++,value.equals("[null]") ? null : elementPlan.convert(value));
+            }
+            return ret;
+        }
+
+        private static Reference<Class<?>> reference(Class<?> pClass) {
+            return pClass != null ? new WeakReference<Class<?>>(pClass) : null;
+        }
+    }
+
     // ===========================================================================
     // Extractor interface
     private interface Parser {
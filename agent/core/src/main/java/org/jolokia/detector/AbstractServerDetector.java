@@ -154,6 +154,37 @@ public abstract class AbstractServerDetector implements ServerDetector {
         return null;
     }
 
+    /**
+     * Cheap check whether this detector can detect its server at all, which is done before
+     * {@link #detect(MBeanServerExecutor)} is called. Implementations should not query any MBeans
+     * but only look at the given domains or check for the existence of classes, so that detectors
+     * for servers which are obviously not present can be skipped quickly. Detectors which don't
+     * extend this class are always used. By default a detector is always applicable.
+     *
+     * @param pDomains domains of all MBeans registered at the time of detection
+     * @return false if {@link #detect(MBeanServerExecutor)} would not detect a server for sure
+     */
+    public boolean isApplicable(Set<String> pDomains) {
+        return true;
+    }
+
+    /**
+     * Check whether any of the given domains is registered. Useful for implementing
+     * {@link #isApplicable(Set)}
+     *
+     * @param pDomains domains of all registered MBeans
+     * @param pRequired domains to look for
+     * @return true if at least one of the required domains is registered
+     */
+    protected boolean containsAnyDomain(Set<String> pDomains, String ... pRequired) {
+        for (String domain : pRequired) {
+            if (pDomains.contains(domain)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Do nothing by default, leaving the implementation
      * optional for each specific detector
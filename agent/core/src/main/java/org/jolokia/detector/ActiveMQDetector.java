@@ -1,5 +1,7 @@
 package org.jolokia.detector;
 
+import java.util.Set;
+
 import org.jolokia.backend.executor.MBeanServerExecutor;
 
 /**
@@ -10,6 +12,12 @@ import org.jolokia.backend.executor.MBeanServerExecutor;
  */
 public class ActiveMQDetector extends AbstractServerDetector {
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean isApplicable(Set<String> pDomains) {
+        return containsAnyDomain(pDomains, "org.apache.activemq");
+    }
+
     /** {@inheritDoc} */
     public ServerHandle detect(MBeanServerExecutor pMBeanServerExecutor) {
         String version = getSingleStringAttribute(pMBeanServerExecutor, "org.apache.activemq:type=Broker,*", "BrokerVersion");
@@ -16,6 +16,8 @@ package org.jolokia.detector;
  * limitations under the License.
  */
 
+import java.util.Set;
+
 import org.jolokia.backend.executor.MBeanServerExecutor;
 
 /**
@@ -26,6 +28,12 @@ import org.jolokia.backend.executor.MBeanServerExecutor;
  */
 public class GeronimoDetector extends AbstractServerDetector {
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean isApplicable(Set<String> pDomains) {
+        return containsAnyDomain(pDomains, "geronimo");
+    }
+
     /** {@inheritDoc}
      * @param pMBeanServerExecutor*/
     public ServerHandle detect(MBeanServerExecutor pMBeanServerExecutor) {
@@ -19,6 +19,7 @@ package org.jolokia.detector;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -51,6 +52,13 @@ public class GlassfishDetector extends AbstractServerDetector {
     private String serverName;
     private String vendorName;
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean isApplicable(Set<String> pDomains) {
+        return containsAnyDomain(pDomains, "com.sun.appserv", "com.sun.appserver", "amx") ||
+               System.getProperty("glassfish.version") != null;
+    }
+
     /** {@inheritDoc}
      * @param pMBeanServerExecutor*/
     public ServerHandle detect(MBeanServerExecutor pMBeanServerExecutor) {
@@ -21,6 +21,14 @@ public class JBossDetector extends AbstractServerDetector {
 
     public static final String JBOSS_AS_MANAGEMENT_ROOT_SERVER = "jboss.as:management-root=server";
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean isApplicable(Set<String> pDomains) {
+        return containsAnyDomain(pDomains, "jboss.system", "jboss.as", "jboss.modules") ||
+               ClassUtil.checkForClass("org.jboss.mx.util.MBeanServerLocator") ||
+               isJBossModulesBasedContainer(this.getClass().getClassLoader());
+    }
+
     /** {@inheritDoc} */
     public ServerHandle detect(MBeanServerExecutor pMBeanServerExecutor) {
         ServerHandle handle = checkFromJSR77(pMBeanServerExecutor);
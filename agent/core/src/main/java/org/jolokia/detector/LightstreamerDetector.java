@@ -2,6 +2,7 @@ package org.jolokia.detector;
 
 import java.lang.instrument.Instrumentation;
 import java.util.Properties;
+import java.util.Set;
 import org.jolokia.backend.executor.MBeanServerExecutor;
 
 public class LightstreamerDetector extends AbstractServerDetector {
@@ -12,6 +13,12 @@ public class LightstreamerDetector extends AbstractServerDetector {
         "com.lightstreamer.logging_lib_path",
         "com.lightstreamer.database_lib_path"};
     
+    /** {@inheritDoc} */
+    @Override
+    public boolean isApplicable(Set<String> pDomains) {
+        return containsAnyDomain(pDomains, "com.lightstreamer");
+    }
+
     /**
      * {@inheritDoc}
      *
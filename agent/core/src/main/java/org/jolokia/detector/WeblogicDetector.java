@@ -33,6 +33,12 @@ import org.jolokia.backend.executor.MBeanServerExecutor;
  */
 public class WeblogicDetector extends AbstractServerDetector {
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean isApplicable(Set<String> pDomains) {
+        return containsAnyDomain(pDomains, "com.bea");
+    }
+
     /** {@inheritDoc}
      * @param pMBeanServerExecutor*/
     public ServerHandle detect(MBeanServerExecutor pMBeanServerExecutor) {
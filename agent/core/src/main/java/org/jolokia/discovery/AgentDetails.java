@@ -22,8 +22,8 @@ import static org.jolokia.discovery.AbstractDiscoveryMessage.Payload.*;
  */
 public class AgentDetails {
 
-    // Detected server handle
-    private String serverVendor, serverProduct, serverVersion;
+    // Detected server handle, which might be set by a background thread
+    private volatile String serverVendor, serverProduct, serverVersion;
 
     // The URL on which an agent is listening
     private String url;
@@ -88,7 +88,7 @@ public class AgentDetails {
      * @param pVersion server version (not Jolokia's version!)
      */
     public void setServerInfo(String pVendor, String pProduct, String pVersion) {
-        checkSeal();
+        // No seal check, since the server might be detected in the background after sealing
         serverVendor = pVendor;
         serverProduct = pProduct;
         serverVersion = pVersion;
@@ -0,0 +1,19 @@
+package org.jolokia.discovery;
+
+/**
+ * Callback for agents found during a discovery lookup. Answers are
+ * delivered as soon as they arrive, each agent (by its agent id) only once.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+public interface DiscoveryListener {
+
+    /**
+     * Called for every newly discovered agent. Calls are never concurrent, but might come
+     * from different threads.
+     *
+     * @param pMessage the answer received from the agent
+     */
+    void agentDiscovered(DiscoveryIncomingMessage pMessage);
+}
@@ -2,6 +2,7 @@ package org.jolokia.discovery;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.*;
 
 import org.jolokia.config.ConfigKey;
 import org.jolokia.util.LogHandler;
@@ -17,10 +18,31 @@ import static org.jolokia.discovery.AbstractDiscoveryMessage.MessageType.QUERY;
  */
 public class JolokiaDiscovery implements JolokiaDiscoveryMBean {
 
+    // Default timeout for a lookup
+    static final int DEFAULT_TIMEOUT = 1000;
+
+    // Lookups for the cached view stop when no new agent has answered for this period
+    static final int CACHE_QUIET_PERIOD = 250;
+
+    // Interval for refreshing the cached view in the background
+    static final long CACHE_REFRESH_INTERVAL = 30 * 1000L;
+
+    // The background refresh stops when the cached view has not been looked up for this long
+    static final long CACHE_IDLE_TIMEOUT = 5 * 60 * 1000L;
+
     // Agent id used for use in the query
     private final String agentId;
     private final LogHandler logHandler;
 
+    // Agents found by the last lookup for the cached view, null if not looked up yet
+    private volatile List cachedAgents;
+
+    // Last time the cached view has been looked up
+    private volatile long lastCacheAccess;
+
+    // Scheduler for refreshing the cached view, only running as long as the view is used
+    private ScheduledExecutorService refresher;
+
     public JolokiaDiscovery(String pAgentId,LogHandler pLogHandler) {
         agentId = pAgentId;
         logHandler = pLogHandler;
@@ -28,25 +50,112 @@ public class JolokiaDiscovery implements JolokiaDiscoveryMBean {
 
     /** {@inheritDoc} */
     public List lookupAgents() throws IOException {
-        return lookupAgentsWithTimeout(1000);
+        return lookupAgentsWithTimeout(DEFAULT_TIMEOUT);
     }
 
     /** {@inheritDoc} */
     public List lookupAgentsWithTimeout(int pTimeout) throws IOException {
-        return lookupAgentsWithTimeoutAndMulticastAddress(1000, ConfigKey.MULTICAST_GROUP.getDefaultValue(), Integer.parseInt(ConfigKey.MULTICAST_PORT.getDefaultValue()));
+        return lookupAgentsWithTimeoutAndMulticastAddress(pTimeout, ConfigKey.MULTICAST_GROUP.getDefaultValue(), Integer.parseInt(ConfigKey.MULTICAST_PORT.getDefaultValue()));
     }
 
     /** {@inheritDoc} */
     public List lookupAgentsWithTimeoutAndMulticastAddress(int pTimeout, String pMulticastGroup, int pMulticastPort) throws IOException {
+        return lookupAgents(pTimeout, 0, 0, pMulticastGroup, pMulticastPort);
+    }
+
+    /** {@inheritDoc} */
+    public List lookupAgentsWithEarlyExit(int pTimeout, int pExpectedCount, int pQuietPeriod) throws IOException {
+        return lookupAgents(pTimeout, pExpectedCount, pQuietPeriod,
+                            ConfigKey.MULTICAST_GROUP.getDefaultValue(), Integer.parseInt(ConfigKey.MULTICAST_PORT.getDefaultValue()));
+    }
+
+    /** {@inheritDoc} */
+    public List lookupCachedAgents() throws IOException {
+        lastCacheAccess = System.currentTimeMillis();
+        List agents = cachedAgents;
+        if (agents != null) {
+            return agents;
+        }
+        synchronized (this) {
+            // A single lookup for filling the cache, concurrent callers wait for its result
+            if (cachedAgents == null) {
+                cachedAgents = lookupAgentsWithEarlyExit(DEFAULT_TIMEOUT, 0, CACHE_QUIET_PERIOD);
+                startRefresher();
+            }
+            return cachedAgents;
+        }
+    }
+
+    /**
+     * Stop refreshing the cached agents in the background. Called when the agent shuts down.
+     */
+    public void destroy() {
+        stopRefresher();
+    }
+
+    // ==========================================================================================
+
+    private List lookupAgents(int pTimeout, int pExpectedCount, int pQuietPeriod,
+                              String pMulticastGroup, int pMulticastPort) throws IOException {
         DiscoveryOutgoingMessage out =
                 new DiscoveryOutgoingMessage.Builder(QUERY)
                         .agentId(agentId)
                         .build();
-        List<DiscoveryIncomingMessage> discovered = MulticastUtil.sendQueryAndCollectAnswers(out, pTimeout, pMulticastGroup, pMulticastPort, logHandler);
-        JSONArray ret = new JSONArray();
-        for (DiscoveryIncomingMessage in : discovered) {
-            ret.add(in.getAgentDetails().toJSONObject());
-        }
+        final JSONArray ret = new JSONArray();
+        MulticastUtil.sendQueryAndStreamAnswers(out, pTimeout, pExpectedCount, pQuietPeriod, pMulticastGroup, pMulticastPort,
+                                                new DiscoveryListener() {
+                                                    /** {@inheritDoc} */
+                                                    public void agentDiscovered(DiscoveryIncomingMessage pMessage) {
+                                                        ret.add(pMessage.getAgentDetails().toJSONObject());
+                                                    }
+                                                }, logHandler);
         return ret;
     }
+
+    // Called from the refresher, the result is dropped if refreshing has been stopped meanwhile
+    private void refreshCachedAgents() throws IOException {
+        List agents = lookupAgentsWithEarlyExit(DEFAULT_TIMEOUT, 0, CACHE_QUIET_PERIOD);
+        synchronized (this) {
+            if (refresher != null) {
+                cachedAgents = agents;
+            }
+        }
+    }
+
+    private synchronized void startRefresher() {
+        if (refresher != null) {
+            return;
+        }
+        refresher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            /** {@inheritDoc} */
+            public Thread newThread(Runnable pRunnable) {
+                Thread thread = new Thread(pRunnable, "jolokia-discovery-refresh");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        refresher.scheduleWithFixedDelay(new Runnable() {
+            /** {@inheritDoc} */
+            public void run() {
+                if (System.currentTimeMillis() - lastCacheAccess > CACHE_IDLE_TIMEOUT) {
+                    stopRefresher();
+                    return;
+                }
+                try {
+                    refreshCachedAgents();
+                } catch (IOException exp) {
+                    logHandler.debug("Cannot refresh discovered agents: " + exp);
+                }
+            }
+        }, CACHE_REFRESH_INTERVAL, CACHE_REFRESH_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    // Stop refreshing and forget the cached agents, the next access performs a fresh lookup
+    private synchronized void stopRefresher() {
+        if (refresher != null) {
+            refresher.shutdown();
+            refresher = null;
+        }
+        cachedAgents = null;
+    }
 }
@@ -39,4 +39,26 @@ public interface JolokiaDiscoveryMBean {
      * @throws java.io.IOException
      */
     List lookupAgents() throws IOException;
+
+    /**
+     * Lookup agents, but return as soon as the expected number of agents has answered or when no
+     * new agent has answered for the given quiet period.
+     *
+     * @param pTimeout maximum time for the lookup in milliseconds
+     * @param pExpectedCount number of agents after which to return, 0 for no limit
+     * @param pQuietPeriod time in milliseconds without any new answer after which to return, 0 for waiting
+     *                     until the timeout
+     * @return an array with JSON objects containing the agent details discovered
+     * @throws java.io.IOException
+     */
+    List lookupAgentsWithEarlyExit(int pTimeout, int pExpectedCount, int pQuietPeriod) throws IOException;
+
+    /**
+     * Agents found by the last lookup. The first call performs a lookup, afterwards the list
+     * is refreshed in the background as long as this operation is called regularly.
+     *
+     * @return an array with JSON objects containing the agent details discovered
+     * @throws java.io.IOException
+     */
+    List lookupCachedAgents() throws IOException;
 }
@@ -64,30 +64,82 @@ public final class MulticastUtil {
                                                                             String pMulticastGroup,
                                                                             int pMulticastPort,
                                                                             LogHandler pLogHandler) throws IOException {
-        final List<Future<List<DiscoveryIncomingMessage>>> futures = sendDiscoveryRequests(pOutMsg, pTimeout, pMulticastGroup, pMulticastPort, pLogHandler);
-        return collectIncomingMessages(pTimeout, futures, pLogHandler);
+        final List<DiscoveryIncomingMessage> ret = new ArrayList<DiscoveryIncomingMessage>();
+        sendQueryAndStreamAnswers(pOutMsg, pTimeout, 0, 0, pMulticastGroup, pMulticastPort, new DiscoveryListener() {
+            /** {@inheritDoc} */
+            public void agentDiscovered(DiscoveryIncomingMessage pMessage) {
+                ret.add(pMessage);
+            }
+        }, pLogHandler);
+        return ret;
+    }
+
+    /**
+     * Sent out a message to Jolokia's multicast group over all network interfaces supporting multicasts and
+     * hand over each answer to a listener as soon as it arrives. Answers from the same agent (which can arrive
+     * over multiple interfaces) are delivered only once. The lookup ends when either
+     *
+     * <ul>
+     *     <li>the timeout is reached on all interfaces</li>
+     *     <li>the expected number of agents has been found</li>
+     *     <li>no new answer has arrived for the quiet period (after at least one agent has been found)</li>
+     * </ul>
+     *
+     * The listener is not called anymore after this method has returned.
+     *
+     * @param pOutMsg         the message to send
+     * @param pTimeout        timeout used for how long to wait for discovery messages
+     * @param pExpectedCount  number of agents after which to stop waiting, 0 for waiting until the timeout
+     * @param pQuietPeriod    time in milliseconds without new answers after which to stop waiting,
+     *                        0 for waiting until the timeout
+     * @param pListener       listener called for every discovered agent
+     * @param pLogHandler     a log handler for printing out logging information
+     * @return number of agents discovered
+     * @throws IOException if something fails during the discovery request
+     */
+    public static int sendQueryAndStreamAnswers(DiscoveryOutgoingMessage pOutMsg,
+                                                int pTimeout,
+                                                int pExpectedCount,
+                                                int pQuietPeriod,
+                                                String pMulticastGroup,
+                                                int pMulticastPort,
+                                                DiscoveryListener pListener,
+                                                LogHandler pLogHandler) throws IOException {
+        List<InetAddress> addresses = getMulticastAddresses();
+        AnswerCollector collector = new AnswerCollector(addresses.size(), pExpectedCount, pQuietPeriod, pListener);
+        sendDiscoveryRequests(pOutMsg, addresses, pTimeout, pMulticastGroup, pMulticastPort, collector, pLogHandler);
+        try {
+            collector.await(pTimeout + 500 /* some additional buffer */);
+        } catch (InterruptedException exp) {
+            Thread.currentThread().interrupt();
+        } finally {
+            collector.finish();
+        }
+        if (collector.couldntSendAny()) {
+            // No a single discovery message could be send out
+            throw new UnknownHostException("Cannot send a single multicast recovery request on any multicast enabled interface");
+        }
+        return collector.getCount();
     }
 
     // ==============================================================================================================
-    // Send requests in parallel threads, return the futures for getting the result
-    private static List<Future<List<DiscoveryIncomingMessage>>> sendDiscoveryRequests(DiscoveryOutgoingMessage pOutMsg,
-                                                                                      int pTimeout,
-                                                                                      String pMulticastGroup,
-                                                                                      int pMulticastPort,
-                                                                                      LogHandler pLogHandler) throws SocketException, UnknownHostException {
+    // Send requests in parallel threads, each of them feeding the answers to the collector
+    private static void sendDiscoveryRequests(DiscoveryOutgoingMessage pOutMsg,
+                                              List<InetAddress> pAddresses,
+                                              int pTimeout,
+                                              String pMulticastGroup,
+                                              int pMulticastPort,
+                                              AnswerCollector pCollector,
+                                              LogHandler pLogHandler) throws UnknownHostException {
         // Note for Ipv6 support: If there are two local addresses, one with IpV6 and one with IpV4 then two discovery request
         // should be sent, on each interface respectively. Currently, only IpV4 is supported.
-        List<InetAddress> addresses = getMulticastAddresses();
-        ExecutorService executor = Executors.newFixedThreadPool(addresses.size());
-        final List<Future<List<DiscoveryIncomingMessage>>> futures = new ArrayList<Future<List<DiscoveryIncomingMessage>>>(addresses.size());
-        for (InetAddress address : addresses) {
+        ExecutorService executor = Executors.newFixedThreadPool(pAddresses.size());
+        for (InetAddress address : pAddresses) {
             // Discover UDP packet send to multicast address
             DatagramPacket out = pOutMsg.createDatagramPacket(InetAddress.getByName(pMulticastGroup), pMulticastPort);
-            Callable<List<DiscoveryIncomingMessage>> findAgentsCallable = new FindAgentsCallable(address, out, pTimeout, pLogHandler);
-            futures.add(executor.submit(findAgentsCallable));
+            executor.execute(new FindAgentsTask(address, out, pTimeout, pCollector, pLogHandler));
         }
-        executor.shutdownNow();
-        return futures;
+        executor.shutdown();
     }
 
     // All addresses which can be used for sending multicast addresses
@@ -99,46 +151,6 @@ public final class MulticastUtil {
         return addresses;
     }
 
-    // Collect the incoming messages and filter out duplicates
-    private static List<DiscoveryIncomingMessage> collectIncomingMessages(int pTimeout, List<Future<List<DiscoveryIncomingMessage>>> pFutures, LogHandler pLogHandler) throws UnknownHostException {
-        List<DiscoveryIncomingMessage> ret = new ArrayList<DiscoveryIncomingMessage>();
-        Set<String> seen = new HashSet<String>();
-        int nrCouldntSend = 0;
-        for (Future<List<DiscoveryIncomingMessage>> future : pFutures) {
-            try {
-                List<DiscoveryIncomingMessage> inMsgs = future.get(pTimeout + 500 /* some additional buffer */, TimeUnit.MILLISECONDS);
-                for (DiscoveryIncomingMessage inMsg : inMsgs) {
-                    AgentDetails details = inMsg.getAgentDetails();
-                    String id = details.getAgentId();
-                    // There can be multiples answers with the same message id
-                    if (!seen.contains(id)) {
-                        ret.add(inMsg);
-                        seen.add(id);
-                    }
-                }
-            } catch (InterruptedException exp) {
-                // Try next one ...
-            } catch (ExecutionException e) {
-                Throwable exp = e.getCause();
-                if (exp instanceof CouldntSendDiscoveryPacketException) {
-                    nrCouldntSend++;
-                    pLogHandler.debug("--> Couldnt send discovery message from " +
-                                      ((CouldntSendDiscoveryPacketException) exp).getAddress() + ": " + exp.getCause());
-                }
-                // Didn't worked a given address, which can happen e.g. when multicast is not routed or in other cases
-                // throw new IOException("Error while performing a discovery call " + e,e);
-                pLogHandler.debug("--> Exception during lookup: " + e);
-            } catch (TimeoutException e) {
-                // Timeout occurred while waiting for the results. So we go to the next one ...
-            }
-        }
-        if (nrCouldntSend == pFutures.size()) {
-            // No a single discovery message could be send out
-            throw new UnknownHostException("Cannot send a single multicast recovery request on any multicast enabled interface");
-        }
-        return ret;
-    }
-
     // We are using all interfaces available and try to join them
     private static int joinMcGroupsOnAllNetworkInterfaces(MulticastSocket pSocket, InetSocketAddress pSocketAddress, LogHandler pLogHandler) throws IOException {
         // V6: ffx8::/16
@@ -166,80 +178,177 @@ public final class MulticastUtil {
     }
 
 
-    private static final class FindAgentsCallable implements Callable<List<DiscoveryIncomingMessage>> {
+    private static final class FindAgentsTask implements Runnable {
         private final InetAddress address;
         private final DatagramPacket outPacket;
         private final int timeout;
+        private final AnswerCollector collector;
         private final LogHandler logHandler;
 
-        private FindAgentsCallable(InetAddress pAddress, DatagramPacket pOutPacket, int pTimeout, LogHandler pLogHandler) {
+        private FindAgentsTask(InetAddress pAddress, DatagramPacket pOutPacket, int pTimeout,
+                               AnswerCollector pCollector, LogHandler pLogHandler) {
             address = pAddress;
             outPacket = pOutPacket;
             timeout = pTimeout;
+            collector = pCollector;
             logHandler = pLogHandler;
         }
 
-        public List<DiscoveryIncomingMessage> call() throws IOException {
-            final DatagramSocket socket = new DatagramSocket(0, address);
+        public void run() {
+            try {
+                sendAndReceive();
+            } catch (IOException exp) {
+                // Didn't worked a given address, which can happen e.g. when multicast is not routed or in other cases
+                logHandler.debug("--> Exception during lookup: " + exp);
+            } finally {
+                collector.receiverDone();
+            }
+        }
 
-            List<DiscoveryIncomingMessage> ret = new ArrayList<DiscoveryIncomingMessage>();
+        private void sendAndReceive() throws IOException {
+            final DatagramSocket socket;
+            try {
+                socket = new DatagramSocket(0, address);
+            } catch (IOException exp) {
+                collector.couldntSend();
+                throw exp;
+            }
+            if (!collector.addSocket(socket)) {
+                // Lookup is already finished
+                return;
+            }
 
             try {
                 socket.setSoTimeout(timeout);
                 logHandler.debug(address + "--> Sending");
                 socket.send(outPacket);
             } catch (IOException exp) {
-                throw new CouldntSendDiscoveryPacketException(
-                    address,
-                    "Can't send discovery UDP packet from " + address + ": " + exp.getMessage(),
-                    exp);
+                collector.couldntSend();
+                logHandler.debug("--> Couldnt send discovery message from " + address + ": " + exp);
+                socket.close();
+                return;
             }
 
             try {
-
-                try {
-                    do {
-                        byte[] buf = new byte[AbstractDiscoveryMessage.MAX_MSG_SIZE];
-                        DatagramPacket in = new DatagramPacket(buf, buf.length);
-                        socket.receive(in);
-                        logHandler.debug(address + "--> Received answer from " + in.getAddress());
-                        addIncomingMessage(ret, in);
-                    } while (true); // Leave loop with a SocketTimeoutException in receive()
-                } catch (SocketTimeoutException exp) {
-                    logHandler.debug(address + "--> Timeout");
-                    // Expected until no responses are returned anymore
-                } catch (IOException exp) {
+                do {
+                    byte[] buf = new byte[AbstractDiscoveryMessage.MAX_MSG_SIZE];
+                    DatagramPacket in = new DatagramPacket(buf, buf.length);
+                    socket.receive(in);
+                    logHandler.debug(address + "--> Received answer from " + in.getAddress());
+                    addIncomingMessage(in);
+                } while (true); // Leave loop with a SocketTimeoutException in receive()
+            } catch (SocketTimeoutException exp) {
+                logHandler.debug(address + "--> Timeout");
+                // Expected until no responses are returned anymore
+            } catch (IOException exp) {
+                if (!collector.isFinished()) {
                     throw new IOException("Cannot receive broadcast answer on " + address + ": " + exp.getMessage(),exp);
                 }
-                return ret;
+                // Socket has been closed because the lookup is finished
             } finally {
                 socket.close();
             }
         }
 
-        private void addIncomingMessage(List<DiscoveryIncomingMessage> ret, DatagramPacket in) {
+        private void addIncomingMessage(DatagramPacket in) {
             try {
                 DiscoveryIncomingMessage inMsg = new DiscoveryIncomingMessage(in);
                 if (!inMsg.isQuery()) {
-                    ret.add(inMsg);
+                    collector.add(inMsg);
                 }
             } catch (Exception exp) {
                 logHandler.debug("Invalid incoming package from " + in.getAddress() + "  --> " + exp + ". Ignoring");
             }
         }
-
     }
 
-    private static class CouldntSendDiscoveryPacketException extends IOException {
-        private final InetAddress address;
+    // Collects the answers of all receiving threads, filters out duplicates and decides
+    // when the lookup is finished
+    private static final class AnswerCollector {
+        private final int nrReceivers;
+        private final int expectedCount;
+        private final int quietPeriod;
+        private final DiscoveryListener listener;
+
+        private final Set<String> seen = new HashSet<String>();
+        private final List<DatagramSocket> sockets = new ArrayList<DatagramSocket>();
+
+        private int pendingReceivers;
+        private int nrCouldntSend;
+        private long lastAnswer;
+        private boolean finished;
+
+        private AnswerCollector(int pNrReceivers, int pExpectedCount, int pQuietPeriod, DiscoveryListener pListener) {
+            nrReceivers = pNrReceivers;
+            pendingReceivers = pNrReceivers;
+            expectedCount = pExpectedCount;
+            quietPeriod = pQuietPeriod;
+            listener = pListener;
+        }
+
+        synchronized void add(DiscoveryIncomingMessage pMessage) {
+            // There can be multiples answers with the same agent id
+            if (finished || !seen.add(pMessage.getAgentDetails().getAgentId())) {
+                return;
+            }
+            lastAnswer = System.currentTimeMillis();
+            listener.agentDiscovered(pMessage);
+            notifyAll();
+        }
+
+        synchronized void await(long pTimeout) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + pTimeout;
+            while (!finished && pendingReceivers > 0 &&
+                   (expectedCount <= 0 || seen.size() < expectedCount)) {
+                long now = System.currentTimeMillis();
+                long wakeUp = deadline;
+                if (quietPeriod > 0 && !seen.isEmpty()) {
+                    wakeUp = Math.min(wakeUp, lastAnswer + quietPeriod);
+                }
+                if (now >= wakeUp) {
+                    return;
+                }
+                wait(wakeUp - now);
+            }
+        }
+
+        // Stop the lookup by closing all sockets, so that the receivers return immediately
+        synchronized void finish() {
+            finished = true;
+            for (DatagramSocket socket : sockets) {
+                socket.close();
+            }
+            sockets.clear();
+        }
+
+        synchronized boolean addSocket(DatagramSocket pSocket) {
+            if (finished) {
+                pSocket.close();
+                return false;
+            }
+            sockets.add(pSocket);
+            return true;
+        }
+
+        synchronized boolean isFinished() {
+            return finished;
+        }
+
+        synchronized void receiverDone() {
+            pendingReceivers--;
+            notifyAll();
+        }
+
+        synchronized void couldntSend() {
+            nrCouldntSend++;
+        }
 
-        public CouldntSendDiscoveryPacketException(InetAddress pAddress, String pMessage, IOException pNested) {
-            super(pMessage,pNested);
-            this.address = pAddress;
+        synchronized boolean couldntSendAny() {
+            return nrCouldntSend == nrReceivers;
         }
 
-        public InetAddress getAddress() {
-            return address;
+        synchronized int getCount() {
+            return seen.size();
         }
     }
 }
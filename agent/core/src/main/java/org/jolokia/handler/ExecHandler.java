@@ -25,6 +25,7 @@ import javax.management.*;
 import javax.management.openmbean.OpenMBeanParameterInfo;
 import javax.management.openmbean.OpenType;
 
+import org.jolokia.backend.executor.AbstractMBeanServerExecutor;
 import org.jolokia.converter.*;
 import org.jolokia.request.*;
 import org.jolokia.restrictor.Restrictor;
@@ -39,8 +40,15 @@ import org.jolokia.util.RequestType;
  */
 public class ExecHandler extends JsonRequestHandler<JmxExecRequest> {
 
+    // Operation name with an optional signature like in "op(type1,type2,...)"
+    private static final Pattern OPERATION_WITH_SIGNATURE = Pattern.compile("^(.*)\\((.*)\\)$");
+
     private Converters converters;
 
+    // Operations per MBean, as extracted from the MBean's meta data
+    private final MBeanMetaDataCache<Map<String, List<OperationAndParamType>>> operationCache =
+            new MBeanMetaDataCache<Map<String, List<OperationAndParamType>>>();
+
     /**
      * Constructor
      * @param pRestrictor restrictor for checking access restrictions
@@ -57,6 +65,22 @@ public class ExecHandler extends JsonRequestHandler<JmxExecRequest> {
         return RequestType.EXEC;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public void destroy() {
+        operationCache.destroy();
+    }
+
+    /**
+     * Cache the operations of MBeans, which are evicted when the given executor sees a registration
+     * change. Without an executor, the operations are looked up for every request.
+     *
+     * @param pExecutor executor providing the registration notifications
+     */
+    void listenForRegistrationChanges(AbstractMBeanServerExecutor pExecutor) {
+        operationCache.connect(pExecutor);
+    }
+
     /** {@inheritDoc} */
     @Override
     protected void checkForRestriction(JmxExecRequest pRequest) {
@@ -108,7 +132,8 @@ public class ExecHandler extends JsonRequestHandler<JmxExecRequest> {
     }
 
     /**
-     * Extract the operation and type list from a given request
+     * Extract the operation and type list from a given request. The operations of an MBean are looked up
+     * from its meta data only once and then taken from a cache until the MBean gets registered again.
      *
      * @param pServer server from which obtain the MBean type info
      * @param pRequest the exec request
@@ -121,7 +146,7 @@ public class ExecHandler extends JsonRequestHandler<JmxExecRequest> {
         }
         List<String> opArgs = splitOperation(pRequest.getOperation());
         String operation = opArgs.get(0);
-        List<String> types;
+        List<String> types = null;
         if (opArgs.size() > 1) {
             if (opArgs.size() == 2 && opArgs.get(1) == null) {
                 // Empty signature requested
@@ -129,86 +154,88 @@ public class ExecHandler extends JsonRequestHandler<JmxExecRequest> {
             } else {
                 types = opArgs.subList(1,opArgs.size());
             }
-        } else {
-            List<MBeanParameterInfo[]> paramInfos = extractMBeanParameterInfos(pServer, pRequest, operation);
-            if (paramInfos.size() == 1) {
-                return new OperationAndParamType(operation,paramInfos.get(0));
-            } else {
-                // type requested from the operation
-                throw new IllegalArgumentException(
-                        getErrorMessageForMissingSignature(pRequest, operation, paramInfos));
+        }
+
+        Map<String, List<OperationAndParamType>> operations = operationCache.get(pServer, pRequest.getObjectName());
+        if (operations != null) {
+            OperationAndParamType ret = getMatchingOperation(operations, operation, types);
+            if (ret != null) {
+                return ret;
             }
+            // The meta data of a dynamic MBean might have changed without a new registration,
+            // so look again before giving up
         }
+        long generation = operationCache.getGeneration();
+        operations = extractOperations(pServer, pRequest);
+        operationCache.put(pServer, pRequest.getObjectName(), operations, generation);
 
-        List<MBeanParameterInfo[]> paramInfos = extractMBeanParameterInfos(pServer, pRequest, operation);
-        MBeanParameterInfo[] matchingSignature = getMatchingSignature(types, paramInfos);
-        if (matchingSignature == null) {
-            throw new IllegalArgumentException(
-                    "No operation " + pRequest.getOperation() + " on MBean " + pRequest.getObjectNameAsString() + " exists. " +
-                            "Known signatures: " + signatureToString(paramInfos));
+        OperationAndParamType ret = getMatchingOperation(operations, operation, types);
+        if (ret == null) {
+            throw new IllegalArgumentException(getErrorMessageForMissingOperation(pRequest, operation, types, operations.get(operation)));
         }
-        return new OperationAndParamType(operation, matchingSignature);
+        return ret;
     }
 
     /**
-     * Extract a list of operation signatures which match a certain operation name. The returned list
-     * can contain multiple signature in case of overloaded JMX operations.
+     * Extract all operations of an MBean. Overloaded JMX operations result in multiple signatures
+     * for the same operation name.
      *
      * @param pServer server from where to fetch the MBean info for a given request's object name
      * @param pRequest the JMX request
-     * @param pOperation the operation whose signature should be extracted
-     * @return a list of signature. If the operation is overloaded, this contains mutliple entries,
-     *         otherwise only a single entry is contained
+     * @return map with operation names as keys and the list of signatures as values
      */
-    private List<MBeanParameterInfo[]> extractMBeanParameterInfos(MBeanServerConnection pServer, JmxExecRequest pRequest,
-                                                                  String pOperation)
+    private Map<String, List<OperationAndParamType>> extractOperations(MBeanServerConnection pServer, JmxExecRequest pRequest)
             throws InstanceNotFoundException, ReflectionException, IOException {
         try {
             MBeanInfo mBeanInfo = pServer.getMBeanInfo(pRequest.getObjectName());
-            List<MBeanParameterInfo[]> paramInfos = new ArrayList<MBeanParameterInfo[]>();
+            Map<String, List<OperationAndParamType>> ret = new HashMap<String, List<OperationAndParamType>>();
             for (MBeanOperationInfo opInfo : mBeanInfo.getOperations()) {
-                if (opInfo.getName().equals(pOperation)) {
-                    paramInfos.add(opInfo.getSignature());
+                List<OperationAndParamType> signatures = ret.get(opInfo.getName());
+                if (signatures == null) {
+                    signatures = new ArrayList<OperationAndParamType>();
+                    ret.put(opInfo.getName(), signatures);
                 }
+                signatures.add(new OperationAndParamType(opInfo.getName(), opInfo.getSignature()));
             }
-            if (paramInfos.size() == 0) {
-                throw new IllegalArgumentException("No operation " + pOperation +
-                        " found on MBean " + pRequest.getObjectNameAsString());
-            }
-            return paramInfos;
+            return ret;
         }  catch (IntrospectionException e) {
             throw new IllegalStateException("Cannot extract MBeanInfo for " + pRequest.getObjectNameAsString(),e);
         }
     }
 
     /**
-     * Check whether a matching signature exists from a list of MBean parameter infos. The match is done against a list of types
-     * (in string form) which was extracted from the request
+     * Pick the signature of an operation. If no types are given, the operation must not be overloaded.
+     * Otherwise the match is done against a list of types (in string form) which was extracted from the request
      *
-     * @param pTypes types to match agains. These are full qualified class names in string representation
-     * @param pParamInfos list of parameter infos
-     * @return the matched signature MBeanParamaterInfo[]
+     * @param pOperations operations of the MBean
+     * @param pOperation name of the operation
+     * @param pTypes types to match against or null if no types were given. These are full qualified class names
+     *               in string representation
+     * @return the matching operation or null if there is none
      */
-    private MBeanParameterInfo[] getMatchingSignature(List<String> pTypes, List<MBeanParameterInfo[]> pParamInfos) {
+    private OperationAndParamType getMatchingOperation(Map<String, List<OperationAndParamType>> pOperations,
+                                                       String pOperation, List<String> pTypes) {
+        List<OperationAndParamType> signatures = pOperations.get(pOperation);
+        if (signatures == null) {
+            return null;
+        }
+        if (pTypes == null) {
+            return signatures.size() == 1 ? signatures.get(0) : null;
+        }
         OUTER:
-        for (MBeanParameterInfo[]  infos : pParamInfos) {
-            if (infos.length == 0 && pTypes.size() == 0) {
-                // No-arg argument
-                return infos;
-            }
-            if (pTypes.size() != infos.length) {
+        for (OperationAndParamType signature : signatures) {
+            if (pTypes.size() != signature.paramClasses.length) {
                 // Number of arguments dont match
                 continue OUTER;
             }
-            for (int i=0;i<infos.length;i++) {
-                String type = infos[i].getType();
-                if (!type.equals(pTypes.get(i))) {
+            for (int i=0;i<signature.paramClasses.length;i++) {
+                if (!signature.paramClasses[i].equals(pTypes.get(i))) {
                     // Non-matching signature
                     continue OUTER;
                 }
             }
             // If we did it until here, we are finished.
-            return infos;
+            return signature;
         }
         return null;
     }
@@ -216,8 +243,7 @@ public class ExecHandler extends JsonRequestHandler<JmxExecRequest> {
     // Extract operation and optional type parameters
     private List<String> splitOperation(String pOperation) {
         List<String> ret = new ArrayList<String>();
-        Pattern p = Pattern.compile("^(.*)\\((.*)\\)$");
-        Matcher m = p.matcher(pOperation);
+        Matcher m = OPERATION_WITH_SIGNATURE.matcher(pOperation);
         if (m.matches()) {
             ret.add(m.group(1));
             if (m.group(2).length() > 0) {
@@ -235,23 +261,26 @@ public class ExecHandler extends JsonRequestHandler<JmxExecRequest> {
         return ret;
     }
 
-    private String getErrorMessageForMissingSignature(JmxExecRequest pRequest, String pOperation, List<MBeanParameterInfo[]> pParamInfos) {
-        StringBuffer msg = new StringBuffer("Operation ");
-        msg.append(pOperation).
-                append(" on MBean ").
-                append(pRequest.getObjectNameAsString()).
-                append(" is overloaded. Signatures found: ");
-        msg.append(signatureToString(pParamInfos));
-        msg.append(". Use a signature when specifying the operation.");
-        return msg.toString();
+    private String getErrorMessageForMissingOperation(JmxExecRequest pRequest, String pOperation, List<String> pTypes,
+                                                      List<OperationAndParamType> pSignatures) {
+        if (pSignatures == null) {
+            return "No operation " + pOperation + " found on MBean " + pRequest.getObjectNameAsString();
+        } else if (pTypes == null) {
+            return "Operation " + pOperation + " on MBean " + pRequest.getObjectNameAsString() +
+                   " is overloaded. Signatures found: " + signatureToString(pSignatures) +
+                   ". Use a signature when specifying the operation.";
+        } else {
+            return "No operation " + pRequest.getOperation() + " on MBean " + pRequest.getObjectNameAsString() + " exists. " +
+                   "Known signatures: " + signatureToString(pSignatures);
+        }
     }
 
-    private String signatureToString(List<MBeanParameterInfo[]> pParamInfos) {
+    private String signatureToString(List<OperationAndParamType> pSignatures) {
         StringBuffer ret = new StringBuffer();
-        for (MBeanParameterInfo[] ii : pParamInfos) {
+        for (OperationAndParamType signature : pSignatures) {
             ret.append("(");
-            for (MBeanParameterInfo i : ii) {
-                ret.append(i.getType()).append(",");
+            for (String type : signature.paramClasses) {
+                ret.append(type).append(",");
             }
             ret.setLength(ret.length()-1);
             ret.append("),");
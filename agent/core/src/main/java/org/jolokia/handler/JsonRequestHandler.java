@@ -189,6 +189,14 @@ public abstract class JsonRequestHandler<R extends JmxRequest> {
         return true;
     }
 
+    /**
+     * Lifecycle method called when the agent is stopped. Handlers holding
+     * on to resources (like registered listeners) should release them here.
+     * The default implementation does nothing.
+     */
+    public void destroy() {
+    }
+
     /**
      * Get the restrictor which is currently active
      *
@@ -2,18 +2,24 @@ package org.jolokia.handler;
 
 
 import java.io.IOException;
-import java.util.Stack;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.management.*;
 
 import org.jolokia.backend.executor.MBeanServerExecutor;
 import org.jolokia.backend.executor.NotChangedException;
+import org.jolokia.backend.executor.RegistrationJournal;
+import org.jolokia.backend.executor.TimeBudget;
 import org.jolokia.config.ConfigKey;
+import org.jolokia.config.Configuration;
+import org.jolokia.handler.list.ListCache;
 import org.jolokia.handler.list.MBeanInfoData;
 import org.jolokia.request.JmxListRequest;
 import org.jolokia.restrictor.Restrictor;
-import org.jolokia.util.EscapeUtil;
+import org.jolokia.util.PathCursor;
 import org.jolokia.util.RequestType;
+import org.json.simple.JSONObject;
 
 /*
  * Copyright 2009-2013 Roland Huss
@@ -41,6 +47,8 @@ import org.jolokia.util.RequestType;
  */
 public class ListHandler extends JsonRequestHandler<JmxListRequest> {
 
+    // Cache for plain list requests, null if switched off
+    private final ListCache listCache;
 
     /** {@inheritDoc} */
     public RequestType getType() {
@@ -53,7 +61,19 @@ public class ListHandler extends JsonRequestHandler<JmxListRequest> {
      * @param pRestrictor restrictor to apply
      */
     public ListHandler(Restrictor pRestrictor) {
+        this(null, pRestrictor);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param pConfig configuration which determines whether list results are cached. Might be null
+     *                in which case no cache is used.
+     * @param pRestrictor restrictor to apply
+     */
+    public ListHandler(Configuration pConfig, Restrictor pRestrictor) {
         super(pRestrictor);
+        listCache = pConfig != null && pConfig.getAsBoolean(ConfigKey.LIST_CACHE) ? new ListCache() : null;
     }
 
     /**
@@ -79,22 +99,24 @@ public class ListHandler extends JsonRequestHandler<JmxListRequest> {
         // Throw an exception if list has not changed
         checkForModifiedSince(pServerManager, pRequest);
 
-        Stack<String> originalPathStack = EscapeUtil.reversePath(pRequest.getPathParts());
+        PathCursor path = PathCursor.of(pRequest.getPathParts());
         int maxDepth = pRequest.getParameterAsInt(ConfigKey.MAX_DEPTH);
         boolean useCanonicalName = pRequest.getParameterAsBool(ConfigKey.CANONICAL_NAMING);
 
         ObjectName oName = null;
         try {
-            Stack<String> pathStack = (Stack<String>) originalPathStack.clone();
-            oName = objectNameFromPath(pathStack);
+            oName = objectNameFromPath(path);
 
-            ListMBeanEachAction action = new ListMBeanEachAction(maxDepth,pathStack,useCanonicalName);
-            if (oName == null || oName.isPattern()) {
-                pServerManager.each(oName, action);
-            } else {
-                pServerManager.call(oName,action);
+            ListMBeanEachAction action = new ListMBeanEachAction(maxDepth,path,useCanonicalName);
+            String since = pRequest.getParameter(ConfigKey.LIST_SINCE);
+            if (since != null) {
+                return listChanges(pServerManager, pRequest, oName, action, parseSequence(since), useCanonicalName);
             }
-
+            if (listCache != null && oName == null) {
+                return listCache.list(pServerManager, maxDepth, useCanonicalName,
+                                      pRequest.getParameterAsInt(ConfigKey.TRAVERSAL_TIMEOUT));
+            }
+            listAll(pServerManager, pRequest, oName, action);
             return action.getResult();
         } catch (MalformedObjectNameException e) {
             throw new IllegalArgumentException("Invalid path within the MBean part given. (Path: " + pRequest.getPath() + ")",e);
@@ -128,21 +150,86 @@ public class ListHandler extends JsonRequestHandler<JmxListRequest> {
 
     // ==========================================================================================================
 
+    // Collect the meta data of all MBeans matching the given name
+    private void listAll(MBeanServerExecutor pServerManager, JmxListRequest pRequest, ObjectName pObjectName, ListMBeanEachAction pAction)
+            throws IOException, JMException {
+        if (pObjectName == null || pObjectName.isPattern()) {
+            pServerManager.each(pObjectName, pAction, pRequest.getParameterAsInt(ConfigKey.TRAVERSAL_TIMEOUT));
+        } else {
+            try {
+                pServerManager.call(pObjectName, pAction);
+            } catch (InstanceNotFoundException exp) {
+                // Not registered at any MBeanServer, reported within the result
+                pAction.merge(pObjectName, exp);
+            }
+        }
+    }
+
+    /**
+     * List only the MBeans which have been registered since the given sequence number and the names of
+     * the MBeans which have been unregistered. If the changes are not known, the full list is returned.
+     *
+     * @return map with the current sequence number ("sequence"), whether the result contains only the changes
+     *         ("incremental"), the meta data of the added MBeans in the same format as a plain list ("added")
+     *         and the names of removed MBeans ("removed")
+     */
+    private Object listChanges(MBeanServerExecutor pServerManager, JmxListRequest pRequest, ObjectName pObjectName,
+                               ListMBeanEachAction pAction, long pSince, boolean pUseCanonicalName)
+            throws IOException, JMException {
+        // Changes are obtained before looking up the meta data, so that a change happening in between
+        // is reported again with the next request
+        RegistrationJournal.Changes changes = pServerManager.getRegistrationChangesSince(pSince);
+        List<String> removed = new ArrayList<String>();
+        if (changes.isComplete()) {
+            for (ObjectName name : changes.getAdded()) {
+                if (pObjectName == null || pObjectName.apply(name)) {
+                    try {
+                        pServerManager.call(name, pAction);
+                    } catch (InstanceNotFoundException exp) {
+                        // Already unregistered again, which will be reported with the next request
+                    }
+                }
+            }
+            for (ObjectName name : changes.getRemoved()) {
+                if (pObjectName == null || pObjectName.apply(name)) {
+                    removed.add(name.getDomain() + ":" +
+                                (pUseCanonicalName ? name.getCanonicalKeyPropertyListString() : name.getKeyPropertyListString()));
+                }
+            }
+        } else {
+            listAll(pServerManager, pRequest, pObjectName, pAction);
+        }
+        JSONObject ret = new JSONObject();
+        ret.put("sequence", changes.getSequence());
+        ret.put("incremental", changes.isComplete());
+        ret.put("added", pAction.getResult());
+        ret.put("removed", removed);
+        return ret;
+    }
+
+    private long parseSequence(String pSince) {
+        try {
+            return Long.parseLong(pSince);
+        } catch (NumberFormatException exp) {
+            throw new IllegalArgumentException("Invalid sequence number '" + pSince + "' given as 'since'",exp);
+        }
+    }
+
     /**
      * Prepare an objectname patttern from a path (or "null" if no path is given)
-     * @param pPathStack path
+     * @param pPath path
      * @return created object name (either plain or a pattern)
      */
-    private ObjectName objectNameFromPath(Stack<String> pPathStack) throws MalformedObjectNameException {
-        if (pPathStack.empty()) {
+    private ObjectName objectNameFromPath(PathCursor pPath) throws MalformedObjectNameException {
+        if (pPath.isEmpty()) {
             return null;
         }
-        Stack<String> path = (Stack<String>) pPathStack.clone();
-        String domain = path.pop();
-        if (path.empty()) {
+        String domain = pPath.current();
+        PathCursor rest = pPath.next();
+        if (rest.isEmpty()) {
             return new ObjectName(domain + ":*");
         }
-        String props = path.pop();
+        String props = rest.current();
         ObjectName mbean = new ObjectName(domain + ":" + props);
         if (mbean.isPattern()) {
             throw new IllegalArgumentException("Cannot use an MBean pattern as path (given MBean: " + mbean + ")");
@@ -150,8 +237,9 @@ public class ListHandler extends JsonRequestHandler<JmxListRequest> {
         return mbean;
     }
 
-    // Class for handling list queries
-    private static class ListMBeanEachAction implements MBeanServerExecutor.MBeanEachCallback, MBeanServerExecutor.MBeanAction<Void> {
+    // Class for handling list queries. The MBeanInfo is fetched independently for each MBean whereas
+    // the collected meta data is updated only when merging.
+    private static class ListMBeanEachAction implements MBeanServerExecutor.MBeanFetchCallback<Object>, MBeanServerExecutor.MBeanAction<Void> {
 
         // Meta data which will get collected
         private final MBeanInfoData infoMap;
@@ -160,30 +248,74 @@ public class ListHandler extends JsonRequestHandler<JmxListRequest> {
          * Handler used during iterations whe collecting MBean Meta data
          *
          * @param pMaxDepth max depth for the list tree to return
-         * @param pPathStack optional stack for picking out a certain path from the list tree
+         * @param pPath optional path for picking out a certain path from the list tree
          * @param pUseCanonicalName whether to use a canonical naming for the MBean property lists or the original
          *                          name
          */
-        public ListMBeanEachAction(int pMaxDepth, Stack<String> pPathStack, boolean pUseCanonicalName) {
-            infoMap = new MBeanInfoData(pMaxDepth,pPathStack,pUseCanonicalName);
+        public ListMBeanEachAction(int pMaxDepth, PathCursor pPath, boolean pUseCanonicalName) {
+            infoMap = new MBeanInfoData(pMaxDepth,pPath,pUseCanonicalName);
         }
 
         /**
-         * Add the given MBean to the collected Meta-Data for an iteration
+         * Lookup the MBeanInfo of an MBean
          *
          * @param pConn connection from where to obtain the meta data
          * @param pName object name of the bean
-         * @throws ReflectionException
+         * @return the {@link MBeanInfo}, the exception which occurred during the lookup or null if no
+         *         meta data is required
+         * @throws IOException
+         */
+        public Object fetch(MBeanServerConnection pConn, ObjectName pName)
+                throws ReflectionException, IOException {
+            if (!infoMap.isMBeanInfoNeeded()) {
+                return null;
+            }
+            try {
+                TimeBudget.current().check(pName);
+                return pConn.getMBeanInfo(pName);
+            } catch (IOException exp) {
+                return exp;
+            } catch (InstanceNotFoundException exp) {
+                return exp;
+            } catch (IllegalStateException exp) {
+                // Includes a RequestTimeoutException when the time budget of the request is used up
+                return exp;
+            } catch (IntrospectionException exp) {
+                throw new IllegalArgumentException("Cannot extra MBeanInfo for " + pName + ": " + exp,exp);
+            }
+        }
+
+        /**
+         * Add the fetched MBeanInfo (or the error which occurred) to the collected Meta-Data
+         *
+         * @param pName object name of the bean
+         * @param pData data as returned by {@link #fetch(MBeanServerConnection, ObjectName)}
          * @throws InstanceNotFoundException
+         * @throws ReflectionException
          * @throws IOException
          */
-        public void callback(MBeanServerConnection pConn, ObjectName pName)
-                throws ReflectionException, InstanceNotFoundException, IOException, MBeanException {
-            lookupMBeanInfo(pConn, pName);
+        public void merge(ObjectName pName, Object pData) throws InstanceNotFoundException, ReflectionException, IOException {
+            if (infoMap.handleFirstOrSecondLevel(pName)) {
+                return;
+            }
+            if (pData instanceof IOException) {
+                infoMap.handleException(pName, (IOException) pData);
+            } else if (pData instanceof InstanceNotFoundException) {
+                infoMap.handleException(pName, (InstanceNotFoundException) pData);
+            } else if (pData instanceof IllegalStateException) {
+                infoMap.handleException(pName, (IllegalStateException) pData);
+            } else {
+                try {
+                    infoMap.addMBeanInfo((MBeanInfo) pData, pName);
+                } catch (IntrospectionException exp) {
+                    throw new IllegalArgumentException("Cannot extra MBeanInfo for " + pName + ": " + exp,exp);
+                }
+            }
         }
 
         /**
-         * Add the MBeanInfo for a single MBean
+         * Add the MBeanInfo for a single MBean. If the MBean is not registered at the given server an
+         * {@link InstanceNotFoundException} is thrown, so that the next server is tried.
          *
          * @param pConn MBeanServer on which the action should be performed
          * @param pName an objectname interpreted specifically by the action
@@ -197,28 +329,17 @@ public class ListHandler extends JsonRequestHandler<JmxListRequest> {
          */
         public Void execute(MBeanServerConnection pConn, ObjectName pName, Object... extraArgs)
                 throws ReflectionException, InstanceNotFoundException, IOException, MBeanException, AttributeNotFoundException {
-            lookupMBeanInfo(pConn, pName);
-            return null;
-        }
-
-        private void lookupMBeanInfo(MBeanServerConnection pConn, ObjectName pName) throws InstanceNotFoundException, ReflectionException, IOException {
-            if (!infoMap.handleFirstOrSecondLevel(pName)) {
-                try {
-                    MBeanInfo mBeanInfo = pConn.getMBeanInfo(pName);
-                    infoMap.addMBeanInfo(mBeanInfo, pName);
-                } catch (IOException exp) {
-                    infoMap.handleException(pName, exp);
-                } catch (InstanceNotFoundException exp) {
-                    infoMap.handleException(pName, exp);
-                } catch (IllegalStateException exp) {
-                    infoMap.handleException(pName, exp);
-                } catch (IntrospectionException exp) {
-                    throw new IllegalArgumentException("Cannot extra MBeanInfo for " + pName + ": " + exp,exp);
-                }
+            Object data = fetch(pConn, pName);
+            if (data instanceof InstanceNotFoundException) {
+                throw (InstanceNotFoundException) data;
+            } else if (data == null && !pConn.isRegistered(pName)) {
+                // No meta data needed, but the MBean must be known at this server nevertheless
+                throw new InstanceNotFoundException(pName.getCanonicalName());
             }
+            merge(pName, data);
+            return null;
         }
 
-
         /**
          * Get the overall result
          *
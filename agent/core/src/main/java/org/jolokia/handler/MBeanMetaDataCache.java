@@ -0,0 +1,142 @@
+package org.jolokia.handler;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.*;
+
+import org.jolokia.backend.executor.AbstractMBeanServerExecutor;
+
+/**
+ * Cache for data derived from the meta data of MBeans. An entry is dropped as soon as its MBean is
+ * unregistered or registered again, which is signaled by the registration notifications of the executor
+ * this cache is connected to. Nothing is cached as long as the cache is not connected to an executor.
+ *
+ * @param <V> type of the cached data
+ * @author roland
+ * @since 1.6.3
+ */
+class MBeanMetaDataCache<V> implements NotificationListener {
+
+    // Maximum number of entries before the cache is cleared
+    static final int MAX_ENTRIES = 1000;
+
+    // Entries by MBean name. The connection is part of the entry, so that a registration
+    // change evicts the MBean on every connection.
+    private final Map<ObjectName, Entry<V>> entries = new ConcurrentHashMap<ObjectName, Entry<V>>();
+
+    // Executor providing the registration notifications, null if not connected
+    private volatile AbstractMBeanServerExecutor executor;
+
+    // Incremented for every registration change
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Connect to an executor, whose registration notifications are used for evicting entries
+     *
+     * @param pExecutor executor to connect to
+     */
+    synchronized void connect(AbstractMBeanServerExecutor pExecutor) {
+        disconnect();
+        pExecutor.addRegistrationListener(this);
+        executor = pExecutor;
+    }
+
+    /**
+     * Get the cached data for an MBean
+     *
+     * @param pConn connection on which the MBean is registered
+     * @param pName name of the MBean
+     * @return the data or null if nothing is cached
+     */
+    V get(MBeanServerConnection pConn, ObjectName pName) {
+        Entry<V> entry = entries.get(pName);
+        return entry != null && entry.conn == pConn ? entry.value : null;
+    }
+
+    /**
+     * Get the current generation, which must be obtained after {@link #get(MBeanServerConnection, ObjectName)}
+     * and before looking up the meta data to cache.
+     *
+     * @return generation to use for {@link #put(MBeanServerConnection, ObjectName, Object, long)}
+     */
+    long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Cache data for an MBean. Nothing is cached if a registration has changed since the given generation,
+     * since the data might belong to an MBean which has been replaced in the meantime.
+     *
+     * @param pConn connection on which the MBean is registered
+     * @param pName name of the MBean
+     * @param pValue data to cache
+     * @param pGeneration generation obtained before the meta data was looked up
+     */
+    void put(MBeanServerConnection pConn, ObjectName pName, V pValue, long pGeneration) {
+        if (executor == null) {
+            return;
+        }
+        if (entries.size() >= MAX_ENTRIES) {
+            entries.clear();
+        }
+        entries.put(pName, new Entry<V>(pConn, pValue));
+        if (generation.get() != pGeneration) {
+            // Registration changes in between are not necessarily reflected
+            entries.remove(pName);
+        }
+    }
+
+    /**
+     * Drop all entries and disconnect from the executor
+     */
+    synchronized void destroy() {
+        disconnect();
+        entries.clear();
+    }
+
+    /** {@inheritDoc} */
+    public void handleNotification(Notification pNotification, Object pHandback) {
+        if (pNotification instanceof MBeanServerNotification) {
+            generation.incrementAndGet();
+            entries.remove(((MBeanServerNotification) pNotification).getMBeanName());
+        }
+    }
+
+    // ==========================================================================================
+
+    private void disconnect() {
+        if (executor != null) {
+            executor.removeRegistrationListener(this);
+            executor = null;
+        }
+    }
+
+    // Cached data together with the connection it belongs to
+    private static final class Entry<V> {
+        private final MBeanServerConnection conn;
+        private final V value;
+
+        private Entry(MBeanServerConnection pConn, V pValue) {
+            conn = pConn;
+            value = pValue;
+        }
+    }
+}
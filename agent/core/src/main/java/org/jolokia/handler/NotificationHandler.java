@@ -0,0 +1,159 @@
+package org.jolokia.handler;
+
+import java.io.IOException;
+
+import javax.management.*;
+
+import org.jolokia.backend.executor.MBeanServerExecutor;
+import org.jolokia.config.ConfigKey;
+import org.jolokia.config.Configuration;
+import org.jolokia.notification.NotificationListenerDelegate;
+import org.jolokia.request.JmxNotificationRequest;
+import org.jolokia.restrictor.Restrictor;
+import org.jolokia.util.RequestType;
+import org.json.simple.JSONObject;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+/**
+ * Handler for managing notification clients, their listeners and subscriptions and for
+ * fetching the events received. The actual bookkeeping is done
+ * by a {@link NotificationListenerDelegate}.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+public class NotificationHandler extends JsonRequestHandler<JmxNotificationRequest> {
+
+    private final NotificationListenerDelegate delegate;
+
+    /**
+     * Constructor
+     *
+     * @param pConfig configuration for the queue sizes and timeouts. Might be null in which
+     *                case the default values are used.
+     * @param pRestrictor access restrictions
+     */
+    public NotificationHandler(Configuration pConfig, Restrictor pRestrictor) {
+        super(pRestrictor);
+        delegate = new NotificationListenerDelegate(
+                getConfigAsInt(pConfig, ConfigKey.NOTIFICATION_MAX_QUEUE_SIZE),
+                getConfigAsInt(pConfig, ConfigKey.NOTIFICATION_CLIENT_TIMEOUT));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public RequestType getType() {
+        return RequestType.NOTIFICATION;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void checkForRestriction(JmxNotificationRequest pRequest) {
+        checkType();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean handleAllServersAtOnce(JmxNotificationRequest pRequest) {
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object doHandleRequest(MBeanServerExecutor serverManager, JmxNotificationRequest request)
+            throws InstanceNotFoundException, AttributeNotFoundException, ReflectionException, MBeanException, IOException {
+        // Expired clients are removed lazily
+        delegate.cleanup(System.currentTimeMillis());
+        String client = request.getClient();
+        switch (request.getCommand()) {
+            case REGISTER:
+                return register();
+            case UNREGISTER:
+                delegate.unregister(client);
+                return null;
+            case ADD:
+                return delegate.addListener(serverManager, client, request.getObjectName(),
+                                            request.getFilter(), request.getHandback());
+            case REMOVE:
+                delegate.removeListener(client, request.getHandle());
+                return null;
+            case SUBSCRIBE:
+                return delegate.subscribe(client, request.getRequests(), request.getInterval(),
+                                          request.isOnlyChanged(), request.getHandback());
+            case PING:
+                delegate.refresh(client);
+                return null;
+            case LIST:
+                return delegate.list(client);
+            case PULL:
+            case STREAM:
+                // A stream request reaching this handler (i.e. not via HTTP) is treated as a simple pull
+                return delegate.pull(client, request.getMaxNotifications(), request.getTimeout());
+            default:
+                throw new IllegalArgumentException("Unknown notification command " + request.getCommand());
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected Object doHandleRequest(MBeanServerConnection server, JmxNotificationRequest request) {
+        throw new UnsupportedOperationException("Internal: Method must not be called when all MBeanServers are handled at once");
+    }
+
+    /**
+     * Notifications are not subject to path based value selection.
+     *
+     * @return false
+     */
+    @Override
+    public boolean useReturnValueWithPath() {
+        return false;
+    }
+
+    /**
+     * Remove all notification listeners which are still registered
+     */
+    @Override
+    public void destroy() {
+        delegate.destroy();
+    }
+
+    /**
+     * Get the delegate holding the notification clients
+     *
+     * @return the notification delegate
+     */
+    public NotificationListenerDelegate getDelegate() {
+        return delegate;
+    }
+
+    // ==============================================================================
+
+    private JSONObject register() {
+        JSONObject ret = new JSONObject();
+        ret.put("id", delegate.register());
+        ret.put("maxQueueSize", delegate.getMaxQueueSize());
+        ret.put("clientTimeout", delegate.getClientTimeout());
+        return ret;
+    }
+
+    private int getConfigAsInt(Configuration pConfig, ConfigKey pKey) {
+        return pConfig != null ? pConfig.getAsInt(pKey) : Integer.parseInt(pKey.getDefaultValue());
+    }
+}
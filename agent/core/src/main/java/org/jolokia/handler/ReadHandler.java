@@ -6,6 +6,8 @@ import java.util.*;
 import javax.management.*;
 
 import org.jolokia.backend.executor.MBeanServerExecutor;
+import org.jolokia.backend.executor.RequestTimeoutException;
+import org.jolokia.config.ConfigKey;
 import org.jolokia.converter.json.ValueFaultHandler;
 import org.jolokia.request.JmxReadRequest;
 import org.jolokia.restrictor.Restrictor;
@@ -61,6 +63,16 @@ public class ReadHandler extends JsonRequestHandler<JmxReadRequest> {
                 }
             };
 
+    // Value of the processing parameter "readFormat" selecting the columnar format
+    private static final String COLUMNAR_FORMAT = "columnar";
+
+    // Keys of a pattern read result in columnar format
+    private static final String COLUMNAR_MBEANS = "mbeans";
+    private static final String COLUMNAR_ATTRIBUTES = "attributes";
+    private static final String COLUMNAR_VALUES = "values";
+    private static final String COLUMNAR_ERRORS = "errors";
+    private static final String COLUMNAR_MISSING = "missing";
+
     /**
      * Read handler constructor
      *
@@ -119,48 +131,129 @@ public class ReadHandler extends JsonRequestHandler<JmxReadRequest> {
         }
     }
 
-    private Object fetchAttributesForMBeanPattern(MBeanServerExecutor pServerManager, JmxReadRequest pRequest)
+    private Object fetchAttributesForMBeanPattern(final MBeanServerExecutor pServerManager, final JmxReadRequest pRequest)
             throws IOException, InstanceNotFoundException, ReflectionException, AttributeNotFoundException, MBeanException {
         ObjectName objectName = pRequest.getObjectName();
-        ValueFaultHandler faultHandler = pRequest.getValueFaultHandler();
-        Set<ObjectName> names = searchMBeans(pServerManager, objectName);
-        Map<String,Object> ret = new HashMap<String, Object>();
-        List<String> attributeNames = pRequest.getAttributeNames();
-        for (ObjectName name : names) {
-            try {
-                if (!pRequest.hasAttribute()) {
-                    Map values = (Map) fetchAttributes(pServerManager,name, null, faultHandler);
-                    if (values != null && values.size() > 0) {
-                        ret.put(pRequest.getOrderedObjectName(name),values);
-                    }
-                } else {
-                    List<String> filteredAttributeNames = filterAttributeNames(pServerManager,name,attributeNames);
-                    if (filteredAttributeNames.size() == 0) {
-                        continue;
+        final ValueFaultHandler faultHandler = pRequest.getValueFaultHandler();
+        final Map<String,Object> ret = new HashMap<String, Object>();
+        final List<String> attributeNames = pRequest.getAttributeNames();
+        final List<ObjectName> names = new ArrayList<ObjectName>();
+        // The attributes of the MBeans are fetched independently (and possibly concurrently),
+        // the result map is only updated when merging
+        pServerManager.each(objectName, new MBeanServerExecutor.MBeanFetchCallback<Object>() {
+            /** {@inheritDoc} */
+            public Object fetch(MBeanServerConnection pConn, ObjectName pName)
+                    throws ReflectionException, IOException, MBeanException {
+                try {
+                    if (!pRequest.hasAttribute()) {
+                        Map values = (Map) fetchAttributes(pServerManager,pName, null, faultHandler);
+                        return values != null && values.size() > 0 ? values : null;
+                    } else {
+                        List<String> filteredAttributeNames = filterAttributeNames(pServerManager,pName,attributeNames);
+                        if (filteredAttributeNames.size() == 0) {
+                            return null;
+                        }
+                        return fetchAttributes(pServerManager,pName,filteredAttributeNames, faultHandler);
                     }
-                    ret.put(pRequest.getOrderedObjectName(name),
-                            fetchAttributes(pServerManager,name,filteredAttributeNames, faultHandler));
+                } catch (InstanceNotFoundException exp) {
+                    // Since MBean can be registered/deregistered dynamically, it can happen here, that
+                    // an MBean has been already unregistered in the meantime. We simply ignore an InstanceNotFoundException
+                    // here and go on ....
+                    return null;
+                } catch (AttributeNotFoundException exp) {
+                    throw new IllegalArgumentException("Cannot lookup attributes of " + pName + ": " + exp,exp);
+                } catch (RequestTimeoutException exp) {
+                    // The time budget was used up before the attribute names could be looked up,
+                    // the fault handler decides whether this is reported per MBean or fails the request
+                    return faultHandler.handleException(exp);
+                }
+            }
+
+            /** {@inheritDoc} */
+            public void merge(ObjectName pName, Object pValues) {
+                names.add(pName);
+                if (pValues != null) {
+                    ret.put(pRequest.getOrderedObjectName(pName), pValues);
                 }
-            } catch (InstanceNotFoundException exp) {
-                // Since MBean can be registered/deregistered dynamically, it can happen here, that
-                // an MBean has been already unregistered in the meantime. We simply ignore an InstanceNotFoundException
-                // here and go on ....
             }
+        }, pRequest.getParameterAsInt(ConfigKey.TRAVERSAL_TIMEOUT));
+        if (names.size() == 0) {
+            throw new InstanceNotFoundException("No MBean with pattern " + objectName +
+                    " found for reading attributes");
         }
         if (ret.size() == 0) {
             throw new IllegalArgumentException("No matching attributes " +
                     pRequest.getAttributeNames() + " found on MBeans " + names);
         }
+        return useColumnarFormat(pRequest) ? convertToColumns(ret, pRequest) : ret;
+    }
+
+    // The columnar format is used only if requested and if no path is applied to the result
+    private boolean useColumnarFormat(JmxReadRequest pRequest) {
+        return COLUMNAR_FORMAT.equals(pRequest.getParameter(ConfigKey.READ_FORMAT)) &&
+               (pRequest.getPathParts() == null || pRequest.getPathParts().isEmpty());
+    }
+
+    // Convert the values of a pattern read into the columnar format with the MBean names and attribute
+    // names given once. Attributes which an MBean doesn't have are given as null and are listed per MBean
+    // so that they can be told apart from null values. MBeans for which no attribute could be looked up
+    // are listed separately with their error.
+    private Map<String, Object> convertToColumns(Map<String, Object> pValues, JmxReadRequest pRequest) {
+        List<String> mbeans = new ArrayList<String>();
+        Map<String, Object> errors = new TreeMap<String, Object>();
+        Set<String> attributeNames = new TreeSet<String>();
+        for (Map.Entry<String, Object> entry : new TreeMap<String, Object>(pValues).entrySet()) {
+            if (entry.getValue() instanceof Map) {
+                mbeans.add(entry.getKey());
+                attributeNames.addAll(((Map<String, Object>) entry.getValue()).keySet());
+            } else {
+                errors.put(entry.getKey(), entry.getValue());
+            }
+        }
+        List<String> attributes = new ArrayList<String>();
+        if (pRequest.hasAttribute()) {
+            // Keep the order of the request
+            for (String attribute : pRequest.getAttributeNames()) {
+                if (attributeNames.contains(attribute) && !attributes.contains(attribute)) {
+                    attributes.add(attribute);
+                }
+            }
+        } else {
+            attributes.addAll(attributeNames);
+        }
+        List<List<Object>> rows = new ArrayList<List<Object>>(mbeans.size());
+        Map<String, List<String>> missing = new TreeMap<String, List<String>>();
+        for (String mbean : mbeans) {
+            Map<String, Object> values = (Map<String, Object>) pValues.get(mbean);
+            List<Object> row = new ArrayList<Object>(attributes.size());
+            for (String attribute : attributes) {
+                row.add(values.get(attribute));
+                if (!values.containsKey(attribute)) {
+                    addMissingAttribute(missing, mbean, attribute);
+                }
+            }
+            rows.add(row);
+        }
+        Map<String, Object> ret = new LinkedHashMap<String, Object>();
+        ret.put(COLUMNAR_MBEANS, mbeans);
+        ret.put(COLUMNAR_ATTRIBUTES, attributes);
+        ret.put(COLUMNAR_VALUES, rows);
+        if (!missing.isEmpty()) {
+            ret.put(COLUMNAR_MISSING, missing);
+        }
+        if (!errors.isEmpty()) {
+            ret.put(COLUMNAR_ERRORS, errors);
+        }
         return ret;
     }
 
-    private Set<ObjectName> searchMBeans(MBeanServerExecutor pServerManager, ObjectName pObjectName) throws IOException, InstanceNotFoundException {
-        Set<ObjectName> names = pServerManager.queryNames(pObjectName);
-        if (names.size() == 0) {
-            throw new InstanceNotFoundException("No MBean with pattern " + pObjectName +
-                    " found for reading attributes");
+    private void addMissingAttribute(Map<String, List<String>> pMissing, String pMBean, String pAttribute) {
+        List<String> attributes = pMissing.get(pMBean);
+        if (attributes == null) {
+            attributes = new ArrayList<String>();
+            pMissing.put(pMBean, attributes);
         }
-        return names;
+        attributes.add(pAttribute);
     }
 
     // Return only those attributes of an mbean which has one of the given names
@@ -19,6 +19,7 @@ package org.jolokia.handler;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.jolokia.backend.executor.AbstractMBeanServerExecutor;
 import org.jolokia.config.Configuration;
 import org.jolokia.converter.Converters;
 import org.jolokia.detector.ServerHandle;
@@ -50,9 +51,10 @@ public class RequestHandlerManager {
                 new ReadHandler(pRestrictor),
                 new WriteHandler(pRestrictor, pConverters),
                 new ExecHandler(pRestrictor, pConverters),
-                new ListHandler(pRestrictor),
+                new ListHandler(pConfig, pRestrictor),
                 new VersionHandler(pConfig,pRestrictor, pServerHandle),
-                new SearchHandler(pRestrictor)
+                new SearchHandler(pRestrictor),
+                new NotificationHandler(pConfig, pRestrictor)
         };
         for (JsonRequestHandler handler : handlers) {
             requestHandlerMap.put(handler.getType(),handler);
@@ -84,4 +86,22 @@ public class RequestHandlerManager {
         return handler;
     }
 
+    /**
+     * Let handlers which cache MBean meta data evict it on registration changes seen by the given executor.
+     * Without calling this method, no meta data is cached.
+     *
+     * @param pExecutor executor whose registration notifications are used
+     */
+    public void listenForRegistrationChanges(AbstractMBeanServerExecutor pExecutor) {
+        ((ExecHandler) getRequestHandler(RequestType.EXEC)).listenForRegistrationChanges(pExecutor);
+    }
+
+    /**
+     * Destroy all handlers, giving them the chance to release any resources
+     */
+    public void destroy() {
+        for (JsonRequestHandler handler : requestHandlerMap.values()) {
+            handler.destroy();
+        }
+    }
 }
@@ -17,10 +17,9 @@ package org.jolokia.handler.list;
 
 import static org.jolokia.handler.list.DataKeys.CLASSNAME;
 
-import java.util.Stack;
-
 import javax.management.MBeanInfo;
 
+import org.jolokia.util.PathCursor;
 import org.json.simple.JSONObject;
 
 public class ClassNameDataUpdater extends DataUpdater {
@@ -38,8 +37,8 @@ public class ClassNameDataUpdater extends DataUpdater {
      * {@inheritDoc}
      * */
      @Override
-    void update(JSONObject pJSONObject, MBeanInfo pMBeanInfo, Stack<String> pPathStack) {
-        verifyThatPathIsEmpty(pPathStack);
+    void update(JSONObject pJSONObject, MBeanInfo pMBeanInfo, PathCursor pPath) {
+        verifyThatPathIsEmpty(pPath);
         pJSONObject.put(getKey(), pMBeanInfo.getClassName());
     }
 
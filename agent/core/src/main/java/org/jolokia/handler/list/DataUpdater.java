@@ -16,10 +16,9 @@ package org.jolokia.handler.list;
  *  limitations under the License.
  */
 
-import java.util.Stack;
-
 import javax.management.MBeanInfo;
 
+import org.jolokia.util.PathCursor;
 import org.json.simple.JSONObject;
 
 /**
@@ -43,13 +42,13 @@ abstract class DataUpdater {
      *
      * @param pJSONObject JSON object to update
      * @param pMBeanInfo info to extract from
-     * @param pPathStack stack for further constraining the result
+     * @param pPath path for further constraining the result
      */
-    void update(JSONObject pJSONObject, MBeanInfo pMBeanInfo, Stack<String> pPathStack) {
+    void update(JSONObject pJSONObject, MBeanInfo pMBeanInfo, PathCursor pPath) {
 
-        boolean isPathEmpty = pPathStack == null || pPathStack.empty();
-        String filter = pPathStack != null && !pPathStack.empty() ? pPathStack.pop() : null;
-        verifyThatPathIsEmpty(pPathStack);
+        boolean isPathEmpty = pPath == null || pPath.isEmpty();
+        String filter = !isPathEmpty ? pPath.current() : null;
+        verifyThatPathIsEmpty(!isPathEmpty ? pPath.next() : null);
 
         JSONObject attrMap = extractData(pMBeanInfo,filter);
 
@@ -77,11 +76,11 @@ abstract class DataUpdater {
     /**
      * Check whether the given path is empty, if not, then throw an exception
      *
-     * @param pPathStack path to check
+     * @param pPath path to check
      */
-    protected void verifyThatPathIsEmpty(Stack<String> pPathStack) {
-        if (pPathStack != null && pPathStack.size() > 0) {
-            throw new IllegalArgumentException("Path contains extra elements not usable for a list request: " + pPathStack);
+    protected void verifyThatPathIsEmpty(PathCursor pPath) {
+        if (pPath != null && !pPath.isEmpty()) {
+            throw new IllegalArgumentException("Path contains extra elements not usable for a list request: " + pPath.toList());
         }
     }
 }
@@ -16,10 +16,9 @@ package org.jolokia.handler.list;
  *  limitations under the License.
  */
 
-import java.util.Stack;
-
 import javax.management.MBeanInfo;
 
+import org.jolokia.util.PathCursor;
 import org.json.simple.JSONObject;
 
 import static org.jolokia.handler.list.DataKeys.*;
@@ -45,8 +44,8 @@ class DescriptionDataUpdater extends DataUpdater {
      * {@inheritDoc}
      * */
      @Override
-    void update(JSONObject pJSONObject, MBeanInfo pMBeanInfo, Stack<String> pPathStack) {
-        verifyThatPathIsEmpty(pPathStack);
+    void update(JSONObject pJSONObject, MBeanInfo pMBeanInfo, PathCursor pPath) {
+        verifyThatPathIsEmpty(pPath);
         pJSONObject.put(getKey(), pMBeanInfo.getDescription());
     }
 }
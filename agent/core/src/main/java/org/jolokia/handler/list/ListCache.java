@@ -0,0 +1,223 @@
+package org.jolokia.handler.list;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.management.*;
+
+import org.jolokia.backend.executor.MBeanServerExecutor;
+import org.jolokia.backend.executor.RegistrationJournal;
+import org.jolokia.backend.executor.TimeBudget;
+import org.jolokia.util.PathCursor;
+import org.jolokia.util.SerializedJson;
+import org.json.simple.JSONObject;
+
+/**
+ * Cache for the result of plain list requests. A snapshot holds the meta data of every MBean and is
+ * updated with the registration changes recorded by the {@link MBeanServerExecutor}, so that only
+ * the meta data of newly registered MBeans has to be looked up. A new snapshot shares the meta data of
+ * all unchanged MBeans with its predecessor.
+ *
+ * For every combination of max depth and naming style the rendered list is kept in serialized form,
+ * which is returned as long as no MBean has been registered or unregistered.
+ *
+ * Since the meta data of an MBean is not expected to change while it is registered, an MBean whose
+ * {@link MBeanInfo} changes dynamically shows up with its old meta data until it is registered again.
+ * MBeans whose meta data could not be obtained are looked up again with every request.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+public class ListCache {
+
+    // Maximum number of rendered lists to keep
+    static final int MAX_VIEWS = 8;
+
+    // Current snapshot, null if not created yet. Snapshots are built without holding a lock
+    // and are swapped in when done, so that a slow MBean doesn't block concurrent list requests.
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<Snapshot>();
+
+    /**
+     * Get the list of all MBeans
+     *
+     * @param pExecutor executor for accessing the MBeanServers
+     * @param pMaxDepth max depth of the list tree
+     * @param pUseCanonicalName whether to use the canonical form of the property lists as keys
+     * @param pTimeout traversal timeout used when the meta data of all MBeans has to be looked up
+     * @return the serialized list
+     * @throws IOException if accessing a MBeanServer fails
+     * @throws JMException if looking up the MBeans fails
+     */
+    public SerializedJson list(MBeanServerExecutor pExecutor, int pMaxDepth, boolean pUseCanonicalName, long pTimeout)
+            throws IOException, JMException {
+        Snapshot current = update(pExecutor, pTimeout);
+        String key = pMaxDepth + (pUseCanonicalName ? ":canonical" : ":original");
+        SerializedJson ret = current.getView(key);
+        if (ret == null) {
+            MBeanInfoData data = new MBeanInfoData(pMaxDepth, PathCursor.EMPTY, pUseCanonicalName);
+            for (Map.Entry<ObjectName, JSONObject> entry : current.infos.entrySet()) {
+                data.addFullMBeanInfo(entry.getKey(), entry.getValue());
+            }
+            ret = new SerializedJson(data.truncate());
+            current.putView(key, ret);
+        }
+        return ret;
+    }
+
+    /**
+     * Forget the current snapshot
+     */
+    public void clear() {
+        snapshot.set(null);
+    }
+
+    // ==========================================================================================
+
+    // Get an up to date snapshot, which is published unless another one has been published meanwhile
+    private Snapshot update(MBeanServerExecutor pExecutor, long pTimeout) throws IOException, JMException {
+        Snapshot current = snapshot.get();
+        // Changes are obtained before looking up the meta data, so that a registration happening
+        // in between is applied again with the next update
+        boolean sameExecutor = current != null && current.executor == pExecutor;
+        RegistrationJournal.Changes changes = pExecutor.getRegistrationChangesSince(sameExecutor ? current.sequence : 0);
+        Snapshot updated;
+        if (!sameExecutor || !changes.isComplete()) {
+            MetaDataCollector collector = new MetaDataCollector();
+            pExecutor.each(null, collector, pTimeout);
+            updated = new Snapshot(pExecutor, changes.getSequence(), collector.infos, collector.failed);
+        } else if (!changes.getAdded().isEmpty() || !changes.getRemoved().isEmpty() || !current.failed.isEmpty()) {
+            Map<ObjectName, JSONObject> newInfos = new HashMap<ObjectName, JSONObject>(current.infos);
+            Set<ObjectName> lookup = new LinkedHashSet<ObjectName>(current.failed);
+            lookup.addAll(changes.getAdded());
+            lookup.removeAll(changes.getRemoved());
+            newInfos.keySet().removeAll(changes.getRemoved());
+            newInfos.keySet().removeAll(lookup);
+
+            MetaDataCollector collector = new MetaDataCollector();
+            for (ObjectName name : lookup) {
+                try {
+                    pExecutor.call(name, collector);
+                } catch (InstanceNotFoundException exp) {
+                    // Already unregistered again
+                }
+            }
+            newInfos.putAll(collector.infos);
+            updated = new Snapshot(pExecutor, changes.getSequence(), newInfos, collector.failed);
+        } else {
+            return current;
+        }
+        // If another request has published a snapshot in the meantime, that one is kept. The snapshot
+        // built here is still valid for this request.
+        snapshot.compareAndSet(current, updated);
+        return updated;
+    }
+
+    // Meta data of all MBeans at a certain registration sequence number. Apart from the rendered
+    // views, a snapshot is never modified once created.
+    private static final class Snapshot {
+
+        // Executor for which the snapshot has been created
+        private final MBeanServerExecutor executor;
+
+        // Registration sequence number up to which the snapshot is up to date
+        private final long sequence;
+
+        // Meta data per MBean
+        private final Map<ObjectName, JSONObject> infos;
+
+        // MBeans for which the meta data lookup failed
+        private final Set<ObjectName> failed;
+
+        // Rendered and serialized lists, guarded by itself
+        private final Map<String, SerializedJson> views = new HashMap<String, SerializedJson>();
+
+        private Snapshot(MBeanServerExecutor pExecutor, long pSequence, Map<ObjectName, JSONObject> pInfos, Set<ObjectName> pFailed) {
+            executor = pExecutor;
+            sequence = pSequence;
+            infos = pInfos;
+            failed = pFailed;
+        }
+
+        private SerializedJson getView(String pKey) {
+            synchronized (views) {
+                return views.get(pKey);
+            }
+        }
+
+        private void putView(String pKey, SerializedJson pView) {
+            synchronized (views) {
+                if (views.size() >= MAX_VIEWS) {
+                    views.clear();
+                }
+                views.put(pKey, pView);
+            }
+        }
+    }
+
+    // Collects the complete meta data for every MBean
+    private static class MetaDataCollector implements MBeanServerExecutor.MBeanFetchCallback<Object>,
+                                                      MBeanServerExecutor.MBeanAction<Void> {
+
+        private final Map<ObjectName, JSONObject> infos = new HashMap<ObjectName, JSONObject>();
+        private final Set<ObjectName> failed = new HashSet<ObjectName>();
+
+        /** {@inheritDoc} */
+        public Object fetch(MBeanServerConnection pConn, ObjectName pName) throws ReflectionException, IOException {
+            try {
+                TimeBudget.current().check(pName);
+                return MBeanInfoData.extractFullMBeanInfo(pConn.getMBeanInfo(pName));
+            } catch (IOException exp) {
+                return exp;
+            } catch (InstanceNotFoundException exp) {
+                return exp;
+            } catch (IllegalStateException exp) {
+                return exp;
+            } catch (IntrospectionException exp) {
+                throw new IllegalArgumentException("Cannot extra MBeanInfo for " + pName + ": " + exp,exp);
+            }
+        }
+
+        /** {@inheritDoc} */
+        public void merge(ObjectName pName, Object pData) {
+            if (pData instanceof Exception) {
+                // Reported like for an uncached list, but looked up again next time
+                JSONObject error = new JSONObject();
+                error.put(DataKeys.ERROR.getKey(), pData.toString());
+                infos.put(pName, error);
+                failed.add(pName);
+            } else {
+                infos.put(pName, (JSONObject) pData);
+                failed.remove(pName);
+            }
+        }
+
+        /** {@inheritDoc} */
+        public Void execute(MBeanServerConnection pConn, ObjectName pName, Object... extraArgs)
+                throws ReflectionException, IOException, InstanceNotFoundException {
+            Object data = fetch(pConn, pName);
+            if (data instanceof InstanceNotFoundException) {
+                // Let the executor try the next server
+                throw (InstanceNotFoundException) data;
+            }
+            merge(pName, data);
+            return null;
+        }
+    }
+}
@@ -21,6 +21,8 @@ import java.util.*;
 
 import javax.management.*;
 
+import org.jolokia.util.PathCursor;
+import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 
 /**
@@ -88,8 +90,8 @@ public class MBeanInfoData {
     // max depth for map to return
     private int maxDepth;
 
-    // stack for an inner path
-    private Stack<String> pathStack;
+    // inner path
+    private PathCursor pathCursor;
 
     // Map holding information
     private JSONObject infoMap;
@@ -114,21 +116,33 @@ public class MBeanInfoData {
 
     /**
      * Constructor taking a max depth. The <em>max depth</em> specifies how deep the info tree should be build
-     * up. The tree will be truncated if it gets larger than this value. A <em>path</em> (in form of a stack)
+     * up. The tree will be truncated if it gets larger than this value. A <em>path</em>
      * can be given, in which only a sub information is (sub-tree or leaf value) is stored
      *
      * @param pMaxDepth max depth
-     * @param pPathStack the stack for restricting the information to add. The given stack will be cloned
-     *                   and is left untouched.
+     * @param pPath the path for restricting the information to add.
      * @param pUseCanonicalName whether to use canonical name in listings
      */
-    public MBeanInfoData(int pMaxDepth, Stack<String> pPathStack, boolean pUseCanonicalName) {
+    public MBeanInfoData(int pMaxDepth, PathCursor pPath, boolean pUseCanonicalName) {
         maxDepth = pMaxDepth;
         useCanonicalName = pUseCanonicalName;
-        pathStack = pPathStack != null ? (Stack<String>) pPathStack.clone() : new Stack<String>();
+        pathCursor = pPath != null ? pPath : PathCursor.EMPTY;
         infoMap = new JSONObject();
     }
 
+    /**
+     * Constructor with the path given as stack with the first element on top
+     *
+     * @param pMaxDepth max depth
+     * @param pPathStack the stack for restricting the information to add. The given stack is left untouched.
+     * @param pUseCanonicalName whether to use canonical name in listings
+     * @deprecated use {@link #MBeanInfoData(int, PathCursor, boolean)} instead
+     */
+    @Deprecated
+    public MBeanInfoData(int pMaxDepth, Stack<String> pPathStack, boolean pUseCanonicalName) {
+        this(pMaxDepth, PathCursor.fromStack(pPathStack), pUseCanonicalName);
+    }
+
     /**
      * The first two levels of this map (tree) consist of the MBean's domain name and name properties, which are
      * independent of an MBean's meta data. If the max depth given at construction time is less or equals than 2 (and
@@ -142,18 +156,29 @@ public class MBeanInfoData {
      * @return true if the object name has been added.
      */
     public boolean handleFirstOrSecondLevel(ObjectName pName) {
-        if (maxDepth == 1 && pathStack.size() == 0) {
+        if (isMBeanInfoNeeded()) {
+            return false;
+        }
+        if (maxDepth == 1) {
             // Only add domain names with a dummy value if max depth is restricted to 1
             // But only when used without path
             infoMap.put(pName.getDomain(), 1);
-            return true;
-        } else if (maxDepth == 2 && pathStack.size() == 0) {
+        } else {
             // Add domain an object name into the map, final value is a dummy value
             JSONObject mBeansMap = getOrCreateJSONObject(infoMap, pName.getDomain());
             mBeansMap.put(getKeyPropertyString(pName),1);
-            return true;
         }
-        return false;
+        return true;
+    }
+
+    /**
+     * Check whether the {@link MBeanInfo} of an MBean is required for this map. This is not the case if
+     * only the first two levels are requested (see {@link #handleFirstOrSecondLevel(ObjectName)}).
+     *
+     * @return true if the MBean meta data needs to be looked up.
+     */
+    public boolean isMBeanInfoNeeded() {
+        return pathCursor.size() != 0 || (maxDepth != 1 && maxDepth != 2);
     }
 
     private String getKeyPropertyString(ObjectName pName) {
@@ -162,7 +187,7 @@ public class MBeanInfoData {
 
     /**
      * Add information about an MBean as obtained from an {@link MBeanInfo} descriptor. The information added
-     * can be restricted by a given path (which has already be prepared as a stack). Also, a max depth as given in the
+     * can be restricted by a given path (which has already been parsed). Also, a max depth as given in the
      * constructor restricts the size of the map from the top.
      *
      * @param mBeanInfo the MBean info
@@ -173,12 +198,12 @@ public class MBeanInfoData {
 
         JSONObject mBeansMap = getOrCreateJSONObject(infoMap, pName.getDomain());
         JSONObject mBeanMap = getOrCreateJSONObject(mBeansMap, getKeyPropertyString(pName));
-        // Trim down stack to get rid of domain/property list
-        Stack<String> stack = truncatePathStack(2);
-        if (stack.empty()) {
+        // Skip domain/property list
+        PathCursor path = pathCursor.skip(2);
+        if (path.isEmpty()) {
             addFullMBeanInfo(mBeanMap, mBeanInfo);
         } else {
-            addPartialMBeanInfo(mBeanMap, mBeanInfo,stack);
+            addPartialMBeanInfo(mBeanMap, mBeanInfo, path);
         }
         // Trim if required
         if (mBeanMap.size() == 0) {
@@ -189,6 +214,37 @@ public class MBeanInfoData {
         }
     }
 
+    /**
+     * Add the complete meta data of an MBean which has been extracted before with
+     * {@link #extractFullMBeanInfo(MBeanInfo)}. The given object is copied, so that it stays
+     * untouched when the result is modified. This can be used only when no path has been given.
+     *
+     * @param pName the object name of the MBean
+     * @param pMBeanInfo the complete meta data of the MBean
+     */
+    public void addFullMBeanInfo(ObjectName pName, JSONObject pMBeanInfo) {
+        if (pathCursor.size() != 0) {
+            throw new IllegalStateException("Internal: Complete MBean meta data cannot be added when a path is given");
+        }
+        if (handleFirstOrSecondLevel(pName) || pMBeanInfo.size() == 0) {
+            return;
+        }
+        JSONObject mBeansMap = getOrCreateJSONObject(infoMap, pName.getDomain());
+        mBeansMap.put(getKeyPropertyString(pName), copy(pMBeanInfo));
+    }
+
+    /**
+     * Extract the complete meta data of an MBean, independent of any path or max depth.
+     *
+     * @param pMBeanInfo the MBean info
+     * @return meta data as it would be added by {@link #addMBeanInfo(MBeanInfo, ObjectName)} without a path
+     */
+    public static JSONObject extractFullMBeanInfo(MBeanInfo pMBeanInfo) {
+        JSONObject ret = new JSONObject();
+        addFullMBeanInfo(ret, pMBeanInfo);
+        return ret;
+    }
+
     /**
      * Add an exception which occurred during extraction of an {@link MBeanInfo} for
      * a certain {@link ObjectName} to this map.
@@ -200,7 +256,7 @@ public class MBeanInfoData {
     public void handleException(ObjectName pName, IOException pExp) throws IOException {
         // In case of a remote call, IOException can occur e.g. for
         // NonSerializableExceptions
-        if (pathStack.size() == 0) {
+        if (pathCursor.size() == 0) {
             addException(pName, pExp);
         } else {
             // Happens for a deeper request, i.e with a path pointing directly into an MBean,
@@ -220,7 +276,7 @@ public class MBeanInfoData {
      */
     public void handleException(ObjectName pName, IllegalStateException pExp) {
         // This happen happens for JBoss 7.1 in some cases.
-        if (pathStack.size() == 0) {
+        if (pathCursor.size() == 0) {
             addException(pName, pExp);
         } else {
             throw new IllegalStateException("IllegalStateException for MBean " + pName + " (" + pExp.getMessage() + ")",pExp);
@@ -237,7 +293,7 @@ public class MBeanInfoData {
      */
     public void handleException(ObjectName pName, InstanceNotFoundException pExp) throws InstanceNotFoundException {
         // This happen happens for JBoss 7.1 in some cases (i.e. ResourceAdapterModule)
-        if (pathStack.size() == 0) {
+        if (pathCursor.size() == 0) {
            addException(pName, pExp);
         } else {
            throw new InstanceNotFoundException("InstanceNotFoundException for MBean " + pName + " (" + pExp.getMessage() + ")");
@@ -274,17 +330,17 @@ public class MBeanInfoData {
 
     // =====================================================================================================
 
-    private void addFullMBeanInfo(JSONObject pMBeanMap, MBeanInfo pMBeanInfo) {
+    private static void addFullMBeanInfo(JSONObject pMBeanMap, MBeanInfo pMBeanInfo) {
         for (DataUpdater updater : UPDATERS.values()) {
             updater.update(pMBeanMap,pMBeanInfo,null);
         }
     }
 
-    private void addPartialMBeanInfo(JSONObject pMBeanMap, MBeanInfo pMBeanInfo, Stack<String> pPathStack) {
-        String what = pPathStack.empty() ? null : pPathStack.pop();
+    private void addPartialMBeanInfo(JSONObject pMBeanMap, MBeanInfo pMBeanInfo, PathCursor pPath) {
+        String what = pPath.isEmpty() ? null : pPath.current();
         DataUpdater updater = UPDATERS.get(what);
         if (updater != null) {
-            updater.update(pMBeanMap, pMBeanInfo, pPathStack);
+            updater.update(pMBeanMap, pMBeanInfo, pPath.next());
         } else {
             throw new IllegalArgumentException("Illegal path element " + what);
         }
@@ -299,6 +355,25 @@ public class MBeanInfoData {
         return nMap;
     }
 
+    // Deep copy of meta data, whose leaves are immutable
+    private static Object copy(Object pValue) {
+        if (pValue instanceof JSONObject) {
+            JSONObject ret = new JSONObject();
+            for (Map.Entry entry : (Set<Map.Entry>) ((JSONObject) pValue).entrySet()) {
+                ret.put(entry.getKey(), copy(entry.getValue()));
+            }
+            return ret;
+        } else if (pValue instanceof List) {
+            JSONArray ret = new JSONArray();
+            for (Object item : (List) pValue) {
+                ret.add(copy(item));
+            }
+            return ret;
+        } else {
+            return pValue;
+        }
+    }
+
     private Object truncateJSONObject(JSONObject pValue, int pMaxDepth) {
         if (pMaxDepth == 0) {
             return 1;
@@ -317,24 +392,9 @@ public class MBeanInfoData {
         return ret;
     }
 
-    // Trim down the stack by some value or return an empty stack
-    private Stack<String> truncatePathStack(int pLevel) {
-        if (pathStack.size() < pLevel) {
-            return new Stack<String>();
-        } else {
-            // Trim of domain and MBean properties
-            // pathStack gets cloned here since the processing will eat it up
-            Stack<String> ret = (Stack<String>) pathStack.clone();
-            for (int i = 0;i < pLevel;i++) {
-                ret.pop();
-            }
-            return ret;
-        }
-    }
-
     // Navigate to sub map or leaf value
     private Object navigatePath() {
-        int size = pathStack.size();
+        int size = pathCursor.size();
         JSONObject innerMap = infoMap;
 
         while (size > 0) {
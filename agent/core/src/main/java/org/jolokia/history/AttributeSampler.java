@@ -0,0 +1,379 @@
+package org.jolokia.history;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+import javax.management.*;
+import javax.management.openmbean.*;
+
+import org.jolokia.backend.executor.MBeanServerExecutor;
+import org.jolokia.restrictor.Restrictor;
+import org.jolokia.util.*;
+import org.json.simple.JSONObject;
+
+/**
+ * Sampler which reads numeric attributes of local MBeans in a fixed interval on a dedicated
+ * background thread. The samples of every attribute are kept in a {@link SampleBuffer} bounded
+ * by a {@link HistoryLimit}, so that clients can fetch aggregated values (minimum, maximum, average and
+ * rate) without polling the raw values in a high frequency.
+ *
+ * Attributes are configured with {@link HistoryKey}s like for the {@link HistoryStore}, an optional path
+ * points into composite or map values. Only numbers and booleans (as 0 and 1) are sampled, all other values
+ * are skipped. All attributes of an MBean are read with a single call in every round. If an attribute cannot
+ * be sampled, this is logged once until it can be sampled again.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+public class AttributeSampler {
+
+    // Items of a row in the tabular representation of the aggregates
+    private static final String[] AGGREGATE_ITEMS = {
+            "mbean", "attribute", "count", "min", "max", "avg", "last", "timestamp", "rate"
+    };
+
+    private static final TabularType AGGREGATES_TYPE = createAggregatesType();
+
+    private final MBeanServerExecutor executor;
+
+    private final Restrictor restrictor;
+
+    private final LogHandler logHandler;
+
+    // Interval between two samples in milliseconds
+    private final long interval;
+
+    // Hard limit for the number of samples of a single attribute
+    private final int globalMaxEntries;
+
+    // Sampled attributes, guarded by this
+    private final Map<HistoryKey, Track> tracks = new LinkedHashMap<HistoryKey, Track>();
+
+    // Created on demand when the first attribute is configured, guarded by this
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Create a sampler
+     *
+     * @param pExecutor executor for accessing the local MBeanServers
+     * @param pRestrictor restrictor checking whether an attribute can be sampled
+     * @param pInterval interval between two samples in milliseconds
+     * @param pMaxEntries maximum number of samples to keep per attribute. This is a hard limit which cannot be
+     *        exceeded by a {@link HistoryLimit}.
+     * @param pLogHandler log handler for reporting attributes which cannot be sampled
+     */
+    public AttributeSampler(MBeanServerExecutor pExecutor, Restrictor pRestrictor, long pInterval, int pMaxEntries,
+                            LogHandler pLogHandler) {
+        if (pInterval <= 0) {
+            throw new IllegalArgumentException("Invalid sampling interval " + pInterval + ", must be > 0");
+        }
+        executor = pExecutor;
+        restrictor = pRestrictor;
+        logHandler = pLogHandler;
+        interval = pInterval;
+        globalMaxEntries = pMaxEntries;
+    }
+
+    /**
+     * Configure sampling for an attribute. Please note, that this method might change the limit
+     * object so the ownership of this object goes over to the callee.
+     *
+     * @param pKey key of the attribute, which must not be a pattern or point to a remote target
+     * @param pLimit limit for the samples to keep or <code>null</code> if the attribute should not be sampled anymore
+     * @throws SecurityException if reading the attribute is not allowed
+     */
+    public synchronized void configure(HistoryKey pKey, HistoryLimit pLimit) {
+        if (pLimit == null) {
+            tracks.remove(pKey);
+            if (tracks.isEmpty()) {
+                stopScheduler();
+            }
+            return;
+        }
+        verifyKey(pKey);
+        if (globalMaxEntries <= 0) {
+            throw new IllegalArgumentException("Sampling is disabled since no samples are allowed to be kept");
+        }
+        HistoryLimit limit = pLimit.respectGlobalMaxEntries(globalMaxEntries);
+        Track track = tracks.get(pKey);
+        if (track != null) {
+            synchronized (track.buffer) {
+                track.buffer.setLimit(limit);
+            }
+        } else {
+            tracks.put(pKey, new Track(pKey, limit));
+        }
+        if (scheduler == null) {
+            startScheduler();
+        }
+    }
+
+    /**
+     * Stop sampling of all attributes and remove all samples
+     */
+    public synchronized void reset() {
+        tracks.clear();
+        stopScheduler();
+    }
+
+    /**
+     * Read all configured attributes once and add their values to the samples. This is called
+     * by the background thread, but can be used directly, too.
+     */
+    public void sample() {
+        Map<ObjectName, List<Track>> tracksByMBean = new LinkedHashMap<ObjectName, List<Track>>();
+        synchronized (this) {
+            for (Track track : tracks.values()) {
+                List<Track> mBeanTracks = tracksByMBean.get(track.mBean);
+                if (mBeanTracks == null) {
+                    mBeanTracks = new ArrayList<Track>();
+                    tracksByMBean.put(track.mBean, mBeanTracks);
+                }
+                mBeanTracks.add(track);
+            }
+        }
+        for (Map.Entry<ObjectName, List<Track>> entry : tracksByMBean.entrySet()) {
+            sample(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Get the aggregated samples of all configured attributes. The returned map is keyed by MBean name
+     * and then by attribute name (followed by a slash and the path if a path is given). The values are
+     * the aggregates as described in {@link SampleBuffer#aggregate()}.
+     *
+     * @return aggregated samples
+     */
+    public JSONObject getAggregates() {
+        JSONObject ret = new JSONObject();
+        for (Track track : getTracks()) {
+            String mBean = track.mBean.getCanonicalName();
+            JSONObject mBeanAggregates = (JSONObject) ret.get(mBean);
+            if (mBeanAggregates == null) {
+                mBeanAggregates = new JSONObject();
+                ret.put(mBean, mBeanAggregates);
+            }
+            synchronized (track.buffer) {
+                mBeanAggregates.put(track.name, track.buffer.aggregate());
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Get the aggregated samples of all configured attributes as open data, so that they can be exposed
+     * by an MBean. Every row contains the MBean name (<code>mbean</code>), the attribute name with the path
+     * appended after a slash (<code>attribute</code>) and the aggregates as described in {@link SampleBuffer#aggregate()}.
+     * Aggregates which are not available yet are <code>null</code>.
+     *
+     * @return aggregated samples indexed by MBean and attribute name
+     */
+    public TabularData getAggregatesAsTabularData() {
+        TabularDataSupport ret = new TabularDataSupport(AGGREGATES_TYPE);
+        for (Track track : getTracks()) {
+            JSONObject aggregate;
+            synchronized (track.buffer) {
+                aggregate = track.buffer.aggregate();
+            }
+            Object[] values = new Object[AGGREGATE_ITEMS.length];
+            values[0] = track.mBean.getCanonicalName();
+            values[1] = track.name;
+            for (int i = 2; i < AGGREGATE_ITEMS.length; i++) {
+                values[i] = aggregate.get(AGGREGATE_ITEMS[i]);
+            }
+            try {
+                ret.put(new CompositeDataSupport(AGGREGATES_TYPE.getRowType(), AGGREGATE_ITEMS, values));
+            } catch (OpenDataException exp) {
+                throw new IllegalStateException("Internal: Cannot create aggregates of " + track.name + ": " + exp, exp);
+            }
+        }
+        return ret;
+    }
+
+    // ==========================================================================================
+
+    private synchronized List<Track> getTracks() {
+        return new ArrayList<Track>(tracks.values());
+    }
+
+    private void verifyKey(HistoryKey pKey) {
+        if (!"attribute".equals(pKey.getType()) || pKey.getSecondary() == null) {
+            throw new IllegalArgumentException("Only attributes can be sampled");
+        }
+        if (pKey.isMBeanPattern()) {
+            throw new IllegalArgumentException("MBean name must not be a pattern");
+        }
+        if (pKey.getTarget() != null) {
+            throw new IllegalArgumentException("Only attributes of local MBeans can be sampled");
+        }
+        if (!restrictor.isTypeAllowed(RequestType.READ) ||
+            !restrictor.isAttributeReadAllowed(pKey.getMBean(), pKey.getSecondary())) {
+            throw new SecurityException("Reading attribute " + pKey.getSecondary() + " of " + pKey.getMBean() + " is forbidden");
+        }
+    }
+
+    // Read all attributes of a single MBean at once
+    private void sample(ObjectName pMBean, List<Track> pTracks) {
+        Set<String> attributes = new LinkedHashSet<String>();
+        for (Track track : pTracks) {
+            attributes.add(track.attribute);
+        }
+        Map<String, Object> values = new HashMap<String, Object>();
+        try {
+            AttributeList list = executor.call(pMBean, attributesReader, (Object) attributes.toArray(new String[attributes.size()]));
+            for (Object attribute : list) {
+                Attribute attr = (Attribute) attribute;
+                values.put(attr.getName(), attr.getValue());
+            }
+        } catch (JMException exp) {
+            // MBean not registered (yet) or failing, skipped for this round
+            reportError(pMBean, pTracks, exp);
+            return;
+        } catch (IOException exp) {
+            reportError(pMBean, pTracks, exp);
+            return;
+        } catch (RuntimeException exp) {
+            // e.g. a RuntimeMBeanException from the MBean itself
+            reportError(pMBean, pTracks, exp);
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (Track track : pTracks) {
+            Double value = track.extract(values.get(track.attribute));
+            if (value != null) {
+                synchronized (track.buffer) {
+                    track.buffer.add(value, now);
+                }
+                track.failing = false;
+            } else if (!track.failing) {
+                track.failing = true;
+                logHandler.info("Cannot sample " + track.name + " of " + pMBean + ": No numeric value" +
+                                (values.containsKey(track.attribute) ? "" : " or attribute not readable"));
+            }
+        }
+    }
+
+    // Log the error once for the tracks which have been sampled successfully before
+    private void reportError(ObjectName pMBean, List<Track> pTracks, Exception pExp) {
+        List<String> names = new ArrayList<String>();
+        for (Track track : pTracks) {
+            if (!track.failing) {
+                track.failing = true;
+                names.add(track.name);
+            }
+        }
+        if (!names.isEmpty()) {
+            logHandler.error("Cannot sample " + names + " of " + pMBean + ": " + pExp, pExp);
+        }
+    }
+
+    private final MBeanServerExecutor.MBeanAction<AttributeList> attributesReader = new MBeanServerExecutor.MBeanAction<AttributeList>() {
+        /** {@inheritDoc} */
+        public AttributeList execute(MBeanServerConnection pConn, ObjectName pName, Object... extraArgs)
+                throws ReflectionException, InstanceNotFoundException, IOException {
+            // Attributes which cannot be read are missing in the returned list
+            return pConn.getAttributes(pName, (String[]) extraArgs[0]);
+        }
+    };
+
+    private void startScheduler() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("jolokia-sampler-"));
+        scheduler.scheduleAtFixedRate(new Runnable() {
+            /** {@inheritDoc} */
+            public void run() {
+                try {
+                    sample();
+                } catch (RuntimeException exp) {
+                    // An exception would cancel all further runs
+                    logHandler.error("Error while sampling attributes: " + exp, exp);
+                }
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private void stopScheduler() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    private static TabularType createAggregatesType() {
+        try {
+            CompositeType rowType = new CompositeType(
+                    "SampleAggregate", "Aggregated samples of an attribute",
+                    AGGREGATE_ITEMS,
+                    new String[] {
+                            "MBean name", "Attribute name, followed by a slash and the path if given", "Number of samples",
+                            "Minimum", "Maximum", "Average", "Latest value", "Time of the latest value (epoch seconds)",
+                            "Change per second"
+                    },
+                    new OpenType[] {
+                            SimpleType.STRING, SimpleType.STRING, SimpleType.INTEGER,
+                            SimpleType.DOUBLE, SimpleType.DOUBLE, SimpleType.DOUBLE, SimpleType.DOUBLE, SimpleType.LONG,
+                            SimpleType.DOUBLE
+                    });
+            return new TabularType("SampleAggregates", "Aggregated samples of all sampled attributes",
+                                   rowType, new String[] { "mbean", "attribute" });
+        } catch (OpenDataException exp) {
+            throw new IllegalStateException("Internal: Cannot create open types for sample aggregates: " + exp, exp);
+        }
+    }
+
+    // A single sampled attribute together with its samples
+    private static final class Track {
+        private final ObjectName mBean;
+        private final String attribute;
+        private final List<String> path;
+        private final String name;
+        private final SampleBuffer buffer;
+        // Whether the last sample failed, so that the failure has been logged already
+        private volatile boolean failing;
+
+        private Track(HistoryKey pKey, HistoryLimit pLimit) {
+            mBean = pKey.getMBean();
+            attribute = pKey.getSecondary();
+            path = pKey.getPath() != null ? EscapeUtil.parsePath(pKey.getPath()) : Collections.<String>emptyList();
+            name = pKey.getPath() != null ? attribute + "/" + pKey.getPath() : attribute;
+            buffer = new SampleBuffer(pLimit);
+        }
+
+        // Numeric value at the path or null if there is none
+        private Double extract(Object pValue) {
+            Object value = pValue;
+            for (String part : path) {
+                if (value instanceof CompositeData && ((CompositeData) value).containsKey(part)) {
+                    value = ((CompositeData) value).get(part);
+                } else if (value instanceof Map) {
+                    value = ((Map<?, ?>) value).get(part);
+                } else {
+                    return null;
+                }
+            }
+            if (value instanceof Number) {
+                return ((Number) value).doubleValue();
+            } else if (value instanceof Boolean) {
+                return (Boolean) value ? 1.0 : 0.0;
+            } else {
+                return null;
+            }
+        }
+    }
+}
@@ -158,6 +158,28 @@ public class HistoryKey implements Serializable {
         return mBean.isPattern();
     }
 
+    // Accessors used by the AttributeSampler
+
+    String getType() {
+        return type;
+    }
+
+    ObjectName getMBean() {
+        return mBean;
+    }
+
+    String getSecondary() {
+        return secondary;
+    }
+
+    String getPath() {
+        return path;
+    }
+
+    String getTarget() {
+        return target;
+    }
+
     /**
      * Whether the key matches the given MBean name
      *
@@ -0,0 +1,167 @@
+package org.jolokia.history;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.json.simple.JSONObject;
+
+/**
+ * Ring buffer holding the numeric samples of a single attribute taken by the {@link AttributeSampler}.
+ * Values and timestamps are kept in primitive arrays, so adding a sample does not allocate. The buffer
+ * is bounded by a {@link HistoryLimit}, whose maximum number of entries must be set.
+ *
+ * A buffer is not thread safe.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+class SampleBuffer {
+
+    private double[] values;
+
+    // Timestamps in milliseconds
+    private long[] timestamps;
+
+    // Index of the oldest sample
+    private int start;
+
+    private int size;
+
+    private HistoryLimit limit;
+
+    /**
+     * Constructor
+     *
+     * @param pLimit how many samples to keep and/or how long
+     */
+    SampleBuffer(HistoryLimit pLimit) {
+        limit = pLimit;
+        values = new double[pLimit.getMaxEntries()];
+        timestamps = new long[pLimit.getMaxEntries()];
+    }
+
+    /**
+     * Set a new limit, keeping the newest samples which fit into it
+     *
+     * @param pLimit new limit to apply
+     */
+    void setLimit(HistoryLimit pLimit) {
+        int capacity = pLimit.getMaxEntries();
+        if (capacity != values.length) {
+            double[] newValues = new double[capacity];
+            long[] newTimestamps = new long[capacity];
+            int newSize = Math.min(size, capacity);
+            for (int i = 0; i < newSize; i++) {
+                int idx = index(size - newSize + i);
+                newValues[i] = values[idx];
+                newTimestamps[i] = timestamps[idx];
+            }
+            values = newValues;
+            timestamps = newTimestamps;
+            start = 0;
+            size = newSize;
+        }
+        limit = pLimit;
+        trim();
+    }
+
+    /**
+     * Add a sample, dropping the oldest one if the buffer is full
+     *
+     * @param pValue sampled value
+     * @param pTime timestamp in milliseconds
+     */
+    void add(double pValue, long pTime) {
+        if (size == values.length) {
+            start = index(1);
+            size--;
+        }
+        int idx = index(size);
+        values[idx] = pValue;
+        timestamps[idx] = pTime;
+        size++;
+        trim();
+    }
+
+    /**
+     * Number of samples held
+     *
+     * @return number of samples
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Aggregate the samples held. The returned object contains the number of samples (<code>count</code>)
+     * and, if there is at least one sample, their minimum (<code>min</code>), maximum (<code>max</code>)
+     * and average (<code>avg</code>), the latest value (<code>last</code>) and its time in seconds
+     * (<code>timestamp</code>). The change per second between the oldest and the latest sample
+     * (<code>rate</code>) is only added if the samples span some time.
+     *
+     * @return the aggregated values
+     */
+    JSONObject aggregate() {
+        JSONObject ret = new JSONObject();
+        ret.put("count", size);
+        if (size == 0) {
+            return ret;
+        }
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            double value = values[index(i)];
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sum += value;
+        }
+        int first = start;
+        int last = index(size - 1);
+        ret.put("min", min);
+        ret.put("max", max);
+        ret.put("avg", sum / size);
+        ret.put("last", values[last]);
+        ret.put("timestamp", timestamps[last] / 1000);
+        long duration = timestamps[last] - timestamps[first];
+        if (duration > 0) {
+            ret.put("rate", (values[last] - values[first]) * 1000 / duration);
+        }
+        return ret;
+    }
+
+    // Drop the samples which are older than the maximum duration relative to the newest one
+    private void trim() {
+        long maxDuration = limit.getMaxDuration() * 1000;
+        if (maxDuration > 0 && size > 0) {
+            long newest = timestamps[index(size - 1)];
+            while (newest - timestamps[start] > maxDuration) {
+                start = index(1);
+                size--;
+            }
+        }
+    }
+
+    // Array index of the n-th oldest sample
+    private int index(int pOffset) {
+        return (start + pOffset) % values.length;
+    }
+
+    @Override
+    public String toString() {
+        return "SampleBuffer{size=" + size + ", limit=" + limit + '}';
+    }
+}
@@ -17,7 +17,9 @@ import org.jolokia.discovery.AgentDetails;
 import org.jolokia.discovery.DiscoveryMulticastResponder;
 import org.jolokia.restrictor.*;
 import org.jolokia.util.*;
+import org.json.simple.JSONArray;
 import org.json.simple.JSONAware;
+import org.json.simple.JSONObject;
 import org.json.simple.JSONStreamAware;
 
 
@@ -56,7 +58,7 @@ public class AgentServlet extends HttpServlet {
     private static final long serialVersionUID = 42L;
 
     // POST- and GET- HttpRequestHandler
-    private ServletRequestHandler httpGetHandler, httpPostHandler;
+    private ServletRequestHandler httpPostHandler;
 
     // Backend dispatcher
     private BackendManager backendManager;
@@ -128,7 +130,6 @@ public class AgentServlet extends HttpServlet {
                 createLogHandler(pServletConfig,Boolean.valueOf(config.get(ConfigKey.DEBUG)));
 
         // Different HTTP request handlers
-        httpGetHandler = newGetHttpRequestHandler();
         httpPostHandler = newPostHttpRequestHandler();
 
         if (restrictor == null) {
@@ -142,6 +143,7 @@ public class AgentServlet extends HttpServlet {
         backendManager = new BackendManager(config, logHandler, restrictor);
 
         requestHandler = new HttpRequestHandler(config, backendManager, logHandler);
+        backendManager.setSubscriptionExecutor(requestHandler.getSubscriptionExecutor());
         allowDnsReverseLookup = config.getAsBoolean(ConfigKey.ALLOW_DNS_REVERSE_LOOKUP);
         streamingEnabled = config.getAsBoolean(ConfigKey.STREAMING);
 
@@ -307,7 +309,12 @@ public class AgentServlet extends HttpServlet {
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp)
             throws ServletException, IOException {
-        handle(httpGetHandler, req, resp);
+        String pathInfo = req.getPathInfo();
+        if (requestHandler.isMetricsRequest(pathInfo)) {
+            handleMetrics(req, resp);
+        } else {
+            handle(newGetHttpRequestHandler(pathInfo), req, resp);
+        }
     }
 
     /** {@inheritDoc} */
@@ -371,6 +378,43 @@ public class AgentServlet extends HttpServlet {
     }
 
 
+    // Metrics are returned as plain text, so errors are reported with an HTTP status
+    @SuppressWarnings("PMD.AvoidCatchingThrowable")
+    private void handleMetrics(final HttpServletRequest pReq, final HttpServletResponse pResp) throws IOException {
+        try {
+            requestHandler.checkAccess(allowDnsReverseLookup ? pReq.getRemoteHost() : null,
+                                       pReq.getRemoteAddr(),
+                                       getOriginOrReferer(pReq));
+            setCorsHeader(pReq, pResp);
+            setNoCacheHeaders(pResp);
+            pResp.setContentType(MimeTypeUtil.getMetricsContentType(pReq.getHeader("Accept")));
+            final Writer writer = new OutputStreamWriter(pResp.getOutputStream(), "UTF-8");
+            Subject subject = (Subject) pReq.getAttribute(ConfigKey.JAAS_SUBJECT_REQUEST_ATTRIBUTE);
+            if (subject != null) {
+                Subject.doAs(subject, new PrivilegedExceptionAction<Void>() {
+                    public Void run() throws IOException {
+                        requestHandler.handleMetricsRequest(pReq.getRequestURI(), writer);
+                        return null;
+                    }
+                });
+            } else {
+                requestHandler.handleMetricsRequest(pReq.getRequestURI(), writer);
+            }
+            writer.close();
+        } catch (Throwable exp) {
+            Throwable error = exp instanceof PrivilegedActionException ? exp.getCause() : exp;
+            if (!(error instanceof SecurityException)) {
+                logHandler.error("Error while collecting metrics: " + error, error);
+            }
+            if (!pResp.isCommitted()) {
+                pResp.reset();
+                pResp.sendError(error instanceof SecurityException ?
+                                        HttpServletResponse.SC_FORBIDDEN :
+                                        HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            }
+        }
+    }
+
     private JSONAware handleSecurely(final ServletRequestHandler pReqHandler, final HttpServletRequest pReq, final HttpServletResponse pResp) throws IOException, PrivilegedActionException {
         Subject subject = (Subject) pReq.getAttribute(ConfigKey.JAAS_SUBJECT_REQUEST_ATTRIBUTE);
         if (subject != null) {
@@ -488,19 +532,23 @@ public class AgentServlet extends HttpServlet {
             /** {@inheritDoc} */
              public JSONAware handleRequest(HttpServletRequest pReq, HttpServletResponse pResp)
                     throws IOException {
-                 String encoding = pReq.getCharacterEncoding();
                  InputStream is = pReq.getInputStream();
+                 if (MimeTypeUtil.isCbor(pReq.getContentType())) {
+                     return requestHandler.handleCborPostRequest(pReq.getRequestURI(), is, getParameterMap(pReq));
+                 }
+                 String encoding = pReq.getCharacterEncoding();
                  return requestHandler.handlePostRequest(pReq.getRequestURI(),is, encoding, getParameterMap(pReq));
              }
         };
     }
 
     // factory method for GET request handler
-    private ServletRequestHandler newGetHttpRequestHandler() {
+    // The path info has been already looked up for detecting metrics requests
+    private ServletRequestHandler newGetHttpRequestHandler(final String pPathInfo) {
         return new ServletRequestHandler() {
             /** {@inheritDoc} */
             public JSONAware handleRequest(HttpServletRequest pReq, HttpServletResponse pResp) {
-                return requestHandler.handleGetRequest(pReq.getRequestURI(),pReq.getPathInfo(), getParameterMap(pReq));
+                return requestHandler.handleGetRequest(pReq.getRequestURI(),pPathInfo, getParameterMap(pReq));
             }
         };
     }
@@ -544,6 +592,14 @@ public class AgentServlet extends HttpServlet {
     private void sendResponse(HttpServletResponse pResp, HttpServletRequest pReq, JSONAware pJson) throws IOException {
         String callback = pReq.getParameter(ConfigKey.CALLBACK.getKeyValue());
 
+        if (useCbor(pReq, pJson, callback)) {
+            pResp.setContentType(MimeTypeUtil.CBOR_MIME_TYPE);
+            pResp.setStatus(HttpServletResponse.SC_OK);
+            setNoCacheHeaders(pResp);
+            IoUtil.streamCborResponseAndClose(pResp.getOutputStream(), pJson);
+            return;
+        }
+
         setContentType(pResp,
                        MimeTypeUtil.getResponseMimeType(
                            pReq.getParameter(ConfigKey.MIME_TYPE.getKeyValue()),
@@ -563,6 +619,13 @@ public class AgentServlet extends HttpServlet {
         }
     }
 
+    // CBOR is used if requested by the client, but not for JSONP or for streams of notifications
+    private boolean useCbor(HttpServletRequest pReq, JSONAware pJson, String pCallback) {
+        return pCallback == null &&
+               (pJson instanceof JSONObject || pJson instanceof JSONArray) &&
+               MimeTypeUtil.acceptsCbor(pReq.getHeader("Accept"));
+    }
+
     private void validateCallbackIfGiven(HttpServletRequest pReq) {
         String callback = pReq.getParameter(ConfigKey.CALLBACK.getKeyValue());
         if (callback != null && !MimeTypeUtil.isValidCallback(callback)) {
@@ -570,8 +633,7 @@ public class AgentServlet extends HttpServlet {
         }
     }
     private void sendStreamingResponse(HttpServletResponse pResp, String pCallback, JSONStreamAware pJson) throws IOException {
-        Writer writer = new OutputStreamWriter(pResp.getOutputStream(), "UTF-8");
-        IoUtil.streamResponseAndClose(writer, pJson, pCallback);
+        IoUtil.streamResponseAndClose(pResp.getOutputStream(), pJson, pCallback);
     }
 
     private void sendAllJSON(HttpServletResponse pResp, String callback, JSONAware pJson) throws IOException {
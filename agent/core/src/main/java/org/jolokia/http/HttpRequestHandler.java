@@ -3,18 +3,21 @@ package org.jolokia.http;
 import java.io.*;
 import java.net.URLDecoder;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import javax.management.*;
 
 import org.jolokia.backend.BackendManager;
+import org.jolokia.backend.executor.RequestTimeoutException;
 import org.jolokia.config.*;
+import org.jolokia.notification.RequestExecutor;
+import org.jolokia.request.JmxNotificationRequest;
 import org.jolokia.request.JmxRequest;
+import org.jolokia.request.JmxRequestCache;
 import org.jolokia.request.JmxRequestFactory;
+import org.jolokia.util.CborParser;
+import org.jolokia.util.JsonParser;
 import org.jolokia.util.LogHandler;
 import org.json.simple.*;
-import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
 
 /*
@@ -43,6 +46,11 @@ import org.json.simple.parser.ParseException;
  */
 public class HttpRequestHandler {
 
+    /**
+     * Path below the agent URL at which metrics are served
+     */
+    public static final String METRICS_PATH = "metrics";
+
     // handler for contacting the MBean server(s)
     private BackendManager backendManager;
 
@@ -52,6 +60,17 @@ public class HttpRequestHandler {
     // Global configuration
     private Configuration config;
 
+    // Cache for parsed requests, null if switched off
+    private JmxRequestCache requestCache;
+
+    // Maximum number of idle JSON parsers kept for reuse
+    private static final int MAX_POOLED_PARSERS = 16;
+
+    // Parsers for request bodies, which are reused so that their input buffers are not allocated for every
+    // request. They are not kept in thread locals so that container threads don't hold on to them.
+    private final JsonParser[] parserPool = new JsonParser[MAX_POOLED_PARSERS];
+    private int pooledParsers;
+
     /**
      * Request handler for parsing HTTP request and dispatching to the appropriate
      * request handler (with help of the backend manager)
@@ -63,6 +82,8 @@ public class HttpRequestHandler {
         backendManager = pBackendManager;
         logHandler = pLogHandler;
         config = pConfig;
+        int cacheSize = pConfig.getAsInt(ConfigKey.REQUEST_CACHE_SIZE);
+        requestCache = cacheSize > 0 ? new JmxRequestCache(cacheSize) : null;
     }
 
     /**
@@ -75,15 +96,22 @@ public class HttpRequestHandler {
     public JSONAware handleGetRequest(String pUri, String pPathInfo, Map<String, String[]> pParameterMap) {
         String pathInfo = extractPathInfo(pUri, pPathInfo);
 
-        JmxRequest jmxReq =
-                JmxRequestFactory.createGetRequest(pathInfo,getProcessingParameter(pParameterMap));
+        String cacheKey = requestCache != null ? JmxRequestCache.createGetKey(pathInfo, pParameterMap) : null;
+        JmxRequestCache.CachedRequests cached = cacheKey != null ? requestCache.get(cacheKey) : null;
+        JmxRequest jmxReq = cached != null ? cached.getRequest() : null;
+        if (jmxReq == null) {
+            jmxReq = JmxRequestFactory.createGetRequest(pathInfo,getProcessingParameter(pParameterMap));
+            if (cacheKey != null) {
+                requestCache.put(cacheKey, jmxReq);
+            }
+        }
 
         if (backendManager.isDebug()) {
             logHandler.debug("URI: " + pUri);
             logHandler.debug("Path-Info: " + pathInfo);
             logHandler.debug("Request: " + jmxReq.toString());
         }
-        return executeRequest(jmxReq);
+        return executeSingleRequest(jmxReq);
     }
 
     private ProcessingParameters getProcessingParameter(Map<String, String[]> pParameterMap) {
@@ -118,26 +146,67 @@ public class HttpRequestHandler {
             logHandler.debug("URI: " + pUri);
         }
 
-        Object jsonRequest = extractJsonRequest(pInputStream,pEncoding);
-        if (jsonRequest instanceof JSONArray) {
-            List<JmxRequest> jmxRequests = JmxRequestFactory.createPostRequests((List) jsonRequest,getProcessingParameter(pParameterMap));
+        if (requestCache != null) {
+            return handleCachedPostRequest(readBody(pInputStream, pEncoding), pParameterMap);
+        }
+        return handleJsonRequest(extractJsonRequest(pInputStream, pEncoding), pParameterMap, null);
+    }
 
-            JSONArray responseList = new JSONArray();
-            for (JmxRequest jmxReq : jmxRequests) {
-                if (backendManager.isDebug()) {
-                    logHandler.debug("Request: " + jmxReq.toString());
-                }
-                // Call handler and retrieve return value
-                JSONObject resp = executeRequest(jmxReq);
-                responseList.add(resp);
-            }
-            return responseList;
-        } else if (jsonRequest instanceof JSONObject) {
-            JmxRequest jmxReq = JmxRequestFactory.createPostRequest((Map<String, ?>) jsonRequest,getProcessingParameter(pParameterMap));
-            return executeRequest(jmxReq);
-        } else {
-            throw new IllegalArgumentException("Invalid JSON Request " + jsonRequest);
+    /**
+     * Handle the CBOR encoded body of a POST request. The parsed request(s) are not cached.
+     *
+     * @param pUri URI leading to this request
+     * @param pInputStream input stream of the post request
+     * @param pParameterMap additional processing parameters
+     * @return the JSON object containing the json results for one or more {@link JmxRequest} contained
+     *         within the answer.
+     *
+     * @throws IOException if reading from the input stream fails
+     */
+    public JSONAware handleCborPostRequest(String pUri, InputStream pInputStream, Map<String, String[]> pParameterMap)
+            throws IOException {
+        if (backendManager.isDebug()) {
+            logHandler.debug("URI: " + pUri);
+        }
+        Object request;
+        try {
+            request = new CborParser().parse(pInputStream);
+        } catch (ParseException exp) {
+            throw new IllegalArgumentException("Invalid CBOR request: " + exp,exp);
+        }
+        return handleJsonRequest(request, pParameterMap, null);
+    }
+
+    /**
+     * Check whether a GET request is a request for the metrics endpoint
+     *
+     * @param pPathInfo path of the request, with or without leading and trailing slashes
+     * @return true if the request should be handled with {@link #handleMetricsRequest(String, Writer)}
+     */
+    public boolean isMetricsRequest(String pPathInfo) {
+        if (pPathInfo == null) {
+            return false;
+        }
+        int start = pPathInfo.startsWith("/") ? 1 : 0;
+        int end = pPathInfo.length() > start && pPathInfo.endsWith("/") ? pPathInfo.length() - 1 : pPathInfo.length();
+        return end - start == METRICS_PATH.length() &&
+               pPathInfo.regionMatches(start, METRICS_PATH, 0, METRICS_PATH.length()) &&
+               backendManager.isMetricsEnabled();
+    }
+
+    /**
+     * Write the metrics in the OpenMetrics text format
+     *
+     * @param pUri URI leading to this request
+     * @param pWriter writer to write the metrics to
+     * @throws IOException if writing fails
+     * @throws SecurityException if reading the metrics is not allowed
+     */
+    public void handleMetricsRequest(String pUri, Writer pWriter) throws IOException {
+        if (backendManager.isDebug()) {
+            logHandler.debug("URI: " + pUri);
         }
+        backendManager.writeMetrics(pWriter);
     }
 
     /**
@@ -168,18 +237,123 @@ public class HttpRequestHandler {
     }
 
 
+    // A notification stream request is answered with a stream fed by long-poll pulls
+    private boolean isNotificationStreamRequest(JmxRequest pJmxReq) {
+        return pJmxReq instanceof JmxNotificationRequest &&
+               ((JmxNotificationRequest) pJmxReq).getCommand() == JmxNotificationRequest.Command.STREAM;
+    }
+
+    private NotificationStream createNotificationStream(JmxNotificationRequest pJmxReq) {
+        String mimeType = pJmxReq.getParameter(ConfigKey.MIME_TYPE);
+        return new NotificationStream(this, pJmxReq,
+                                      NotificationStream.EVENT_STREAM_MIME_TYPE.equalsIgnoreCase(mimeType));
+    }
+
+    // Lookup the parsed request(s) in the cache before parsing the body
+    private JSONAware handleCachedPostRequest(String pBody, Map<String, String[]> pParameterMap) {
+        String cacheKey = JmxRequestCache.createPostKey(pBody, pParameterMap);
+        JmxRequestCache.CachedRequests entry = requestCache.get(cacheKey);
+        if (entry != null) {
+            return entry.isBulk() ? executeBulkRequest(entry.getRequests()) : executeSingleRequest(entry.getRequest());
+        }
+        Object jsonRequest;
+        JsonParser parser = borrowParser();
+        try {
+            jsonRequest = parser.parse(pBody);
+        } catch (ParseException exp) {
+            throw new IllegalArgumentException("Invalid JSON request " + pBody,exp);
+        } finally {
+            returnParser(parser);
+        }
+        return handleJsonRequest(jsonRequest, pParameterMap, cacheKey);
+    }
+
+    // Create the request(s) from the parsed JSON and execute them. The requests are cached if a key is given.
+    private JSONAware handleJsonRequest(Object pJsonRequest, Map<String, String[]> pParameterMap, String pCacheKey) {
+        if (pJsonRequest instanceof JSONArray) {
+            List<JmxRequest> jmxRequests = JmxRequestFactory.createPostRequests((List) pJsonRequest,getProcessingParameter(pParameterMap));
+            if (pCacheKey != null) {
+                requestCache.putBulk(pCacheKey, jmxRequests);
+            }
+            return executeBulkRequest(jmxRequests);
+        } else if (pJsonRequest instanceof JSONObject) {
+            JmxRequest jmxReq = JmxRequestFactory.createPostRequest((Map<String, ?>) pJsonRequest,getProcessingParameter(pParameterMap));
+            if (pCacheKey != null) {
+                requestCache.put(pCacheKey, jmxReq);
+            }
+            return executeSingleRequest(jmxReq);
+        } else {
+            throw new IllegalArgumentException("Invalid JSON Request " + pJsonRequest);
+        }
+    }
+
+    private JSONAware executeBulkRequest(List<JmxRequest> pJmxRequests) {
+        JSONArray responseList = new JSONArray();
+        for (JmxRequest jmxReq : pJmxRequests) {
+            if (backendManager.isDebug()) {
+                logHandler.debug("Request: " + jmxReq.toString());
+            }
+            // Call handler and retrieve return value
+            JSONObject resp = executeRequest(jmxReq);
+            responseList.add(resp);
+        }
+        return responseList;
+    }
+
+    private JSONAware executeSingleRequest(JmxRequest pJmxReq) {
+        if (isNotificationStreamRequest(pJmxReq)) {
+            return createNotificationStream((JmxNotificationRequest) pJmxReq);
+        }
+        return executeRequest(pJmxReq);
+    }
+
     private Object extractJsonRequest(InputStream pInputStream, String pEncoding) throws IOException {
         InputStreamReader reader = null;
+        JsonParser parser = borrowParser();
         try {
             reader =
                     pEncoding != null ?
                             new InputStreamReader(pInputStream, pEncoding) :
                             new InputStreamReader(pInputStream);
-            JSONParser parser = new JSONParser();
             return parser.parse(reader);
         } catch (ParseException exp) {
             throw new IllegalArgumentException("Invalid JSON request " + reader,exp);
+        } finally {
+            returnParser(parser);
+        }
+    }
+
+    private JsonParser borrowParser() {
+        synchronized (parserPool) {
+            if (pooledParsers > 0) {
+                JsonParser parser = parserPool[--pooledParsers];
+                parserPool[pooledParsers] = null;
+                return parser;
+            }
+        }
+        return new JsonParser();
+    }
+
+    private void returnParser(JsonParser pParser) {
+        synchronized (parserPool) {
+            if (pooledParsers < MAX_POOLED_PARSERS) {
+                parserPool[pooledParsers++] = pParser;
+            }
+        }
+    }
+
+    private String readBody(InputStream pInputStream, String pEncoding) throws IOException {
+        Reader reader =
+                pEncoding != null ?
+                        new InputStreamReader(pInputStream, pEncoding) :
+                        new InputStreamReader(pInputStream);
+        StringWriter body = new StringWriter();
+        char[] buf = new char[4096];
+        int len;
+        while ((len = reader.read(buf)) != -1) {
+            body.write(buf, 0, len);
         }
+        return body.toString();
     }
 
     /**
@@ -191,7 +365,7 @@ public class HttpRequestHandler {
      * @param pJmxReq the request to execute
      * @return the JSON representation of the answer.
      */
-    private JSONObject executeRequest(JmxRequest pJmxReq) {
+    JSONObject executeRequest(JmxRequest pJmxReq) {
         // Call handler and retrieve return value
         try {
             return backendManager.handleRequest(pJmxReq);
@@ -205,6 +379,8 @@ public class HttpRequestHandler {
             return getErrorJSON(404,e, pJmxReq);
         } catch (UnsupportedOperationException e) {
             return getErrorJSON(500,e, pJmxReq);
+        } catch (RequestTimeoutException e) {
+            return getErrorJSON(504,e, pJmxReq);
         } catch (IOException e) {
             return getErrorJSON(500,e, pJmxReq);
         } catch (IllegalArgumentException e) {
@@ -218,6 +394,26 @@ public class HttpRequestHandler {
         }
     }
 
+    /**
+     * Get an executor for the requests sampled by notification subscriptions, which should be set
+     * with {@link BackendManager#setSubscriptionExecutor(RequestExecutor)}. Errors are converted
+     * into error responses in the same way as for requests received via HTTP.
+     *
+     * @return executor for subscribed requests
+     */
+    public RequestExecutor getSubscriptionExecutor() {
+        return new RequestExecutor() {
+            /** {@inheritDoc} */
+            public JSONObject execute(JmxRequest pRequest) {
+                try {
+                    return executeRequest(pRequest);
+                } catch (RuntimeException exp) {
+                    // Sampling must go on, so use the last security belt already here
+                    return handleThrowable(exp);
+                }
+            }
+        };
+    }
 
     /**
      * Utility method for handling single runtime exceptions and errors. This method is called
@@ -347,15 +543,13 @@ public class HttpRequestHandler {
     // (e.g. "read/domain:type=name!//attribute")
     // In this case, we extract the path info on our own
 
-    private static final Pattern PATH_PREFIX_PATTERN = Pattern.compile("^/?[^/]+/");
-
     private String extractPathInfo(String pUri, String pPathInfo) {
         if (pUri.contains("!//")) {
             // Special treatment for trailing slashes in paths
-            Matcher matcher = PATH_PREFIX_PATTERN.matcher(pPathInfo);
-            if (matcher.find()) {
-                String prefix = matcher.group();
-                String pathInfoEncoded = pUri.replaceFirst("^.*?" + prefix, prefix);
+            String prefix = extractPathPrefix(pPathInfo);
+            if (prefix != null) {
+                int idx = pUri.indexOf(prefix);
+                String pathInfoEncoded = idx >= 0 ? pUri.substring(idx) : pUri;
                 try {
                     return URLDecoder.decode(pathInfoEncoded, "UTF-8");
                 } catch (UnsupportedEncodingException e) {
@@ -365,4 +559,12 @@ public class HttpRequestHandler {
         }
         return pPathInfo;
     }
+
+    // First path element including an optional leading and the trailing slash (e.g. "/read/")
+    // or null if there is no such element
+    private String extractPathPrefix(String pPathInfo) {
+        int start = pPathInfo.startsWith("/") ? 1 : 0;
+        int end = pPathInfo.indexOf('/', start);
+        return end > start ? pPathInfo.substring(0, end + 1) : null;
+    }
 }
@@ -0,0 +1,133 @@
+package org.jolokia.http;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+import org.jolokia.request.JmxNotificationRequest;
+import org.json.simple.*;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Response for a notification <code>stream</code> request. When streamed, the response
+ * is kept open and fed by consecutive long-poll pulls for the client. Every pull result
+ * containing notifications is written out and flushed immediately. Between pulls without
+ * notifications a heartbeat is written so that dead connections are detected early.
+ *
+ * Two formats are supported:
+ * <ul>
+ *     <li>Server-sent events if the requested mime type is <code>text/event-stream</code>.
+ *         Each pull response is sent as a <code>data:</code> event, heartbeats as comments.</li>
+ *     <li>Newline delimited JSON otherwise, with an empty line as heartbeat</li>
+ * </ul>
+ *
+ * The stream ends when the client is unregistered (or expired) or when the connection is closed
+ * by the peer. If the response cannot be streamed, a single (non-blocking) pull is performed.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+class NotificationStream implements JSONStreamAware, JSONAware {
+
+    // How long a single pull waits before a heartbeat is sent
+    static final long HEARTBEAT_INTERVAL = 20 * 1000L;
+
+    static final String EVENT_STREAM_MIME_TYPE = "text/event-stream";
+
+    private final HttpRequestHandler requestHandler;
+    private final JmxNotificationRequest request;
+    private final boolean eventStream;
+    private final long heartbeatInterval;
+
+    /**
+     * Create a notification stream
+     *
+     * @param pRequestHandler handler used for executing the pull requests
+     * @param pRequest the original stream request
+     * @param pEventStream whether to use the server-sent events format
+     */
+    NotificationStream(HttpRequestHandler pRequestHandler, JmxNotificationRequest pRequest, boolean pEventStream) {
+        this(pRequestHandler, pRequest, pEventStream, HEARTBEAT_INTERVAL);
+    }
+
+    // Visible for testing
+    NotificationStream(HttpRequestHandler pRequestHandler, JmxNotificationRequest pRequest, boolean pEventStream,
+                       long pHeartbeatInterval) {
+        requestHandler = pRequestHandler;
+        request = pRequest;
+        eventStream = pEventStream;
+        heartbeatInterval = pHeartbeatInterval;
+    }
+
+    /** {@inheritDoc} */
+    public void writeJSONString(Writer out) throws IOException {
+        while (!Thread.currentThread().isInterrupted()) {
+            JSONObject response = requestHandler.executeRequest(request.createPullRequest(heartbeatInterval));
+            boolean ok = isOk(response);
+            if (!ok || hasNotifications(response)) {
+                writeEvent(out, response);
+            } else {
+                writeHeartbeat(out);
+            }
+            out.flush();
+            if (!ok) {
+                // Client is gone or access has been denied
+                return;
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    public String toJSONString() {
+        return requestHandler.executeRequest(request.createPullRequest(0)).toJSONString();
+    }
+
+    // ===========================================================================
+
+    private void writeEvent(Writer pOut, JSONObject pResponse) throws IOException {
+        if (eventStream) {
+            pOut.write("data: ");
+            pResponse.writeJSONString(pOut);
+            pOut.write("\n\n");
+        } else {
+            pResponse.writeJSONString(pOut);
+            pOut.write("\n");
+        }
+    }
+
+    private void writeHeartbeat(Writer pOut) throws IOException {
+        pOut.write(eventStream ? ":\n\n" : "\n");
+    }
+
+    private boolean isOk(JSONObject pResponse) {
+        Object status = pResponse.get("status");
+        return status instanceof Number && ((Number) status).intValue() == 200;
+    }
+
+    private boolean hasNotifications(JSONObject pResponse) {
+        Object value = pResponse.get("value");
+        if (value instanceof JSONObject) {
+            JSONObject result = (JSONObject) value;
+            Object notifications = result.get("notifications");
+            Object dropped = result.get("dropped");
+            return (notifications instanceof List && ((List) notifications).size() > 0) ||
+                   (dropped instanceof Number && ((Number) dropped).longValue() > 0);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,118 @@
+package org.jolokia.metrics;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.*;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import org.jolokia.util.EscapeUtil;
+
+/**
+ * A rule selecting the MBean attributes to export as metrics. A rule is given as
+ * <code>&lt;mbean pattern&gt;[/&lt;attribute&gt;[/&lt;inner path&gt;]]</code>, with the same escaping
+ * as for the parts of a GET request (i.e. a slash within the MBean name must be written as <code>!/</code>).
+ * Without an attribute (or with <code>*</code>) all numeric, boolean and composite attributes are selected.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+class MetricRule {
+
+    // Separator between rules
+    private static final String RULE_SEPARATOR = ";";
+
+    private final ObjectName pattern;
+
+    // Attribute to select or null for all attributes
+    private final String attribute;
+
+    // Path into the attribute value, never null
+    private final List<String> path;
+
+    private MetricRule(ObjectName pPattern, String pAttribute, List<String> pPath) {
+        pattern = pPattern;
+        attribute = pAttribute;
+        path = pPath;
+    }
+
+    /**
+     * Parse a list of rules separated by semicolons
+     *
+     * @param pRules rules to parse, can be null
+     * @return the parsed rules, empty if there is no rule
+     * @throws IllegalArgumentException if a rule contains no or an invalid MBean name
+     */
+    static List<MetricRule> parse(String pRules) {
+        List<MetricRule> ret = new ArrayList<MetricRule>();
+        if (pRules == null) {
+            return ret;
+        }
+        for (String rule : pRules.split(RULE_SEPARATOR)) {
+            rule = rule.trim();
+            if (rule.length() > 0) {
+                ret.add(parseRule(rule));
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Check whether this rule applies to an MBean
+     *
+     * @param pName name of the MBean
+     * @return true if the MBean name matches the pattern of this rule
+     */
+    boolean matches(ObjectName pName) {
+        return pattern.apply(pName);
+    }
+
+    ObjectName getPattern() {
+        return pattern;
+    }
+
+    String getAttribute() {
+        return attribute;
+    }
+
+    List<String> getPath() {
+        return path;
+    }
+
+    // ==========================================================================================
+
+    private static MetricRule parseRule(String pRule) {
+        List<String> parts = EscapeUtil.parsePath(pRule);
+        // A wildcard is returned as null, but an MBean pattern must be given explicitly
+        String mBean = parts != null ? parts.get(0) : null;
+        if (mBean == null || mBean.length() == 0) {
+            throw new IllegalArgumentException("No MBean name given in metric rule " + pRule);
+        }
+        try {
+            ObjectName pattern = new ObjectName(mBean);
+            // A wildcard attribute has been mapped to null by parsePath() already
+            String attribute = parts.size() > 1 ? parts.get(1) : null;
+            List<String> path = parts.size() > 2 && attribute != null ?
+                    Collections.unmodifiableList(new ArrayList<String>(parts.subList(2, parts.size()))) :
+                    Collections.<String>emptyList();
+            return new MetricRule(pattern, attribute, path);
+        } catch (MalformedObjectNameException exp) {
+            throw new IllegalArgumentException("Invalid MBean name in metric rule " + pRule + ": " + exp,exp);
+        }
+    }
+}
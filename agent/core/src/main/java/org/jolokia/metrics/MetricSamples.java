@@ -0,0 +1,157 @@
+package org.jolokia.metrics;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Samples collected during a single scrape, grouped by metric family as required by the
+ * OpenMetrics text format. The text of every sample line is appended directly, so no
+ * intermediate representation of the values is kept.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+class MetricSamples {
+
+    // Sample lines per family, sorted by family name
+    private final Map<String, StringBuilder> families = new TreeMap<String, StringBuilder>();
+
+    /**
+     * Add a sample. Values which are not numbers or booleans are ignored.
+     *
+     * @param pFamily name of the metric family
+     * @param pLabels formatted label set including the braces, an empty string for no labels
+     * @param pValue value of the sample
+     * @return true if the value has been added
+     */
+    boolean add(String pFamily, String pLabels, Object pValue) {
+        String value = formatValue(pValue);
+        if (value == null) {
+            return false;
+        }
+        StringBuilder lines = families.get(pFamily);
+        if (lines == null) {
+            lines = new StringBuilder();
+            families.put(pFamily, lines);
+        }
+        lines.append(pFamily).append(pLabels).append(' ').append(value).append('\n');
+        return true;
+    }
+
+    /**
+     * Write all samples in the OpenMetrics text format. Every family is declared as gauge, which is
+     * also understood by parsers of the older Prometheus text format.
+     *
+     * @param pWriter writer to write to
+     * @throws IOException if writing fails
+     */
+    void writeTo(Writer pWriter) throws IOException {
+        for (Map.Entry<String, StringBuilder> entry : families.entrySet()) {
+            pWriter.write("# TYPE ");
+            pWriter.write(entry.getKey());
+            pWriter.write(" gauge\n");
+            StringBuilder lines = entry.getValue();
+            pWriter.append(lines);
+        }
+        pWriter.write("# EOF\n");
+    }
+
+    // ==========================================================================================
+
+    /**
+     * Convert a name to a valid metric or label name by replacing all invalid characters with an underscore
+     *
+     * @param pName name to convert
+     * @return the sanitized name
+     */
+    static String sanitizeName(String pName) {
+        StringBuilder ret = new StringBuilder(pName.length() + 1);
+        for (int i = 0; i < pName.length(); i++) {
+            char c = pName.charAt(i);
+            boolean valid = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || (i > 0 && c >= '0' && c <= '9');
+            if (i == 0 && c >= '0' && c <= '9') {
+                // Names must not start with a digit
+                ret.append('_');
+                valid = true;
+            }
+            ret.append(valid ? c : '_');
+        }
+        return ret.toString();
+    }
+
+    /**
+     * Format a label set
+     *
+     * @param pLabels label names (already sanitized) and their values
+     * @return the labels within braces or an empty string if there are no labels
+     */
+    static String formatLabels(Map<String, String> pLabels) {
+        if (pLabels.isEmpty()) {
+            return "";
+        }
+        StringBuilder ret = new StringBuilder("{");
+        for (Map.Entry<String, String> entry : pLabels.entrySet()) {
+            if (ret.length() > 1) {
+                ret.append(',');
+            }
+            ret.append(entry.getKey()).append("=\"");
+            String value = entry.getValue();
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '\\' || c == '"') {
+                    ret.append('\\').append(c);
+                } else if (c == '\n') {
+                    ret.append("\\n");
+                } else {
+                    ret.append(c);
+                }
+            }
+            ret.append('"');
+        }
+        return ret.append('}').toString();
+    }
+
+    // Text representation of a sample value or null if the value is not numeric
+    private static String formatValue(Object pValue) {
+        if (pValue instanceof Long || pValue instanceof Integer || pValue instanceof Short ||
+            pValue instanceof Byte || pValue instanceof AtomicLong || pValue instanceof AtomicInteger ||
+            pValue instanceof BigInteger || pValue instanceof BigDecimal) {
+            return pValue.toString();
+        } else if (pValue instanceof Double || pValue instanceof Float) {
+            double value = ((Number) pValue).doubleValue();
+            if (Double.isNaN(value)) {
+                return "NaN";
+            } else if (Double.isInfinite(value)) {
+                return value > 0 ? "+Inf" : "-Inf";
+            } else {
+                return pValue.toString();
+            }
+        } else if (pValue instanceof Number) {
+            return Double.toString(((Number) pValue).doubleValue());
+        } else if (pValue instanceof Boolean) {
+            return (Boolean) pValue ? "1" : "0";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,365 @@
+package org.jolokia.metrics;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.*;
+import javax.management.openmbean.CompositeData;
+
+import org.jolokia.backend.executor.MBeanServerExecutor;
+import org.jolokia.backend.executor.RegistrationJournal;
+import org.jolokia.restrictor.Restrictor;
+import org.jolokia.util.RequestType;
+
+/**
+ * Collector for exporting MBean attributes as metrics in the OpenMetrics text format, which can be
+ * scraped by Prometheus. The MBeans and attributes to export are selected by {@link MetricRule}s.
+ *
+ * For every selected MBean a collection plan is compiled once, which holds the attributes to read together
+ * with the metric names and labels of their samples. The plans are updated with the registration changes
+ * recorded by the {@link MBeanServerExecutor}, so only newly registered MBeans have to be examined. All attributes
+ * of an MBean are read with a single call and the samples are written out without any conversion to JSON.
+ *
+ * Metric names are built from the MBean's domain, the value of its <code>type</code> key, the attribute name
+ * and the path or composite item, all other keys of the MBean name become labels. Numbers and booleans
+ * are exported, composite values are exported with an extra sample per numeric item.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+public class MetricsCollector {
+
+    // Key of the MBean name which becomes part of the metric name
+    private static final String TYPE_KEY = "type";
+
+    // Types of attributes which are exported when selected by a rule without an attribute
+    private static final Set<String> EXPORTABLE_TYPES = new HashSet<String>(Arrays.asList(
+            "long", "int", "short", "byte", "double", "float", "boolean",
+            Long.class.getName(), Integer.class.getName(), Short.class.getName(), Byte.class.getName(),
+            Double.class.getName(), Float.class.getName(), Boolean.class.getName(),
+            CompositeData.class.getName()
+    ));
+
+    private final List<MetricRule> rules;
+
+    private final Restrictor restrictor;
+
+    // Executor for which the plans have been created
+    private MBeanServerExecutor executor;
+
+    // Registration sequence number up to which the plans are up to date
+    private long sequence;
+
+    // Collection plans per MBean, sorted for a stable output order
+    private Map<ObjectName, MBeanPlan> plans;
+
+    // MBeans whose meta data could not be obtained, looked up again with every scrape
+    private Set<ObjectName> failed = Collections.emptySet();
+
+    /**
+     * Create a collector
+     *
+     * @param pRules rules selecting the attributes to export, separated by semicolons. If null or empty, nothing is exported.
+     * @param pRestrictor restrictor checking the access to the attributes
+     * @throws IllegalArgumentException if a rule cannot be parsed
+     */
+    public MetricsCollector(String pRules, Restrictor pRestrictor) {
+        rules = MetricRule.parse(pRules);
+        restrictor = pRestrictor;
+    }
+
+    /**
+     * Whether any metrics are configured
+     *
+     * @return true if there is at least one rule
+     */
+    public boolean isEnabled() {
+        return !rules.isEmpty();
+    }
+
+    /**
+     * Read all selected attributes and write them as metrics
+     *
+     * @param pExecutor executor for accessing the MBeanServers
+     * @param pWriter writer to write the metrics to
+     * @throws IOException if writing fails or the MBeanServers cannot be queried
+     * @throws SecurityException if reading attributes is not allowed
+     */
+    public synchronized void collect(MBeanServerExecutor pExecutor, Writer pWriter) throws IOException {
+        if (!restrictor.isTypeAllowed(RequestType.READ)) {
+            throw new SecurityException("Reading attributes is forbidden");
+        }
+        update(pExecutor);
+        MetricSamples samples = new MetricSamples();
+        for (MBeanPlan plan : plans.values()) {
+            try {
+                pExecutor.call(plan.name, plan, samples);
+            } catch (JMException exp) {
+                // MBean unregistered or failing, skipped for this scrape
+            } catch (IOException exp) {
+                // Connection problem with this MBean's server
+            } catch (RuntimeException exp) {
+                // e.g. a RuntimeMBeanException from the MBean itself
+            }
+        }
+        samples.writeTo(pWriter);
+        pWriter.flush();
+    }
+
+    /**
+     * Forget all compiled plans
+     */
+    public synchronized void clear() {
+        executor = null;
+        plans = null;
+        failed = Collections.emptySet();
+    }
+
+    // ==========================================================================================
+
+    private void update(MBeanServerExecutor pExecutor) throws IOException {
+        // Changes are obtained before looking up the meta data, so that a registration happening
+        // in between is applied again with the next update
+        RegistrationJournal.Changes changes = pExecutor.getRegistrationChangesSince(sequence);
+        if (pExecutor != executor || plans == null || !changes.isComplete()) {
+            Set<ObjectName> names = new HashSet<ObjectName>();
+            for (MetricRule rule : rules) {
+                names.addAll(pExecutor.queryNames(rule.getPattern()));
+            }
+            Set<ObjectName> newFailed = new HashSet<ObjectName>();
+            plans = createPlans(pExecutor, names, new TreeMap<ObjectName, MBeanPlan>(), newFailed);
+            failed = newFailed;
+        } else if (!changes.getAdded().isEmpty() || !changes.getRemoved().isEmpty() || !failed.isEmpty()) {
+            Map<ObjectName, MBeanPlan> newPlans = new TreeMap<ObjectName, MBeanPlan>(plans);
+            Set<ObjectName> lookup = new LinkedHashSet<ObjectName>(failed);
+            lookup.addAll(changes.getAdded());
+            lookup.removeAll(changes.getRemoved());
+            newPlans.keySet().removeAll(changes.getRemoved());
+            newPlans.keySet().removeAll(lookup);
+            Set<ObjectName> newFailed = new HashSet<ObjectName>();
+            plans = createPlans(pExecutor, lookup, newPlans, newFailed);
+            failed = newFailed;
+        }
+        executor = pExecutor;
+        sequence = changes.getSequence();
+    }
+
+    // Add plans for all MBeans matched by a rule
+    private Map<ObjectName, MBeanPlan> createPlans(MBeanServerExecutor pExecutor, Collection<ObjectName> pNames,
+                                                   Map<ObjectName, MBeanPlan> pPlans, Set<ObjectName> pFailed) {
+        for (ObjectName name : pNames) {
+            List<MetricRule> matching = new ArrayList<MetricRule>();
+            for (MetricRule rule : rules) {
+                if (rule.matches(name)) {
+                    matching.add(rule);
+                }
+            }
+            if (matching.isEmpty()) {
+                continue;
+            }
+            try {
+                MBeanPlan plan = pExecutor.call(name, planCompiler, matching);
+                if (plan != null) {
+                    pPlans.put(name, plan);
+                }
+            } catch (InstanceNotFoundException exp) {
+                // Already unregistered again
+            } catch (JMException exp) {
+                pFailed.add(name);
+            } catch (IOException exp) {
+                pFailed.add(name);
+            }
+        }
+        return pPlans;
+    }
+
+    // Compiles the plan for a single MBean from its meta data, returns null if nothing is to be exported
+    private final MBeanServerExecutor.MBeanAction<MBeanPlan> planCompiler = new MBeanServerExecutor.MBeanAction<MBeanPlan>() {
+        /** {@inheritDoc} */
+        public MBeanPlan execute(MBeanServerConnection pConn, ObjectName pName, Object... extraArgs)
+                throws ReflectionException, InstanceNotFoundException, IOException {
+            MBeanInfo info;
+            try {
+                info = pConn.getMBeanInfo(pName);
+            } catch (IntrospectionException exp) {
+                throw new ReflectionException(exp, "Cannot get MBeanInfo for " + pName);
+            }
+            Map<String, MBeanAttributeInfo> attributes = new HashMap<String, MBeanAttributeInfo>();
+            for (MBeanAttributeInfo attr : info.getAttributes()) {
+                if (attr.isReadable()) {
+                    attributes.put(attr.getName(), attr);
+                }
+            }
+
+            String prefix = createNamePrefix(pName);
+            String labels = createLabels(pName);
+            Map<String, Slot> slots = new LinkedHashMap<String, Slot>();
+            @SuppressWarnings("unchecked")
+            List<MetricRule> matching = (List<MetricRule>) extraArgs[0];
+            for (MetricRule rule : matching) {
+                if (rule.getAttribute() != null) {
+                    addSlot(slots, pName, prefix, labels, rule.getAttribute(), rule.getPath(), attributes.containsKey(rule.getAttribute()));
+                } else {
+                    for (MBeanAttributeInfo attr : info.getAttributes()) {
+                        addSlot(slots, pName, prefix, labels, attr.getName(), rule.getPath(),
+                                attr.isReadable() && isExportable(attr.getType()));
+                    }
+                }
+            }
+            return slots.isEmpty() ? null : new MBeanPlan(pName, new ArrayList<Slot>(slots.values()));
+        }
+    };
+
+    private void addSlot(Map<String, Slot> pSlots, ObjectName pName, String pPrefix, String pLabels,
+                         String pAttribute, List<String> pPath, boolean pExportable) {
+        if (!pExportable || !restrictor.isAttributeReadAllowed(pName, pAttribute)) {
+            return;
+        }
+        StringBuilder family = new StringBuilder(pPrefix).append(pAttribute);
+        for (String part : pPath) {
+            family.append('_').append(part);
+        }
+        String familyName = MetricSamples.sanitizeName(family.toString());
+        if (!pSlots.containsKey(familyName)) {
+            pSlots.put(familyName, new Slot(pAttribute, pPath, familyName, pLabels));
+        }
+    }
+
+    private static boolean isExportable(String pType) {
+        return EXPORTABLE_TYPES.contains(pType);
+    }
+
+    // Domain and type key, each followed by an underscore
+    private static String createNamePrefix(ObjectName pName) {
+        StringBuilder ret = new StringBuilder(pName.getDomain()).append('_');
+        String type = pName.getKeyProperty(TYPE_KEY);
+        if (type != null) {
+            ret.append(unquote(type)).append('_');
+        }
+        return ret.toString();
+    }
+
+    // All other keys become labels
+    private static String createLabels(ObjectName pName) {
+        Map<String, String> labels = new TreeMap<String, String>();
+        for (Map.Entry<String, String> entry : pName.getKeyPropertyList().entrySet()) {
+            if (!TYPE_KEY.equals(entry.getKey())) {
+                labels.put(MetricSamples.sanitizeName(entry.getKey()), unquote(entry.getValue()));
+            }
+        }
+        return MetricSamples.formatLabels(labels);
+    }
+
+    private static String unquote(String pValue) {
+        if (pValue.length() > 1 && pValue.startsWith("\"") && pValue.endsWith("\"")) {
+            try {
+                return ObjectName.unquote(pValue);
+            } catch (IllegalArgumentException exp) {
+                // Not a properly quoted value
+            }
+        }
+        return pValue;
+    }
+
+    // Attributes of a single MBean together with their metric names
+    private static final class MBeanPlan implements MBeanServerExecutor.MBeanAction<Void> {
+        private final ObjectName name;
+        private final List<Slot> slots;
+        private final String[] attributeNames;
+
+        private MBeanPlan(ObjectName pName, List<Slot> pSlots) {
+            name = pName;
+            slots = pSlots;
+            Set<String> attributes = new LinkedHashSet<String>();
+            for (Slot slot : pSlots) {
+                attributes.add(slot.attribute);
+            }
+            attributeNames = attributes.toArray(new String[attributes.size()]);
+        }
+
+        /** {@inheritDoc} */
+        public Void execute(MBeanServerConnection pConn, ObjectName pName, Object... extraArgs)
+                throws ReflectionException, InstanceNotFoundException, IOException {
+            MetricSamples samples = (MetricSamples) extraArgs[0];
+            // Attributes which cannot be read are missing in the returned list
+            AttributeList values = pConn.getAttributes(pName, attributeNames);
+            Map<String, Object> valueMap = new HashMap<String, Object>();
+            for (Object attribute : values) {
+                Attribute attr = (Attribute) attribute;
+                valueMap.put(attr.getName(), attr.getValue());
+            }
+            for (Slot slot : slots) {
+                if (valueMap.containsKey(slot.attribute)) {
+                    slot.addSamples(samples, valueMap.get(slot.attribute));
+                }
+            }
+            return null;
+        }
+    }
+
+    // A single attribute (or a path within an attribute) exported as metric family
+    private static final class Slot {
+        private final String attribute;
+        private final List<String> path;
+        private final String family;
+        private final String labels;
+
+        // Family names for the items of a composite value, created on first use
+        private final Map<String, String> itemFamilies = new ConcurrentHashMap<String, String>();
+
+        private Slot(String pAttribute, List<String> pPath, String pFamily, String pLabels) {
+            attribute = pAttribute;
+            path = pPath;
+            family = pFamily;
+            labels = pLabels;
+        }
+
+        private void addSamples(MetricSamples pSamples, Object pValue) {
+            Object value = pValue;
+            for (String part : path) {
+                if (value instanceof CompositeData && ((CompositeData) value).containsKey(part)) {
+                    value = ((CompositeData) value).get(part);
+                } else if (value instanceof Map) {
+                    value = ((Map<?, ?>) value).get(part);
+                } else {
+                    return;
+                }
+            }
+            if (value instanceof CompositeData) {
+                CompositeData data = (CompositeData) value;
+                for (String key : data.getCompositeType().keySet()) {
+                    pSamples.add(getItemFamily(key), labels, data.get(key));
+                }
+            } else {
+                pSamples.add(family, labels, value);
+            }
+        }
+
+        private String getItemFamily(String pKey) {
+            String ret = itemFamilies.get(pKey);
+            if (ret == null) {
+                ret = MetricSamples.sanitizeName(family + "_" + pKey);
+                itemFamilies.put(pKey, ret);
+            }
+            return ret;
+        }
+    }
+}
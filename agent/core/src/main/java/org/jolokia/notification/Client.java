@@ -0,0 +1,143 @@
+package org.jolokia.notification;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.*;
+
+import org.json.simple.JSONObject;
+
+/**
+ * A client which has registered for receiving notifications. A client holds
+ * its registrations (notification listeners and subscriptions) and a queue where
+ * incoming events are kept until they are fetched.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+public class Client {
+
+    private final String id;
+
+    private final NotificationQueue queue;
+
+    // Listeners and subscriptions by handle
+    private final Map<String, Registration> listeners = new LinkedHashMap<String, Registration>();
+
+    // Counter used for creating handles
+    private int handleCounter;
+
+    // Last time this client has been active
+    private volatile long lastRefresh;
+
+    /**
+     * Create a new client
+     *
+     * @param pId client id
+     * @param pMaxQueueSize maximum number of events to keep for this client
+     */
+    public Client(String pId, int pMaxQueueSize) {
+        id = pId;
+        queue = new NotificationQueue(pMaxQueueSize);
+        refresh();
+    }
+
+    /**
+     * Get the id of this client
+     *
+     * @return client id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Get the queue holding the pending events for this client
+     *
+     * @return the queue
+     */
+    public NotificationQueue getQueue() {
+        return queue;
+    }
+
+    /**
+     * Mark this client as being active right now
+     */
+    public void refresh() {
+        lastRefresh = System.currentTimeMillis();
+    }
+
+    /**
+     * Last time this client has been active
+     *
+     * @return epoch time in milliseconds
+     */
+    public long getLastRefresh() {
+        return lastRefresh;
+    }
+
+    /**
+     * Create a new, unique handle for a registration of this client
+     *
+     * @return new handle
+     */
+    public synchronized String nextHandle() {
+        return Integer.toString(++handleCounter);
+    }
+
+    /**
+     * Remember a listener registration or subscription
+     *
+     * @param pRegistration registration to add
+     */
+    public synchronized void addListener(Registration pRegistration) {
+        listeners.put(pRegistration.getHandle(), pRegistration);
+    }
+
+    /**
+     * Remove a listener registration or subscription
+     *
+     * @param pHandle handle of the registration to remove
+     * @return the removed registration or null if no such registration exists
+     */
+    public synchronized Registration removeListener(String pHandle) {
+        return listeners.remove(pHandle);
+    }
+
+    /**
+     * Remove all registrations
+     *
+     * @return the removed registrations
+     */
+    public synchronized List<Registration> removeAllListeners() {
+        List<Registration> ret = new ArrayList<Registration>(listeners.values());
+        listeners.clear();
+        return ret;
+    }
+
+    /**
+     * JSON representation of all registrations with their handle as key
+     *
+     * @return registrations as JSON object
+     */
+    public synchronized JSONObject listenersToJSON() {
+        JSONObject ret = new JSONObject();
+        for (Map.Entry<String, Registration> entry : listeners.entrySet()) {
+            ret.put(entry.getKey(), entry.getValue().toJSON());
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,194 @@
+package org.jolokia.notification;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.List;
+
+import javax.management.*;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+/**
+ * A notification listener registered on behalf of a client. Each received notification
+ * is converted into an event and put into the client's {@link NotificationQueue}.
+ *
+ * The notification itself is converted into a map with the standard notification
+ * properties. The user data is kept as it is and gets serialized along with the
+ * response, so the usual serialization options apply.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+public class ListenerRegistration implements NotificationListener, Registration {
+
+    private final String handle;
+    private final ObjectName objectName;
+    private final List<String> filterTypes;
+    private final Object handback;
+    private final NotificationQueue queue;
+
+    // Connection on which the listener has been added, needed for removal. It is read by
+    // the thread cleaning up expired clients.
+    private volatile MBeanServerConnection connection;
+
+    // Set when the registration has been removed, possibly before it got added
+    private volatile boolean removed;
+
+    /**
+     * Create a registration
+     *
+     * @param pHandle handle identifying this registration
+     * @param pObjectName MBean to listen on
+     * @param pFilterTypes notification types to listen for or null for all notifications
+     * @param pHandback handback returned with each event
+     * @param pQueue queue to put the events into
+     */
+    public ListenerRegistration(String pHandle, ObjectName pObjectName, List<String> pFilterTypes,
+                                Object pHandback, NotificationQueue pQueue) {
+        handle = pHandle;
+        objectName = pObjectName;
+        filterTypes = pFilterTypes;
+        handback = pHandback;
+        queue = pQueue;
+    }
+
+    /**
+     * Add this listener to the given MBeanServer. If the registration has been removed in the
+     * meantime, the listener is removed again right away.
+     *
+     * @param pConnection connection to the MBeanServer holding the MBean
+     * @throws InstanceNotFoundException if the MBean is not registered at this server
+     * @throws IOException for remote connections
+     */
+    public void add(MBeanServerConnection pConnection) throws InstanceNotFoundException, IOException {
+        pConnection.addNotificationListener(objectName, this, createFilter(), null);
+        connection = pConnection;
+        if (removed) {
+            // Either remove() sees the connection or we see the removal (or both)
+            remove();
+        }
+    }
+
+    /**
+     * Remove this listener from the MBeanServer it has been added to. Errors are ignored since
+     * the MBean might have been already unregistered.
+     */
+    public void remove() {
+        removed = true;
+        MBeanServerConnection conn = connection;
+        if (conn != null) {
+            try {
+                conn.removeNotificationListener(objectName, this);
+            } catch (InstanceNotFoundException e) {
+                // MBean is already gone, so is the listener
+            } catch (ListenerNotFoundException e) {
+                // Already removed
+            } catch (IOException e) {
+                // Cannot do anything here
+            }
+            connection = null;
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void handleNotification(Notification pNotification, Object pHandback) {
+        JSONObject event = new JSONObject();
+        event.put("handle", handle);
+        if (handback != null) {
+            event.put("handback", handback);
+        }
+        event.put("notification", convertNotification(pNotification));
+        queue.add(event);
+    }
+
+    /**
+     * Get the handle of this registration
+     *
+     * @return handle
+     */
+    public String getHandle() {
+        return handle;
+    }
+
+    /**
+     * Get the MBean on which this listener is registered
+     *
+     * @return MBean name
+     */
+    public ObjectName getObjectName() {
+        return objectName;
+    }
+
+    /**
+     * JSON representation used when listing the listeners of a client
+     *
+     * @return JSON representation
+     */
+    public JSONObject toJSON() {
+        JSONObject ret = new JSONObject();
+        ret.put("mbean", objectName.getCanonicalName());
+        if (filterTypes != null) {
+            JSONArray filter = new JSONArray();
+            filter.addAll(filterTypes);
+            ret.put("filter", filter);
+        }
+        if (handback != null) {
+            ret.put("handback", handback);
+        }
+        return ret;
+    }
+
+    // ==============================================================================
+
+    private NotificationFilter createFilter() {
+        if (filterTypes == null || filterTypes.isEmpty()) {
+            return null;
+        }
+        NotificationFilterSupport filter = new NotificationFilterSupport();
+        for (String type : filterTypes) {
+            filter.enableType(type);
+        }
+        return filter;
+    }
+
+    private JSONObject convertNotification(Notification pNotification) {
+        JSONObject ret = new JSONObject();
+        ret.put("type", pNotification.getType());
+        Object source = pNotification.getSource();
+        ret.put("source", source instanceof ObjectName ?
+                ((ObjectName) source).getCanonicalName() :
+                (source != null ? source.toString() : objectName.getCanonicalName()));
+        ret.put("sequenceNumber", pNotification.getSequenceNumber());
+        ret.put("timeStamp", pNotification.getTimeStamp());
+        if (pNotification.getMessage() != null) {
+            ret.put("message", pNotification.getMessage());
+        }
+        if (pNotification.getUserData() != null) {
+            ret.put("userData", pNotification.getUserData());
+        }
+        if (pNotification instanceof AttributeChangeNotification) {
+            AttributeChangeNotification acn = (AttributeChangeNotification) pNotification;
+            ret.put("attributeName", acn.getAttributeName());
+            ret.put("attributeType", acn.getAttributeType());
+            ret.put("oldValue", acn.getOldValue());
+            ret.put("newValue", acn.getNewValue());
+        }
+        return ret;
+    }
+}
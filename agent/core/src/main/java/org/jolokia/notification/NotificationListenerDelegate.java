@@ -0,0 +1,348 @@
+package org.jolokia.notification;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.security.AccessController;
+import java.util.*;
+import java.util.concurrent.*;
+
+import javax.management.*;
+import javax.security.auth.Subject;
+
+import org.jolokia.backend.executor.MBeanServerExecutor;
+import org.jolokia.request.JmxRequest;
+import org.json.simple.JSONObject;
+
+/**
+ * Registry for notification clients. It is responsible for adding and removing
+ * listeners and subscriptions on behalf of a client and for handing out the events received.
+ *
+ * Clients which have not been active for longer than the configured timeout are
+ * removed together with their listeners when {@link #cleanup(long)} is called. As long
+ * as there are subscriptions, this is also done periodically in the background.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+public class NotificationListenerDelegate {
+
+    // Maximum time a pull may wait for events
+    static final long MAX_PULL_TIMEOUT = 60 * 1000L;
+
+    // Minimal interval for sampling subscriptions
+    static final long MIN_SUBSCRIPTION_INTERVAL = 100L;
+
+    // All registered clients by id
+    private final Map<String, Client> clients = new HashMap<String, Client>();
+
+    // Max number of events to keep per client
+    private final int maxQueueSize;
+
+    // Timeout in ms after which inactive clients are removed
+    private final long clientTimeout;
+
+    // Executor for requests sampled by subscriptions, null if subscriptions are not supported
+    private volatile RequestExecutor requestExecutor;
+
+    // Scheduler for subscriptions, created lazily
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Create the delegate
+     *
+     * @param pMaxQueueSize maximum number of events to keep for a single client
+     * @param pClientTimeout time in milliseconds after which inactive clients are removed
+     */
+    public NotificationListenerDelegate(int pMaxQueueSize, long pClientTimeout) {
+        maxQueueSize = pMaxQueueSize;
+        clientTimeout = pClientTimeout;
+    }
+
+    /**
+     * Register a new client
+     *
+     * @return the id of the new client
+     */
+    public String register() {
+        String id = UUID.randomUUID().toString();
+        synchronized (clients) {
+            clients.put(id, new Client(id, maxQueueSize));
+        }
+        return id;
+    }
+
+    /**
+     * Unregister a client and remove all its listeners
+     *
+     * @param pClient client id
+     * @throws IllegalArgumentException if no such client is registered
+     */
+    public void unregister(String pClient) {
+        Client client;
+        synchronized (clients) {
+            client = clients.remove(pClient);
+        }
+        if (client == null) {
+            throw new IllegalArgumentException("No client with id " + pClient + " registered");
+        }
+        removeClient(client);
+    }
+
+    /**
+     * Add a notification listener for a client
+     *
+     * @param pExecutor executor used for finding the MBeanServer holding the MBean
+     * @param pClient client id
+     * @param pObjectName MBean to listen on
+     * @param pFilter notification types to listen for or null for all types
+     * @param pHandback handback which is returned with each event
+     * @return a handle which identifies the listener
+     */
+    public String addListener(MBeanServerExecutor pExecutor, String pClient, ObjectName pObjectName,
+                              List<String> pFilter, Object pHandback)
+            throws IOException, ReflectionException, MBeanException, AttributeNotFoundException, InstanceNotFoundException {
+        final Client client = getClient(pClient);
+        final ListenerRegistration registration =
+                new ListenerRegistration(client.nextHandle(), pObjectName, pFilter, pHandback, client.getQueue());
+        // Owned by the client before being added to the MBean, so that a concurrent removal of
+        // the client also removes this listener
+        client.addListener(registration);
+        boolean added = false;
+        try {
+            pExecutor.call(pObjectName, new MBeanServerExecutor.MBeanAction<Void>() {
+                /** {@inheritDoc} */
+                public Void execute(MBeanServerConnection pConn, ObjectName pName, Object... extraArgs)
+                        throws InstanceNotFoundException, IOException {
+                    registration.add(pConn);
+                    return null;
+                }
+            });
+            added = true;
+        } finally {
+            if (!added) {
+                client.removeListener(registration.getHandle());
+                registration.remove();
+            }
+        }
+        return registration.getHandle();
+    }
+
+    /**
+     * Subscribe to a set of requests which are sampled periodically. The responses are
+     * put as a single event into the client's queue on each run.
+     *
+     * @param pClient client id
+     * @param pRequests requests to sample
+     * @param pInterval sampling interval in milliseconds
+     * @param pOnlyChanged whether to deliver only responses whose value has changed since the last run
+     * @param pHandback handback which is returned with each event
+     * @return a handle which identifies the subscription
+     * @throws UnsupportedOperationException if no request executor has been set
+     */
+    public String subscribe(String pClient, List<JmxRequest> pRequests, long pInterval,
+                            boolean pOnlyChanged, Object pHandback) {
+        RequestExecutor executor = requestExecutor;
+        if (executor == null) {
+            throw new UnsupportedOperationException("Subscriptions are not supported by this agent");
+        }
+        Client client = getClient(pClient);
+        long interval = Math.max(pInterval, MIN_SUBSCRIPTION_INTERVAL);
+        // Samples run with the rights of the subscribing client
+        Subject subject = Subject.getSubject(AccessController.getContext());
+        Subscription subscription = new Subscription(client.nextHandle(), pRequests, interval, pOnlyChanged,
+                                                     pHandback, client.getQueue(), executor, subject);
+        client.addListener(subscription);
+        subscription.setFuture(getScheduler().scheduleAtFixedRate(subscription, 0, interval, TimeUnit.MILLISECONDS));
+        return subscription.getHandle();
+    }
+
+    /**
+     * Remove a listener or a subscription
+     *
+     * @param pClient client id
+     * @param pHandle handle as returned by {@link #addListener(MBeanServerExecutor, String, ObjectName, List, Object)}
+     *                or {@link #subscribe(String, List, long, boolean, Object)}
+     * @throws IllegalArgumentException if the client or listener doesn't exist
+     */
+    public void removeListener(String pClient, String pHandle) {
+        Registration registration = getClient(pClient).removeListener(pHandle);
+        if (registration == null) {
+            throw new IllegalArgumentException("No listener with handle " + pHandle + " registered for client " + pClient);
+        }
+        registration.remove();
+    }
+
+    /**
+     * Mark a client as being alive
+     *
+     * @param pClient client id
+     */
+    public void refresh(String pClient) {
+        getClient(pClient);
+    }
+
+    /**
+     * List all listeners of a client
+     *
+     * @param pClient client id
+     * @return JSON object with the handles as keys and the listener description as values
+     */
+    public JSONObject list(String pClient) {
+        return getClient(pClient).listenersToJSON();
+    }
+
+    /**
+     * Fetch pending events for a client, waiting for events if there are none.
+     *
+     * @param pClient client id
+     * @param pMax maximum number of events to return
+     * @param pTimeout how long to wait in milliseconds. This is limited to half of the client timeout
+     *                 (so that the client doesn't expire while waiting) and to at most one minute.
+     * @return object with the events and the number of events dropped
+     */
+    public JSONObject pull(String pClient, int pMax, long pTimeout) {
+        Client client = getClient(pClient);
+        long timeout = Math.min(pTimeout, Math.min(MAX_PULL_TIMEOUT, clientTimeout / 2));
+        try {
+            return client.getQueue().fetch(pMax, timeout);
+        } finally {
+            client.refresh();
+        }
+    }
+
+    /**
+     * Lookup a client, which is refreshed as a side effect.
+     *
+     * @param pClient client id
+     * @return the client
+     * @throws IllegalArgumentException if no client with this id is registered
+     */
+    public Client getClient(String pClient) {
+        Client client;
+        synchronized (clients) {
+            client = clients.get(pClient);
+        }
+        if (client == null) {
+            throw new IllegalArgumentException("No client with id " + pClient + " registered");
+        }
+        client.refresh();
+        return client;
+    }
+
+    /**
+     * Remove all clients which have not been active since the client timeout
+     *
+     * @param pNow current time in milliseconds
+     */
+    public void cleanup(long pNow) {
+        List<Client> expired = new ArrayList<Client>();
+        synchronized (clients) {
+            Iterator<Client> it = clients.values().iterator();
+            while (it.hasNext()) {
+                Client client = it.next();
+                if (pNow - client.getLastRefresh() > clientTimeout) {
+                    expired.add(client);
+                    it.remove();
+                }
+            }
+        }
+        for (Client client : expired) {
+            removeClient(client);
+        }
+    }
+
+    /**
+     * Remove all clients and their listeners and stop the subscription scheduler
+     */
+    public void destroy() {
+        List<Client> all;
+        synchronized (clients) {
+            all = new ArrayList<Client>(clients.values());
+            clients.clear();
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+                scheduler = null;
+            }
+        }
+        for (Client client : all) {
+            removeClient(client);
+        }
+    }
+
+    /**
+     * Set the executor used for sampling the requests of subscriptions. Without an
+     * executor, subscriptions are not supported.
+     *
+     * @param pExecutor request executor
+     */
+    public void setRequestExecutor(RequestExecutor pExecutor) {
+        requestExecutor = pExecutor;
+    }
+
+    /**
+     * Maximum number of events kept per client
+     *
+     * @return queue size
+     */
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    /**
+     * Time in milliseconds after which an inactive client is removed
+     *
+     * @return client timeout
+     */
+    public long getClientTimeout() {
+        return clientTimeout;
+    }
+
+    // ==================================================================================
+
+    private void removeClient(Client pClient) {
+        for (Registration registration : pClient.removeAllListeners()) {
+            registration.remove();
+        }
+        pClient.getQueue().close();
+    }
+
+    // Create the scheduler on demand. Expired clients are also cleaned up by the scheduler,
+    // since otherwise their subscriptions would keep sampling until the next request arrives.
+    private ScheduledExecutorService getScheduler() {
+        synchronized (clients) {
+            if (scheduler == null) {
+                scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                    /** {@inheritDoc} */
+                    public Thread newThread(Runnable pRunnable) {
+                        Thread thread = new Thread(pRunnable, "jolokia-subscriptions");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+                long cleanupInterval = Math.max(clientTimeout / 2, MIN_SUBSCRIPTION_INTERVAL);
+                scheduler.scheduleWithFixedDelay(new Runnable() {
+                    /** {@inheritDoc} */
+                    public void run() {
+                        cleanup(System.currentTimeMillis());
+                    }
+                }, cleanupInterval, cleanupInterval, TimeUnit.MILLISECONDS);
+            }
+            return scheduler;
+        }
+    }
+}
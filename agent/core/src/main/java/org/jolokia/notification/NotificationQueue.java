@@ -0,0 +1,137 @@
+package org.jolokia.notification;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.LinkedList;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+/**
+ * Bounded queue holding the events received for a single client until they are
+ * fetched. When the queue is full, the oldest event is dropped and the number of dropped
+ * events is reported with the next fetch, so that a client can detect gaps.
+ *
+ * A fetch can wait for events to arrive (long-poll). Waiting fetches are woken up
+ * as soon as an event is added or the queue gets closed.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+public class NotificationQueue {
+
+    // Maximum number of entries to keep. 0 or less means unlimited
+    private final int maxSize;
+
+    private final LinkedList<Object> entries = new LinkedList<Object>();
+
+    // Number of entries dropped since the last fetch
+    private long dropped;
+
+    // Set when the owning client is gone
+    private boolean closed;
+
+    /**
+     * Create a queue
+     *
+     * @param pMaxSize maximum number of events to keep. If the queue is full the oldest
+     *                 entries are dropped.
+     */
+    public NotificationQueue(int pMaxSize) {
+        maxSize = pMaxSize;
+    }
+
+    /**
+     * Add an event to this queue. If the queue is full, the oldest event is dropped.
+     * Events added to a closed queue are ignored.
+     *
+     * @param pEntry event to add
+     */
+    public synchronized void add(Object pEntry) {
+        if (closed) {
+            return;
+        }
+        if (maxSize > 0 && entries.size() >= maxSize) {
+            entries.removeFirst();
+            dropped++;
+        }
+        entries.addLast(pEntry);
+        notifyAll();
+    }
+
+    /**
+     * Fetch and remove pending events. If there are no events yet, wait up to the given
+     * timeout for one to arrive. The returned object contains the events as JSON array with
+     * key <code>notifications</code> and the number of events lost since the last
+     * fetch with key <code>dropped</code>.
+     *
+     * @param pMax maximum number of events to return, 0 or less for all events
+     * @param pTimeout how long to wait in milliseconds if there are no pending events
+     * @return object holding the events and the number of dropped events
+     */
+    public synchronized JSONObject fetch(int pMax, long pTimeout) {
+        long end = System.currentTimeMillis() + pTimeout;
+        try {
+            while (entries.isEmpty() && !closed) {
+                long wait = end - System.currentTimeMillis();
+                if (wait <= 0) {
+                    break;
+                }
+                wait(wait);
+            }
+        } catch (InterruptedException exp) {
+            Thread.currentThread().interrupt();
+        }
+        int nr = pMax > 0 ? Math.min(pMax, entries.size()) : entries.size();
+        JSONArray events = new JSONArray();
+        for (int i = 0; i < nr; i++) {
+            events.add(entries.removeFirst());
+        }
+        JSONObject ret = new JSONObject();
+        ret.put("notifications", events);
+        ret.put("dropped", dropped);
+        dropped = 0;
+        return ret;
+    }
+
+    /**
+     * Number of pending events
+     *
+     * @return size of this queue
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Close this queue, discarding all pending events and waking up any waiting fetch.
+     */
+    public synchronized void close() {
+        closed = true;
+        entries.clear();
+        notifyAll();
+    }
+
+    /**
+     * Whether this queue has been closed
+     *
+     * @return true if closed
+     */
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+}
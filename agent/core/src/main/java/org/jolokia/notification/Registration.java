@@ -0,0 +1,49 @@
+package org.jolokia.notification;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.json.simple.JSONObject;
+
+/**
+ * Something registered on behalf of a notification {@link Client} which feeds
+ * events into the client's queue. This is either a {@link ListenerRegistration}
+ * for JMX notifications or a {@link Subscription} for periodically sampled requests.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+public interface Registration {
+
+    /**
+     * Get the handle identifying this registration within its client
+     *
+     * @return handle
+     */
+    String getHandle();
+
+    /**
+     * Stop feeding events and release all resources. Errors must be ignored.
+     */
+    void remove();
+
+    /**
+     * JSON representation used when listing the registrations of a client
+     *
+     * @return JSON representation
+     */
+    JSONObject toJSON();
+}
@@ -0,0 +1,40 @@
+package org.jolokia.notification;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.jolokia.request.JmxRequest;
+import org.json.simple.JSONObject;
+
+/**
+ * Executor for requests which are sampled by a {@link Subscription}. The executor
+ * is responsible for the full request processing including the conversion of the
+ * result to JSON. Errors must not be thrown but returned as error response
+ * with the appropriate status.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+public interface RequestExecutor {
+
+    /**
+     * Execute a request
+     *
+     * @param pRequest request to execute
+     * @return the JSON response, which is also an error response if the request failed
+     */
+    JSONObject execute(JmxRequest pRequest);
+}
@@ -0,0 +1,212 @@
+package org.jolokia.notification;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.security.PrivilegedAction;
+import java.util.*;
+import java.util.concurrent.ScheduledFuture;
+
+import javax.security.auth.Subject;
+
+
+import org.jolokia.request.JmxRequest;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+
+/**
+ * A set of requests which is sampled periodically on behalf of a client. The requests
+ * are parsed only once when subscribing and then executed in the background by a
+ * {@link RequestExecutor}, so they undergo the same processing as ordinary requests
+ * (including access checks and the history store). The responses of a single run
+ * are put as one event into the client's {@link NotificationQueue}.
+ *
+ * If only changes are requested, a response is included only when its value (or error)
+ * differs from the previous sample. Unchanged responses are replaced by <code>null</code>
+ * so that the position of a response still matches its request. A run without any changed
+ * response creates no event.
+ *
+ * The requests are executed with the {@link Subject} of the subscribing client, so that subject
+ * based authorization applies to the samples like to the client's own requests.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+public class Subscription implements Registration, Runnable {
+
+    private final String handle;
+    private final List<JmxRequest> requests;
+    private final long interval;
+    private final boolean onlyChanged;
+    private final Object handback;
+    private final NotificationQueue queue;
+    private final RequestExecutor executor;
+
+    // Subject of the subscribing client or null if not authenticated via JAAS
+    private final Subject subject;
+
+    // Serialized values of the last sample, used for detecting changes
+    private final String[] lastValues;
+
+    // Scheduled task, needed for cancellation
+    private volatile ScheduledFuture<?> future;
+
+    /**
+     * Create a subscription
+     *
+     * @param pHandle handle identifying this subscription
+     * @param pRequests requests to sample
+     * @param pInterval sampling interval in milliseconds
+     * @param pOnlyChanged whether to deliver only responses whose value has changed
+     * @param pHandback handback returned with each event
+     * @param pQueue queue to put the events into
+     * @param pExecutor executor for performing the requests
+     * @param pSubject subject under which the requests are executed, can be null
+     */
+    public Subscription(String pHandle, List<JmxRequest> pRequests, long pInterval, boolean pOnlyChanged,
+                        Object pHandback, NotificationQueue pQueue, RequestExecutor pExecutor, Subject pSubject) {
+        handle = pHandle;
+        requests = new ArrayList<JmxRequest>(pRequests);
+        interval = pInterval;
+        onlyChanged = pOnlyChanged;
+        handback = pHandback;
+        queue = pQueue;
+        executor = pExecutor;
+        subject = pSubject;
+        lastValues = new String[requests.size()];
+    }
+
+    /**
+     * Remember the scheduled task which runs this subscription
+     *
+     * @param pFuture the scheduled task
+     */
+    void setFuture(ScheduledFuture<?> pFuture) {
+        future = pFuture;
+    }
+
+    /**
+     * Sample all requests once and queue the result
+     */
+    public void run() {
+        if (queue.isClosed()) {
+            remove();
+            return;
+        }
+        JSONArray responses = subject != null ? sampleAs(subject) : sample();
+        if (responses != null) {
+            JSONObject event = new JSONObject();
+            event.put("handle", handle);
+            if (handback != null) {
+                event.put("handback", handback);
+            }
+            event.put("responses", responses);
+            queue.add(event);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public String getHandle() {
+        return handle;
+    }
+
+    /**
+     * Stop sampling. A sample which is currently running is finished.
+     */
+    public void remove() {
+        ScheduledFuture<?> f = future;
+        if (f != null) {
+            f.cancel(false);
+        }
+    }
+
+    /**
+     * Sampling interval
+     *
+     * @return interval in milliseconds
+     */
+    public long getInterval() {
+        return interval;
+    }
+
+    /** {@inheritDoc} */
+    public JSONObject toJSON() {
+        JSONObject ret = new JSONObject();
+        JSONArray reqs = new JSONArray();
+        for (JmxRequest request : requests) {
+            reqs.add(request.toJSON());
+        }
+        ret.put("requests", reqs);
+        ret.put("interval", interval);
+        ret.put("onlyChanged", onlyChanged);
+        if (handback != null) {
+            ret.put("handback", handback);
+        }
+        return ret;
+    }
+
+    // ==============================================================================
+
+    // Runs of the same subscription never overlap, so no synchronization is needed for lastValues.
+    // Returns null if nothing has changed.
+    private JSONArray sampleAs(Subject pSubject) {
+        return Subject.doAs(pSubject, new PrivilegedAction<JSONArray>() {
+            /** {@inheritDoc} */
+            public JSONArray run() {
+                return sample();
+            }
+        });
+    }
+
+    private JSONArray sample() {
+        JSONArray ret = new JSONArray();
+        boolean changed = false;
+        for (int i = 0; i < requests.size(); i++) {
+            JSONObject response = executor.execute(requests.get(i));
+            if (!onlyChanged) {
+                ret.add(response);
+                changed = true;
+            } else if (hasChanged(i, response)) {
+                ret.add(response);
+                changed = true;
+            } else {
+                ret.add(null);
+            }
+        }
+        return changed ? ret : null;
+    }
+
+    private boolean hasChanged(int pIdx, JSONObject pResponse) {
+        Object status = pResponse.get("status");
+        if (status instanceof Number && ((Number) status).intValue() == 304) {
+            // Not modified as reported by the handler itself
+            return false;
+        }
+        String value = extractValue(pResponse);
+        if (value.equals(lastValues[pIdx])) {
+            return false;
+        }
+        lastValues[pIdx] = value;
+        return true;
+    }
+
+    // The part of a response which is relevant for detecting a change
+    private String extractValue(JSONObject pResponse) {
+        Object value = pResponse.containsKey("error") ? pResponse.get("error") : pResponse.get("value");
+        return pResponse.get("status") + ":" + JSONValue.toJSONString(value);
+    }
+}
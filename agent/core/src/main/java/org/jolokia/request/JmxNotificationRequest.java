@@ -0,0 +1,493 @@
+package org.jolokia.request;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.*;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import org.jolokia.config.ProcessingParameters;
+import org.jolokia.util.RequestType;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+/**
+ * A JMX request for managing notification listeners and fetching the
+ * notifications received for a client. A notification request carries a
+ * sub command which selects the action to perform:
+ *
+ * <ul>
+ *     <li><code>register</code> : Register a new client, the returned id must be used for all other commands</li>
+ *     <li><code>unregister</code> : Unregister a client and remove all of its listeners</li>
+ *     <li><code>add</code> : Add a listener on an MBean for a client</li>
+ *     <li><code>remove</code> : Remove a listener by its handle</li>
+ *     <li><code>ping</code> : Refresh a client so that it doesn't get expired</li>
+ *     <li><code>list</code> : List all listeners registered for a client</li>
+ *     <li><code>pull</code> : Fetch all pending notifications for a client, waiting
+ *                             up to the given timeout if there are none yet (long-poll)</li>
+ *     <li><code>stream</code> : Keep the HTTP response open and push notifications as they
+ *                               arrive (only usable via HTTP)</li>
+ *     <li><code>subscribe</code> : Sample a set of requests periodically on the agent side. The responses
+ *                                  are delivered like notifications (only available as POST request).
+ *                                  A subscription is removed with <code>remove</code></li>
+ * </ul>
+ *
+ * The GET format is <code>notification/&lt;command&gt;/&lt;client&gt;/...</code> where the
+ * remaining parts depend on the command:
+ *
+ * <ul>
+ *     <li><code>notification/register</code></li>
+ *     <li><code>notification/add/&lt;client&gt;/&lt;mbean&gt;/&lt;filter1,filter2&gt;/&lt;handback&gt;</code></li>
+ *     <li><code>notification/remove/&lt;client&gt;/&lt;handle&gt;</code></li>
+ *     <li><code>notification/pull/&lt;client&gt;/&lt;timeout&gt;/&lt;max&gt;</code></li>
+ *     <li><code>notification/{unregister,ping,list,stream}/&lt;client&gt;</code></li>
+ * </ul>
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+public class JmxNotificationRequest extends JmxRequest {
+
+    /**
+     * Sub commands for a notification request
+     */
+    public enum Command {
+        REGISTER("register"),
+        UNREGISTER("unregister"),
+        ADD("add"),
+        REMOVE("remove"),
+        PING("ping"),
+        LIST("list"),
+        PULL("pull"),
+        STREAM("stream"),
+        SUBSCRIBE("subscribe");
+
+        private final String name;
+
+        Command(String pName) {
+            name = pName;
+        }
+
+        /**
+         * Get the name of this command as used in requests
+         *
+         * @return name of the command
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Lookup a command by its name (case insensitive)
+         *
+         * @param pName name to lookup
+         * @return the command found
+         * @throws IllegalArgumentException if no command with this name exists
+         */
+        public static Command getCommandByName(String pName) {
+            if (pName == null) {
+                throw new IllegalArgumentException("No notification command given");
+            }
+            for (Command command : values()) {
+                if (command.name.equalsIgnoreCase(pName)) {
+                    return command;
+                }
+            }
+            throw new IllegalArgumentException("Unknown notification command '" + pName + "'");
+        }
+    }
+
+    // Sampling interval used when none is given for a subscription
+    private static final long DEFAULT_SUBSCRIPTION_INTERVAL = 1000L;
+
+    // Only side effect free requests can be sampled periodically
+    private static final Set<RequestType> SUBSCRIBABLE_TYPES =
+            EnumSet.of(RequestType.READ, RequestType.SEARCH, RequestType.LIST, RequestType.VERSION);
+
+    // The sub command to perform
+    private Command command;
+
+    // Id of the client as returned by a "register" command
+    private String client;
+
+    // MBean to add a listener to
+    private ObjectName objectName;
+
+    // Notification types to filter on (only for "add")
+    private List<String> filter;
+
+    // Opaque handback object, which is returned along with each notification
+    private Object handback;
+
+    // Listener handle as returned by "add"
+    private String handle;
+
+    // How long to wait for notifications in ms when pulling (0 == return immediately)
+    private long timeout;
+
+    // Maximum number of notifications to return on a pull (0 == all)
+    private int maxNotifications;
+
+    // Requests to sample for a subscription
+    private List<JmxRequest> requests;
+
+    // Sampling interval in ms for a subscription
+    private long interval;
+
+    // Whether a subscription delivers only changed values
+    private boolean onlyChanged;
+
+    // Kept for creating derived pull requests
+    private ProcessingParameters params;
+
+    /**
+     * Constructor for GET requests
+     *
+     * @param pCommand command to perform
+     * @param pArgs remaining path elements, dependent on the command
+     * @param pParams optional processing parameters
+     * @throws MalformedObjectNameException if the given MBean name is not a valid object name
+     */
+    JmxNotificationRequest(Command pCommand, Stack<String> pArgs, ProcessingParameters pParams)
+            throws MalformedObjectNameException {
+        super(RequestType.NOTIFICATION, null, pParams);
+        command = pCommand;
+        params = pParams;
+        if (command != Command.REGISTER) {
+            client = popRequired(pArgs, "client");
+        }
+        switch (command) {
+            case ADD:
+                objectName = new ObjectName(popRequired(pArgs, "mbean"));
+                filter = splitFilter(popOrNull(pArgs));
+                handback = popOrNull(pArgs);
+                break;
+            case REMOVE:
+                handle = popRequired(pArgs, "handle");
+                break;
+            case PULL:
+                String timeoutS = popOrNull(pArgs);
+                timeout = timeoutS != null ? Long.parseLong(timeoutS) : 0L;
+                String maxS = popOrNull(pArgs);
+                maxNotifications = maxS != null ? Integer.parseInt(maxS) : 0;
+                break;
+            case SUBSCRIBE:
+                throw new IllegalArgumentException("A subscription can only be created with a POST request");
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Constructor for POST requests
+     *
+     * @param pRequestMap object representation of the request
+     * @param pParams processing parameters
+     * @throws MalformedObjectNameException if the given MBean name is not a valid object name
+     */
+    JmxNotificationRequest(Map<String, ?> pRequestMap, ProcessingParameters pParams)
+            throws MalformedObjectNameException {
+        super(pRequestMap, pParams);
+        command = Command.getCommandByName((String) pRequestMap.get("command"));
+        params = pParams;
+        client = (String) pRequestMap.get("client");
+        if (command != Command.REGISTER && client == null) {
+            throw new IllegalArgumentException("No client given for notification command '" + command.getName() + "'");
+        }
+        String mbean = (String) pRequestMap.get("mbean");
+        if (mbean != null) {
+            objectName = new ObjectName(mbean);
+        } else if (command == Command.ADD) {
+            throw new IllegalArgumentException("No MBean given for adding a notification listener");
+        }
+        Object filterVal = pRequestMap.get("filter");
+        if (filterVal instanceof List) {
+            filter = new ArrayList<String>();
+            for (Object f : (List) filterVal) {
+                filter.add(f.toString());
+            }
+        } else if (filterVal != null) {
+            filter = splitFilter(filterVal.toString());
+        }
+        handback = pRequestMap.get("handback");
+        handle = (String) pRequestMap.get("handle");
+        if (command == Command.REMOVE && handle == null) {
+            throw new IllegalArgumentException("No handle given for removing a notification listener");
+        }
+        timeout = pRequestMap.get("timeout") != null ? ((Number) pRequestMap.get("timeout")).longValue() : 0L;
+        maxNotifications = pRequestMap.get("max") != null ? ((Number) pRequestMap.get("max")).intValue() : 0;
+        if (command == Command.SUBSCRIBE) {
+            initSubscription(pRequestMap, pParams);
+        }
+    }
+
+    // Constructor for a derived pull request
+    private JmxNotificationRequest(String pClient, long pTimeout, ProcessingParameters pParams) {
+        super(RequestType.NOTIFICATION, null, pParams);
+        command = Command.PULL;
+        client = pClient;
+        timeout = pTimeout;
+        params = pParams;
+    }
+
+    /**
+     * Create a <code>pull</code> request for the same client as this request. This is
+     * used when streaming notifications, where the stream is fed by consecutive
+     * long-poll pulls.
+     *
+     * @param pTimeout how long to wait for notifications (in milliseconds)
+     * @return a pull request for this request's client
+     */
+    public JmxNotificationRequest createPullRequest(long pTimeout) {
+        return new JmxNotificationRequest(client, pTimeout, params);
+    }
+
+    /**
+     * Get the sub command of this request
+     *
+     * @return command
+     */
+    public Command getCommand() {
+        return command;
+    }
+
+    /**
+     * Id of the client for which this request is performed. <code>null</code> for a
+     * <code>register</code> request.
+     *
+     * @return client id
+     */
+    public String getClient() {
+        return client;
+    }
+
+    /**
+     * MBean on which to add a listener
+     *
+     * @return the MBean name or null
+     */
+    public ObjectName getObjectName() {
+        return objectName;
+    }
+
+    /**
+     * Notification types to filter on or null if all notifications should be received
+     *
+     * @return list of type prefixes or null
+     */
+    public List<String> getFilter() {
+        return filter;
+    }
+
+    /**
+     * Handback object which is returned unaltered with each notification
+     *
+     * @return the handback or null
+     */
+    public Object getHandback() {
+        return handback;
+    }
+
+    /**
+     * Handle of the listener to remove
+     *
+     * @return handle
+     */
+    public String getHandle() {
+        return handle;
+    }
+
+    /**
+     * Timeout in milliseconds to wait for notifications when pulling
+     *
+     * @return timeout in ms, 0 for returning immediately
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Maximum number of notifications to return on a single pull
+     *
+     * @return max number or 0 if not limited
+     */
+    public int getMaxNotifications() {
+        return maxNotifications;
+    }
+
+    /**
+     * Requests to sample for a subscription
+     *
+     * @return list of requests or null if this is not a subscribe request
+     */
+    public List<JmxRequest> getRequests() {
+        return requests;
+    }
+
+    /**
+     * Sampling interval for a subscription
+     *
+     * @return interval in milliseconds
+     */
+    public long getInterval() {
+        return interval;
+    }
+
+    /**
+     * Whether a subscription should only deliver responses whose value has changed
+     *
+     * @return true if only changes should be delivered
+     */
+    public boolean isOnlyChanged() {
+        return onlyChanged;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public JSONObject toJSON() {
+        JSONObject ret = super.toJSON();
+        ret.put("command", command.getName());
+        if (client != null) {
+            ret.put("client", client);
+        }
+        if (objectName != null) {
+            ret.put("mbean", objectName.getCanonicalName());
+        }
+        if (filter != null) {
+            JSONArray filterArr = new JSONArray();
+            filterArr.addAll(filter);
+            ret.put("filter", filterArr);
+        }
+        if (handback != null) {
+            ret.put("handback", handback);
+        }
+        if (handle != null) {
+            ret.put("handle", handle);
+        }
+        if (requests != null) {
+            JSONArray reqs = new JSONArray();
+            for (JmxRequest request : requests) {
+                reqs.add(request.toJSON());
+            }
+            ret.put("requests", reqs);
+            ret.put("interval", interval);
+            ret.put("onlyChanged", onlyChanged);
+        }
+        return ret;
+    }
+
+    @Override
+    public String toString() {
+        StringBuffer ret = new StringBuffer("JmxNotificationRequest[");
+        ret.append("command=").append(command.getName());
+        if (client != null) {
+            ret.append(", client=").append(client);
+        }
+        if (objectName != null) {
+            ret.append(", mbean=").append(objectName);
+        }
+        if (handle != null) {
+            ret.append(", handle=").append(handle);
+        }
+        String baseInfo = getInfo();
+        if (baseInfo != null) {
+            ret.append(baseInfo);
+        }
+        ret.append("]");
+        return ret.toString();
+    }
+
+    // ===========================================================================================
+
+    private void initSubscription(Map<String, ?> pRequestMap, ProcessingParameters pParams) {
+        Object reqs = pRequestMap.get("requests");
+        if (!(reqs instanceof List) || ((List) reqs).isEmpty()) {
+            throw new IllegalArgumentException("No requests given for a subscription");
+        }
+        requests = JmxRequestFactory.createPostRequests((List) reqs, pParams);
+        for (JmxRequest request : requests) {
+            if (!SUBSCRIBABLE_TYPES.contains(request.getType())) {
+                throw new IllegalArgumentException("Requests of type " + request.getType().getName() +
+                                                   " cannot be subscribed to, only read, search, list and version requests");
+            }
+        }
+        interval = parseInterval(pRequestMap.get("interval"));
+        Object changed = pRequestMap.get("onlyChanged");
+        onlyChanged = changed != null && Boolean.valueOf(changed.toString());
+    }
+
+    private static long parseInterval(Object pInterval) {
+        if (pInterval == null) {
+            return DEFAULT_SUBSCRIPTION_INTERVAL;
+        }
+        if (pInterval instanceof Number) {
+            return ((Number) pInterval).longValue();
+        }
+        try {
+            return Long.parseLong(pInterval.toString());
+        } catch (NumberFormatException exp) {
+            throw new IllegalArgumentException("Invalid subscription interval '" + pInterval + "', must be a number of milliseconds",exp);
+        }
+    }
+
+    private static String popRequired(Stack<String> pStack, String pWhat) {
+        if (pStack == null || pStack.isEmpty()) {
+            throw new IllegalArgumentException("No " + pWhat + " given for notification request");
+        }
+        return pStack.pop();
+    }
+
+    private static String popOrNull(Stack<String> pStack) {
+        return pStack != null && !pStack.isEmpty() ? pStack.pop() : null;
+    }
+
+    private static List<String> splitFilter(String pFilter) {
+        if (pFilter == null || pFilter.length() == 0 || "*".equals(pFilter)) {
+            return null;
+        }
+        List<String> ret = new ArrayList<String>();
+        for (String f : pFilter.split(",")) {
+            String trimmed = f.trim();
+            if (trimmed.length() > 0) {
+                ret.add(trimmed);
+            }
+        }
+        return ret.size() > 0 ? ret : null;
+    }
+
+    /**
+     * Creator for {@link JmxNotificationRequest}s
+     *
+     * @return the creator implementation
+     */
+    static RequestCreator<JmxNotificationRequest> newCreator() {
+        return new RequestCreator<JmxNotificationRequest>() {
+            /** {@inheritDoc} */
+            public JmxNotificationRequest create(Stack<String> pStack, ProcessingParameters pParams)
+                    throws MalformedObjectNameException {
+                return new JmxNotificationRequest(Command.getCommandByName(popOrNull(pStack)), pStack, pParams);
+            }
+
+            /** {@inheritDoc} */
+            public JmxNotificationRequest create(Map<String, ?> requestMap, ProcessingParameters pParams)
+                    throws MalformedObjectNameException {
+                return new JmxNotificationRequest(requestMap, pParams);
+            }
+        };
+    }
+}
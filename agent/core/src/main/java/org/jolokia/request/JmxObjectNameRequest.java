@@ -24,6 +24,7 @@ import javax.management.ObjectName;
 
 import org.jolokia.config.ConfigKey;
 import org.jolokia.config.ProcessingParameters;
+import org.jolokia.util.JmxUtil;
 import org.jolokia.util.RequestType;
 import org.json.simple.JSONObject;
 
@@ -127,7 +128,7 @@ public abstract class JmxObjectNameRequest extends JmxRequest {
         if (pObjectName == null) {
             throw new IllegalArgumentException("Objectname can not be null");
         }
-        objectName = new ObjectName(pObjectName);
+        objectName = JmxUtil.getCachedObjectName(pObjectName);
     }
 
 }
@@ -0,0 +1,243 @@
+package org.jolokia.request;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.*;
+
+import org.jolokia.util.RequestType;
+
+/**
+ * Bounded cache for parsed requests. Monitoring tools tend to send the very same
+ * GET URLs and POST bodies over and over again, so the parsed {@link JmxRequest}s are
+ * remembered by the raw request (path info or body) together with the query parameters.
+ * The least recently used entries are evicted first.
+ *
+ * Only requests which are not modified during processing and have no side effects on their
+ * own are cached (<code>read</code>, <code>list</code>, <code>search</code> and <code>version</code>). A cache hit skips parsing only,
+ * restrictor checks and the execution itself are still done for every request.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+public class JmxRequestCache {
+
+    /**
+     * Maximum size of a POST body which is cached
+     */
+    public static final int MAX_BODY_LENGTH = 8 * 1024;
+
+    // Types which can be safely shared between executions
+    private static final Set<RequestType> CACHEABLE_TYPES =
+            EnumSet.of(RequestType.READ, RequestType.LIST, RequestType.SEARCH, RequestType.VERSION);
+
+    private final int maxEntries;
+
+    private final Map<String, CachedRequests> cache;
+
+    private long hits;
+    private long misses;
+
+    /**
+     * Create a cache
+     *
+     * @param pMaxEntries maximum number of requests to remember
+     */
+    public JmxRequestCache(int pMaxEntries) {
+        maxEntries = pMaxEntries;
+        cache = new LinkedHashMap<String, CachedRequests>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedRequests> pEldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Create a cache key for a GET request
+     *
+     * @param pPathInfo the path info of the request
+     * @param pParameterMap query parameters
+     * @return key to use for looking up and storing the request
+     */
+    public static String createGetKey(String pPathInfo, Map<String, String[]> pParameterMap) {
+        StringBuilder ret = new StringBuilder("G");
+        appendParameters(ret, pParameterMap);
+        return ret.append(pPathInfo).toString();
+    }
+
+    /**
+     * Create a cache key for a POST request
+     *
+     * @param pBody the request body
+     * @param pParameterMap query parameters
+     * @return key to use for looking up and storing the request(s) or null if the body is too large to be cached
+     */
+    public static String createPostKey(String pBody, Map<String, String[]> pParameterMap) {
+        if (pBody.length() > MAX_BODY_LENGTH) {
+            return null;
+        }
+        StringBuilder ret = new StringBuilder("P");
+        appendParameters(ret, pParameterMap);
+        return ret.append(pBody).toString();
+    }
+
+    /**
+     * Lookup parsed requests
+     *
+     * @param pKey key as created by {@link #createGetKey(String, Map)} or {@link #createPostKey(String, Map)}.
+     *             Can be null in which case nothing is found.
+     * @return the cached requests or null if nothing is cached for this key
+     */
+    public synchronized CachedRequests get(String pKey) {
+        CachedRequests entry = pKey != null ? cache.get(pKey) : null;
+        if (entry != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return entry;
+    }
+
+    /**
+     * Remember a single request if its type allows caching
+     *
+     * @param pKey key for the request, can be null in which case nothing is cached
+     * @param pRequest request to cache
+     */
+    public void put(String pKey, JmxRequest pRequest) {
+        if (pKey != null && isCacheable(pRequest)) {
+            store(pKey, new CachedRequests(Collections.singletonList(pRequest), false));
+        }
+    }
+
+    /**
+     * Remember the requests of a bulk request. They are only cached if all
+     * of the contained requests can be cached.
+     *
+     * @param pKey key for the request, can be null in which case nothing is cached
+     * @param pRequests requests to cache
+     */
+    public void putBulk(String pKey, List<JmxRequest> pRequests) {
+        if (pKey == null) {
+            return;
+        }
+        for (JmxRequest request : pRequests) {
+            if (!isCacheable(request)) {
+                return;
+            }
+        }
+        store(pKey, new CachedRequests(Collections.unmodifiableList(new ArrayList<JmxRequest>(pRequests)), true));
+    }
+
+    /**
+     * Number of cached entries
+     *
+     * @return number of entries
+     */
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    /**
+     * Number of lookups which have been served from the cache
+     *
+     * @return cache hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Number of lookups for which no cached request was found
+     *
+     * @return cache misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Remove all cached requests
+     */
+    public synchronized void clear() {
+        cache.clear();
+    }
+
+    // ========================================================================================
+
+    private synchronized void store(String pKey, CachedRequests pEntry) {
+        cache.put(pKey, pEntry);
+    }
+
+    private static boolean isCacheable(JmxRequest pRequest) {
+        return CACHEABLE_TYPES.contains(pRequest.getType());
+    }
+
+    // Parameters are sorted and length-prefixed so that keys are unambiguous
+    private static void appendParameters(StringBuilder pBuf, Map<String, String[]> pParameterMap) {
+        if (pParameterMap != null && !pParameterMap.isEmpty()) {
+            for (String key : new TreeSet<String>(pParameterMap.keySet())) {
+                String[] values = pParameterMap.get(key);
+                if (values != null && values.length > 0 && values[0] != null) {
+                    pBuf.append(key.length()).append(':').append(key)
+                        .append(values[0].length()).append(':').append(values[0]);
+                }
+            }
+        }
+        pBuf.append('|');
+    }
+
+    /**
+     * Cached requests for a single key
+     */
+    public static final class CachedRequests {
+        private final List<JmxRequest> requests;
+        private final boolean bulk;
+
+        private CachedRequests(List<JmxRequest> pRequests, boolean pBulk) {
+            requests = pRequests;
+            bulk = pBulk;
+        }
+
+        /**
+         * Get the single request
+         *
+         * @return the request
+         */
+        public JmxRequest getRequest() {
+            return requests.get(0);
+        }
+
+        /**
+         * Get all requests
+         *
+         * @return unmodifiable list of requests
+         */
+        public List<JmxRequest> getRequests() {
+            return requests;
+        }
+
+        /**
+         * Whether the requests stem from a bulk request
+         *
+         * @return true for a bulk request, false for a single request
+         */
+        public boolean isBulk() {
+            return bulk;
+        }
+    }
+}
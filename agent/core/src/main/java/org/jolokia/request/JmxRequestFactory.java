@@ -149,7 +149,7 @@ public final class JmxRequestFactory {
         // This variant is helpful, if there are problems with the server mangling
         // up the pathinfo (e.g. for security concerns, often '/','\',';' and other are not
         // allowed in encoded form within the pathinfo)
-        if (pProcessingParams != null && (pPathInfo == null || pPathInfo.length() == 0 || pathInfo.matches("^/+$"))) {
+        if (pProcessingParams != null && (pPathInfo == null || pPathInfo.length() == 0 || containsOnlySlashes(pPathInfo))) {
             pathInfo = pProcessingParams.getPathInfo();
         }
         return normalizePathInfo(pathInfo);
@@ -157,6 +157,15 @@ public final class JmxRequestFactory {
 
 
 
+    private static boolean containsOnlySlashes(String pPathInfo) {
+        for (int i = 0; i < pPathInfo.length(); i++) {
+            if (pPathInfo.charAt(i) != '/') {
+                return false;
+            }
+        }
+        return true;
+    }
+
     // Return always a non-null string and strip of leading slash
     private static String normalizePathInfo(String pPathInfo) {
         if (pPathInfo != null && pPathInfo.length() > 0) {
@@ -188,6 +197,7 @@ public final class JmxRequestFactory {
         CREATOR_MAP.put(RequestType.LIST, JmxListRequest.newCreator());
         CREATOR_MAP.put(RequestType.VERSION, JmxVersionRequest.newCreator());
         CREATOR_MAP.put(RequestType.SEARCH, JmxSearchRequest.newCreator());
+        CREATOR_MAP.put(RequestType.NOTIFICATION, JmxNotificationRequest.newCreator());
     }
 
 }
@@ -0,0 +1,302 @@
+package org.jolokia.util;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Parser for CBOR (RFC 7049) encoded requests. It creates the same object tree as {@link JsonParser}:
+ * maps become {@link JSONObject}s (with keys converted to strings), arrays {@link JSONArray}s, integers
+ * {@link Long}s, floating point numbers {@link Double}s and text strings {@link String}s. Tags are ignored,
+ * byte strings are not supported.
+ *
+ * A parser is not thread safe.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+public class CborParser {
+
+    // Initial size of the input buffer
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+
+    // Maximum nesting of arrays, maps and tags
+    private static final int MAX_NESTING = 1000;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // "break" stop code terminating indefinite length items
+    private static final int BREAK = 0xff;
+
+    private static final Object BREAK_MARKER = new Object();
+
+    private byte[] buf = new byte[INITIAL_BUFFER_SIZE];
+    private int len;
+    private int pos;
+    private int nesting;
+
+    /**
+     * Parse a single CBOR data item from a stream, which is read until its end (but not closed)
+     *
+     * @param pIn stream to read from
+     * @return the parsed value
+     * @throws IOException if reading fails
+     * @throws ParseException if the input is not a valid CBOR data item
+     */
+    public Object parse(InputStream pIn) throws IOException, ParseException {
+        len = 0;
+        int read;
+        while ((read = pIn.read(buf, len, buf.length - len)) != -1) {
+            len += read;
+            if (len == buf.length) {
+                byte[] newBuf = new byte[buf.length * 2];
+                System.arraycopy(buf, 0, newBuf, 0, len);
+                buf = newBuf;
+            }
+        }
+        return parseBuffer();
+    }
+
+    /**
+     * Parse a single CBOR data item
+     *
+     * @param pCbor the encoded data item
+     * @return the parsed value
+     * @throws ParseException if the input is not a valid CBOR data item
+     */
+    public Object parse(byte[] pCbor) throws ParseException {
+        len = pCbor.length;
+        if (buf.length < len) {
+            buf = new byte[len];
+        }
+        System.arraycopy(pCbor, 0, buf, 0, len);
+        return parseBuffer();
+    }
+
+    // ===========================================================================
+
+    private Object parseBuffer() throws ParseException {
+        pos = 0;
+        nesting = 0;
+        Object ret = readItem();
+        if (ret == BREAK_MARKER || pos < len) {
+            throw unexpected();
+        }
+        return ret;
+    }
+
+    private Object readItem() throws ParseException {
+        int initial = readByte();
+        int majorType = initial >> 5;
+        int info = initial & 0x1f;
+        switch (majorType) {
+            case 0:
+                return toLong(readArgument(info));
+            case 1:
+                return ~toLong(readArgument(info));
+            case 3:
+                return readString(info);
+            case 4:
+                return readArray(info);
+            case 5:
+                return readMap(info);
+            case 6:
+                // Tags are ignored, only the tagged item is used
+                readArgument(info);
+                enter();
+                Object ret = readItem();
+                nesting--;
+                return ret;
+            case 7:
+                return readSimpleValue(initial, info);
+            default:
+                // Byte strings are not expected in requests
+                throw unexpected();
+        }
+    }
+
+    private Object readSimpleValue(int pInitial, int pInfo) throws ParseException {
+        switch (pInfo) {
+            case 20:
+                return Boolean.FALSE;
+            case 21:
+                return Boolean.TRUE;
+            case 22:
+            case 23:
+                // null and undefined
+                return null;
+            case 25:
+                return halfToDouble((int) readBits(2));
+            case 26:
+                return (double) Float.intBitsToFloat((int) readBits(4));
+            case 27:
+                return Double.longBitsToDouble(readBits(8));
+            default:
+                if (pInitial == BREAK) {
+                    return BREAK_MARKER;
+                }
+                throw unexpected();
+        }
+    }
+
+    private String readString(int pInfo) throws ParseException {
+        if (pInfo == 31) {
+            // Indefinite length string, consisting of definite length chunks
+            StringBuilder ret = new StringBuilder();
+            while (true) {
+                int initial = readByte();
+                if (initial == BREAK) {
+                    return ret.toString();
+                }
+                if (initial >> 5 != 3 || (initial & 0x1f) == 31) {
+                    throw unexpected();
+                }
+                ret.append(readString(initial & 0x1f));
+            }
+        }
+        int length = toLength(readArgument(pInfo));
+        String ret = new String(buf, pos, length, UTF_8);
+        pos += length;
+        return ret;
+    }
+
+    private JSONArray readArray(int pInfo) throws ParseException {
+        enter();
+        JSONArray ret = new JSONArray();
+        if (pInfo == 31) {
+            for (Object item = readItem(); item != BREAK_MARKER; item = readItem()) {
+                ret.add(item);
+            }
+        } else {
+            long size = readArgument(pInfo);
+            for (long i = 0; i < size; i++) {
+                ret.add(readValue());
+            }
+        }
+        nesting--;
+        return ret;
+    }
+
+    private JSONObject readMap(int pInfo) throws ParseException {
+        enter();
+        JSONObject ret = new JSONObject();
+        if (pInfo == 31) {
+            for (Object key = readItem(); key != BREAK_MARKER; key = readItem()) {
+                ret.put(String.valueOf(key), readValue());
+            }
+        } else {
+            long size = readArgument(pInfo);
+            for (long i = 0; i < size; i++) {
+                ret.put(String.valueOf(readValue()), readValue());
+            }
+        }
+        nesting--;
+        return ret;
+    }
+
+    // An item which must not be a break
+    private Object readValue() throws ParseException {
+        Object ret = readItem();
+        if (ret == BREAK_MARKER) {
+            throw unexpected();
+        }
+        return ret;
+    }
+
+    // Argument of an item as unsigned long (with the usual two's complement overflow for values > 2^63)
+    private long readArgument(int pInfo) throws ParseException {
+        if (pInfo < 24) {
+            return pInfo;
+        }
+        switch (pInfo) {
+            case 24:
+                return readBits(1);
+            case 25:
+                return readBits(2);
+            case 26:
+                return readBits(4);
+            case 27:
+                return readBits(8);
+            default:
+                throw unexpected();
+        }
+    }
+
+    private long readBits(int pBytes) throws ParseException {
+        if (pos + pBytes > len) {
+            throw unexpected();
+        }
+        long ret = 0;
+        for (int i = 0; i < pBytes; i++) {
+            ret = (ret << 8) | (buf[pos++] & 0xff);
+        }
+        return ret;
+    }
+
+    private int readByte() throws ParseException {
+        if (pos >= len) {
+            throw unexpected();
+        }
+        return buf[pos++] & 0xff;
+    }
+
+    private long toLong(long pArgument) throws ParseException {
+        if (pArgument < 0) {
+            // Doesn't fit into a long, which is also not possible in JSON
+            throw unexpected();
+        }
+        return pArgument;
+    }
+
+    private int toLength(long pArgument) throws ParseException {
+        if (pArgument < 0 || pArgument > len - pos) {
+            throw unexpected();
+        }
+        return (int) pArgument;
+    }
+
+    private void enter() throws ParseException {
+        if (++nesting > MAX_NESTING) {
+            throw unexpected();
+        }
+    }
+
+    // IEEE 754 half precision
+    private static double halfToDouble(int pHalf) {
+        int exponent = (pHalf >> 10) & 0x1f;
+        int mantissa = pHalf & 0x3ff;
+        double value;
+        if (exponent == 0) {
+            value = mantissa * Math.pow(2, -24);
+        } else if (exponent == 31) {
+            value = mantissa == 0 ? Double.POSITIVE_INFINITY : Double.NaN;
+        } else {
+            value = (mantissa + 1024) * Math.pow(2, exponent - 25);
+        }
+        return (pHalf & 0x8000) != 0 ? -value : value;
+    }
+
+    private ParseException unexpected() {
+        return new ParseException(pos, ParseException.ERROR_UNEXPECTED_TOKEN, null);
+    }
+}
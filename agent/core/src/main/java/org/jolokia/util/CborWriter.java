@@ -0,0 +1,295 @@
+package org.jolokia.util;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.json.simple.*;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Writer which serializes JSON values as CBOR (RFC 7049) into an output stream. The same values as
+ * for {@link JsonWriter} are supported and they are mapped to the CBOR data model like this:
+ *
+ * <ul>
+ *     <li>Maps and lists become definite length maps and arrays, map keys are always text strings</li>
+ *     <li>Strings become UTF-8 text strings</li>
+ *     <li>Integral numbers fitting into a long become integers, all other numbers double precision floats
+ *     holding the value of their decimal representation. NaN and infinite values become null (like in JSON).</li>
+ *     <li>Values of other types are converted to a text string with their string representation</li>
+ * </ul>
+ *
+ * Parsing the output with {@link CborParser} results in the same values as parsing the JSON
+ * representation with {@link JsonParser}. A writer is not thread safe.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+public class CborWriter {
+
+    // Size of the internal byte buffer
+    static final int BUFFER_SIZE = 8192;
+
+    // Major types
+    private static final int UNSIGNED_INT = 0;
+    private static final int NEGATIVE_INT = 1 << 5;
+    private static final int TEXT_STRING = 3 << 5;
+    private static final int ARRAY = 4 << 5;
+    private static final int MAP = 5 << 5;
+
+    // Simple values and floats (major type 7)
+    private static final int FALSE = 0xf4;
+    private static final int TRUE = 0xf5;
+    private static final int NULL = 0xf6;
+    private static final int FLOAT64 = 0xfb;
+
+    private final OutputStream out;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    private int pos;
+
+    /**
+     * Create a writer on top of an output stream
+     *
+     * @param pOut stream to write to
+     */
+    public CborWriter(OutputStream pOut) {
+        out = pOut;
+    }
+
+    /**
+     * Serialize a JSON value (a {@link Map}, {@link List}, {@link JSONAware}, {@link String},
+     * {@link Number}, {@link Boolean} or null)
+     *
+     * @param pValue value to write
+     * @throws IOException if writing to the stream fails
+     */
+    public void writeValue(Object pValue) throws IOException {
+        if (pValue == null) {
+            writeByte(NULL);
+        } else if (pValue instanceof String) {
+            writeString((String) pValue);
+        } else if (pValue instanceof Boolean) {
+            writeByte((Boolean) pValue ? TRUE : FALSE);
+        } else if (pValue instanceof Number) {
+            writeNumber((Number) pValue);
+        } else if (pValue instanceof Map) {
+            writeMap((Map<?, ?>) pValue);
+        } else if (pValue instanceof List) {
+            writeList((List<?>) pValue);
+        } else if (pValue instanceof SerializedJson) {
+            writeValue(((SerializedJson) pValue).getValue());
+        } else if (pValue instanceof JSONAware) {
+            writeValue(parseJson(((JSONAware) pValue).toJSONString()));
+        } else if (pValue instanceof JSONStreamAware) {
+            writeValue(parseJson(JSONValue.toJSONString(pValue)));
+        } else {
+            writeString(pValue.toString());
+        }
+    }
+
+    /**
+     * Write all buffered data to the underlying stream and flush it
+     *
+     * @throws IOException if writing to the stream fails
+     */
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    /**
+     * Flush and close the underlying stream
+     *
+     * @throws IOException if writing to the stream fails
+     */
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    // ==========================================================================================
+
+    private void writeMap(Map<?, ?> pMap) throws IOException {
+        writeHeader(MAP, pMap.size());
+        for (Map.Entry<?, ?> entry : pMap.entrySet()) {
+            writeString(String.valueOf(entry.getKey()));
+            writeValue(entry.getValue());
+        }
+    }
+
+    private void writeList(List<?> pList) throws IOException {
+        writeHeader(ARRAY, pList.size());
+        for (Object value : pList) {
+            writeValue(value);
+        }
+    }
+
+    // Numbers are written such that they are parsed back into the same value as their JSON representation
+    private void writeNumber(Number pNumber) throws IOException {
+        if (pNumber instanceof Long || pNumber instanceof Integer ||
+            pNumber instanceof Short || pNumber instanceof Byte ||
+            pNumber instanceof AtomicLong || pNumber instanceof AtomicInteger) {
+            writeLong(pNumber.longValue());
+        } else if (pNumber instanceof Double) {
+            writeDouble(pNumber.doubleValue());
+        } else if (pNumber instanceof Float) {
+            // The decimal representation is used in JSON, too
+            writeDouble(Double.parseDouble(pNumber.toString()));
+        } else {
+            String number = pNumber.toString();
+            try {
+                writeLong(Long.parseLong(number));
+            } catch (NumberFormatException exp) {
+                writeDouble(pNumber.doubleValue());
+            }
+        }
+    }
+
+    private void writeDouble(double pValue) throws IOException {
+        if (Double.isNaN(pValue) || Double.isInfinite(pValue)) {
+            writeByte(NULL);
+        } else {
+            ensure(9);
+            buffer[pos++] = (byte) FLOAT64;
+            writeBits(Double.doubleToLongBits(pValue), 8);
+        }
+    }
+
+    private void writeLong(long pValue) throws IOException {
+        if (pValue >= 0) {
+            writeHeader(UNSIGNED_INT, pValue);
+        } else {
+            // -1 - n, which is the bitwise complement
+            writeHeader(NEGATIVE_INT, ~pValue);
+        }
+    }
+
+    // Text string with its UTF-8 length in the header. Unpaired surrogates become '?' as with the JDK encoder.
+    private void writeString(String pValue) throws IOException {
+        int len = pValue.length();
+        writeHeader(TEXT_STRING, utf8Length(pValue));
+        for (int i = 0; i < len; i++) {
+            char c = pValue.charAt(i);
+            ensure(4);
+            if (c < 0x80) {
+                buffer[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[pos++] = (byte) (0xC0 | (c >> 6));
+                buffer[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(pValue.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, pValue.charAt(++i));
+                buffer[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (isSurrogate(c)) {
+                buffer[pos++] = '?';
+            } else {
+                buffer[pos++] = (byte) (0xE0 | (c >> 12));
+                buffer[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private static int utf8Length(String pValue) {
+        int len = pValue.length();
+        int ret = len;
+        for (int i = 0; i < len; i++) {
+            char c = pValue.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    ret += 1;
+                } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(pValue.charAt(i + 1))) {
+                    // Four bytes for two chars
+                    ret += 2;
+                    i++;
+                } else if (!isSurrogate(c)) {
+                    ret += 2;
+                }
+            }
+        }
+        return ret;
+    }
+
+    private static boolean isSurrogate(char c) {
+        return c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE;
+    }
+
+    // Initial byte with the shortest encoding of the argument
+    private void writeHeader(int pMajorType, long pArgument) throws IOException {
+        ensure(9);
+        if (pArgument < 24) {
+            buffer[pos++] = (byte) (pMajorType | pArgument);
+        } else if (pArgument <= 0xFFL) {
+            buffer[pos++] = (byte) (pMajorType | 24);
+            writeBits(pArgument, 1);
+        } else if (pArgument <= 0xFFFFL) {
+            buffer[pos++] = (byte) (pMajorType | 25);
+            writeBits(pArgument, 2);
+        } else if (pArgument <= 0xFFFFFFFFL) {
+            buffer[pos++] = (byte) (pMajorType | 26);
+            writeBits(pArgument, 4);
+        } else {
+            buffer[pos++] = (byte) (pMajorType | 27);
+            writeBits(pArgument, 8);
+        }
+    }
+
+    // Big endian, space must have been ensured
+    private void writeBits(long pBits, int pBytes) {
+        for (int i = pBytes - 1; i >= 0; i--) {
+            buffer[pos++] = (byte) (pBits >>> (8 * i));
+        }
+    }
+
+    private void writeByte(int pByte) throws IOException {
+        ensure(1);
+        buffer[pos++] = (byte) pByte;
+    }
+
+    // Values which only know their JSON representation
+    private Object parseJson(String pJson) {
+        try {
+            return new JsonParser().parse(pJson);
+        } catch (ParseException exp) {
+            throw new IllegalArgumentException("Cannot convert " + pJson + " to CBOR: " + exp, exp);
+        }
+    }
+
+    private void ensure(int pNeeded) throws IOException {
+        if (pos + pNeeded > BUFFER_SIZE) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (pos > 0) {
+            out.write(buffer, 0, pos);
+            pos = 0;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.jolokia.util;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread factory for the agent's internal pools. Threads are numbered and are daemon threads,
+ * so that they never prevent the JVM from shutting down.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+public class DaemonThreadFactory implements ThreadFactory {
+
+    private final String prefix;
+
+    private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+    /**
+     * Constructor
+     *
+     * @param pPrefix prefix for the thread names, to which the thread number is appended
+     */
+    public DaemonThreadFactory(String pPrefix) {
+        prefix = pPrefix;
+    }
+
+    /** {@inheritDoc} */
+    public Thread newThread(Runnable pRunnable) {
+        Thread thread = new Thread(pRunnable, prefix + threadNumber.getAndIncrement());
+        thread.setDaemon(true);
+        return thread;
+    }
+}
@@ -90,7 +90,7 @@ public final class EscapeUtil {
         if (pPath == null || pPath.equals("") || pPath.equals("/")) {
             return null;
         }
-        return replaceWildcardsWithNull(split(pPath, PATH_ESCAPE, "/"));
+        return tokenize(pPath, '!', '/', true);
     }
 
     /**
@@ -144,6 +144,13 @@ public final class EscapeUtil {
      */
     public static List<String> split(String pArg, String pEscape, String pDelimiter) {
         if (pArg != null) {
+            char escape = toLiteralChar(pEscape);
+            char delimiter = toLiteralChar(pDelimiter);
+            if (escape != 0 && delimiter != 0) {
+                return tokenize(pArg, escape, delimiter, false);
+            }
+
+            // Fallback for escapes or delimiters which are not a single char
             ArrayList<String> ret = new ArrayList<String>();
             Pattern[] pattern = SPLIT_PATTERNS.get(pEscape + pDelimiter);
             if (pattern == null) {
@@ -194,6 +201,58 @@ public final class EscapeUtil {
 
     // ===================================================================================
 
+    // Split in a single pass, with the same semantics as the regexp based split: An escape char
+    // followed by any char stands for this char, a trailing, single escape char is taken literally and
+    // an empty element at the end (i.e. after a trailing delimiter) is omitted.
+    private static List<String> tokenize(String pArg, char pEscape, char pDelimiter, boolean pWildcardsAsNull) {
+        List<String> ret = new ArrayList<String>();
+        int len = pArg.length();
+        StringBuilder buf = null;
+        int start = 0;
+        int i = 0;
+        while (i < len) {
+            char c = pArg.charAt(i);
+            if (c == pEscape && i + 1 < len) {
+                if (buf == null) {
+                    buf = new StringBuilder(len - start);
+                    buf.append(pArg, start, i);
+                }
+                buf.append(pArg.charAt(i + 1));
+                i += 2;
+            } else if (c == pDelimiter) {
+                ret.add(element(pArg, start, i, buf, pWildcardsAsNull));
+                buf = null;
+                start = ++i;
+            } else {
+                if (buf != null) {
+                    buf.append(c);
+                }
+                i++;
+            }
+        }
+        if (start < len) {
+            ret.add(element(pArg, start, len, buf, pWildcardsAsNull));
+        }
+        return ret;
+    }
+
+    // Element between start and end, buf holds the unescaped value if the element contains escapes
+    private static String element(String pArg, int pStart, int pEnd, StringBuilder pBuf, boolean pWildcardAsNull) {
+        String ret = pBuf != null ? pBuf.toString() : pArg.substring(pStart, pEnd);
+        return pWildcardAsNull && "*".equals(ret) ? null : ret;
+    }
+
+    // Get the char for an escape or delimiter as given to split() or 0 if this is not a single char
+    private static char toLiteralChar(String pRegexp) {
+        if (pRegexp.length() == 1) {
+            char c = pRegexp.charAt(0);
+            return "\\.[]{}()*+?^$|".indexOf(c) == -1 ? c : 0;
+        } else if (pRegexp.length() == 2 && pRegexp.charAt(0) == '\\' && !Character.isLetterOrDigit(pRegexp.charAt(1))) {
+            return pRegexp.charAt(1);
+        }
+        return 0;
+    }
+
     // Create a split pattern for a given delimiter
     private static Pattern[] createSplitPatterns(String pEscape, String pDel) {
         return new Pattern[] {
@@ -213,22 +272,18 @@ public final class EscapeUtil {
     }
 
     // Escape a single part
-    private static final Pattern ESCAPE_PATTERN = Pattern.compile(PATH_ESCAPE);
-
-    private static final Pattern SLASH_PATTERN = Pattern.compile("/");
     private static String escapePart(String pPart) {
-        return SLASH_PATTERN.matcher(
-                ESCAPE_PATTERN.matcher(pPart).replaceAll(PATH_ESCAPE + PATH_ESCAPE)).replaceAll(PATH_ESCAPE + "/");
-    }
-
-    private static List<String> replaceWildcardsWithNull(List<String> pParts) {
-        if (pParts  == null) {
-            return null;
+        if (pPart.indexOf('!') == -1 && pPart.indexOf('/') == -1) {
+            return pPart;
         }
-        List<String> ret = new ArrayList<String>(pParts.size());
-        for (String part : pParts) {
-            ret.add("*".equals(part) ? null : part);
+        StringBuilder buf = new StringBuilder(pPart.length() + 4);
+        for (int i = 0; i < pPart.length(); i++) {
+            char c = pPart.charAt(i);
+            if (c == '!' || c == '/') {
+                buf.append('!');
+            }
+            buf.append(c);
         }
-        return ret;
+        return buf.toString();
     }
 }
@@ -1,9 +1,10 @@
 package org.jolokia.util;
 
 import java.io.IOException;
-import java.io.OutputStreamWriter;
+import java.io.OutputStream;
 import java.io.Writer;
 
+import org.json.simple.JSONAware;
 import org.json.simple.JSONStreamAware;
 
 /**
@@ -46,4 +47,51 @@ public class IoUtil {
             pWriter.close();
         }
     }
+
+    /**
+     * Stream a JSON response as UTF-8 to the given output stream, potentially wrapped in a callback
+     * for a JSONP response. The JSON is encoded directly into the stream by a {@link JsonWriter}.
+     * The stream is flushed and closed in any case, also when an exception occurs.
+     *
+     * @param pOut stream to write to. Must be not null.
+     * @param pJson JSON response to stream
+     * @param callback the name of the callback function if JSONP should be used or <code>null</code> if the answer should be streamed directly
+     * @throws IOException if the streaming fails
+     */
+    public static void streamResponseAndClose(OutputStream pOut, JSONStreamAware pJson, String callback)
+        throws IOException {
+        JsonWriter writer = new JsonWriter(pOut);
+        try {
+            if (callback == null) {
+                writer.writeValue(pJson);
+            } else {
+                writer.write(callback);
+                writer.write("(");
+                writer.writeValue(pJson);
+                writer.write(");");
+            }
+        } finally {
+            // Flush and close, even on an exception to avoid locks in the thread
+            writer.close();
+        }
+    }
+
+    /**
+     * Stream a response CBOR encoded to the given output stream. The stream is flushed and
+     * closed in any case, also when an exception occurs.
+     *
+     * @param pOut stream to write to. Must be not null.
+     * @param pJson JSON response to stream
+     * @throws IOException if the streaming fails
+     */
+    public static void streamCborResponseAndClose(OutputStream pOut, JSONAware pJson)
+        throws IOException {
+        CborWriter writer = new CborWriter(pOut);
+        try {
+            writer.writeValue(pJson);
+        } finally {
+            // Flush and close, even on an exception to avoid locks in the thread
+            writer.close();
+        }
+    }
 }
@@ -1,6 +1,8 @@
 package org.jolokia.util;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.management.*;
 import javax.management.relation.MBeanServerNotificationFilter;
@@ -13,9 +15,50 @@ import javax.management.relation.MBeanServerNotificationFilter;
  */
 public final class JmxUtil {
 
+    // Max number of parsed object names to remember
+    static final int OBJECT_NAME_CACHE_SIZE = 256;
+
+    // Object names are immutable, so they can be shared. Least recently used names are evicted first.
+    private static final Map<String, ObjectName> OBJECT_NAME_CACHE =
+            new LinkedHashMap<String, ObjectName>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ObjectName> pEldest) {
+                    return size() > OBJECT_NAME_CACHE_SIZE;
+                }
+            };
+
     // Utility class with static methods
     private JmxUtil() {}
 
+    /**
+     * Get an object name for the given string. Names are cached (with a bounded size), so repeated
+     * requests for the same MBean don't need to parse the name again.
+     *
+     * @param pName name to convert
+     * @return the object name
+     * @throws MalformedObjectNameException if the name is not a valid object name
+     */
+    public static ObjectName getCachedObjectName(String pName) throws MalformedObjectNameException {
+        ObjectName ret;
+        synchronized (OBJECT_NAME_CACHE) {
+            ret = OBJECT_NAME_CACHE.get(pName);
+        }
+        if (ret == null) {
+            ret = new ObjectName(pName);
+            synchronized (OBJECT_NAME_CACHE) {
+                OBJECT_NAME_CACHE.put(pName, ret);
+            }
+        }
+        return ret;
+    }
+
+    // Visible for testing
+    static int getObjectNameCacheSize() {
+        synchronized (OBJECT_NAME_CACHE) {
+            return OBJECT_NAME_CACHE.size();
+        }
+    }
+
     /**
      * Factory method for creating a new object name, mapping any checked {@link MalformedObjectNameException} to
      * a runtime exception ({@link IllegalArgumentException})
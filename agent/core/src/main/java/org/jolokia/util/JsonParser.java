@@ -0,0 +1,376 @@
+package org.jolokia.util;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.io.Reader;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Recursive descent parser for JSON requests. It creates the same object tree as json-simple's
+ * {@link org.json.simple.parser.JSONParser} ({@link JSONObject}, {@link JSONArray}, {@link String},
+ * {@link Long}, {@link Double}, {@link Boolean} and <code>null</code>), so that it can be used as a drop-in
+ * replacement. The whole input is read into a buffer which is reused when the same parser instance
+ * is used again, unless it has grown beyond 64k characters for a large input.
+ * Strings without escapes are created directly from this buffer.
+ *
+ * A parser is not thread safe. Callers which want to benefit from the buffer reuse keep their parsers,
+ * like {@link org.jolokia.http.HttpRequestHandler} does for request bodies.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+public class JsonParser {
+
+    // Initial size of the input buffer
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+
+    // Larger buffers are not kept after parsing
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    // Maximum nesting of objects and arrays
+    private static final int MAX_NESTING = 1000;
+
+    private char[] buf = new char[INITIAL_BUFFER_SIZE];
+    private int len;
+    private int pos;
+
+    // Current nesting of objects and arrays
+    private int nesting;
+
+    /**
+     * Parse JSON from a reader, which is read until its end (but not closed)
+     *
+     * @param pReader reader to read from
+     * @return the parsed value
+     * @throws IOException if reading fails
+     * @throws ParseException if the input is not valid JSON
+     */
+    public Object parse(Reader pReader) throws IOException, ParseException {
+        try {
+            len = 0;
+            int read;
+            while ((read = pReader.read(buf, len, buf.length - len)) != -1) {
+                len += read;
+                if (len == buf.length) {
+                    char[] newBuf = new char[buf.length * 2];
+                    System.arraycopy(buf, 0, newBuf, 0, len);
+                    buf = newBuf;
+                }
+            }
+            return parseBuffer();
+        } finally {
+            releaseLargeBuffer();
+        }
+    }
+
+    /**
+     * Parse JSON from a string
+     *
+     * @param pJson the JSON string
+     * @return the parsed value
+     * @throws ParseException if the input is not valid JSON
+     */
+    public Object parse(String pJson) throws ParseException {
+        try {
+            len = pJson.length();
+            if (buf.length < len) {
+                buf = new char[len];
+            }
+            pJson.getChars(0, len, buf, 0);
+            return parseBuffer();
+        } finally {
+            releaseLargeBuffer();
+        }
+    }
+
+    // ===========================================================================
+
+    private void releaseLargeBuffer() {
+        if (buf.length > MAX_RETAINED_BUFFER_SIZE) {
+            buf = new char[INITIAL_BUFFER_SIZE];
+        }
+    }
+
+    private Object parseBuffer() throws ParseException {
+        pos = 0;
+        nesting = 0;
+        skipWhitespace();
+        Object ret = readValue();
+        skipWhitespace();
+        if (pos < len) {
+            throw unexpected(ParseException.ERROR_UNEXPECTED_TOKEN);
+        }
+        return ret;
+    }
+
+    private Object readValue() throws ParseException {
+        if (pos >= len) {
+            throw unexpected(ParseException.ERROR_UNEXPECTED_TOKEN);
+        }
+        char c = buf[pos];
+        switch (c) {
+            case '{':
+                return readObject();
+            case '[':
+                return readArray();
+            case '"':
+                return readString();
+            case 't':
+                readLiteral("true");
+                return Boolean.TRUE;
+            case 'f':
+                readLiteral("false");
+                return Boolean.FALSE;
+            case 'n':
+                readLiteral("null");
+                return null;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    return readNumber();
+                }
+                throw unexpected(ParseException.ERROR_UNEXPECTED_CHAR);
+        }
+    }
+
+    private JSONObject readObject() throws ParseException {
+        enter();
+        JSONObject ret = new JSONObject();
+        pos++;
+        skipWhitespace();
+        if (peek() == '}') {
+            pos++;
+            nesting--;
+            return ret;
+        }
+        while (true) {
+            if (peek() != '"') {
+                throw unexpected(ParseException.ERROR_UNEXPECTED_TOKEN);
+            }
+            String key = readString();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+            ret.put(key, readValue());
+            skipWhitespace();
+            char c = peek();
+            pos++;
+            if (c == '}') {
+                nesting--;
+                return ret;
+            } else if (c != ',') {
+                pos--;
+                throw unexpected(ParseException.ERROR_UNEXPECTED_TOKEN);
+            }
+            skipWhitespace();
+        }
+    }
+
+    private JSONArray readArray() throws ParseException {
+        enter();
+        JSONArray ret = new JSONArray();
+        pos++;
+        skipWhitespace();
+        if (peek() == ']') {
+            pos++;
+            nesting--;
+            return ret;
+        }
+        while (true) {
+            ret.add(readValue());
+            skipWhitespace();
+            char c = peek();
+            pos++;
+            if (c == ']') {
+                nesting--;
+                return ret;
+            } else if (c != ',') {
+                pos--;
+                throw unexpected(ParseException.ERROR_UNEXPECTED_TOKEN);
+            }
+            skipWhitespace();
+        }
+    }
+
+    private String readString() throws ParseException {
+        // Skip opening quote
+        int start = ++pos;
+        while (pos < len) {
+            char c = buf[pos];
+            if (c == '"') {
+                return new String(buf, start, pos++ - start);
+            } else if (c == '\\') {
+                return readEscapedString(start);
+            }
+            pos++;
+        }
+        throw unexpected(ParseException.ERROR_UNEXPECTED_TOKEN);
+    }
+
+    // Continue reading a string which contains escapes
+    private String readEscapedString(int pStart) throws ParseException {
+        StringBuilder ret = new StringBuilder(pos - pStart + 16);
+        ret.append(buf, pStart, pos - pStart);
+        while (pos < len) {
+            char c = buf[pos++];
+            if (c == '"') {
+                return ret.toString();
+            } else if (c != '\\') {
+                ret.append(c);
+                continue;
+            }
+            if (pos >= len) {
+                break;
+            }
+            char esc = buf[pos++];
+            switch (esc) {
+                case '"':
+                case '\\':
+                case '/':
+                    ret.append(esc);
+                    break;
+                case 'b':
+                    ret.append('\b');
+                    break;
+                case 'f':
+                    ret.append('\f');
+                    break;
+                case 'n':
+                    ret.append('\n');
+                    break;
+                case 'r':
+                    ret.append('\r');
+                    break;
+                case 't':
+                    ret.append('\t');
+                    break;
+                case 'u':
+                    ret.append(readUnicodeEscape());
+                    break;
+                default:
+                    pos--;
+                    throw unexpected(ParseException.ERROR_UNEXPECTED_CHAR);
+            }
+        }
+        throw unexpected(ParseException.ERROR_UNEXPECTED_TOKEN);
+    }
+
+    private char readUnicodeEscape() throws ParseException {
+        if (pos + 4 > len) {
+            throw unexpected(ParseException.ERROR_UNEXPECTED_CHAR);
+        }
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(buf[pos], 16);
+            if (digit < 0) {
+                throw unexpected(ParseException.ERROR_UNEXPECTED_CHAR);
+            }
+            value = (value << 4) | digit;
+            pos++;
+        }
+        return (char) value;
+    }
+
+    // Integers are returned as Long, numbers with a fraction or exponent as Double
+    private Object readNumber() throws ParseException {
+        int start = pos;
+        boolean isDouble = false;
+        if (buf[pos] == '-') {
+            pos++;
+        }
+        readDigits();
+        if (pos < len && buf[pos] == '.') {
+            pos++;
+            readDigits();
+            isDouble = true;
+        }
+        if (pos < len && (buf[pos] == 'e' || buf[pos] == 'E')) {
+            pos++;
+            if (pos < len && (buf[pos] == '+' || buf[pos] == '-')) {
+                pos++;
+            }
+            readDigits();
+            isDouble = true;
+        }
+        String number = new String(buf, start, pos - start);
+        try {
+            return isDouble ? (Object) Double.valueOf(number) : (Object) Long.valueOf(number);
+        } catch (NumberFormatException exp) {
+            throw new ParseException(start, ParseException.ERROR_UNEXPECTED_EXCEPTION, exp);
+        }
+    }
+
+    private void readDigits() throws ParseException {
+        int start = pos;
+        while (pos < len && buf[pos] >= '0' && buf[pos] <= '9') {
+            pos++;
+        }
+        if (pos == start) {
+            throw unexpected(ParseException.ERROR_UNEXPECTED_CHAR);
+        }
+    }
+
+    private void readLiteral(String pLiteral) throws ParseException {
+        int l = pLiteral.length();
+        if (pos + l > len) {
+            throw unexpected(ParseException.ERROR_UNEXPECTED_CHAR);
+        }
+        for (int i = 0; i < l; i++) {
+            if (buf[pos + i] != pLiteral.charAt(i)) {
+                pos += i;
+                throw unexpected(ParseException.ERROR_UNEXPECTED_CHAR);
+            }
+        }
+        pos += l;
+    }
+
+    private void expect(char pExpected) throws ParseException {
+        if (peek() != pExpected) {
+            throw unexpected(ParseException.ERROR_UNEXPECTED_TOKEN);
+        }
+        pos++;
+    }
+
+    // Current char or 0 at the end of input
+    private char peek() {
+        return pos < len ? buf[pos] : 0;
+    }
+
+    private void skipWhitespace() {
+        while (pos < len) {
+            char c = buf[pos];
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r' && c != '\f') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    // Deeply nested input would otherwise overflow the stack
+    private void enter() throws ParseException {
+        if (++nesting > MAX_NESTING) {
+            throw unexpected(ParseException.ERROR_UNEXPECTED_TOKEN);
+        }
+    }
+
+    private ParseException unexpected(int pErrorType) {
+        return new ParseException(pos, pErrorType, pos < len ? Character.valueOf(buf[pos]) : null);
+    }
+}
@@ -0,0 +1,349 @@
+package org.jolokia.util;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.*;
+
+import org.json.simple.*;
+
+/**
+ * Writer which serializes JSON values directly as UTF-8 into an output stream. The output is
+ * exactly the same as produced by json-simple's {@link JSONValue#writeJSONString(Object, Writer)}
+ * (including its escaping rules), but strings are escaped and encoded in a single pass into an internal
+ * buffer instead of creating an escaped copy of every string and pushing it through a charset encoder.
+ *
+ * Values implementing {@link JSONStreamAware} (other than {@link JSONObject} and {@link JSONArray}) are asked
+ * to write themselves to this writer, so that this class can be used as a plain {@link Writer}, too. A
+ * writer is not thread safe.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+public class JsonWriter extends Writer {
+
+    // Size of the internal byte buffer
+    static final int BUFFER_SIZE = 8192;
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes();
+
+    private static final byte[] NULL = "null".getBytes();
+
+    private final OutputStream out;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    private int pos;
+
+    // High surrogate of a pair which has been split across two writes, 0 if there is none
+    private char pendingHighSurrogate;
+
+    /**
+     * Create a writer on top of an output stream
+     *
+     * @param pOut stream to write to
+     */
+    public JsonWriter(OutputStream pOut) {
+        out = pOut;
+    }
+
+    /**
+     * Serialize a JSON value (a {@link Map}, {@link List}, {@link JSONAware}, {@link String},
+     * {@link Number}, {@link Boolean} or null)
+     *
+     * @param pValue value to write
+     * @throws IOException if writing to the stream fails
+     */
+    public void writeValue(Object pValue) throws IOException {
+        writePendingSurrogate();
+        if (pValue == null) {
+            writeBytes(NULL);
+        } else if (pValue instanceof String) {
+            writeQuoted((String) pValue);
+        } else if (pValue instanceof Double) {
+            Double d = (Double) pValue;
+            writeAscii(d.isInfinite() || d.isNaN() ? "null" : d.toString());
+        } else if (pValue instanceof Float) {
+            Float f = (Float) pValue;
+            writeAscii(f.isInfinite() || f.isNaN() ? "null" : f.toString());
+        } else if (pValue instanceof Number || pValue instanceof Boolean) {
+            write(pValue.toString());
+        } else if (pValue.getClass() == JSONObject.class) {
+            writeMap((Map) pValue);
+        } else if (pValue.getClass() == JSONArray.class) {
+            writeList((List) pValue);
+        } else if (pValue instanceof JSONStreamAware) {
+            ((JSONStreamAware) pValue).writeJSONString(this);
+        } else if (pValue instanceof JSONAware) {
+            write(((JSONAware) pValue).toJSONString());
+        } else if (pValue instanceof Map) {
+            writeMap((Map) pValue);
+        } else if (pValue instanceof List) {
+            writeList((List) pValue);
+        } else {
+            write(pValue.toString());
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void write(int c) throws IOException {
+        encode((char) c);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void write(char[] pBuf, int pOff, int pLen) throws IOException {
+        for (int i = pOff; i < pOff + pLen; i++) {
+            encode(pBuf[i]);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void write(String pStr, int pOff, int pLen) throws IOException {
+        for (int i = pOff; i < pOff + pLen; i++) {
+            encode(pStr.charAt(i));
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException {
+        try {
+            writePendingSurrogate();
+            flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Write already serialized UTF-8 JSON. Large chunks are handed directly to the underlying
+     * stream instead of being copied into the internal buffer.
+     *
+     * @param pBytes UTF-8 encoded JSON
+     * @throws IOException if writing to the stream fails
+     */
+    void writeRaw(byte[] pBytes) throws IOException {
+        writePendingSurrogate();
+        if (pos + pBytes.length <= BUFFER_SIZE) {
+            writeBytes(pBytes);
+        } else {
+            flushBuffer();
+            out.write(pBytes);
+        }
+    }
+
+    // ==========================================================================================
+
+    private void writeMap(Map<?, ?> pMap) throws IOException {
+        ensure(1);
+        buffer[pos++] = '{';
+        boolean first = true;
+        for (Map.Entry<?, ?> entry : pMap.entrySet()) {
+            if (!first) {
+                ensure(1);
+                buffer[pos++] = ',';
+            }
+            first = false;
+            writeQuoted(String.valueOf(entry.getKey()));
+            ensure(1);
+            buffer[pos++] = ':';
+            writeValue(entry.getValue());
+        }
+        ensure(1);
+        buffer[pos++] = '}';
+    }
+
+    private void writeList(List<?> pList) throws IOException {
+        ensure(1);
+        buffer[pos++] = '[';
+        boolean first = true;
+        for (Object value : pList) {
+            if (!first) {
+                ensure(1);
+                buffer[pos++] = ',';
+            }
+            first = false;
+            writeValue(value);
+        }
+        ensure(1);
+        buffer[pos++] = ']';
+    }
+
+    // Write a string with quotes and escaping as done by json-simple
+    private void writeQuoted(String pValue) throws IOException {
+        ensure(1);
+        buffer[pos++] = '"';
+        int len = pValue.length();
+        for (int i = 0; i < len; i++) {
+            char c = pValue.charAt(i);
+            if (c >= 0x20 && c < 0x7F && c != '"' && c != '\\' && c != '/') {
+                // Fast path for plain ASCII
+                if (pos == BUFFER_SIZE) {
+                    flushBuffer();
+                }
+                buffer[pos++] = (byte) c;
+            } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(pValue.charAt(i + 1))) {
+                    writeCodePoint(Character.toCodePoint(c, pValue.charAt(++i)));
+                } else {
+                    writeUnmappable();
+                }
+            } else {
+                writeEscaped(c);
+            }
+        }
+        ensure(1);
+        buffer[pos++] = '"';
+    }
+
+    private void writeEscaped(char c) throws IOException {
+        switch (c) {
+            case '"':
+                writeEscape('"');
+                break;
+            case '\\':
+                writeEscape('\\');
+                break;
+            case '/':
+                writeEscape('/');
+                break;
+            case '\b':
+                writeEscape('b');
+                break;
+            case '\f':
+                writeEscape('f');
+                break;
+            case '\n':
+                writeEscape('n');
+                break;
+            case '\r':
+                writeEscape('r');
+                break;
+            case '\t':
+                writeEscape('t');
+                break;
+            default:
+                if (c <= 0x1F || (c >= 0x7F && c <= 0x9F) || (c >= 0x2000 && c <= 0x20FF)) {
+                    ensure(6);
+                    buffer[pos++] = '\\';
+                    buffer[pos++] = 'u';
+                    buffer[pos++] = HEX[(c >> 12) & 0xF];
+                    buffer[pos++] = HEX[(c >> 8) & 0xF];
+                    buffer[pos++] = HEX[(c >> 4) & 0xF];
+                    buffer[pos++] = HEX[c & 0xF];
+                } else {
+                    encode(c);
+                }
+        }
+    }
+
+    private void writeEscape(char c) throws IOException {
+        ensure(2);
+        buffer[pos++] = '\\';
+        buffer[pos++] = (byte) c;
+    }
+
+    private void writeAscii(String pValue) throws IOException {
+        int len = pValue.length();
+        ensure(len);
+        for (int i = 0; i < len; i++) {
+            buffer[pos++] = (byte) pValue.charAt(i);
+        }
+    }
+
+    private void writeBytes(byte[] pBytes) throws IOException {
+        ensure(pBytes.length);
+        System.arraycopy(pBytes, 0, buffer, pos, pBytes.length);
+        pos += pBytes.length;
+    }
+
+    // Encode a single char as UTF-8. Surrogate pairs are combined, unpaired surrogates
+    // are replaced with '?' as done by the JDK's UTF-8 encoder.
+    private void encode(char c) throws IOException {
+        if (pendingHighSurrogate != 0) {
+            char high = pendingHighSurrogate;
+            pendingHighSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                writeCodePoint(Character.toCodePoint(high, c));
+                return;
+            }
+            writeUnmappable();
+        }
+        ensure(3);
+        if (c < 0x80) {
+            buffer[pos++] = (byte) c;
+        } else if (c < 0x800) {
+            buffer[pos++] = (byte) (0xC0 | (c >> 6));
+            buffer[pos++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c)) {
+            pendingHighSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            writeUnmappable();
+        } else {
+            buffer[pos++] = (byte) (0xE0 | (c >> 12));
+            buffer[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buffer[pos++] = (byte) (0x80 | (c & 0x3F));
+        }
+    }
+
+    // Supplementary code point as four byte UTF-8 sequence
+    private void writeCodePoint(int pCodePoint) throws IOException {
+        ensure(4);
+        buffer[pos++] = (byte) (0xF0 | (pCodePoint >> 18));
+        buffer[pos++] = (byte) (0x80 | ((pCodePoint >> 12) & 0x3F));
+        buffer[pos++] = (byte) (0x80 | ((pCodePoint >> 6) & 0x3F));
+        buffer[pos++] = (byte) (0x80 | (pCodePoint & 0x3F));
+    }
+
+    private void writeUnmappable() throws IOException {
+        ensure(1);
+        buffer[pos++] = '?';
+    }
+
+    // A surrogate written via the Writer interface whose low part never came
+    private void writePendingSurrogate() throws IOException {
+        if (pendingHighSurrogate != 0) {
+            pendingHighSurrogate = 0;
+            writeUnmappable();
+        }
+    }
+
+    private void ensure(int pNeeded) throws IOException {
+        if (pos + pNeeded > BUFFER_SIZE) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (pos > 0) {
+            out.write(buffer, 0, pos);
+            pos = 0;
+        }
+    }
+}
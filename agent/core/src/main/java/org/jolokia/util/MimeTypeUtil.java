@@ -10,6 +10,15 @@ import java.util.regex.Pattern;
  */
 public class MimeTypeUtil {
 
+    /**
+     * Mime type for CBOR encoded requests and responses
+     */
+    public static final String CBOR_MIME_TYPE = "application/cbor";
+
+    // Content types of the metrics endpoint
+    private static final String OPENMETRICS_MIME_TYPE = "application/openmetrics-text";
+    private static final String OPENMETRICS_CONTENT_TYPE = OPENMETRICS_MIME_TYPE + "; version=1.0.0; charset=utf-8";
+    private static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
 
     /**
      * Extract the response mime type. This value is calculated for different situations:
@@ -18,7 +27,8 @@ public class MimeTypeUtil {
      * <li>If a callback is given and its valid, the mime type is "text/javascript"</li>
      * <li>Otherwise:
      * <ul>
-     * <li>If a valid mimeType is given in the request ("text/plain", "application/json"), then this
+     * <li>If a valid mimeType is given in the request ("text/plain", "application/json",
+     * "text/event-stream"), then this
      * mimet type is returned</li>
      * <li>If another mimeType is given, then "text/plain" is used</li>
      * <li>If no mimeType is given then a given default mime type is used, but also sanitized
@@ -50,7 +60,8 @@ public class MimeTypeUtil {
     private static String sanitize(String mimeType) {
         for (String accepted : new String[]{
             "application/json",
-            "text/plain"
+            "text/plain",
+            "text/event-stream"
         }) {
             if (accepted.equalsIgnoreCase(mimeType)) {
                 return accepted;
@@ -59,6 +70,58 @@ public class MimeTypeUtil {
         return "text/plain";
     }
 
+    /**
+     * Check whether a CBOR response is acceptable according to an <code>Accept</code> header. CBOR is
+     * only used if it is listed explicitly and not with a quality of 0.
+     *
+     * @param pAcceptHeader value of the <code>Accept</code> header, can be null
+     * @return true if CBOR should be used for the response
+     */
+    public static boolean acceptsCbor(String pAcceptHeader) {
+        return accepts(pAcceptHeader, CBOR_MIME_TYPE);
+    }
+
+    /**
+     * Get the content type for a metrics response. The OpenMetrics format is announced if the client
+     * accepts it, otherwise the (compatible) Prometheus text format is used.
+     *
+     * @param pAcceptHeader value of the <code>Accept</code> header, can be null
+     * @return the content type including the version and charset
+     */
+    public static String getMetricsContentType(String pAcceptHeader) {
+        return accepts(pAcceptHeader, OPENMETRICS_MIME_TYPE) ? OPENMETRICS_CONTENT_TYPE : PROMETHEUS_CONTENT_TYPE;
+    }
+
+    // Whether a mime type is listed explicitly and not with a quality of 0
+    private static boolean accepts(String pAcceptHeader, String pMimeType) {
+        if (pAcceptHeader == null) {
+            return false;
+        }
+        for (String range : pAcceptHeader.split(",")) {
+            String[] parts = range.split(";");
+            if (pMimeType.equalsIgnoreCase(parts[0].trim())) {
+                for (int i = 1; i < parts.length; i++) {
+                    String param = parts[i].trim();
+                    if (param.startsWith("q=") && param.substring(2).trim().matches("^0(\\.0*)?$")) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check whether a request body with the given content type is CBOR encoded
+     *
+     * @param pContentType value of the <code>Content-Type</code> header, can be null
+     * @return true if the body is CBOR encoded
+     */
+    public static boolean isCbor(String pContentType) {
+        return pContentType != null && CBOR_MIME_TYPE.equalsIgnoreCase(pContentType.split(";")[0].trim());
+    }
+
     /**
      * Check that a callback matches a javascript function name. The argument must be not null
      *
@@ -0,0 +1,156 @@
+package org.jolokia.util;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.*;
+
+/**
+ * Immutable view on the remaining elements of a parsed path. A cursor points to
+ * the current path element, {@link #next()} returns a cursor for the elements after it
+ * without modifying this cursor. All cursors of a path share the same elements, so that
+ * a cursor can be handed over to several branches (e.g. for wildcard paths) without copying it.
+ *
+ * A <code>null</code> element stands for a wildcard.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+public final class PathCursor {
+
+    /**
+     * Cursor for an empty path
+     */
+    public static final PathCursor EMPTY = new PathCursor(new String[0], 0);
+
+    private final String[] parts;
+    private final int index;
+
+    private PathCursor(String[] pParts, int pIndex) {
+        parts = pParts;
+        index = pIndex;
+    }
+
+    /**
+     * Create a cursor pointing to the first element of the given path
+     *
+     * @param pParts path elements, can be null
+     * @return cursor for the path or {@link #EMPTY} if no elements are given
+     */
+    public static PathCursor of(List<String> pParts) {
+        if (pParts == null || pParts.isEmpty()) {
+            return EMPTY;
+        }
+        return new PathCursor(pParts.toArray(new String[pParts.size()]), 0);
+    }
+
+    /**
+     * Create a cursor from a path given as stack with the first element on top
+     * (as returned by {@link EscapeUtil#reversePath(List)}). The stack is left untouched.
+     *
+     * @param pStack stack holding the path, can be null
+     * @return cursor for the path or {@link #EMPTY} if the stack is empty
+     */
+    public static PathCursor fromStack(Stack<String> pStack) {
+        if (pStack == null || pStack.isEmpty()) {
+            return EMPTY;
+        }
+        String[] parts = new String[pStack.size()];
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = pStack.get(parts.length - 1 - i);
+        }
+        return new PathCursor(parts, 0);
+    }
+
+    /**
+     * Whether there are no more path elements
+     *
+     * @return true if the end of the path has been reached
+     */
+    public boolean isEmpty() {
+        return index >= parts.length;
+    }
+
+    /**
+     * Number of remaining path elements, including the current one
+     *
+     * @return remaining elements
+     */
+    public int size() {
+        return parts.length - index;
+    }
+
+    /**
+     * Get the current path element
+     *
+     * @return current element, null for a wildcard
+     * @throws EmptyStackException if there is no element left
+     */
+    public String current() {
+        if (isEmpty()) {
+            throw new EmptyStackException();
+        }
+        return parts[index];
+    }
+
+    /**
+     * Get a cursor for the path elements following the current one
+     *
+     * @return cursor for the rest of the path, which is empty if this cursor is already empty
+     */
+    public PathCursor next() {
+        return index + 1 >= parts.length ? EMPTY : new PathCursor(parts, index + 1);
+    }
+
+    /**
+     * Get a cursor for the path elements following the given number of elements
+     *
+     * @param pNr number of elements to skip
+     * @return cursor for the rest of the path, which is empty if there are not more than the given
+     *         number of elements left
+     */
+    public PathCursor skip(int pNr) {
+        return index + pNr >= parts.length ? EMPTY : new PathCursor(parts, index + pNr);
+    }
+
+    /**
+     * The remaining path elements as list
+     *
+     * @return unmodifiable list of the remaining elements
+     */
+    public List<String> toList() {
+        return Collections.unmodifiableList(Arrays.asList(parts).subList(index, parts.length));
+    }
+
+    /**
+     * The remaining path elements as a new stack with the current element on top
+     *
+     * @return stack of the remaining elements, which can be modified by the caller
+     */
+    public Stack<String> toStack() {
+        return EscapeUtil.reversePath(toList());
+    }
+
+    /**
+     * The remaining path in its escaped string representation
+     *
+     * @return remaining path or null if the path is empty
+     */
+    @Override
+    public String toString() {
+        return EscapeUtil.combineToPath(toList());
+    }
+}
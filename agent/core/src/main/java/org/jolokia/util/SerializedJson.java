@@ -0,0 +1,147 @@
+package org.jolokia.util;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.*;
+import java.util.List;
+import java.util.Map;
+
+import org.json.simple.JSONAware;
+import org.json.simple.JSONStreamAware;
+
+/**
+ * An immutable JSON value which has been serialized once into UTF-8. Writing it to a {@link JsonWriter} only
+ * copies the bytes, so the same value can be returned for many requests without serializing it again.
+ *
+ * Since the value is already in its final form, the object-to-json conversion can skip it as long as the
+ * conversion limits of a request would not truncate it. For this check, the nesting depth, the size of the
+ * largest collection and the number of values are recorded when the value is serialized.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+public final class SerializedJson implements JSONStreamAware, JSONAware {
+
+    private final Object value;
+
+    private final byte[] bytes;
+
+    // Statistics about the value's structure
+    private int depth;
+    private int maxCollectionSize;
+    private int objectCount;
+
+    /**
+     * Serialize a JSON value. The value must not be modified afterwards.
+     *
+     * @param pValue JSON value consisting of maps, lists and simple values
+     */
+    public SerializedJson(Object pValue) {
+        value = pValue;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            JsonWriter writer = new JsonWriter(out);
+            writer.writeValue(pValue);
+            writer.flush();
+        } catch (IOException exp) {
+            throw new IllegalStateException("Internal: Cannot serialize to memory: " + exp, exp);
+        }
+        bytes = out.toByteArray();
+        analyze(pValue, 1);
+    }
+
+    /**
+     * Get the value which has been serialized
+     *
+     * @return the original value
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    /**
+     * @return number of nesting levels, a simple value having a depth of 1
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return number of entries of the largest map or list within the value
+     */
+    public int getMaxCollectionSize() {
+        return maxCollectionSize;
+    }
+
+    /**
+     * @return number of values including all nested values
+     */
+    public int getObjectCount() {
+        return objectCount;
+    }
+
+    /**
+     * @return size of the serialized value in bytes
+     */
+    public int getSize() {
+        return bytes.length;
+    }
+
+    /** {@inheritDoc} */
+    public void writeJSONString(Writer pOut) throws IOException {
+        if (pOut instanceof JsonWriter) {
+            ((JsonWriter) pOut).writeRaw(bytes);
+        } else {
+            pOut.write(toJSONString());
+        }
+    }
+
+    /** {@inheritDoc} */
+    public String toJSONString() {
+        try {
+            return new String(bytes, "UTF-8");
+        } catch (UnsupportedEncodingException exp) {
+            throw new IllegalStateException("Internal: No UTF-8 available: " + exp, exp);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return toJSONString();
+    }
+
+    // ==========================================================================================
+
+    private void analyze(Object pValue, int pLevel) {
+        objectCount++;
+        depth = Math.max(depth, pLevel);
+        if (pValue instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) pValue;
+            maxCollectionSize = Math.max(maxCollectionSize, map.size());
+            for (Object val : map.values()) {
+                analyze(val, pLevel + 1);
+            }
+        } else if (pValue instanceof List) {
+            List<?> list = (List<?>) pValue;
+            maxCollectionSize = Math.max(maxCollectionSize, list.size());
+            for (Object val : list) {
+                analyze(val, pLevel + 1);
+            }
+        }
+    }
+}
@@ -35,11 +35,21 @@ import java.util.*;
  * If a line starts with <code>!</code> it is removed if it has been added previously.
  * The optional second numeric value is the order in which the services are returned.
  *
+ * The descriptors found are cached per context class loader, so that the classpath is scanned
+ * and every descriptor is parsed only once for a class loader. A redeployment comes with a new
+ * class loader, for which the descriptors are read in again. Service objects are created freshly
+ * for every call.
+ *
  * @author roland
  * @since 05.11.10
  */
 public final class ServiceObjectFactory {
 
+    // Non-empty lines of the descriptors by their URL, per context class loader and descriptor path.
+    // Guarded by itself. Only strings are kept so that no class loader is retained.
+    private static final Map<ClassLoader, Map<String, Map<String, List<String>>>> DESCRIPTOR_CACHE =
+            new WeakHashMap<ClassLoader, Map<String, Map<String, List<String>>>>();
+
     private ServiceObjectFactory() {}
 
     /**
@@ -72,26 +82,59 @@ public final class ServiceObjectFactory {
         }
     }
 
+    /**
+     * Clear the cached descriptors, so that the next call to
+     * {@link #createServiceObjects(String...)} rescans the classpath. This is only required if
+     * descriptors are added to or changed on the classpath at runtime.
+     */
+    public static void clearCache() {
+        synchronized (DESCRIPTOR_CACHE) {
+            DESCRIPTOR_CACHE.clear();
+        }
+    }
+
     private static <T> void readServiceDefinitions(Map<ServiceEntry, T> pExtractorMap, String pDefPath) {
         try {
-            for (String url : ClassUtil.getResources(pDefPath)) {
-                readServiceDefinitionFromUrl(pExtractorMap, url);
+            for (Map.Entry<String, List<String>> descriptor : getDescriptors(pDefPath).entrySet()) {
+                readServiceDefinitionFromUrl(pExtractorMap, descriptor.getKey(), descriptor.getValue());
             }
         } catch (IOException e) {
             throw new IllegalStateException("Cannot load extractor from " + pDefPath + ": " + e,e);
         }
     }
 
-    private static <T> void readServiceDefinitionFromUrl(Map<ServiceEntry, T> pExtractorMap, String pUrl) {
+    // Lookup and read the descriptors in the classpath only once for every context class loader
+    private static Map<String, List<String>> getDescriptors(String pDefPath) throws IOException {
+        ClassLoader contextLoader = Thread.currentThread().getContextClassLoader();
+        synchronized (DESCRIPTOR_CACHE) {
+            Map<String, Map<String, List<String>>> descriptorsByPath = DESCRIPTOR_CACHE.get(contextLoader);
+            if (descriptorsByPath != null && descriptorsByPath.containsKey(pDefPath)) {
+                return descriptorsByPath.get(pDefPath);
+            }
+        }
+        Map<String, List<String>> descriptors = new HashMap<String, List<String>>();
+        for (String url : ClassUtil.getResources(pDefPath)) {
+            descriptors.put(url, readServiceDefinitionLines(url));
+        }
+        descriptors = Collections.unmodifiableMap(descriptors);
+        synchronized (DESCRIPTOR_CACHE) {
+            Map<String, Map<String, List<String>>> descriptorsByPath = DESCRIPTOR_CACHE.get(contextLoader);
+            if (descriptorsByPath == null) {
+                descriptorsByPath = new HashMap<String, Map<String, List<String>>>();
+                DESCRIPTOR_CACHE.put(contextLoader, descriptorsByPath);
+            }
+            descriptorsByPath.put(pDefPath, descriptors);
+        }
+        return descriptors;
+    }
+
+    private static <T> void readServiceDefinitionFromUrl(Map<ServiceEntry, T> pExtractorMap, String pUrl, List<String> pLines) {
         String line = null;
         Exception error = null;
-        LineNumberReader reader = null;
         try {
-            reader = new LineNumberReader(new InputStreamReader(new URL(pUrl).openStream(),"UTF8"));
-            line = reader.readLine();
-            while (line != null) {
+            for (String definition : pLines) {
+                line = definition;
                 createOrRemoveService(pExtractorMap, line);
-                line = reader.readLine();
             }
         } catch (ClassNotFoundException e) {
             error = e;
@@ -101,10 +144,7 @@ public final class ServiceObjectFactory {
             error = e;
         } catch (ClassCastException e) {
             error = e;
-        } catch (IOException e) {
-            error = e;
         } finally {
-            closeReader(reader);
             if (error != null) {
                 throw new IllegalStateException("Cannot load service " + line + " defined in " +
                         pUrl + " : " + error + ". Aborting",error);
@@ -112,6 +152,25 @@ public final class ServiceObjectFactory {
         }
     }
 
+    // Read the non-empty lines of a descriptor
+    private static List<String> readServiceDefinitionLines(String pUrl) throws IOException {
+        List<String> lines = new ArrayList<String>();
+        LineNumberReader reader = null;
+        try {
+            reader = new LineNumberReader(new InputStreamReader(new URL(pUrl).openStream(),"UTF8"));
+            String line = reader.readLine();
+            while (line != null) {
+                if (line.length() > 0) {
+                    lines.add(line);
+                }
+                line = reader.readLine();
+            }
+        } finally {
+            closeReader(reader);
+        }
+        return Collections.unmodifiableList(lines);
+    }
+
     private static <T> void createOrRemoveService(Map<ServiceEntry, T> pExtractorMap, String pLine)
             throws ClassNotFoundException, InstantiationException, IllegalAccessException {
         if (pLine.length() > 0) {
@@ -19,7 +19,7 @@ package org.jolokia.backend;
 import java.io.IOException;
 import java.net.SocketException;
 import java.net.UnknownHostException;
-import java.util.Map;
+import java.util.*;
 
 import javax.management.*;
 
@@ -28,13 +28,13 @@ import org.jolokia.config.ConfigKey;
 import org.jolokia.config.Configuration;
 import org.jolokia.converter.Converters;
 import org.jolokia.detector.ServerHandle;
+import org.jolokia.http.HttpRequestHandler;
 import org.jolokia.request.JmxRequest;
 import org.jolokia.request.JmxRequestBuilder;
 import org.jolokia.restrictor.Restrictor;
 import org.jolokia.util.*;
 import org.json.simple.JSONObject;
-import org.testng.annotations.BeforeTest;
-import org.testng.annotations.Test;
+import org.testng.annotations.*;
 
 import static org.testng.Assert.*;
 
@@ -88,9 +88,69 @@ public class BackendManagerTest {
 
     }
 
+    @DataProvider
+    public Object[][] lazy() {
+        return new Object[][] { { false }, { true } };
+    }
+
+    @Test(dataProvider = "lazy")
+    public void subscription(boolean pLazy) throws Exception {
+        BackendManager backendManager = new BackendManager(config, log, null, pLazy);
+        // Sampled requests are executed with the error handling of HTTP requests
+        backendManager.setSubscriptionExecutor(new HttpRequestHandler(config, backendManager, log).getSubscriptionExecutor());
+        try {
+            JSONObject reg = backendManager.handleRequest(new JmxRequestBuilder(RequestType.NOTIFICATION).command("register").build());
+            String client = (String) ((Map) reg.get("value")).get("id");
+            Map<String, Object> read = new HashMap<String, Object>();
+            read.put("type", "read");
+            read.put("mbean", "java.lang:type=Memory");
+            read.put("attribute", "HeapMemoryUsage");
+            Map<String, Object> unknown = new HashMap<String, Object>();
+            unknown.put("type", "read");
+            unknown.put("mbean", "jolokia.test:type=unknown");
+            unknown.put("attribute", "Foo");
+            backendManager.handleRequest(new JmxRequestBuilder(RequestType.NOTIFICATION)
+                                                 .command("subscribe").client(client).interval(100)
+                                                 .requests(read, unknown).build());
+            JSONObject pull = backendManager.handleRequest(new JmxRequestBuilder(RequestType.NOTIFICATION)
+                                                                   .command("pull").client(client).timeout(2000).build());
+            List events = (List) ((Map) pull.get("value")).get("notifications");
+            assertTrue(events.size() > 0);
+            List responses = (List) ((Map) events.get(0)).get("responses");
+            assertEquals(responses.size(), 2);
+            Map first = (Map) responses.get(0);
+            assertEquals(first.get("status"), 200);
+            assertTrue((Long) ((Map) first.get("value")).get("used") > 0);
+            assertNotNull(first.get("timestamp"));
+            Map second = (Map) responses.get(1);
+            assertEquals(second.get("status"), 404);
+            assertEquals(second.get("error_type"), InstanceNotFoundException.class.getName());
+            assertEquals(((Map) second.get("request")).get("mbean"), "jolokia.test:type=unknown");
+        } finally {
+            backendManager.destroy();
+        }
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void subscriptionWithoutExecutor() throws Exception {
+        BackendManager backendManager = new BackendManager(config, log);
+        try {
+            JSONObject reg = backendManager.handleRequest(new JmxRequestBuilder(RequestType.NOTIFICATION).command("register").build());
+            String client = (String) ((Map) reg.get("value")).get("id");
+            Map<String, Object> read = new HashMap<String, Object>();
+            read.put("type", "read");
+            read.put("mbean", "java.lang:type=Memory");
+            backendManager.handleRequest(new JmxRequestBuilder(RequestType.NOTIFICATION)
+                                                 .command("subscribe").client(client).interval(100)
+                                                 .requests(read).build());
+        } finally {
+            backendManager.destroy();
+        }
+    }
+
     @Test
     public void requestDispatcher() throws MalformedObjectNameException, InstanceNotFoundException, IOException, ReflectionException, AttributeNotFoundException, MBeanException {
-        config = new Configuration(ConfigKey.DISPATCHER_CLASSES,RequestDispatcherTest.class.getName(),ConfigKey.AGENT_ID,"test");
+        Configuration config = new Configuration(ConfigKey.DISPATCHER_CLASSES,RequestDispatcherTest.class.getName(),ConfigKey.AGENT_ID,"test");
         BackendManager backendManager = new BackendManager(config, log);
         JmxRequest req = new JmxRequestBuilder(RequestType.READ,"java.lang:type=Memory").build();
         backendManager.handleRequest(req);
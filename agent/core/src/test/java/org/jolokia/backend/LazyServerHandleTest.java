@@ -0,0 +1,78 @@
+package org.jolokia.backend;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jolokia.backend.executor.MBeanServerExecutor;
+import org.jolokia.detector.ServerHandle;
+import org.jolokia.request.JmxRequest;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * @author roland
+ * @since 1.6.3
+ */
+public class LazyServerHandleTest {
+
+    @Test
+    public void delegateAfterDetection() throws Exception {
+        final LazyServerHandle handle = new LazyServerHandle();
+        final AtomicInteger dispatched = new AtomicInteger();
+        final AtomicInteger notified = new AtomicInteger();
+
+        // Hooks don't wait for the detection
+        handle.preDispatch(null, null);
+        handle.whenDetected(new Runnable() {
+            public void run() {
+                notified.incrementAndGet();
+            }
+        });
+        assertEquals(notified.get(), 0);
+
+        Thread detection = new Thread(new Runnable() {
+            public void run() {
+                handle.setDetected(new ServerHandle("Apache", "tomcat", "9.0", null) {
+                    @Override
+                    public void preDispatch(MBeanServerExecutor pMBeanServerExecutor, JmxRequest pJmxReq) {
+                        dispatched.incrementAndGet();
+                    }
+                });
+            }
+        });
+        detection.start();
+        // Blocks until detected
+        assertEquals(handle.getProduct(), "tomcat");
+        assertEquals(handle.getVersion(), "9.0");
+        assertEquals(handle.toJSONObject(null).get("vendor"), "Apache");
+        detection.join();
+
+        assertEquals(notified.get(), 1);
+        handle.preDispatch(null, null);
+        assertEquals(dispatched.get(), 1);
+
+        // Run immediately once detected
+        handle.whenDetected(new Runnable() {
+            public void run() {
+                notified.incrementAndGet();
+            }
+        });
+        assertEquals(notified.get(), 2);
+    }
+}
@@ -0,0 +1,161 @@
+package org.jolokia.backend;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.lang.instrument.Instrumentation;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+import javax.management.MBeanServerConnection;
+
+import org.jolokia.backend.executor.MBeanServerExecutor;
+import org.jolokia.config.ConfigKey;
+import org.jolokia.config.Configuration;
+import org.jolokia.detector.*;
+import org.jolokia.util.LogHandler;
+import org.testng.annotations.*;
+
+import static org.testng.Assert.*;
+
+/**
+ * @author roland
+ * @since 1.6.3
+ */
+public class MBeanServerHandlerDetectionTest {
+
+    private MBeanServerHandler handler;
+    private LogHandler logHandler;
+
+    @BeforeMethod
+    public void setup() {
+        logHandler = new LogHandler() {
+            public void debug(String message) {
+            }
+
+            public void info(String message) {
+            }
+
+            public void error(String message, Throwable t) {
+            }
+        };
+        handler = new MBeanServerHandler(new Configuration(ConfigKey.MBEAN_QUALIFIER, "qualifier=detection"), logHandler);
+    }
+
+    @AfterMethod
+    public void tearDown() throws JMException {
+        handler.destroy();
+    }
+
+    @Test
+    public void preconditions() {
+        PlainDetector plain = new PlainDetector(null);
+        CountingDetector skipped = new CountingDetector(false, null);
+        assertNull(handler.detectServers(Arrays.<ServerDetector>asList(skipped, plain), logHandler));
+        // Detectors not extending AbstractServerDetector are always used
+        assertEquals(plain.called.get(), 1);
+        assertEquals(skipped.called.get(), 0);
+    }
+
+    @Test
+    public void remainingDetectorsAfterWinner() throws InterruptedException {
+        ServerHandle found = new ServerHandle("Jolokia", "test", "1.0", null);
+        BlockingDetector blocking = new BlockingDetector();
+        List<ServerDetector> detectors = new ArrayList<ServerDetector>();
+        detectors.add(new PlainDetector(found));
+        for (int i = 0; i < 3; i++) {
+            detectors.add(blocking);
+        }
+        CountingDetector late = new CountingDetector(true, found);
+        detectors.add(late);
+        detectors.add(late);
+
+        assertSame(handler.detectServers(detectors, logHandler), found);
+        // Running detectors are cancelled, queued ones don't start
+        long end = System.currentTimeMillis() + 10000;
+        while (blocking.finished.get() < blocking.started.get() && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertEquals(blocking.finished.get(), blocking.started.get());
+        assertEquals(late.called.get(), 0);
+    }
+
+    // ===========================================================================
+
+    private static class PlainDetector implements ServerDetector {
+
+        private final ServerHandle handle;
+        private final AtomicInteger called = new AtomicInteger();
+
+        PlainDetector(ServerHandle pHandle) {
+            handle = pHandle;
+        }
+
+        public ServerHandle detect(MBeanServerExecutor pMBeanServerExecutor) {
+            called.incrementAndGet();
+            return handle;
+        }
+
+        public void addMBeanServers(Set<MBeanServerConnection> pMBeanServers) {
+        }
+
+        public void jvmAgentStartup(Instrumentation instrumentation) {
+        }
+    }
+
+    private static class CountingDetector extends AbstractServerDetector {
+
+        private final boolean applicable;
+        private final ServerHandle handle;
+        private final AtomicInteger called = new AtomicInteger();
+
+        CountingDetector(boolean pApplicable, ServerHandle pHandle) {
+            applicable = pApplicable;
+            handle = pHandle;
+        }
+
+        @Override
+        public boolean isApplicable(Set<String> pDomains) {
+            return applicable;
+        }
+
+        public ServerHandle detect(MBeanServerExecutor pMBeanServerExecutor) {
+            called.incrementAndGet();
+            return handle;
+        }
+    }
+
+    private static class BlockingDetector extends AbstractServerDetector {
+
+        private final AtomicInteger started = new AtomicInteger();
+        private final AtomicInteger finished = new AtomicInteger();
+
+        public ServerHandle detect(MBeanServerExecutor pMBeanServerExecutor) {
+            started.incrementAndGet();
+            try {
+                // Until interrupted
+                new CountDownLatch(1).await();
+            } catch (InterruptedException exp) {
+                // Cancelled
+            } finally {
+                finished.incrementAndGet();
+            }
+            return null;
+        }
+    }
+}
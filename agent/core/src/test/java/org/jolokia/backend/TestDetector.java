@@ -76,6 +76,7 @@ public class TestDetector implements ServerDetector {
                             }
                         });
                 expect(server.isRegistered(EasyMock.<ObjectName>anyObject())).andStubReturn(true);
+                expect(server.getDomains()).andStubReturn(new String[0]);
                 server.addNotificationListener((ObjectName) anyObject(), (NotificationListener) anyObject(),
                                                (NotificationFilter) anyObject(), anyObject());
                 expectLastCall().anyTimes();
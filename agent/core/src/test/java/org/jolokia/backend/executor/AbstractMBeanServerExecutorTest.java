@@ -17,9 +17,12 @@ package org.jolokia.backend.executor;
  */
 
 import java.io.IOException;
+import java.security.AccessController;
+import java.security.PrivilegedExceptionAction;
 import java.util.*;
 
 import javax.management.*;
+import javax.security.auth.Subject;
 
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -74,6 +77,142 @@ public class AbstractMBeanServerExecutorTest {
         }
     }
 
+    @Test
+    public void eachFetch() throws Exception {
+        List<ObjectName> sequential = fetchNames();
+        executor.setTraversalParallelism(4);
+        try {
+            for (int i = 0; i < 10; i++) {
+                // Always merged in the same order as when visited sequentially
+                assertEquals(fetchNames(), sequential);
+            }
+        } finally {
+            executor.shutdownTraversalPool();
+        }
+        assertEquals(sequential.size(), 3);
+    }
+
+    @Test
+    public void eachFetchWithSubject() throws Exception {
+        final Subject subject = new Subject();
+        final Set<Subject> seen = Collections.synchronizedSet(new HashSet<Subject>());
+        executor.setTraversalParallelism(4);
+        try {
+            // Pool threads are started without a Subject, they would inherit it otherwise
+            fetchNames();
+            fetchNames();
+            Subject.doAs(subject, new PrivilegedExceptionAction<Void>() {
+                public Void run() throws Exception {
+                    executor.each(null, new MBeanServerExecutor.MBeanFetchCallback<Object>() {
+                        public Object fetch(MBeanServerConnection pConn, ObjectName pName) {
+                            // Pool threads see the caller's Subject
+                            seen.add(Subject.getSubject(AccessController.getContext()));
+                            return null;
+                        }
+
+                        public void merge(ObjectName pName, Object pData) {
+                        }
+                    }, 0);
+                    return null;
+                }
+            });
+        } finally {
+            executor.shutdownTraversalPool();
+        }
+        assertEquals(seen, Collections.singleton(subject));
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class, expectedExceptionsMessageRegExp = ".*within 50 ms.*")
+    public void eachFetchTimeout() throws Exception {
+        executor.setTraversalParallelism(2);
+        try {
+            executor.each(null, new MBeanServerExecutor.MBeanFetchCallback<Object>() {
+                public Object fetch(MBeanServerConnection pConn, ObjectName pName) {
+                    try {
+                        Thread.sleep(200);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return null;
+                }
+
+                public void merge(ObjectName pName, Object pData) {
+                }
+            }, 50);
+        } finally {
+            executor.shutdownTraversalPool();
+        }
+    }
+
+    @Test
+    public void eachFetchWithExpiredBudget() throws Exception {
+        executor.setTraversalParallelism(2);
+        TimeBudget.attach(TimeBudget.start(50));
+        final Map<ObjectName, Object> merged = new LinkedHashMap<ObjectName, Object>();
+        try {
+            executor.each(null, new MBeanServerExecutor.MBeanFetchCallback<Object>() {
+                public Object fetch(MBeanServerConnection pConn, ObjectName pName) {
+                    try {
+                        TimeBudget.current().check(pName);
+                        Thread.sleep(200);
+                        return pName;
+                    } catch (RequestTimeoutException exp) {
+                        return exp;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return null;
+                    }
+                }
+
+                public void merge(ObjectName pName, Object pData) {
+                    merged.put(pName, pData);
+                }
+            }, 0);
+        } finally {
+            TimeBudget.attach(null);
+            executor.shutdownTraversalPool();
+        }
+        // Every MBean is merged, the ones not fetched in time with the timeout error
+        assertEquals(merged.size(), 3);
+        for (Object value : merged.values()) {
+            assertTrue(value instanceof RequestTimeoutException);
+        }
+    }
+
+    @Test(expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = ".*fetch failed.*")
+    public void eachFetchException() throws Exception {
+        executor.setTraversalParallelism(2);
+        try {
+            executor.each(null, new MBeanServerExecutor.MBeanFetchCallback<Object>() {
+                public Object fetch(MBeanServerConnection pConn, ObjectName pName) throws IOException {
+                    throw new IOException("fetch failed for " + pName);
+                }
+
+                public void merge(ObjectName pName, Object pData) {
+                    fail("No merge expected");
+                }
+            }, 0);
+        } finally {
+            executor.shutdownTraversalPool();
+        }
+    }
+
+    private List<ObjectName> fetchNames() throws IOException, ReflectionException, MBeanException {
+        final List<ObjectName> ret = new ArrayList<ObjectName>();
+        executor.each(null, new MBeanServerExecutor.MBeanFetchCallback<ObjectName>() {
+            public ObjectName fetch(MBeanServerConnection pConn, ObjectName pName) throws ReflectionException, InstanceNotFoundException, IOException, MBeanException {
+                checkHiddenMBeans(pConn, pName);
+                return pName;
+            }
+
+            public void merge(ObjectName pName, ObjectName pData) {
+                assertEquals(pData, pName);
+                ret.add(pName);
+            }
+        }, 0);
+        return ret;
+    }
+
     @Test
     public void updateChangeTest() throws MalformedObjectNameException, NotCompliantMBeanException, InstanceAlreadyExistsException, MBeanRegistrationException, InstanceNotFoundException, InterruptedException, IOException {
         executor.registerForMBeanNotifications();
@@ -123,6 +262,96 @@ public class AbstractMBeanServerExecutorTest {
             },attribute);
     }
 
+    @Test
+    public void routing() throws Exception {
+        executor.registerForMBeanNotifications();
+        ObjectName two = new ObjectName("test:type=two");
+        ObjectName routed = new ObjectName("routing:type=test");
+        try {
+            final List<MBeanServerConnection> visited = new ArrayList<MBeanServerConnection>();
+            MBeanServerExecutor.MBeanAction<Object> action = new MBeanServerExecutor.MBeanAction<Object>() {
+                public Object execute(MBeanServerConnection pConn, ObjectName pName, Object... extraArgs)
+                        throws ReflectionException, InstanceNotFoundException, IOException, MBeanException, AttributeNotFoundException {
+                    visited.add(pConn);
+                    return pConn.getAttribute(pName, "Name");
+                }
+            };
+            executor.call(two, action);
+            assertEquals(visited.size(), 2);
+
+            // Owner is known now
+            visited.clear();
+            executor.call(two, action);
+            assertEquals(visited, Collections.singletonList(executor.otherMBeanServer));
+            assertEquals(executor.queryNames(two), Collections.singleton(two));
+
+            // A registration on a server earlier in merge order takes precedence
+            executor.jolokiaMBeanServer.registerMBean(new Testing(), two);
+            try {
+                visited.clear();
+                executor.call(two, action);
+                assertEquals(visited, Collections.singletonList(executor.jolokiaMBeanServer));
+            } finally {
+                executor.jolokiaMBeanServer.unregisterMBean(two);
+            }
+            visited.clear();
+            executor.call(two, action);
+            assertEquals(visited.get(visited.size() - 1), executor.otherMBeanServer);
+
+            // New domains are picked up
+            assertTrue(executor.queryNames(new ObjectName("routing:*")).isEmpty());
+            executor.otherMBeanServer.registerMBean(new Testing(), routed);
+            assertEquals(executor.queryNames(new ObjectName("routing:*")), Collections.singleton(routed));
+        } finally {
+            if (executor.otherMBeanServer.isRegistered(routed)) {
+                executor.otherMBeanServer.unregisterMBean(routed);
+            }
+            executor.unregisterFromMBeanNotifications();
+        }
+    }
+
+    @Test
+    public void domains() throws IOException {
+        Set<String> domains = executor.getDomains();
+        assertTrue(domains.contains("test"));
+        assertTrue(domains.contains("JMImplementation"));
+        assertFalse(domains.contains("jboss.as"));
+    }
+
+    @Test
+    public void callWithExpiredBudget() throws Exception {
+        TimeBudget.attach(TimeBudget.start(1));
+        try {
+            Thread.sleep(10);
+            getAttribute(executor,"test:type=one","Name");
+            fail("Request timeout expected");
+        } catch (RequestTimeoutException exp) {
+            assertTrue(exp.getMessage().contains("test:type=one"));
+        } finally {
+            TimeBudget.attach(null);
+        }
+        // No access happened, so nothing is slow
+        assertTrue(executor.getSlowMBeanTracker().getSlowMBeans().isEmpty());
+    }
+
+    @Test
+    public void callWithBulkhead() throws Exception {
+        executor.setBulkhead(new Bulkhead(Bulkhead.Scope.DOMAIN, 1, 1000, 3, 10000, executor.getSlowMBeanTracker()));
+        try {
+            assertEquals(getAttribute(executor,"test:type=one","Name"),"jolokia");
+            try {
+                getAttribute(executor,"test:type=one","Bla");
+                fail("AttributeNotFoundException expected");
+            } catch (AttributeNotFoundException exp) {
+                assertTrue(exp.getMessage().contains("Bla"));
+            }
+            assertEquals(executor.getBulkhead().getActiveCalls(), 0);
+        } finally {
+            executor.setBulkhead(null);
+        }
+        assertNull(executor.getBulkhead());
+    }
+
     @Test(expectedExceptions = InstanceNotFoundException.class,expectedExceptionsMessageRegExp = ".*test:type=bla.*")
     public void callWithInvalidObjectName() throws MalformedObjectNameException, NotCompliantMBeanException, InstanceAlreadyExistsException, MBeanException, IOException, ReflectionException, AttributeNotFoundException, InstanceNotFoundException {
         getAttribute(executor,"test:type=bla","Name");
@@ -0,0 +1,250 @@
+package org.jolokia.backend.executor;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import java.io.IOException;
+import java.security.AccessController;
+import java.security.PrivilegedExceptionAction;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.ObjectName;
+import javax.security.auth.Subject;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * @author roland
+ * @since 1.6.3
+ */
+public class BulkheadTest {
+
+    private CountDownLatch hang;
+    private SlowMBeanTracker tracker;
+    private Bulkhead bulkhead;
+
+    @BeforeMethod
+    public void setup() {
+        hang = new CountDownLatch(1);
+        tracker = new SlowMBeanTracker();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        hang.countDown();
+        TimeBudget.attach(null);
+        if (bulkhead != null) {
+            bulkhead.shutdown();
+        }
+    }
+
+    @Test
+    public void call() throws Exception {
+        bulkhead = new Bulkhead(Bulkhead.Scope.DOMAIN, 2, 1000, 3, 10000, tracker);
+        final String[] threadName = new String[1];
+        assertEquals(bulkhead.call(new ObjectName("test:type=fast"), new Callable<String>() {
+            public String call() {
+                threadName[0] = Thread.currentThread().getName();
+                return "ok";
+            }
+        }), "ok");
+        assertTrue(threadName[0].startsWith("jolokia-bulkhead-"));
+        assertEquals(bulkhead.getActiveCalls(), 0);
+        assertEquals(bulkhead.getTimedOutCalls(), 0);
+    }
+
+    @Test
+    public void callWithSubject() throws Exception {
+        bulkhead = new Bulkhead(Bulkhead.Scope.DOMAIN, 2, 1000, 3, 10000, tracker);
+        final Callable<Subject> subjectLookup = new Callable<Subject>() {
+            public Subject call() {
+                return Subject.getSubject(AccessController.getContext());
+            }
+        };
+        // Start the pool thread without a Subject, it would inherit the Subject otherwise
+        assertNull(bulkhead.call(new ObjectName("test:type=fast"), subjectLookup));
+        Thread.sleep(50);
+
+        Subject subject = new Subject();
+        Subject seen = Subject.doAs(subject, new PrivilegedExceptionAction<Subject>() {
+            public Subject run() throws Exception {
+                return bulkhead.call(new ObjectName("test:type=fast"), subjectLookup);
+            }
+        });
+        assertSame(seen, subject);
+    }
+
+    @Test(expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = ".*broken.*")
+    public void exceptionIsPropagated() throws Exception {
+        bulkhead = new Bulkhead(Bulkhead.Scope.DOMAIN, 2, 1000, 3, 10000, tracker);
+        bulkhead.call(new ObjectName("test:type=broken"), new Callable<Object>() {
+            public Object call() throws IOException {
+                throw new IOException("broken");
+            }
+        });
+    }
+
+    @Test
+    public void circuitBreaker() throws Exception {
+        bulkhead = new Bulkhead(Bulkhead.Scope.MBEAN, 0, 20, 2, 10000, tracker);
+        ObjectName name = new ObjectName("test:type=hanging");
+        AtomicInteger calls = new AtomicInteger();
+        for (int i = 0; i < 2; i++) {
+            expectTimeout(name, hangingCall(calls), "did not return");
+        }
+        assertEquals(bulkhead.getTimedOutCalls(), 2);
+        assertTrue(tracker.isSlow(name));
+        assertEquals(bulkhead.getOpenCircuits().length, 1);
+        assertTrue(bulkhead.getOpenCircuits()[0].startsWith("test:type=hanging"));
+
+        // Circuit is open now, so the MBean is not called at all
+        expectTimeout(name, hangingCall(calls), "skipped");
+        assertEquals(calls.get(), 2);
+        assertEquals(bulkhead.getRejectedCalls(), 1);
+
+        bulkhead.resetCircuits();
+        assertEquals(bulkhead.getOpenCircuits().length, 0);
+        hang.countDown();
+        assertEquals(bulkhead.call(name, hangingCall(calls)), "done");
+    }
+
+    @Test
+    public void halfOpenCircuit() throws Exception {
+        bulkhead = new Bulkhead(Bulkhead.Scope.MBEAN, 0, 20, 1, 50, tracker);
+        ObjectName name = new ObjectName("test:type=hanging");
+        AtomicInteger calls = new AtomicInteger();
+        expectTimeout(name, hangingCall(calls), "did not return");
+        expectTimeout(name, hangingCall(calls), "skipped");
+        Thread.sleep(100);
+
+        // A single trial call is let through which closes the circuit when successful
+        hang.countDown();
+        assertEquals(bulkhead.call(name, hangingCall(calls)), "done");
+        assertEquals(bulkhead.getOpenCircuits().length, 0);
+        assertEquals(calls.get(), 2);
+    }
+
+    @Test
+    public void concurrencyLimit() throws Exception {
+        bulkhead = new Bulkhead(Bulkhead.Scope.DOMAIN, 1, 20, 0, 0, tracker);
+        AtomicInteger calls = new AtomicInteger();
+        expectTimeout(new ObjectName("test:type=one"), hangingCall(calls), "did not return");
+
+        // The hanging call still occupies the only slot of the domain
+        assertEquals(bulkhead.getActiveCalls(), 1);
+        expectTimeout(new ObjectName("test:type=two"), hangingCall(calls), "Too many running calls");
+        assertEquals(bulkhead.getRejectedCalls(), 1);
+
+        // Other domains are not affected
+        assertEquals(bulkhead.call(new ObjectName("other:type=one"), new Callable<String>() {
+            public String call() {
+                return "other";
+            }
+        }), "other");
+
+        // Circuit breaker is switched off
+        assertEquals(bulkhead.getOpenCircuits().length, 0);
+
+        hang.countDown();
+        for (int i = 0; i < 100 && bulkhead.getActiveCalls() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(bulkhead.getActiveCalls(), 0);
+    }
+
+    @Test
+    public void timeBudget() throws Exception {
+        bulkhead = new Bulkhead(Bulkhead.Scope.DOMAIN, 2, 10000, 1, 10000, tracker);
+        TimeBudget.attach(TimeBudget.start(20));
+        expectTimeout(new ObjectName("test:type=hanging"), hangingCall(new AtomicInteger()), "Time budget");
+        // The budget of the request is not the MBean's fault
+        assertEquals(bulkhead.getTimedOutCalls(), 0);
+        assertEquals(bulkhead.getOpenCircuits().length, 0);
+    }
+
+    @Test
+    public void cancelledBeforeStart() throws Exception {
+        bulkhead = new Bulkhead(Bulkhead.Scope.DOMAIN, 2, 1000, 0, 10000, tracker);
+        ObjectName name = new ObjectName("test:type=fast");
+        Callable<String> fast = new Callable<String>() {
+            public String call() {
+                return "ok";
+            }
+        };
+        // With the budget used up the calls are cancelled at once, mostly before their thread has started
+        TimeBudget.attach(TimeBudget.start(1));
+        Thread.sleep(10);
+        for (int i = 0; i < 50; i++) {
+            try {
+                bulkhead.call(name, fast);
+            } catch (RequestTimeoutException exp) {
+                assertFalse(exp.getMessage().contains("Too many"), exp.getMessage());
+            }
+        }
+        TimeBudget.attach(null);
+        long end = System.currentTimeMillis() + 5000;
+        while (bulkhead.getActiveCalls() > 0 && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertEquals(bulkhead.getActiveCalls(), 0);
+        assertEquals(bulkhead.call(name, fast), "ok");
+    }
+
+    @Test
+    public void scope() {
+        assertEquals(Bulkhead.Scope.fromName("domain"), Bulkhead.Scope.DOMAIN);
+        assertEquals(Bulkhead.Scope.fromName("MBean"), Bulkhead.Scope.MBEAN);
+        try {
+            Bulkhead.Scope.fromName("jvm");
+            fail("Unknown scope");
+        } catch (IllegalArgumentException exp) {
+            assertTrue(exp.getMessage().contains("jvm"));
+        }
+    }
+
+    // ===========================================================================
+
+    private Callable<String> hangingCall(final AtomicInteger pCalls) {
+        return new Callable<String>() {
+            public String call() {
+                pCalls.incrementAndGet();
+                // Ignore interrupts in order to simulate a really stuck call
+                while (true) {
+                    try {
+                        hang.await();
+                        return "done";
+                    } catch (InterruptedException exp) {
+                        // Go on waiting
+                    }
+                }
+            }
+        };
+    }
+
+    private void expectTimeout(ObjectName pName, Callable<?> pCall, String pMessage) throws Exception {
+        try {
+            bulkhead.call(pName, pCall);
+            fail("Timeout expected");
+        } catch (RequestTimeoutException exp) {
+            assertTrue(exp.getMessage().contains(pMessage), exp.getMessage());
+        }
+    }
+}
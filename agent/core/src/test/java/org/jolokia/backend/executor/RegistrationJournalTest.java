@@ -0,0 +1,99 @@
+package org.jolokia.backend.executor;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * @author roland
+ * @since 1.6.3
+ */
+public class RegistrationJournalTest {
+
+    @Test
+    public void changes() throws MalformedObjectNameException {
+        RegistrationJournal journal = new RegistrationJournal(10);
+        journal.activate();
+        long start = journal.getSequence();
+        ObjectName one = new ObjectName("test:type=one");
+        ObjectName two = new ObjectName("test:type=two");
+        ObjectName three = new ObjectName("test:type=three");
+
+        journal.record(one, true);
+        journal.record(two, true);
+        long middle = journal.getSequence();
+        journal.record(one, false);
+        journal.record(three, true);
+        journal.record(three, false);
+        journal.record(two, false);
+        journal.record(two, true);
+
+        RegistrationJournal.Changes changes = journal.getChangesSince(start);
+        assertTrue(changes.isComplete());
+        assertEquals(changes.getSequence(), start + 7);
+        assertEquals(changes.getAdded(), Collections.singleton(two));
+        assertEquals(changes.getRemoved(), new LinkedHashSet<ObjectName>(Arrays.asList(one, three)));
+
+        // Re-registered MBeans are reported as added
+        changes = journal.getChangesSince(middle);
+        assertEquals(changes.getAdded(), Collections.singleton(two));
+        assertFalse(changes.getRemoved().contains(two));
+
+        // No changes
+        changes = journal.getChangesSince(journal.getSequence());
+        assertTrue(changes.isComplete());
+        assertTrue(changes.getAdded().isEmpty());
+        assertTrue(changes.getRemoved().isEmpty());
+    }
+
+    @Test
+    public void rolledOver() throws MalformedObjectNameException {
+        RegistrationJournal journal = new RegistrationJournal(3);
+        journal.activate();
+        long start = journal.getSequence();
+        for (int i = 0; i < 4; i++) {
+            journal.record(new ObjectName("test:idx=" + i), true);
+        }
+        assertFalse(journal.getChangesSince(start).isComplete());
+        RegistrationJournal.Changes changes = journal.getChangesSince(start + 1);
+        assertTrue(changes.isComplete());
+        assertEquals(changes.getAdded().size(), 3);
+    }
+
+    @Test
+    public void unknownSequence() throws MalformedObjectNameException {
+        RegistrationJournal journal = new RegistrationJournal(10);
+        long start = journal.getSequence();
+        // Not active yet
+        assertFalse(journal.getChangesSince(start).isComplete());
+        journal.activate();
+        assertTrue(journal.isActive());
+        assertTrue(journal.getChangesSince(start).isComplete());
+        // From the future or from an earlier journal
+        assertFalse(journal.getChangesSince(start + 1).isComplete());
+        assertFalse(journal.getChangesSince(0).isComplete());
+    }
+}
@@ -0,0 +1,69 @@
+package org.jolokia.backend.executor;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import java.util.Map;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * @author roland
+ * @since 1.6.3
+ */
+public class SlowMBeanTrackerTest {
+
+    @Test
+    public void record() throws MalformedObjectNameException {
+        SlowMBeanTracker tracker = new SlowMBeanTracker();
+        ObjectName name = new ObjectName("test:type=slow");
+        assertFalse(tracker.isSlow(name));
+
+        tracker.record(name, 200);
+        tracker.record(name, 100);
+        assertTrue(tracker.isSlow(name));
+        SlowMBeanTracker.Stats stats = tracker.getSlowMBeans().get(name);
+        assertEquals(stats.getCount(), 2);
+        assertEquals(stats.getLastDuration(), 100);
+        assertEquals(stats.getMaxDuration(), 200);
+        assertTrue(stats.getLastTime() > 0);
+
+        // Snapshots are not updated afterwards
+        tracker.record(name, 300);
+        assertEquals(stats.getCount(), 2);
+
+        tracker.clear();
+        assertFalse(tracker.isSlow(name));
+    }
+
+    @Test
+    public void bounded() throws MalformedObjectNameException {
+        SlowMBeanTracker tracker = new SlowMBeanTracker();
+        for (int i = 0; i <= SlowMBeanTracker.MAX_ENTRIES; i++) {
+            tracker.record(new ObjectName("test:type=slow,idx=" + i), 100);
+        }
+        Map<ObjectName, SlowMBeanTracker.Stats> slow = tracker.getSlowMBeans();
+        assertEquals(slow.size(), SlowMBeanTracker.MAX_ENTRIES);
+        // The oldest one has been evicted
+        assertFalse(tracker.isSlow(new ObjectName("test:type=slow,idx=0")));
+        assertTrue(tracker.isSlow(new ObjectName("test:type=slow,idx=" + SlowMBeanTracker.MAX_ENTRIES)));
+    }
+}
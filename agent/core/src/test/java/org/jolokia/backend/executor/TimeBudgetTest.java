@@ -0,0 +1,90 @@
+package org.jolokia.backend.executor;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * @author roland
+ * @since 1.6.3
+ */
+public class TimeBudgetTest {
+
+    @AfterMethod
+    public void detach() {
+        TimeBudget.attach(null);
+    }
+
+    @Test
+    public void unlimited() {
+        assertSame(TimeBudget.start(0), TimeBudget.UNLIMITED);
+        assertSame(TimeBudget.start(-1), TimeBudget.UNLIMITED);
+        assertSame(TimeBudget.current(), TimeBudget.UNLIMITED);
+        assertFalse(TimeBudget.UNLIMITED.isLimited());
+        assertFalse(TimeBudget.UNLIMITED.isExpired());
+        assertEquals(TimeBudget.UNLIMITED.getRemaining(), Long.MAX_VALUE);
+        TimeBudget.UNLIMITED.check("test:type=unlimited");
+    }
+
+    @Test
+    public void limited() {
+        TimeBudget budget = TimeBudget.start(60000);
+        assertTrue(budget.isLimited());
+        assertFalse(budget.isExpired());
+        assertEquals(budget.getTimeout(), 60000);
+        assertTrue(budget.getRemaining() > 0 && budget.getRemaining() <= 60000);
+        budget.check("test:type=limited");
+    }
+
+    @Test
+    public void expired() throws InterruptedException {
+        TimeBudget budget = TimeBudget.start(1);
+        Thread.sleep(10);
+        assertTrue(budget.isExpired());
+        assertEquals(budget.getRemaining(), 0);
+        try {
+            budget.check("test:type=expired");
+            fail("Timeout expected");
+        } catch (RequestTimeoutException exp) {
+            assertTrue(exp.getMessage().contains("test:type=expired"));
+        }
+    }
+
+    @Test
+    public void attach() throws InterruptedException {
+        TimeBudget budget = TimeBudget.start(1000);
+        TimeBudget.attach(budget);
+        assertSame(TimeBudget.current(), budget);
+
+        // Budgets are bound to a single thread
+        final TimeBudget[] other = new TimeBudget[1];
+        Thread thread = new Thread() {
+            public void run() {
+                other[0] = TimeBudget.current();
+            }
+        };
+        thread.start();
+        thread.join();
+        assertSame(other[0], TimeBudget.UNLIMITED);
+
+        TimeBudget.attach(null);
+        assertSame(TimeBudget.current(), TimeBudget.UNLIMITED);
+    }
+}
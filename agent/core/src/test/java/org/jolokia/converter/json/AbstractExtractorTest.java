@@ -22,6 +22,7 @@ import java.util.*;
 import javax.management.AttributeNotFoundException;
 
 import org.jolokia.converter.object.StringToObjectConverter;
+import org.jolokia.util.PathCursor;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 
@@ -31,7 +32,7 @@ import org.testng.annotations.BeforeMethod;
  */
 abstract public class AbstractExtractorTest {
 
-    protected Extractor extractor;
+    protected PathExtractor extractor;
     protected ObjectToJsonConverter converter;
     protected StringToObjectConverter stringToObjectConverter;
     @BeforeMethod
@@ -60,13 +61,9 @@ abstract public class AbstractExtractorTest {
     }
 
     private Object extract(Object pValue, String[] extraArgs, boolean pJsonify) throws AttributeNotFoundException {
-        Stack<String> args = new Stack<String>();
-        args.addAll(Arrays.asList(extraArgs));
-        Collections.reverse(args);
-
-        return extractor.extractObject(converter,pValue,args, pJsonify);
+        return extractor.extractObject(converter,pValue,PathCursor.of(Arrays.asList(extraArgs)), pJsonify);
     }
 
 
-    abstract Extractor createExtractor();
+    abstract PathExtractor createExtractor();
 }
@@ -110,7 +110,7 @@ public class ArrayExtractorTest extends AbstractExtractorTest {
     }
 
     @Override
-    Extractor createExtractor() {
+    PathExtractor createExtractor() {
         return new ArrayExtractor();
     }
 }
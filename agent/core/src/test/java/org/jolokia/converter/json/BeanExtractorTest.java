@@ -130,7 +130,7 @@ public class BeanExtractorTest extends AbstractExtractorTest {
     // =================================================================================
     
     @Override
-    Extractor createExtractor() {
+    PathExtractor createExtractor() {
         return new BeanExtractor();
     }
 
@@ -22,6 +22,7 @@ import java.util.*;
 import javax.management.AttributeNotFoundException;
 
 import org.jolokia.converter.object.StringToObjectConverter;
+import org.jolokia.util.PathCursor;
 import org.json.simple.JSONArray;
 import org.testng.annotations.*;
 
@@ -52,7 +53,7 @@ public class CollectionExtractorTest {
     public void json() throws AttributeNotFoundException {
         assertFalse(extractor.canSetValue());
         Set set = new HashSet(Arrays.asList("jolokia","habanero"));
-        List ret = (List) extractor.extractObject(converter,set,new Stack<String>(),true);
+        List ret = (List) extractor.extractObject(converter,set,PathCursor.EMPTY,true);
         assertEquals(ret.size(),2);
         assertTrue(ret.contains("jolokia"));
         assertTrue(ret.contains("habanero"));
@@ -63,10 +64,7 @@ public class CollectionExtractorTest {
     public void jsonAndPath() throws AttributeNotFoundException {
         Collection collection = Arrays.asList("jolokia","habanero");
 
-        Stack paths = new Stack();
-        paths.add("1");
-
-        String val = (String) extractor.extractObject(converter,collection,paths,true);
+        String val = (String) extractor.extractObject(converter,collection,PathCursor.of(Arrays.asList("1")),true);
         assertEquals(val, "habanero");
     }
 
@@ -76,10 +74,8 @@ public class CollectionExtractorTest {
 
 
         for (String path : new String[] { "bla", "2"}) {
-            Stack<String> paths = new Stack();
-            paths.add(path);
             try {
-                extractor.extractObject(converter, collection, paths, true);
+                extractor.extractObject(converter, collection, PathCursor.of(Arrays.asList(path)), true);
                 fail();
             } catch (AttributeNotFoundException exp) {
 
@@ -91,7 +87,7 @@ public class CollectionExtractorTest {
     @Test
     public void noJson() throws AttributeNotFoundException {
         Set set = new HashSet(Arrays.asList("jolokia","habanero"));
-        Set ret = (Set) extractor.extractObject(converter,set,new Stack<String>(),false);
+        Set ret = (Set) extractor.extractObject(converter,set,PathCursor.EMPTY,false);
         assertEquals(ret,set);
     }
 
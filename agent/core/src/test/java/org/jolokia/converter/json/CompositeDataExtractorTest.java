@@ -79,7 +79,7 @@ public class CompositeDataExtractorTest extends AbstractExtractorTest {
     }
 
     @Override
-    Extractor createExtractor() {
+    PathExtractor createExtractor() {
         return new CompositeDataExtractor();
     }
 
@@ -18,12 +18,13 @@ package org.jolokia.converter.json;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.Date;
-import java.util.Stack;
+import java.util.Arrays;
 
 import javax.management.AttributeNotFoundException;
 
 import org.easymock.EasyMock;
 import org.jolokia.util.DateUtil;
+import org.jolokia.util.PathCursor;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -62,32 +63,27 @@ public class DateExtractorTest {
     @Test
     public void directExtract() throws AttributeNotFoundException {
         Date date = new Date();
-        Stack stack = new Stack();
-        Object result = extractor.extractObject(null,date,stack,false);
+        Object result = extractor.extractObject(null,date,PathCursor.EMPTY,false);
         assertEquals(result,date);
-        stack.add("time");
-        result = extractor.extractObject(null,date,stack,false);
+        result = extractor.extractObject(null,date,PathCursor.of(Arrays.asList("time")),false);
         assertEquals(result,date);
     }
 
     @Test
     public void simpleJsonExtract() throws AttributeNotFoundException {
         Date date = new Date();
-        Stack stack = new Stack();
-        Object result = extractor.extractObject(null,date,stack,true);
+        Object result = extractor.extractObject(null,date,PathCursor.EMPTY,true);
         assertEquals(result, DateUtil.toISO8601(date));
-        stack.add("time");
-        result = extractor.extractObject(null,date,stack,true);
+        result = extractor.extractObject(null,date,PathCursor.of(Arrays.asList("time")),true);
         assertEquals(result,date.getTime());
     }
 
     @Test(enabled = true, expectedExceptions = AttributeNotFoundException.class)
     public void simpleJsonExtractWithWrongPath() throws AttributeNotFoundException {
         Date date = new Date();
-        Stack stack = new Stack();
-        stack.add("blablub");
 
-        extractor.extractObject(converter, date, stack, true);
+
+        extractor.extractObject(converter, date, PathCursor.of(Arrays.asList("blablub")), true);
     }
 
     @Test
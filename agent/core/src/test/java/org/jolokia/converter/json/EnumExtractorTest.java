@@ -1,11 +1,12 @@
 package org.jolokia.converter.json;
 
 import java.lang.reflect.InvocationTargetException;
-import java.util.Stack;
+import java.util.Arrays;
 
 import javax.management.AttributeNotFoundException;
 
 import org.jolokia.converter.object.StringToObjectConverter;
+import org.jolokia.util.PathCursor;
 import org.testng.annotations.*;
 
 import static org.testng.Assert.*;
@@ -39,23 +40,18 @@ public class EnumExtractorTest {
 
     @Test
     public void jsonExtract() throws AttributeNotFoundException {
-        Stack stack = new Stack();
-        assertEquals(enumExtractor.extractObject(converter, TestEnum.EINS,stack,true),"EINS");
-        stack.add("EINS");
-        assertEquals(enumExtractor.extractObject(converter, TestEnum.EINS,stack,true),"EINS");
+        assertEquals(enumExtractor.extractObject(converter, TestEnum.EINS,PathCursor.EMPTY,true),"EINS");
+        assertEquals(enumExtractor.extractObject(converter, TestEnum.EINS,PathCursor.of(Arrays.asList("EINS")),true),"EINS");
     }
 
     @Test(expectedExceptions = AttributeNotFoundException.class)
     public void jsonExtractWithWrongPath() throws AttributeNotFoundException {
-        Stack stack = new Stack();
-        stack.add("ZWEI");
-        enumExtractor.extractObject(converter, TestEnum.EINS,stack,true);
+        enumExtractor.extractObject(converter, TestEnum.EINS,PathCursor.of(Arrays.asList("ZWEI")),true);
     }
 
     @Test
     public void plainExtract() throws AttributeNotFoundException {
-        Stack stack = new Stack();
-        Object result = enumExtractor.extractObject(converter, TestEnum.EINS,stack,false);
+        Object result = enumExtractor.extractObject(converter, TestEnum.EINS,PathCursor.EMPTY,false);
         assertEquals(result,TestEnum.EINS);
     }
 
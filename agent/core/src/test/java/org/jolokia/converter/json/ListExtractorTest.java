@@ -98,7 +98,7 @@ public class ListExtractorTest extends AbstractExtractorTest {
     }
 
     @Override
-    Extractor createExtractor() {
+    PathExtractor createExtractor() {
         return new ListExtractor();
     }
 }
\ No newline at end of file
@@ -61,7 +61,7 @@ public class MapExtractorTest extends AbstractExtractorTest {
     }
 
     @Override
-    Extractor createExtractor() {
+    PathExtractor createExtractor() {
         return new MapExtractor();
     }
 }
\ No newline at end of file
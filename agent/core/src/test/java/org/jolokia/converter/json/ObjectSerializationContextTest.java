@@ -0,0 +1,110 @@
+package org.jolokia.converter.json;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.*;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * @author roland
+ * @since 1.6.3
+ */
+public class ObjectSerializationContextTest {
+
+    private ObjectSerializationContext ctx;
+
+    @BeforeMethod
+    public void setup() {
+        ctx = new ObjectSerializationContext(new JsonConvertOptions.Builder().build());
+    }
+
+    @Test
+    public void identityBased() {
+        List<String> list = new ArrayList<String>();
+        ctx.push(list);
+        assertTrue(ctx.alreadyVisited(list));
+        // Equal but not the same object
+        assertFalse(ctx.alreadyVisited(new ArrayList<String>()));
+        assertSame(ctx.pop(), list);
+        assertFalse(ctx.alreadyVisited(list));
+    }
+
+    @Test
+    public void simpleTypesNotTracked() {
+        ctx.push("bla");
+        ctx.push(null);
+        assertFalse(ctx.alreadyVisited("bla"));
+        assertNull(ctx.pop());
+        assertEquals(ctx.pop(), "bla");
+    }
+
+    @Test
+    public void deepStack() {
+        List<Object> objects = new ArrayList<Object>();
+        for (int i = 0; i < 500; i++) {
+            Object o = new Object();
+            objects.add(o);
+            ctx.push(o);
+        }
+        for (Object o : objects) {
+            assertTrue(ctx.alreadyVisited(o));
+        }
+        // Remove in stack order and check that the remaining objects are still found
+        for (int i = objects.size() - 1; i >= 0; i--) {
+            assertSame(ctx.pop(), objects.get(i));
+            assertFalse(ctx.alreadyVisited(objects.get(i)));
+            if (i > 0) {
+                assertTrue(ctx.alreadyVisited(objects.get(i - 1)));
+                assertTrue(ctx.alreadyVisited(objects.get(0)));
+            }
+        }
+    }
+
+    @Test(expectedExceptions = EmptyStackException.class)
+    public void popEmpty() {
+        ctx.pop();
+    }
+
+    @Test
+    public void reset() {
+        Object o = new Object();
+        ctx.push(o);
+        ctx.push(new Object());
+        ctx.reset(new JsonConvertOptions.Builder().maxObjects(1).build());
+        assertFalse(ctx.alreadyVisited(o));
+        assertFalse(ctx.maxObjectsExceeded());
+        ctx.push(o);
+        assertTrue(ctx.alreadyVisited(o));
+        assertFalse(ctx.maxObjectsExceeded());
+        ctx.push(new Object());
+        assertTrue(ctx.maxObjectsExceeded());
+    }
+
+    @Test
+    public void maxDepth() {
+        ctx.reset(new JsonConvertOptions.Builder().maxDepth(2).build());
+        ctx.push(new Object());
+        ctx.push("simple");
+        assertFalse(ctx.maxDepthReached());
+        ctx.push(new Object());
+        assertTrue(ctx.maxDepthReached());
+    }
+}
@@ -9,6 +9,8 @@ import java.util.*;
 import javax.management.*;
 
 import org.jolokia.converter.object.StringToObjectConverter;
+import org.jolokia.util.PathCursor;
+import org.jolokia.util.SerializedJson;
 import org.testng.annotations.*;
 
 import static org.testng.AssertJUnit.*;
@@ -54,14 +56,14 @@ public class ObjectToJsonConverterTest {
 
     @Test
     public void basics() throws AttributeNotFoundException {
-        Map result = (Map) converter.extractObject(new SelfRefBean1(), new Stack<String>(), true);
+        Map result = (Map) converter.extractObject(new SelfRefBean1(), PathCursor.EMPTY, true);
         assertNotNull("Bean2 is set",result.get("bean2"));
         assertNotNull("Binary attribute is set",result.get("strong"));
     }
 
     @Test
     public void checkDeadLockDetection() throws AttributeNotFoundException {
-        Map result = (Map) converter.extractObject(new SelfRefBean1(), new Stack<String>(), true);
+        Map result = (Map) converter.extractObject(new SelfRefBean1(), PathCursor.EMPTY, true);
         assertNotNull("Bean 2 is set",result.get("bean2"));
         assertNotNull("Bean2:Bean1 is set",((Map)result.get("bean2")).get("bean1"));
         assertEquals("Reference breackage",((Map)result.get("bean2")).get("bean1").getClass(),String.class);
@@ -71,7 +73,7 @@ public class ObjectToJsonConverterTest {
     @Test
     public void maxDepth() throws AttributeNotFoundException, NoSuchFieldException, IllegalAccessException {
         setOptionsViaReflection("maxDepth",2);
-        Map result = (Map) converter.extractObject(new SelfRefBean1(), new Stack<String>(), true);
+        Map result = (Map) converter.extractObject(new SelfRefBean1(), PathCursor.EMPTY, true);
         String c = (String) ((Map) result.get("bean2")).get("bean1");
         assertTrue("Recurence detected",c.contains("bean1: toString"));
     }
@@ -79,7 +81,7 @@ public class ObjectToJsonConverterTest {
     @Test
     public void maxObjects() throws NoSuchFieldException, IllegalAccessException, AttributeNotFoundException {
         setOptionsViaReflection("maxObjects",1);
-        Map<String,Object> result = (Map) converter.extractObject(new InnerValueTestBean("foo", "bar", "baz"), new Stack<String>(), true);
+        Map<String,Object> result = (Map) converter.extractObject(new InnerValueTestBean("foo", "bar", "baz"), PathCursor.EMPTY, true);
         boolean found = false;
         for (Object val : result.values()) {
             if (val instanceof String) {
@@ -89,6 +91,41 @@ public class ObjectToJsonConverterTest {
         assertTrue(found);
     }
 
+    @Test
+    public void serializedJson() throws AttributeNotFoundException {
+        Map<String, Object> inner = new HashMap<String, Object>();
+        inner.put("list", Arrays.asList("a", "b", "c"));
+        Map<String, Object> value = new HashMap<String, Object>();
+        value.put("inner", inner);
+        SerializedJson json = new SerializedJson(value);
+
+        // Passed through as is
+        assertSame(json, converter.convertToJson(json, null, JsonConvertOptions.DEFAULT));
+        assertSame(json, converter.convertToJson(json, null, new JsonConvertOptions.Builder().maxDepth(4).maxObjects(6).maxCollectionSize(3).build()));
+
+        // Converted when a path is given or when the limits apply
+        assertEquals(Arrays.asList("a", "b", "c"), converter.convertToJson(json, Arrays.asList("inner", "list"), JsonConvertOptions.DEFAULT));
+        Map result = (Map) converter.convertToJson(json, null, new JsonConvertOptions.Builder().maxDepth(2).build());
+        assertTrue(((Map) result.get("inner")).get("list") instanceof String);
+        result = (Map) converter.convertToJson(json, null, new JsonConvertOptions.Builder().maxCollectionSize(2).build());
+        assertEquals(2, ((List) ((Map) result.get("inner")).get("list")).size());
+    }
+
+    @Test
+    public void simpleValues() throws AttributeNotFoundException, NoSuchFieldException, IllegalAccessException {
+        assertEquals("text", converter.extractObject("text", PathCursor.EMPTY, true));
+        assertEquals(42L, converter.extractObject(42L, PathCursor.EMPTY, true));
+        assertEquals(Boolean.TRUE, converter.extractObject(true, PathCursor.EMPTY, true));
+
+        // Simple values still count as objects
+        converter.clearContext();
+        converter.setupContext();
+        setOptionsViaReflection("maxObjects", 2);
+        List result = (List) converter.extractObject(Arrays.asList("a", "b", "c"), PathCursor.EMPTY, true);
+        assertEquals(Arrays.asList("a", "b"), result.subList(0, 2));
+        assertTrue(((String) result.get(2)).matches("^\\[.*(limit).*\\]$"));
+    }
+
     private void setOptionsViaReflection(String pLimit, int pVal) throws NoSuchFieldException, IllegalAccessException {
         ObjectSerializationContext ctx = converter.getStackContextLocal().get();
         Field field = ObjectSerializationContext.class.getDeclaredField("options");
@@ -103,20 +140,20 @@ public class ObjectToJsonConverterTest {
     @Test
     public void customSimplifier() throws AttributeNotFoundException {
         Date date = new Date();
-        Map result = (Map) converter.extractObject(date, new Stack<String>(), true);
+        Map result = (Map) converter.extractObject(date, PathCursor.EMPTY, true);
         assertEquals(date.getTime(),result.get("millis"));
     }
 
     @Test
     public void fileSimplifier() throws AttributeNotFoundException {
-        Map result = (Map) converter.extractObject(new File("/tmp"), new Stack<String>(), true);
+        Map result = (Map) converter.extractObject(new File("/tmp"), PathCursor.EMPTY, true);
         assertNull(result.get("parent"));
     }
 
     @Test
     public void customNegativeSimpifier() throws MalformedObjectNameException, AttributeNotFoundException {
         ObjectName name = new ObjectName("java.lang:type=Memory");
-        Map result = (Map) converter.extractObject(name, new Stack<String>(), true);
+        Map result = (Map) converter.extractObject(name, PathCursor.EMPTY, true);
         // Since we removed the objectname simplifier from the list of simplifiers
         // explicitely, the converter should return the full blown object;
         assertEquals("type=Memory",result.get("canonicalKeyPropertyListString"));
@@ -159,9 +196,61 @@ public class ObjectToJsonConverterTest {
         assertEquals(ret.get("value"),"value");
     }
 
+    @Test
+    public void extractorWithStack() throws AttributeNotFoundException {
+        ObjectToJsonConverter stackConverter = new ObjectToJsonConverter(new StringToObjectConverter(), new StackExtractor());
+        stackConverter.setupContext();
+        try {
+            Map<String, StackValue> values = new HashMap<String, StackValue>();
+            values.put("first", new StackValue());
+            values.put("second", new StackValue());
+
+            // Each branch of the wildcard gets its own stack
+            Map result = (Map) stackConverter.extractObject(values, PathCursor.of(Arrays.asList(null, "a", "b")), true);
+            assertEquals("a/b", result.get("first"));
+            assertEquals("a/b", result.get("second"));
+
+            Stack<String> stack = new Stack<String>();
+            stack.push("b");
+            stack.push("a");
+            stack.push("first");
+            assertEquals("a/b", stackConverter.extractObject(values, stack, true));
+            assertEquals(3, stack.size());
+        } finally {
+            stackConverter.clearContext();
+        }
+    }
+
     // ============================================================================
     // TestBeans:
 
+    class StackValue {
+    }
+
+    // Extractor implementing only the stack based extraction, which consumes the stack
+    class StackExtractor implements Extractor {
+
+        public Class getType() {
+            return StackValue.class;
+        }
+
+        public Object extractObject(ObjectToJsonConverter pConverter, Object pValue, Stack<String> pExtraArgs, boolean jsonify) {
+            StringBuilder ret = new StringBuilder();
+            while (!pExtraArgs.isEmpty()) {
+                ret.append(pExtraArgs.pop()).append(pExtraArgs.isEmpty() ? "" : "/");
+            }
+            return ret.toString();
+        }
+
+        public Object setObjectValue(StringToObjectConverter pConverter, Object pInner, String pAttribute, Object pValue) {
+            return null;
+        }
+
+        public boolean canSetValue() {
+            return false;
+        }
+    }
+
     class SelfRefBean1 {
 
         SelfRefBean2 bean2;
@@ -3,12 +3,12 @@ package org.jolokia.converter.json;
 import java.math.BigInteger;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.Stack;
 
 import javax.management.AttributeNotFoundException;
 
 import org.jolokia.converter.json.simplifier.BigIntegerSimplifier;
 import org.jolokia.converter.json.simplifier.UrlSimplifier;
+import org.jolokia.util.PathCursor;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -38,28 +38,28 @@ public class SimplifiersTest {
     @Test
     public void bigIntegerSimplifier() throws AttributeNotFoundException {
         BigInteger bigInt = new BigInteger("12345678901234567890");
-        Object result = bigIntegerSimplifier.extractObject(converter, bigInt, new Stack<String>(), false);
+        Object result = bigIntegerSimplifier.extractObject(converter, bigInt, PathCursor.EMPTY, false);
         assertEquals(result, bigInt);
     }
 
     @Test
     public void bigIntegerSimplifierJson() throws AttributeNotFoundException {
         BigInteger bigInt = new BigInteger("12345678901234567890");
-        Object result = bigIntegerSimplifier.extractObject(converter, bigInt, new Stack<String>(), true);
+        Object result = bigIntegerSimplifier.extractObject(converter, bigInt, PathCursor.EMPTY, true);
         assertEquals(result.toString(), "{\"bigint\":\"12345678901234567890\"}");
     }
 
     @Test
     public void urlSimplifier() throws AttributeNotFoundException, MalformedURLException {
         URL url = new URL("https://www.jolokia.org");
-        Object result = urlSimplifier.extractObject(converter, url, new Stack<String>(), false);
+        Object result = urlSimplifier.extractObject(converter, url, PathCursor.EMPTY, false);
         assertEquals(result, url);
     }
 
     @Test
     public void urlSimplifierJson() throws AttributeNotFoundException, MalformedURLException {
         URL url = new URL("https://www.jolokia.org");
-        Object result = urlSimplifier.extractObject(converter, url, new Stack<String>(), true);
+        Object result = urlSimplifier.extractObject(converter, url, PathCursor.EMPTY, true);
         assertEquals(result.toString(), "{\"url\":\"https:\\/\\/www.jolokia.org\"}");
     }
 
@@ -25,6 +25,7 @@ import javax.management.openmbean.*;
 import org.jolokia.converter.object.StringToObjectConverter;
 import org.jolokia.converter.util.CompositeTypeAndJson;
 import org.jolokia.converter.util.TabularTypeAndJson;
+import org.jolokia.util.PathCursor;
 import org.json.simple.JSONObject;
 import org.testng.annotations.*;
 
@@ -190,6 +191,37 @@ public class TabularDataExtractorTest {
         assertEquals(zensiMap.size(), 4);
     }
 
+    @Test
+    void extractGenericTabularDataColumnar() throws OpenDataException, AttributeNotFoundException {
+        converter.clearContext();
+        converter.setupContext(new JsonConvertOptions.Builder().columnarTabularData(true).build());
+        TabularData data = getComplexTabularData();
+        JSONObject result = (JSONObject) extract(true, data);
+        assertEquals(result.size(), 3);
+        assertEquals(result.get("indexNames"), Arrays.asList("name", "firstname"));
+        List<String> columns = (List<String>) result.get("columns");
+        assertEquals(new HashSet<String>(columns), new HashSet<String>(Arrays.asList("name", "firstname", "age", "male")));
+        List<List> values = (List<List>) result.get("values");
+        assertEquals(values.size(), 3);
+        boolean found = false;
+        for (List row : values) {
+            assertEquals(row.size(), 4);
+            if ("zensi".equals(row.get(columns.indexOf("firstname")))) {
+                assertEquals(row.get(columns.indexOf("name")), "meyer");
+                assertEquals(row.get(columns.indexOf("age")), 28);
+                assertEquals(row.get(columns.indexOf("male")), false);
+                found = true;
+            }
+        }
+        assertTrue(found);
+
+        // MXBean maps and path access are not affected
+        JSONObject map = (JSONObject) extract(true, getMapTabularData(STRING, "key1", TEST_VALUE));
+        assertEquals(map.get("key1"), TEST_VALUE);
+        JSONObject row = (JSONObject) extract(true, data, "meyer", "xaver");
+        assertEquals(row.get("age"), 12);
+    }
+
     @Test
     void extractGenericTabularData() throws OpenDataException, AttributeNotFoundException {
         TabularData data = getComplexTabularData();
@@ -380,13 +412,6 @@ public class TabularDataExtractorTest {
 
 
     private Object extract(boolean pJson,Object pValue,String ... pPathElements) throws AttributeNotFoundException {
-        Stack<String> extra = new Stack<String>();
-        if (pPathElements.length > 0) {
-            for (String p : pPathElements) {
-                extra.push(p);
-            }
-        }
-        Collections.reverse(extra);
-        return extractor.extractObject(converter,pValue,extra,pJson);
+        return extractor.extractObject(converter,pValue,PathCursor.of(Arrays.asList(pPathElements)),pJson);
     }
 }
@@ -1,5 +1,6 @@
 package org.jolokia.converter.object;
 
+import java.lang.reflect.Field;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.net.MalformedURLException;
@@ -352,4 +353,46 @@ public class StringToObjectConverterTest {
     	Date expectedDate = sdf.parse(dateStr.replaceFirst("\\+(0\\d)\\:(\\d{2})$", "+$1$2"));
     	assertEquals(expectedDate, obj);
     }
+
+    @Test
+    public void conversionPlansPerClassLoader() throws MalformedURLException {
+        ClassLoader original = Thread.currentThread().getContextClassLoader();
+        try {
+            for (ClassLoader loader : new ClassLoader[] { null, new java.net.URLClassLoader(new URL[0], original) }) {
+                Thread.currentThread().setContextClassLoader(loader);
+                for (int i = 0; i < 2; i++) {
+                    // Plans survive a garbage collection as long as their classes are alive
+                    System.gc();
+                    Example example = (Example) converter.prepareValue(this.getClass().getCanonicalName() + "$Example", "test");
+                    assertEquals("test", example.getValue());
+                    String[] strings = (String[]) converter.prepareValue("[Ljava.lang.String;", "a,b");
+                    assertEquals(2, strings.length);
+                    assertEquals(5L, converter.prepareValue("long", "5"));
+                }
+            }
+        } finally {
+            Thread.currentThread().setContextClassLoader(original);
+        }
+    }
+
+    @Test
+    public void noConversionPlanForUnknownClass() throws NoSuchFieldException, IllegalAccessException {
+        for (String type : new String[] { "org.jolokia.Unknown", "[Lorg.jolokia.Unknown;" }) {
+            try {
+                converter.prepareValue(type, "test");
+                fail("Unknown type " + type);
+            } catch (IllegalArgumentException exp) {
+                // Expected
+            }
+        }
+        converter.prepareValue("long", "5");
+
+        Field field = StringToObjectConverter.class.getDeclaredField("plans");
+        field.setAccessible(true);
+        Map<String, ?> loaderPlans = ((Map<ClassLoader, Map<String, ?>>) field.get(converter)).get(Thread.currentThread().getContextClassLoader());
+        // The class might show up later, e.g. after a deployment
+        assertFalse(loaderPlans.containsKey("org.jolokia.Unknown"));
+        assertFalse(loaderPlans.containsKey("[Lorg.jolokia.Unknown;"));
+        assertTrue(loaderPlans.containsKey("long"));
+    }
 }
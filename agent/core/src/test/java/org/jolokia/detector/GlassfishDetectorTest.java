@@ -27,7 +27,7 @@ import org.jolokia.util.LogHandler;
 import org.testng.annotations.Test;
 
 import static org.easymock.EasyMock.*;
-import static org.testng.Assert.assertNull;
+import static org.testng.Assert.*;
 import static org.testng.AssertJUnit.assertEquals;
 
 /**
@@ -36,7 +36,19 @@ import static org.testng.AssertJUnit.assertEquals;
  */
 public class GlassfishDetectorTest extends BaseDetectorTest {
 
-    ServerDetector detector = new GlassfishDetector();
+    GlassfishDetector detector = new GlassfishDetector();
+
+    @Test
+    public void applicable() {
+        assertTrue(detector.isApplicable(Collections.singleton("amx")));
+        assertFalse(detector.isApplicable(Collections.singleton("java.lang")));
+        System.setProperty("glassfish.version", "Oracle Glassfish v3.1.2");
+        try {
+            assertTrue(detector.isApplicable(Collections.singleton("java.lang")));
+        } finally {
+            System.clearProperty("glassfish.version");
+        }
+    }
 
     @Test
     public void noDetect() throws MalformedObjectNameException {
@@ -52,6 +52,13 @@ public class JBossDetectorTest extends BaseDetectorTest {
         servers = getMBeanServerManager(server);
     }
 
+    @Test
+    public void applicable() {
+        assertTrue(detector.isApplicable(new HashSet<String>(Arrays.asList("JMImplementation", "jboss.as"))));
+        assertTrue(detector.isApplicable(Collections.singleton("jboss.modules")));
+        assertFalse(detector.isApplicable(new HashSet<String>(Arrays.asList("JMImplementation", "java.lang"))));
+    }
+
     @Test
     public void simpleNotFound() throws MalformedObjectNameException {
 
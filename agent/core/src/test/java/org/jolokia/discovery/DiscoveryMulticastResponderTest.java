@@ -12,6 +12,7 @@ import org.json.simple.JSONObject;
 import org.testng.SkipException;
 import org.testng.annotations.Test;
 
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 /**
@@ -52,6 +53,38 @@ public class DiscoveryMulticastResponderTest {
 
     }
 
+    @Test
+    public void cachedAgents() throws IOException, InterruptedException {
+        if (!NetworkUtil.isMulticastSupported()) {
+            throw new SkipException("No multicast interface found, skipping test ");
+        }
+        TestAgentsDetailsHolder holder = new TestAgentsDetailsHolder();
+        String multicastGroup = ConfigKey.MULTICAST_GROUP.getDefaultValue();
+        int multicastPort = Integer.valueOf(ConfigKey.MULTICAST_PORT.getDefaultValue());
+        DiscoveryMulticastResponder responder =
+                new DiscoveryMulticastResponder(holder,new AllowAllRestrictor(),multicastGroup,multicastPort,new LogHandler.StdoutLogHandler(true));
+        responder.start();
+        Thread.sleep(1000);
+        JolokiaDiscovery discovery = new JolokiaDiscovery("test",new LogHandler.StdoutLogHandler(true));
+        try {
+            List<JSONObject> msgs = discovery.lookupCachedAgents();
+            boolean found = false;
+            for (JSONObject msg : msgs) {
+                found |= holder.details.getAgentId().equals(msg.get("agent_id"));
+            }
+            assertTrue(found);
+            // Served from the cache
+            long start = System.currentTimeMillis();
+            assertSame(discovery.lookupCachedAgents(), msgs);
+            assertTrue(System.currentTimeMillis() - start < 100);
+        } catch (UnknownHostException exp) {
+            throw new SkipException("Skipping test because no single multicast request could be send on any interface");
+        } finally {
+            discovery.destroy();
+            responder.stop();
+        }
+    }
+
     private class TestAgentsDetailsHolder implements AgentDetailsHolder {
 
         AgentDetails details = new AgentDetails(UUID.randomUUID().toString());
@@ -0,0 +1,91 @@
+package org.jolokia.discovery;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jolokia.util.LogHandler;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * @author roland
+ * @since 1.6.3
+ */
+public class JolokiaDiscoveryTest {
+
+    @Test
+    public void singleLookupForCachedAgents() throws Exception {
+        final CountingDiscovery discovery = new CountingDiscovery();
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            List<Future<List>> results = new ArrayList<Future<List>>();
+            for (int i = 0; i < 5; i++) {
+                results.add(executor.submit(new Callable<List>() {
+                    public List call() throws IOException {
+                        return discovery.lookupCachedAgents();
+                    }
+                }));
+            }
+            for (Future<List> result : results) {
+                assertSame(result.get(10, TimeUnit.SECONDS), discovery.agents);
+            }
+            assertEquals(discovery.lookups.get(), 1);
+        } finally {
+            executor.shutdownNow();
+            discovery.destroy();
+        }
+    }
+
+    @Test
+    public void lookupAfterDestroy() throws IOException {
+        CountingDiscovery discovery = new CountingDiscovery();
+        discovery.lookupCachedAgents();
+        discovery.destroy();
+        discovery.lookupCachedAgents();
+        discovery.destroy();
+        assertEquals(discovery.lookups.get(), 2);
+    }
+
+    // ===========================================================================
+
+    private static class CountingDiscovery extends JolokiaDiscovery {
+
+        private final AtomicInteger lookups = new AtomicInteger();
+        private final List agents = new ArrayList();
+
+        CountingDiscovery() {
+            super("test", new LogHandler.StdoutLogHandler(false));
+        }
+
+        @Override
+        public List lookupAgentsWithEarlyExit(int pTimeout, int pExpectedCount, int pQuietPeriod) throws IOException {
+            lookups.incrementAndGet();
+            try {
+                // Slow enough so that all callers hit the empty cache
+                Thread.sleep(200);
+            } catch (InterruptedException exp) {
+                throw new IOException("Interrupted");
+            }
+            return agents;
+        }
+    }
+}
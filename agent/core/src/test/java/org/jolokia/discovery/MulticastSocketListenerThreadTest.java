@@ -3,8 +3,7 @@ package org.jolokia.discovery;
 import java.io.IOException;
 import java.net.SocketException;
 import java.net.URL;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
 
 import org.jolokia.Version;
 import org.jolokia.config.ConfigKey;
@@ -17,6 +16,7 @@ import org.testng.annotations.Test;
 
 import static org.jolokia.discovery.AbstractDiscoveryMessage.MessageType.QUERY;
 import static org.jolokia.discovery.MulticastUtil.sendQueryAndCollectAnswers;
+import static org.jolokia.discovery.MulticastUtil.sendQueryAndStreamAnswers;
 import static org.testng.Assert.*;
 
 /**
@@ -99,6 +99,61 @@ public class MulticastSocketListenerThreadTest {
         }
     }
 
+    @Test
+    public void streamWithExpectedCount() throws IOException, InterruptedException {
+        checkForMulticastSupport();
+
+        MulticastSocketListenerThread listenerThread = startSocketListener();
+
+        try {
+            DiscoveryOutgoingMessage out =
+                    new DiscoveryOutgoingMessage.Builder(QUERY)
+                            .agentId(UUID.randomUUID().toString())
+                            .build();
+            final List<DiscoveryIncomingMessage> discovered = new ArrayList<DiscoveryIncomingMessage>();
+            long start = System.currentTimeMillis();
+            int count = sendQueryAndStreamAnswers(out, 10000, 1, 0, MULTICAST_GROUP, MULTICAST_PORT, new DiscoveryListener() {
+                public void agentDiscovered(DiscoveryIncomingMessage pMessage) {
+                    discovered.add(pMessage);
+                }
+            }, new LogHandler.StdoutLogHandler(true));
+            // Returns as soon as the first agent has answered
+            assertTrue(System.currentTimeMillis() - start < 5000);
+            assertEquals(count, 1);
+            assertEquals(discovered.size(), 1);
+            assertFalse(discovered.get(0).isQuery());
+        } finally {
+            listenerThread.shutdown();
+        }
+    }
+
+    @Test
+    public void streamWithQuietPeriod() throws IOException, InterruptedException {
+        checkForMulticastSupport();
+
+        MulticastSocketListenerThread listenerThread = startSocketListener();
+
+        try {
+            DiscoveryOutgoingMessage out =
+                    new DiscoveryOutgoingMessage.Builder(QUERY)
+                            .agentId(UUID.randomUUID().toString())
+                            .build();
+            final Set<String> ids = new HashSet<String>();
+            long start = System.currentTimeMillis();
+            int count = sendQueryAndStreamAnswers(out, 10000, 0, 200, MULTICAST_GROUP, MULTICAST_PORT, new DiscoveryListener() {
+                public void agentDiscovered(DiscoveryIncomingMessage pMessage) {
+                    // Every agent is reported only once
+                    assertTrue(ids.add(pMessage.getAgentDetails().getAgentId()));
+                }
+            }, new LogHandler.StdoutLogHandler(true));
+            assertTrue(System.currentTimeMillis() - start < 5000);
+            assertTrue(ids.contains(id));
+            assertEquals(count, ids.size());
+        } finally {
+            listenerThread.shutdown();
+        }
+    }
+
     private void checkForMulticastSupport() throws SocketException {
         if (!NetworkUtil.isMulticastSupported()) {
             throw new SkipException("No multicast supported");
@@ -22,6 +22,7 @@ import java.util.*;
 
 import javax.management.*;
 
+import org.jolokia.backend.MBeanServerExecutorLocal;
 import org.jolokia.backend.executor.NotChangedException;
 import org.jolokia.converter.*;
 import org.jolokia.request.*;
@@ -46,6 +47,11 @@ public class ExecHandlerTest {
         handler = new ExecHandler(new AllowAllRestrictor(),new Converters());
     }
 
+    @AfterMethod
+    public void destroyHandler() {
+        handler.destroy();
+    }
+
     @BeforeTest
     public void registerMBean() throws MalformedObjectNameException, MBeanException, InstanceAlreadyExistsException, IOException, NotCompliantMBeanException, ReflectionException {
         oName = new ObjectName("jolokia:test=exec");
@@ -150,6 +156,39 @@ public class ExecHandlerTest {
         handler.handleRequest(getMBeanServer(),request);
     }
 
+    @Test
+    public void reregistration() throws Exception {
+        ObjectName name = new ObjectName("jolokia:test=reregistered");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        JmxExecRequest request = new JmxRequestBuilder(EXEC, name).operation("simple").build();
+        // Registration changes are signaled by the executor
+        MBeanServerExecutorLocal executor = new MBeanServerExecutorLocal();
+        handler.listenForRegistrationChanges(executor);
+        try {
+            server.registerMBean(new ExecData(), name);
+            try {
+                // Second call uses the cached operations
+                assertNull(handler.handleRequest(server, request));
+                assertNull(handler.handleRequest(server, request));
+            } finally {
+                server.unregisterMBean(name);
+            }
+
+            // The operations of the new MBean are looked up again
+            server.registerMBean(new WriteData(), name);
+            try {
+                handler.handleRequest(server, request);
+                fail("Operation of unregistered MBean must not be found");
+            } catch (IllegalArgumentException exp) {
+                assertTrue(exp.getMessage().contains("No operation simple"));
+            } finally {
+                server.unregisterMBean(name);
+            }
+        } finally {
+            executor.destroy();
+        }
+    }
+
     private MBeanServerConnection getMBeanServer() {
         return ManagementFactory.getPlatformMBeanServer();
     }
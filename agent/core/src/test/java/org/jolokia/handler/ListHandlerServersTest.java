@@ -0,0 +1,164 @@
+package org.jolokia.handler;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.*;
+
+import javax.management.*;
+
+import org.jolokia.backend.executor.AbstractMBeanServerExecutor;
+import org.jolokia.backend.executor.MBeanServerExecutor;
+import org.jolokia.config.ConfigKey;
+import org.jolokia.handler.list.DataKeys;
+import org.jolokia.request.JmxListRequest;
+import org.jolokia.request.JmxRequestBuilder;
+import org.jolokia.restrictor.AllowAllRestrictor;
+import org.jolokia.util.RequestType;
+import org.testng.annotations.*;
+
+import static org.testng.Assert.*;
+
+/**
+ * List requests for MBeans which are not registered at the first MBeanServer, which
+ * must neither report an error nor leave the first server as owner in the routing index
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+public class ListHandlerServersTest {
+
+    private MBeanServer first;
+    private MBeanServer second;
+    private TwoServerExecutor executor;
+    private ListHandler handler;
+    private ObjectName name;
+
+    @BeforeMethod
+    public void setup() throws MalformedObjectNameException {
+        first = MBeanServerFactory.newMBeanServer();
+        second = MBeanServerFactory.newMBeanServer();
+        executor = new TwoServerExecutor(first, second);
+        handler = new ListHandler(new AllowAllRestrictor());
+        name = new ObjectName("jolokia.test:type=second");
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        executor.unregisterFromMBeanNotifications();
+    }
+
+    @Test
+    public void changesFromSecondServer() throws Exception {
+        long sequence = executor.getRegistrationChangesSince(0).getSequence();
+        second.registerMBean(new Sample(), name);
+
+        JmxListRequest request = new JmxRequestBuilder(RequestType.LIST)
+                .option(ConfigKey.LIST_SINCE, Long.toString(sequence))
+                .build();
+        Map res = (Map) handler.handleRequest(executor, request);
+        assertEquals(res.get("incremental"), true);
+        Map mBean = (Map) ((Map) ((Map) res.get("added")).get("jolokia.test")).get("type=second");
+        assertNull(mBean.get(DataKeys.ERROR.getKey()));
+        assertTrue(((Map) mBean.get(DataKeys.ATTRIBUTES.getKey())).containsKey("Value"));
+    }
+
+    @Test
+    public void singleMBeanFromSecondServer() throws Exception {
+        second.registerMBean(new Sample(), name);
+
+        JmxListRequest request = new JmxRequestBuilder(RequestType.LIST)
+                .pathParts("jolokia.test", "type=second")
+                .build();
+        Map res = (Map) handler.handleRequest(executor, request);
+        assertTrue(((Map) res.get(DataKeys.ATTRIBUTES.getKey())).containsKey("Value"));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = ".*No MBean.*")
+    public void singleMBeanNotRegistered() throws Exception {
+        JmxListRequest request = new JmxRequestBuilder(RequestType.LIST)
+                .pathParts("jolokia.test", "type=second")
+                .build();
+        handler.handleRequest(executor, request);
+    }
+
+    @Test
+    public void ownerAfterListingChanges() throws Exception {
+        long sequence = executor.getRegistrationChangesSince(0).getSequence();
+        second.registerMBean(new Sample(), name);
+
+        // No meta data is looked up for a restricted depth
+        JmxListRequest request = new JmxRequestBuilder(RequestType.LIST)
+                .option(ConfigKey.LIST_SINCE, Long.toString(sequence))
+                .option(ConfigKey.MAX_DEPTH, "2")
+                .build();
+        Map res = (Map) handler.handleRequest(executor, request);
+        assertEquals(((Map) ((Map) res.get("added")).get("jolokia.test")).get("type=second"), 1);
+        assertEquals(visitedServers(), Collections.singletonList(second));
+    }
+
+    @Test
+    public void ownerAfterListingSingleMBean() throws Exception {
+        second.registerMBean(new Sample(), name);
+
+        JmxListRequest request = new JmxRequestBuilder(RequestType.LIST)
+                .pathParts("jolokia.test", "type=second")
+                .build();
+        handler.handleRequest(executor, request);
+        assertEquals(visitedServers(), Collections.singletonList(second));
+    }
+
+    // ===========================================================================
+
+    // Servers visited when accessing the test MBean, only its owner if known to the routing index
+    private List<MBeanServerConnection> visitedServers() throws Exception {
+        final List<MBeanServerConnection> visited = new ArrayList<MBeanServerConnection>();
+        executor.call(name, new MBeanServerExecutor.MBeanAction<Object>() {
+            public Object execute(MBeanServerConnection pConn, ObjectName pName, Object... extraArgs)
+                    throws ReflectionException, InstanceNotFoundException, IOException, MBeanException, AttributeNotFoundException {
+                visited.add(pConn);
+                return pConn.getAttribute(pName, "Value");
+            }
+        });
+        return visited;
+    }
+
+    static class TwoServerExecutor extends AbstractMBeanServerExecutor {
+
+        private final Set<MBeanServerConnection> servers;
+
+        TwoServerExecutor(MBeanServerConnection pFirst, MBeanServerConnection pSecond) {
+            servers = new LinkedHashSet<MBeanServerConnection>(Arrays.asList(pFirst, pSecond));
+            registerForMBeanNotifications();
+        }
+
+        @Override
+        protected Set<MBeanServerConnection> getMBeanServers() {
+            return servers;
+        }
+    }
+
+    public interface SampleMBean {
+        String getValue();
+    }
+
+    public static class Sample implements SampleMBean {
+        public String getValue() {
+            return "sample";
+        }
+    }
+}
@@ -229,6 +229,47 @@ public class ListHandlerTest extends BaseHandlerTest {
         execute(request);
     }
 
+    @Test
+    public void incrementalList() throws Exception {
+        JmxListRequest request = new JmxRequestBuilder(RequestType.LIST).option(ConfigKey.LIST_SINCE, "0").build();
+        Map res = execute(request);
+        // Unknown sequence: Full list
+        assertEquals(res.get("incremental"), false);
+        assertTrue(((Map) res.get("added")).containsKey("java.lang"));
+        long sequence = (Long) res.get("sequence");
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName added = new ObjectName("jolokia.test:type=added");
+        server.registerMBean(new WriteData(), added);
+        try {
+            request = new JmxRequestBuilder(RequestType.LIST).option(ConfigKey.LIST_SINCE, Long.toString(sequence)).build();
+            res = execute(request);
+            assertEquals(res.get("incremental"), true);
+            Map addedMBeans = (Map) res.get("added");
+            assertEquals(addedMBeans.size(), 1);
+            assertTrue(((Map) addedMBeans.get("jolokia.test")).containsKey("type=added"));
+            assertEquals(((List) res.get("removed")).size(), 0);
+            sequence = (Long) res.get("sequence");
+        } finally {
+            server.unregisterMBean(added);
+        }
+
+        // Only the unregistration, restricted to the given path
+        request = new JmxRequestBuilder(RequestType.LIST)
+                .pathParts("jolokia.test")
+                .option(ConfigKey.LIST_SINCE, Long.toString(sequence))
+                .build();
+        res = execute(request);
+        assertEquals(res.get("incremental"), true);
+        assertEquals(((Map) res.get("added")).size(), 0);
+        assertEquals(res.get("removed"), Arrays.asList("jolokia.test:type=added"));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = ".*sequence.*")
+    public void incrementalListWithInvalidSequence() throws Exception {
+        execute(new JmxRequestBuilder(RequestType.LIST).option(ConfigKey.LIST_SINCE, "yesterday").build());
+    }
+
     private Map execute(JmxListRequest pRequest) throws ReflectionException, InstanceNotFoundException, MBeanException, AttributeNotFoundException, IOException, NotChangedException {
         return (Map) handler.handleRequest(executor, pRequest);
     }
@@ -0,0 +1,99 @@
+package org.jolokia.handler;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Collections;
+import java.util.Set;
+
+import javax.management.*;
+
+import org.jolokia.backend.executor.AbstractMBeanServerExecutor;
+import org.testng.annotations.*;
+
+import static org.testng.Assert.*;
+
+/**
+ * @author roland
+ * @since 1.6.3
+ */
+public class MBeanMetaDataCacheTest {
+
+    private MBeanMetaDataCache<String> cache;
+    private MBeanServer server;
+    private SingleServerExecutor executor;
+    private ObjectName name;
+
+    @BeforeMethod
+    public void setup() throws MalformedObjectNameException {
+        cache = new MBeanMetaDataCache<String>();
+        server = MBeanServerFactory.newMBeanServer();
+        executor = new SingleServerExecutor(server);
+        cache.connect(executor);
+        name = new ObjectName("jolokia:test=cache");
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        cache.destroy();
+        executor.unregisterFromMBeanNotifications();
+    }
+
+    @Test
+    public void evictOnRegistrationChange() throws Exception {
+        server.registerMBean(new WriteData(), name);
+        assertNull(cache.get(server, name));
+        cache.put(server, name, "meta", cache.getGeneration());
+        assertEquals(cache.get(server, name), "meta");
+        assertNull(cache.get(MBeanServerFactory.newMBeanServer(), name));
+
+        server.unregisterMBean(name);
+        assertNull(cache.get(server, name));
+    }
+
+    @Test
+    public void changeDuringLookup() throws Exception {
+        assertNull(cache.get(server, name));
+        long generation = cache.getGeneration();
+        server.registerMBean(new WriteData(), name);
+        cache.put(server, name, "outdated", generation);
+        assertNull(cache.get(server, name));
+    }
+
+    @Test
+    public void noCachingWithoutExecutor() {
+        cache.destroy();
+        cache.put(server, name, "unconnected", cache.getGeneration());
+        assertNull(cache.get(server, name));
+    }
+
+    // ===========================================================================
+
+    private static class SingleServerExecutor extends AbstractMBeanServerExecutor {
+
+        private final Set<MBeanServerConnection> servers;
+
+        SingleServerExecutor(MBeanServerConnection pServer) {
+            servers = Collections.singleton(pServer);
+            registerForMBeanNotifications();
+        }
+
+        @Override
+        protected Set<MBeanServerConnection> getMBeanServers() {
+            return servers;
+        }
+    }
+}
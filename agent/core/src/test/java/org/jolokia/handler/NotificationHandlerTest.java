@@ -0,0 +1,380 @@
+package org.jolokia.handler;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.lang.management.ManagementFactory;
+import java.security.AccessController;
+import java.security.PrivilegedExceptionAction;
+import java.util.*;
+
+import javax.management.*;
+import javax.management.remote.JMXPrincipal;
+import javax.security.auth.Subject;
+
+import org.jolokia.backend.executor.MBeanServerExecutor;
+import org.jolokia.config.ConfigKey;
+import org.jolokia.config.Configuration;
+import org.jolokia.notification.RequestExecutor;
+import org.jolokia.notification.TestEmitter;
+import org.jolokia.request.*;
+import org.jolokia.restrictor.AllowAllRestrictor;
+import org.jolokia.restrictor.DenyAllRestrictor;
+import org.jolokia.util.RequestType;
+import org.json.simple.JSONObject;
+import org.testng.annotations.*;
+
+import static org.testng.Assert.*;
+
+/**
+ * @author roland
+ * @since 1.6.3
+ */
+public class NotificationHandlerTest extends BaseHandlerTest {
+
+    private NotificationHandler handler;
+    private MBeanServer server;
+    private ObjectName emitterName;
+    private TestEmitter emitter;
+    private MBeanServerExecutor executor;
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        handler = new NotificationHandler(new Configuration(ConfigKey.NOTIFICATION_MAX_QUEUE_SIZE, "5"),
+                                          new AllowAllRestrictor());
+        server = ManagementFactory.getPlatformMBeanServer();
+        emitterName = new ObjectName("jolokia.test:type=emitter");
+        emitter = new TestEmitter(emitterName);
+        server.registerMBean(emitter, emitterName);
+        executor = getMBeanServerManager(server);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        handler.destroy();
+        server.unregisterMBean(emitterName);
+    }
+
+    @Test
+    public void basics() throws Exception {
+        assertEquals(handler.getType(), RequestType.NOTIFICATION);
+        assertTrue(handler.handleAllServersAtOnce(new JmxRequestBuilder(RequestType.NOTIFICATION).command("register").<JmxNotificationRequest>build()));
+        assertFalse(handler.useReturnValueWithPath());
+    }
+
+    @Test
+    public void registerAndPull() throws Exception {
+        String client = register();
+        String handle = (String) handle(new JmxRequestBuilder(RequestType.NOTIFICATION, emitterName)
+                                                .command("add").client(client).handback("hb"));
+        emitter.emit("test.one", "Hello");
+
+        List<JSONObject> events = pull(client);
+        assertEquals(events.size(), 1);
+        JSONObject event = events.get(0);
+        assertEquals(event.get("handle"), handle);
+        assertEquals(event.get("handback"), "hb");
+        Map notif = (Map) event.get("notification");
+        assertEquals(notif.get("type"), "test.one");
+        assertEquals(notif.get("message"), "Hello");
+        assertEquals(notif.get("source"), emitterName.getCanonicalName());
+        assertEquals(notif.get("sequenceNumber"), 1L);
+        assertEquals(notif.get("userData"), "user:Hello");
+
+        // Queue is drained
+        assertEquals(pull(client).size(), 0);
+    }
+
+    @Test
+    public void filter() throws Exception {
+        String client = register();
+        handle(new JmxRequestBuilder(RequestType.NOTIFICATION, emitterName)
+                       .command("add").client(client).filter("test.a"));
+        emitter.emit("test.b", "ignored");
+        emitter.emit("test.a.sub", "received");
+        List<JSONObject> events = pull(client);
+        assertEquals(events.size(), 1);
+        assertEquals(((Map) events.get(0).get("notification")).get("message"), "received");
+    }
+
+    @Test
+    public void removeAndList() throws Exception {
+        String client = register();
+        String handle = (String) handle(new JmxRequestBuilder(RequestType.NOTIFICATION, emitterName)
+                                                .command("add").client(client));
+        JSONObject list = (JSONObject) handle(new JmxRequestBuilder(RequestType.NOTIFICATION).command("list").client(client));
+        assertEquals(list.size(), 1);
+        assertEquals(((Map) list.get(handle)).get("mbean"), emitterName.getCanonicalName());
+
+        handle(new JmxRequestBuilder(RequestType.NOTIFICATION).command("remove").client(client).handle(handle));
+        emitter.emit("test.one", "Hello");
+        assertEquals(pull(client).size(), 0);
+        assertEquals(((JSONObject) handle(new JmxRequestBuilder(RequestType.NOTIFICATION).command("list").client(client))).size(), 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = ".*No listener.*")
+    public void removeUnknownHandle() throws Exception {
+        String client = register();
+        handle(new JmxRequestBuilder(RequestType.NOTIFICATION).command("remove").client(client).handle("42"));
+    }
+
+    @Test
+    public void dropped() throws Exception {
+        String client = register();
+        handle(new JmxRequestBuilder(RequestType.NOTIFICATION, emitterName).command("add").client(client));
+        for (int i = 0; i < 7; i++) {
+            emitter.emit("test.one", "" + i);
+        }
+        JSONObject result = (JSONObject) handle(new JmxRequestBuilder(RequestType.NOTIFICATION).command("pull").client(client));
+        assertEquals(((List) result.get("notifications")).size(), 5);
+        assertEquals(result.get("dropped"), 2L);
+    }
+
+    @Test
+    public void unregister() throws Exception {
+        String client = register();
+        handle(new JmxRequestBuilder(RequestType.NOTIFICATION, emitterName).command("add").client(client));
+        handle(new JmxRequestBuilder(RequestType.NOTIFICATION).command("unregister").client(client));
+        // Listener must be removed from the MBean, too
+        emitter.emit("test.one", "Hello");
+        try {
+            pull(client);
+            fail("Client should be unregistered");
+        } catch (IllegalArgumentException exp) {
+            assertTrue(exp.getMessage().contains(client));
+        }
+    }
+
+    @Test
+    public void expiry() throws Exception {
+        handler = new NotificationHandler(new Configuration(ConfigKey.NOTIFICATION_CLIENT_TIMEOUT, "50"),
+                                          new AllowAllRestrictor());
+        String client = register();
+        handle(new JmxRequestBuilder(RequestType.NOTIFICATION, emitterName).command("add").client(client));
+        Thread.sleep(100);
+        // Any request triggers a cleanup
+        register();
+        try {
+            handle(new JmxRequestBuilder(RequestType.NOTIFICATION).command("ping").client(client));
+            fail("Client should have been expired");
+        } catch (IllegalArgumentException exp) {
+            // expected
+        }
+    }
+
+    @Test(expectedExceptions = InstanceNotFoundException.class)
+    public void unknownMBean() throws Exception {
+        String client = register();
+        handle(new JmxRequestBuilder(RequestType.NOTIFICATION, "jolokia.test:type=unknown").command("add").client(client));
+    }
+
+    @Test
+    public void getRequest() throws Exception {
+        JmxNotificationRequest req = JmxRequestFactory.createGetRequest(
+                "notification/add/c1/" + emitterName.getCanonicalName() + "/test.a,test.b/hb",
+                new Configuration().getProcessingParameters(new HashMap<String, String>()));
+        assertEquals(req.getCommand(), JmxNotificationRequest.Command.ADD);
+        assertEquals(req.getClient(), "c1");
+        assertEquals(req.getObjectName(), emitterName);
+        assertEquals(req.getFilter(), Arrays.asList("test.a", "test.b"));
+        assertEquals(req.getHandback(), "hb");
+
+        req = JmxRequestFactory.createGetRequest(
+                "notification/pull/c1/1000/10",
+                new Configuration().getProcessingParameters(new HashMap<String, String>()));
+        assertEquals(req.getCommand(), JmxNotificationRequest.Command.PULL);
+        assertEquals(req.getTimeout(), 1000L);
+        assertEquals(req.getMaxNotifications(), 10);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = ".*No client.*")
+    public void missingClient() throws Exception {
+        new JmxRequestBuilder(RequestType.NOTIFICATION).command("ping").build();
+    }
+
+    @Test(expectedExceptions = SecurityException.class)
+    public void restricted() throws Exception {
+        handler = new NotificationHandler(null, new DenyAllRestrictor());
+        register();
+    }
+
+    @Test
+    public void subscribe() throws Exception {
+        final int[] counter = new int[1];
+        handler.getDelegate().setRequestExecutor(new RequestExecutor() {
+            public JSONObject execute(JmxRequest pRequest) {
+                JSONObject ret = new JSONObject();
+                ret.put("status", 200);
+                ret.put("value", counter[0]++ / 2);
+                return ret;
+            }
+        });
+        String client = register();
+        String handle = (String) handle(new JmxRequestBuilder(RequestType.NOTIFICATION)
+                                                .command("subscribe").client(client).handback("hb").interval(100)
+                                                .requests(readRequest()));
+        JSONObject list = (JSONObject) handle(new JmxRequestBuilder(RequestType.NOTIFICATION).command("list").client(client));
+        assertEquals(((Map) list.get(handle)).get("interval"), 100L);
+
+        List<JSONObject> events = pullWithTimeout(client);
+        assertTrue(events.size() > 0);
+        JSONObject event = events.get(0);
+        assertEquals(event.get("handle"), handle);
+        assertEquals(event.get("handback"), "hb");
+        assertEquals(((List) event.get("responses")).size(), 1);
+
+        handle(new JmxRequestBuilder(RequestType.NOTIFICATION).command("remove").client(client).handle(handle));
+        int count = counter[0];
+        Thread.sleep(250);
+        assertEquals(counter[0], count);
+    }
+
+    @Test
+    public void subscribeOnlyChanged() throws Exception {
+        final int[] counter = new int[1];
+        handler.getDelegate().setRequestExecutor(new RequestExecutor() {
+            public JSONObject execute(JmxRequest pRequest) {
+                JSONObject ret = new JSONObject();
+                ret.put("status", 200);
+                if ("ThreadCount".equals(((JmxReadRequest) pRequest).getAttributeName())) {
+                    ret.put("value", "fixed");
+                } else {
+                    // Value changes only on every second sample
+                    ret.put("value", counter[0]++ / 2);
+                }
+                return ret;
+            }
+        });
+        String client = register();
+        Map threadCount = readRequest();
+        threadCount.put("attribute", "ThreadCount");
+        String handle = (String) handle(new JmxRequestBuilder(RequestType.NOTIFICATION)
+                                                .command("subscribe").client(client).interval(100).onlyChanged(true)
+                                                .requests(readRequest(), threadCount));
+        Thread.sleep(550);
+        handle(new JmxRequestBuilder(RequestType.NOTIFICATION).command("remove").client(client).handle(handle));
+        Thread.sleep(100);
+        int samples = counter[0];
+        List<JSONObject> events = pull(client);
+        assertEquals(events.size(), (samples + 1) / 2);
+        for (int i = 0; i < events.size(); i++) {
+            List responses = (List) events.get(i).get("responses");
+            assertEquals(responses.size(), 2);
+            assertEquals(((JSONObject) responses.get(0)).get("value"), i);
+            // Unchanged responses keep their position
+            if (i == 0) {
+                assertEquals(((JSONObject) responses.get(1)).get("value"), "fixed");
+            } else {
+                assertNull(responses.get(1));
+            }
+        }
+    }
+
+    @Test
+    public void subscribeWithSubject() throws Exception {
+        final List<Subject> subjects = Collections.synchronizedList(new ArrayList<Subject>());
+        handler.getDelegate().setRequestExecutor(new RequestExecutor() {
+            public JSONObject execute(JmxRequest pRequest) {
+                subjects.add(Subject.getSubject(AccessController.getContext()));
+                JSONObject ret = new JSONObject();
+                ret.put("status", 200);
+                return ret;
+            }
+        });
+        final String client = register();
+        Subject subject = new Subject();
+        subject.getPrincipals().add(new JMXPrincipal("jolokia"));
+        Subject.doAs(subject, new PrivilegedExceptionAction<Object>() {
+            public Object run() throws Exception {
+                return handle(new JmxRequestBuilder(RequestType.NOTIFICATION)
+                                      .command("subscribe").client(client).interval(100)
+                                      .requests(readRequest()));
+            }
+        });
+        assertTrue(pullWithTimeout(client).size() > 0);
+        assertSame(subjects.get(0), subject);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = ".*exec.*")
+    public void subscribeExec() throws Exception {
+        Map<String, Object> exec = new HashMap<String, Object>();
+        exec.put("type", "exec");
+        exec.put("mbean", "java.lang:type=Memory");
+        exec.put("operation", "gc");
+        new JmxRequestBuilder(RequestType.NOTIFICATION).command("subscribe").client("c1").requests(exec).build();
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = ".*interval.*")
+    public void subscribeInvalidInterval() throws Exception {
+        Map<String, Object> request = new HashMap<String, Object>();
+        request.put("type", "notification");
+        request.put("command", "subscribe");
+        request.put("client", "c1");
+        request.put("requests", Arrays.asList(readRequest()));
+        request.put("interval", "often");
+        JmxRequestFactory.createPostRequest(request, new Configuration().getProcessingParameters(new HashMap<String, String>()));
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void subscribeWithoutExecutor() throws Exception {
+        String client = register();
+        handle(new JmxRequestBuilder(RequestType.NOTIFICATION)
+                       .command("subscribe").client(client).requests(readRequest()));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = ".*No requests.*")
+    public void subscribeWithoutRequests() throws Exception {
+        new JmxRequestBuilder(RequestType.NOTIFICATION).command("subscribe").client("c1").build();
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = ".*POST.*")
+    public void subscribeGetRequest() throws Exception {
+        JmxRequestFactory.createGetRequest("notification/subscribe/c1",
+                                           new Configuration().getProcessingParameters(new HashMap<String, String>()));
+    }
+
+    // ==============================================================================
+
+    private String register() throws Exception {
+        JSONObject result = (JSONObject) handle(new JmxRequestBuilder(RequestType.NOTIFICATION).command("register"));
+        assertEquals(result.get("maxQueueSize"), handler.getDelegate().getMaxQueueSize());
+        return (String) result.get("id");
+    }
+
+    private List<JSONObject> pull(String pClient) throws Exception {
+        JSONObject result = (JSONObject) handle(new JmxRequestBuilder(RequestType.NOTIFICATION).command("pull").client(pClient));
+        return (List<JSONObject>) result.get("notifications");
+    }
+
+    private List<JSONObject> pullWithTimeout(String pClient) throws Exception {
+        JSONObject result = (JSONObject) handle(new JmxRequestBuilder(RequestType.NOTIFICATION)
+                                                        .command("pull").client(pClient).timeout(1000));
+        return (List<JSONObject>) result.get("notifications");
+    }
+
+    private Map readRequest() {
+        Map<String, Object> ret = new HashMap<String, Object>();
+        ret.put("type", "read");
+        ret.put("mbean", "java.lang:type=Memory");
+        ret.put("attribute", "HeapMemoryUsage");
+        return ret;
+    }
+
+    private Object handle(JmxRequestBuilder pBuilder) throws Exception {
+        JmxNotificationRequest request = pBuilder.build();
+        return handler.handleRequest(executor, request);
+    }
+}
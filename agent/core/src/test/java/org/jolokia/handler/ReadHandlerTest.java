@@ -343,6 +343,39 @@ public class ReadHandlerTest extends BaseHandlerTest {
         assertEquals("com2",((Map) res.get("java.lang:type=GarbageCollection")).get("common"));
     }
 
+    @Test(groups = "java6")
+    public void searchPatternColumnar() throws Exception {
+        ObjectName patternMBean = new ObjectName("java.lang:type=*");
+        JmxReadRequest request = new JmxRequestBuilder(READ, patternMBean).
+                attributes(Arrays.asList("mem0","gc3","common")).
+                option(ConfigKey.READ_FORMAT, "columnar").
+                build();
+
+        ObjectName beans[] =  {
+                new ObjectName("java.lang:type=Memory"),
+                new ObjectName("java.lang:type=GarbageCollection")
+        };
+        MBeanServer server = prepareMultiAttributeTest(patternMBean, beans);
+        expect(server.getAttribute(beans[0],"mem0")).andReturn("memval0");
+        expect(server.getAttribute(beans[0],"common")).andReturn("com1");
+        expect(server.getAttribute(beans[1],"gc3")).andReturn("gcval3");
+        expect(server.getAttribute(beans[1],"common")).andReturn("com2");
+
+        replay(server);
+        Map res = (Map) handler.handleRequest(getMBeanServerManager(server), request);
+        verify(server);
+        assertEquals(4,res.size());
+        assertEquals(Arrays.asList("java.lang:type=GarbageCollection", "java.lang:type=Memory"),res.get("mbeans"));
+        assertEquals(Arrays.asList("mem0","gc3","common"),res.get("attributes"));
+        List rows = (List) res.get("values");
+        assertEquals(Arrays.asList(null,"gcval3","com2"),rows.get(0));
+        assertEquals(Arrays.asList("memval0",null,"com1"),rows.get(1));
+        Map missing = (Map) res.get("missing");
+        assertEquals(2,missing.size());
+        assertEquals(Arrays.asList("mem0"),missing.get("java.lang:type=GarbageCollection"));
+        assertEquals(Arrays.asList("gc3"),missing.get("java.lang:type=Memory"));
+    }
+
     private MBeanServer prepareMultiAttributeTest(ObjectName pPatternMBean, ObjectName[] pBeans)
             throws IOException, MBeanException, AttributeNotFoundException, InstanceNotFoundException, ReflectionException, IntrospectionException {
         MBeanServer server = createMock(MBeanServer.class);
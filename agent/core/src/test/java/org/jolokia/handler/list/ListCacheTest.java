@@ -0,0 +1,213 @@
+package org.jolokia.handler.list;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.management.*;
+
+import org.jolokia.backend.MBeanServerExecutorLocal;
+import org.jolokia.backend.executor.AbstractMBeanServerExecutor;
+import org.jolokia.util.SerializedJson;
+import org.testng.annotations.*;
+
+import static org.testng.Assert.*;
+
+/**
+ * @author roland
+ * @since 1.6.3
+ */
+public class ListCacheTest {
+
+    private MBeanServerExecutorLocal executor;
+    private ListCache cache;
+    private MBeanServer server;
+    private ObjectName name;
+
+    @BeforeMethod
+    public void setup() throws MalformedObjectNameException {
+        executor = new MBeanServerExecutorLocal();
+        cache = new ListCache();
+        server = ManagementFactory.getPlatformMBeanServer();
+        name = new ObjectName("jolokia.test:type=cached");
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        executor.destroy();
+    }
+
+    @Test
+    public void unchangedList() throws Exception {
+        SerializedJson list = cache.list(executor, 0, true, 0);
+        Map value = (Map) list.getValue();
+        assertTrue(((Map) value.get("java.lang")).containsKey("type=Memory"));
+        assertSame(cache.list(executor, 0, true, 0), list);
+
+        // Other variants are rendered from the same snapshot
+        Map domains = (Map) cache.list(executor, 1, true, 0).getValue();
+        assertEquals(domains.get("java.lang"), 1);
+        assertEquals(domains.keySet(), value.keySet());
+    }
+
+    @Test
+    public void registrationChanges() throws Exception {
+        SerializedJson list = cache.list(executor, 0, true, 0);
+        Object memory = memoryInfo(list);
+        assertFalse(((Map) list.getValue()).containsKey("jolokia.test"));
+
+        server.registerMBean(new Sample(), name);
+        list = cache.list(executor, 0, true, 0);
+        Map mBean = (Map) ((Map) ((Map) list.getValue()).get("jolokia.test")).get("type=cached");
+        assertTrue(((Map) mBean.get(DataKeys.ATTRIBUTES.getKey())).containsKey("Value"));
+
+        // Meta data of unchanged MBeans is taken over from the previous snapshot
+        assertEquals(memoryInfo(list), memory);
+
+        server.unregisterMBean(name);
+        list = cache.list(executor, 0, true, 0);
+        assertFalse(((Map) list.getValue()).containsKey("jolokia.test"));
+    }
+
+    @Test
+    public void otherExecutor() throws Exception {
+        SerializedJson list = cache.list(executor, 0, true, 0);
+        MBeanServerExecutorLocal other = new MBeanServerExecutorLocal();
+        try {
+            assertNotSame(cache.list(other, 0, true, 0), list);
+        } finally {
+            other.destroy();
+        }
+    }
+
+    @Test
+    public void registrationAtSecondServer() throws Exception {
+        MBeanServer first = MBeanServerFactory.newMBeanServer();
+        MBeanServer second = MBeanServerFactory.newMBeanServer();
+        TwoServerExecutor servers = new TwoServerExecutor(first, second);
+        try {
+            cache.list(servers, 0, true, 0);
+            second.registerMBean(new Sample(), name);
+            SerializedJson list = cache.list(servers, 0, true, 0);
+            Map mBean = (Map) ((Map) ((Map) list.getValue()).get("jolokia.test")).get("type=cached");
+            assertNull(mBean.get(DataKeys.ERROR.getKey()));
+            assertTrue(((Map) mBean.get(DataKeys.ATTRIBUTES.getKey())).containsKey("Value"));
+
+            // Not looked up again
+            assertSame(cache.list(servers, 0, true, 0), list);
+        } finally {
+            servers.unregisterFromMBeanNotifications();
+        }
+    }
+
+    @Test
+    public void snapshotNotModifiedByResult() throws Exception {
+        SerializedJson list = cache.list(executor, 0, true, 0);
+        Map memory = (Map) memoryInfo(list);
+        Object attributes = memory.get(DataKeys.ATTRIBUTES.getKey());
+        memory.clear();
+
+        // Rendered again from a snapshot sharing the meta data
+        server.registerMBean(new Sample(), name);
+        list = cache.list(executor, 0, true, 0);
+        assertEquals(((Map) memoryInfo(list)).get(DataKeys.ATTRIBUTES.getKey()), attributes);
+    }
+
+    @Test
+    public void noLockWhileLookingUp() throws Exception {
+        MBeanServer blockingServer = MBeanServerFactory.newMBeanServer();
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicBoolean block = new AtomicBoolean();
+        blockingServer.registerMBean(new StandardMBean(new Sample(), SampleMBean.class) {
+            @Override
+            public MBeanInfo getMBeanInfo() {
+                // Also called when registering
+                if (block.get()) {
+                    entered.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException exp) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.getMBeanInfo();
+            }
+        }, name);
+        block.set(true);
+        final TwoServerExecutor blocking = new TwoServerExecutor(blockingServer, MBeanServerFactory.newMBeanServer());
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        try {
+            Future<SerializedJson> slow = threads.submit(new Callable<SerializedJson>() {
+                public SerializedJson call() throws Exception {
+                    return cache.list(blocking, 0, true, 0);
+                }
+            });
+            assertTrue(entered.await(10, TimeUnit.SECONDS));
+            // Another list request doesn't wait for the slow MBean
+            Future<SerializedJson> fast = threads.submit(new Callable<SerializedJson>() {
+                public SerializedJson call() throws Exception {
+                    return cache.list(executor, 0, true, 0);
+                }
+            });
+            assertTrue(((Map) fast.get(10, TimeUnit.SECONDS).getValue()).containsKey("java.lang"));
+            release.countDown();
+            assertTrue(((Map) slow.get(10, TimeUnit.SECONDS).getValue()).containsKey("jolokia.test"));
+        } finally {
+            release.countDown();
+            threads.shutdownNow();
+            blocking.unregisterFromMBeanNotifications();
+        }
+    }
+
+    // ===========================================================================
+
+    private Object memoryInfo(SerializedJson pList) {
+        return ((Map) ((Map) pList.getValue()).get("java.lang")).get("type=Memory");
+    }
+
+    static class TwoServerExecutor extends AbstractMBeanServerExecutor {
+
+        private final Set<MBeanServerConnection> servers;
+
+        TwoServerExecutor(MBeanServerConnection pFirst, MBeanServerConnection pSecond) {
+            servers = new LinkedHashSet<MBeanServerConnection>(Arrays.asList(pFirst, pSecond));
+            registerForMBeanNotifications();
+        }
+
+        @Override
+        protected Set<MBeanServerConnection> getMBeanServers() {
+            return servers;
+        }
+    }
+
+    public interface SampleMBean {
+        String getValue();
+    }
+
+    public static class Sample implements SampleMBean {
+        public String getValue() {
+            return "sample";
+        }
+    }
+}
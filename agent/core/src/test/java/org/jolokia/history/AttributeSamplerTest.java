@@ -0,0 +1,281 @@
+package org.jolokia.history;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.*;
+
+import javax.management.*;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import org.jolokia.backend.MBeanServerExecutorLocal;
+import org.jolokia.restrictor.AllowAllRestrictor;
+import org.jolokia.restrictor.Restrictor;
+import org.jolokia.util.LogHandler;
+import org.json.simple.JSONObject;
+import org.testng.annotations.*;
+
+import static org.testng.Assert.*;
+
+/**
+ * @author roland
+ * @since 1.6.3
+ */
+public class AttributeSamplerTest {
+
+    private static final String MBEAN = "jolokia.test:type=sampler";
+
+    private MBeanServerExecutorLocal executor;
+    private MBeanServer server;
+    private ObjectName name;
+    private Counter counter;
+    private AttributeSampler sampler;
+    private RecordingLogHandler log;
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        executor = new MBeanServerExecutorLocal();
+        server = ManagementFactory.getPlatformMBeanServer();
+        name = new ObjectName(MBEAN);
+        counter = new Counter();
+        server.registerMBean(counter, name);
+        log = new RecordingLogHandler();
+        // Long interval so that only explicit samples are taken
+        sampler = new AttributeSampler(executor, new AllowAllRestrictor(), 3600 * 1000L, 5, log);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        sampler.reset();
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        executor.destroy();
+    }
+
+    @Test
+    public void aggregates() throws Exception {
+        sampler.configure(new HistoryKey(MBEAN, "Count", null, null), new HistoryLimit(10, 0));
+        sampler.configure(new HistoryKey(MBEAN, "Usage", "used", null), new HistoryLimit(10, 0));
+        for (long value : new long[] { 10, 30, 20 }) {
+            counter.count = value;
+            sampler.sample();
+        }
+        JSONObject count = getAggregate("Count");
+        assertEquals(count.get("count"), 3);
+        assertEquals(count.get("min"), 10.0);
+        assertEquals(count.get("max"), 30.0);
+        assertEquals(count.get("avg"), 20.0);
+        assertEquals(count.get("last"), 20.0);
+        assertNotNull(count.get("timestamp"));
+        assertEquals(getAggregate("Usage/used").get("last"), 20.0);
+    }
+
+    @Test
+    public void limits() throws Exception {
+        HistoryKey key = new HistoryKey(MBEAN, "Count", null, null);
+        sampler.configure(key, new HistoryLimit(0, 60));
+        for (int i = 1; i <= 8; i++) {
+            counter.count = i;
+            sampler.sample();
+        }
+        // Global max of 5 entries
+        assertEquals(getAggregate("Count").get("count"), 5);
+        assertEquals(getAggregate("Count").get("min"), 4.0);
+
+        sampler.configure(key, new HistoryLimit(2, 0));
+        assertEquals(getAggregate("Count").get("count"), 2);
+        assertEquals(getAggregate("Count").get("min"), 7.0);
+        assertEquals(getAggregate("Count").get("max"), 8.0);
+
+        sampler.configure(key, null);
+        assertTrue(sampler.getAggregates().isEmpty());
+    }
+
+    @Test
+    public void ringBuffer() {
+        SampleBuffer buffer = new SampleBuffer(new HistoryLimit(3, 10));
+        assertEquals(buffer.aggregate().get("count"), 0);
+        assertNull(buffer.aggregate().get("min"));
+        for (int i = 0; i < 5; i++) {
+            buffer.add(i * 10, 1000L * i);
+        }
+        JSONObject aggregate = buffer.aggregate();
+        assertEquals(aggregate.get("count"), 3);
+        assertEquals(aggregate.get("min"), 20.0);
+        assertEquals(aggregate.get("avg"), 30.0);
+        // 20 per 2 seconds
+        assertEquals(aggregate.get("rate"), 10.0);
+        assertEquals(aggregate.get("timestamp"), 4L);
+
+        // Samples older than 10 seconds are dropped
+        buffer.add(100, 14500L);
+        assertEquals(buffer.size(), 1);
+        assertNull(buffer.aggregate().get("rate"));
+
+        buffer.setLimit(new HistoryLimit(5, 0));
+        buffer.add(110, 15500L);
+        assertEquals(buffer.aggregate().get("rate"), 10.0);
+    }
+
+    @Test
+    public void unreadable() throws Exception {
+        sampler.configure(new HistoryKey(MBEAN, "Name", null, null), new HistoryLimit(10, 0));
+        sampler.configure(new HistoryKey(MBEAN, "Usage", "unknown", null), new HistoryLimit(10, 0));
+        sampler.configure(new HistoryKey("jolokia.test:type=missing", "Count", null, null), new HistoryLimit(10, 0));
+        sampler.sample();
+        assertEquals(getAggregate("Name").get("count"), 0);
+        assertEquals(getAggregate("Usage/unknown").get("count"), 0);
+        assertEquals(((Map) ((Map) sampler.getAggregates().get("jolokia.test:type=missing")).get("Count")).get("count"), 0);
+    }
+
+    @Test
+    public void failuresLoggedOnce() throws Exception {
+        sampler.configure(new HistoryKey(MBEAN, "Count", null, null), new HistoryLimit(10, 0));
+        sampler.configure(new HistoryKey(MBEAN, "Name", null, null), new HistoryLimit(10, 0));
+        sampler.sample();
+        sampler.sample();
+        assertEquals(log.infos.size(), 1);
+        assertTrue(log.infos.get(0).contains("Name"));
+        assertTrue(log.errors.isEmpty());
+
+        server.unregisterMBean(name);
+        sampler.sample();
+        sampler.sample();
+        assertEquals(log.errors.size(), 1);
+        assertTrue(log.errors.get(0).contains("[Count]"));
+
+        // Logged again after the attribute could be sampled in between
+        server.registerMBean(counter, name);
+        sampler.sample();
+        server.unregisterMBean(name);
+        sampler.sample();
+        assertEquals(log.errors.size(), 2);
+    }
+
+    @Test
+    public void tabularData() throws Exception {
+        sampler.configure(new HistoryKey(MBEAN, "Count", null, null), new HistoryLimit(10, 0));
+        sampler.configure(new HistoryKey(MBEAN, "Usage", "unknown", null), new HistoryLimit(10, 0));
+        for (long value : new long[] { 10, 30 }) {
+            counter.count = value;
+            sampler.sample();
+        }
+        TabularData aggregates = sampler.getAggregatesAsTabularData();
+        assertEquals(aggregates.size(), 2);
+        CompositeData count = aggregates.get(new Object[] { MBEAN, "Count" });
+        assertEquals(count.get("count"), 2);
+        assertEquals(count.get("min"), 10.0);
+        assertEquals(count.get("last"), 30.0);
+        CompositeData unknown = aggregates.get(new Object[] { MBEAN, "Usage/unknown" });
+        assertEquals(unknown.get("count"), 0);
+        assertNull(unknown.get("min"));
+    }
+
+    @Test
+    public void background() throws Exception {
+        AttributeSampler fast = new AttributeSampler(executor, new AllowAllRestrictor(), 10, 100, log);
+        try {
+            fast.configure(new HistoryKey(MBEAN, "Count", null, null), new HistoryLimit(100, 0));
+            long end = System.currentTimeMillis() + 5000;
+            while (System.currentTimeMillis() < end && count(fast) < 2) {
+                Thread.sleep(10);
+            }
+            assertTrue(count(fast) >= 2);
+        } finally {
+            fast.reset();
+        }
+    }
+
+    @Test(expectedExceptions = SecurityException.class)
+    public void forbidden() throws Exception {
+        Restrictor restrictor = new AllowAllRestrictor() {
+            @Override
+            public boolean isAttributeReadAllowed(ObjectName pName, String pAttribute) {
+                return false;
+            }
+        };
+        new AttributeSampler(executor, restrictor, 1000, 10, log)
+                .configure(new HistoryKey(MBEAN, "Count", null, null), new HistoryLimit(10, 0));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = ".*pattern.*")
+    public void pattern() throws Exception {
+        sampler.configure(new HistoryKey("jolokia.test:*", "Count", null, null), new HistoryLimit(10, 0));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = ".*local.*")
+    public void remoteTarget() throws Exception {
+        sampler.configure(new HistoryKey(MBEAN, "Count", null, "service:jmx:rmi:///jndi/rmi://localhost:9999/jmxrmi"),
+                          new HistoryLimit(10, 0));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = ".*attributes.*")
+    public void operation() throws Exception {
+        sampler.configure(new HistoryKey(MBEAN, "reset", null), new HistoryLimit(10, 0));
+    }
+
+    // ===========================================================================
+
+    private JSONObject getAggregate(String pAttribute) {
+        return (JSONObject) ((JSONObject) sampler.getAggregates().get(MBEAN)).get(pAttribute);
+    }
+
+    private int count(AttributeSampler pSampler) {
+        return (Integer) ((Map) ((Map) pSampler.getAggregates().get(MBEAN)).get("Count")).get("count");
+    }
+
+    public interface CounterMXBean {
+        long getCount();
+        String getName();
+        MemoryUsage getUsage();
+    }
+
+    private static class RecordingLogHandler implements LogHandler {
+        private final List<String> infos = Collections.synchronizedList(new ArrayList<String>());
+        private final List<String> errors = Collections.synchronizedList(new ArrayList<String>());
+
+        public void debug(String message) {
+        }
+
+        public void info(String message) {
+            infos.add(message);
+        }
+
+        public void error(String message, Throwable t) {
+            errors.add(message);
+        }
+    }
+
+    public static class Counter implements CounterMXBean {
+        private volatile long count;
+
+        public long getCount() {
+            return count;
+        }
+
+        public String getName() {
+            return "counter";
+        }
+
+        public MemoryUsage getUsage() {
+            return new MemoryUsage(10, 20, 30, 40);
+        }
+    }
+}
@@ -18,12 +18,14 @@ package org.jolokia.http;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Map;
+import java.util.*;
 
 import javax.management.*;
 
 import org.easymock.EasyMock;
+import org.easymock.IAnswer;
 import org.easymock.IArgumentMatcher;
+import org.jolokia.config.ConfigKey;
 import org.jolokia.config.Configuration;
 import org.jolokia.backend.BackendManager;
 import org.jolokia.request.JmxReadRequest;
@@ -159,6 +161,53 @@ public class HttpRequestHandlerTest {
         assertTrue(response.get(1) == resp);
     }
 
+    @Test
+    public void cachedGet() throws IOException, InstanceNotFoundException, ReflectionException, AttributeNotFoundException, MBeanException {
+        handler = new HttpRequestHandler(new Configuration(ConfigKey.REQUEST_CACHE_SIZE, "10"), backend, createDummyLogHandler());
+        final List<JmxRequest> requests = new ArrayList<JmxRequest>();
+        expect(backend.handleRequest(isA(JmxReadRequest.class))).andAnswer(recordRequest(requests)).times(3);
+        replay(backend);
+
+        handler.handleGetRequest("/jolokia", HttpTestUtil.HEAP_MEMORY_GET_REQUEST, null);
+        handler.handleGetRequest("/jolokia", HttpTestUtil.HEAP_MEMORY_GET_REQUEST, null);
+        assertSame(requests.get(0), requests.get(1));
+
+        // Different query parameters lead to a different request
+        Map<String, String[]> params = new HashMap<String, String[]>();
+        params.put("maxDepth", new String[] { "2" });
+        handler.handleGetRequest("/jolokia", HttpTestUtil.HEAP_MEMORY_GET_REQUEST, params);
+        assertNotSame(requests.get(2), requests.get(0));
+        assertEquals(requests.get(2).getParameterAsInt(ConfigKey.MAX_DEPTH), 2);
+    }
+
+    @Test
+    public void cachedPost() throws IOException, InstanceNotFoundException, ReflectionException, AttributeNotFoundException, MBeanException {
+        handler = new HttpRequestHandler(new Configuration(ConfigKey.REQUEST_CACHE_SIZE, "10"), backend, createDummyLogHandler());
+        final List<JmxRequest> requests = new ArrayList<JmxRequest>();
+        expect(backend.handleRequest(isA(JmxReadRequest.class))).andAnswer(recordRequest(requests)).times(6);
+        replay(backend);
+
+        String bulk = "[" + HttpTestUtil.HEAP_MEMORY_POST_REQUEST + "," + HttpTestUtil.HEAP_MEMORY_POST_REQUEST + "]";
+        for (int i = 0; i < 2; i++) {
+            JSONArray response = (JSONArray) handler.handlePostRequest("/jolokia", HttpTestUtil.createServletInputStream(bulk), "utf-8", null);
+            assertEquals(response.size(), 2);
+            handler.handlePostRequest("/jolokia", HttpTestUtil.createServletInputStream(HttpTestUtil.HEAP_MEMORY_POST_REQUEST), "utf-8", null);
+        }
+        assertSame(requests.get(0), requests.get(3));
+        assertSame(requests.get(1), requests.get(4));
+        assertSame(requests.get(2), requests.get(5));
+        assertNotSame(requests.get(0), requests.get(2));
+    }
+
+    private IAnswer<JSONObject> recordRequest(final List<JmxRequest> pRequests) {
+        return new IAnswer<JSONObject>() {
+            public JSONObject answer() throws Throwable {
+                pRequests.add((JmxRequest) EasyMock.getCurrentArguments()[0]);
+                return new JSONObject();
+            }
+        };
+    }
+
     @Test
     public void preflightCheck() {
         String origin = "http://bla.com";
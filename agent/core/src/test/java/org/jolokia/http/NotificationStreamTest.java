@@ -0,0 +1,138 @@
+package org.jolokia.http;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.jolokia.backend.BackendManager;
+import org.jolokia.config.ConfigKey;
+import org.jolokia.config.Configuration;
+import org.jolokia.config.ProcessingParameters;
+import org.jolokia.notification.TestEmitter;
+import org.jolokia.request.JmxNotificationRequest;
+import org.jolokia.request.JmxRequestFactory;
+import org.jolokia.util.LogHandler;
+import org.json.simple.JSONAware;
+import org.json.simple.JSONObject;
+import org.testng.annotations.*;
+
+import static org.testng.Assert.*;
+
+/**
+ * @author roland
+ * @since 1.6.3
+ */
+public class NotificationStreamTest {
+
+    private BackendManager backendManager;
+    private HttpRequestHandler requestHandler;
+    private MBeanServer server;
+    private ObjectName emitterName;
+    private TestEmitter emitter;
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        Configuration config = new Configuration(ConfigKey.AGENT_ID, "test");
+        LogHandler log = new LogHandler.StdoutLogHandler(false);
+        backendManager = new BackendManager(config, log);
+        requestHandler = new HttpRequestHandler(config, backendManager, log);
+        server = ManagementFactory.getPlatformMBeanServer();
+        emitterName = new ObjectName("jolokia.test:type=streamEmitter");
+        emitter = new TestEmitter(emitterName);
+        server.registerMBean(emitter, emitterName);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        backendManager.destroy();
+        server.unregisterMBean(emitterName);
+    }
+
+    @Test
+    public void streamRequestCreatesStream() {
+        JSONAware response = requestHandler.handleGetRequest("/jolokia/notification/stream/unknown",
+                                                             "/notification/stream/unknown", null);
+        assertTrue(response instanceof NotificationStream);
+        // Non-streaming fallback is a single pull
+        assertTrue(response.toJSONString().contains("\"status\":400"));
+    }
+
+    @Test
+    public void eventStream() throws Exception {
+        stream(true, "data: {", ":\n\n");
+    }
+
+    @Test
+    public void ndJson() throws Exception {
+        stream(false, "{", "}\n\n");
+    }
+
+    private void stream(boolean pEventStream, String pEventStart, String pHeartbeat) throws Exception {
+        final String client = register();
+        get("notification/add/" + client + "/" + emitterName.getCanonicalName());
+        emitter.emit("test.stream", "streamed");
+
+        final NotificationStream stream =
+                new NotificationStream(requestHandler, (JmxNotificationRequest) JmxRequestFactory.createGetRequest(
+                        "notification/stream/" + client, params()), pEventStream, 50);
+        final StringWriter writer = new StringWriter();
+        Thread streamer = new Thread() {
+            public void run() {
+                try {
+                    stream.writeJSONString(writer);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+        streamer.start();
+        Thread.sleep(200);
+        get("notification/unregister/" + client);
+        streamer.join(5000);
+        assertFalse(streamer.isAlive());
+
+        // Notification emitted before streaming is sent first
+        String out = writer.toString();
+        assertTrue(out.startsWith(pEventStart));
+        assertTrue(out.contains("\"test.stream\""));
+        assertTrue(out.contains(pHeartbeat));
+        // The last event is the error for the unregistered client
+        assertTrue(out.trim().endsWith("}"));
+        assertTrue(out.contains("\"status\":400"));
+    }
+
+    private String register() throws Exception {
+        JSONObject resp = get("notification/register");
+        return (String) ((Map) resp.get("value")).get("id");
+    }
+
+    private JSONObject get(String pPath) throws Exception {
+        JSONObject resp = backendManager.handleRequest(JmxRequestFactory.createGetRequest(pPath, params()));
+        assertEquals(resp.get("status"), 200);
+        return resp;
+    }
+
+    private ProcessingParameters params() {
+        return new Configuration().getProcessingParameters(new HashMap<String, String>());
+    }
+}
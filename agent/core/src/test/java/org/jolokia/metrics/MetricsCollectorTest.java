@@ -0,0 +1,200 @@
+package org.jolokia.metrics;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+
+import javax.management.*;
+
+import org.jolokia.backend.MBeanServerExecutorLocal;
+import org.jolokia.restrictor.AllowAllRestrictor;
+import org.jolokia.restrictor.DenyAllRestrictor;
+import org.jolokia.restrictor.Restrictor;
+import org.testng.annotations.*;
+
+import static org.testng.Assert.*;
+
+/**
+ * @author roland
+ * @since 1.6.3
+ */
+public class MetricsCollectorTest {
+
+    private MBeanServerExecutorLocal executor;
+    private MBeanServer server;
+    private ObjectName name;
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        executor = new MBeanServerExecutorLocal();
+        server = ManagementFactory.getPlatformMBeanServer();
+        name = new ObjectName("jolokia.test:type=metrics,name=\"a \\\"b\\\"\",kind=x");
+        server.registerMBean(new Sample(), name);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        executor.destroy();
+    }
+
+    @Test
+    public void allAttributes() throws IOException {
+        String metrics = collect(new MetricsCollector("jolokia.test:type=metrics,*", new AllowAllRestrictor()));
+        String labels = "{kind=\"x\",name=\"a \\\"b\\\"\"}";
+        assertTrue(metrics.contains("# TYPE jolokia_test_metrics_Count gauge\njolokia_test_metrics_Count" + labels + " 42\n"));
+        assertTrue(metrics.contains("jolokia_test_metrics_Ratio" + labels + " NaN\n"));
+        assertTrue(metrics.contains("jolokia_test_metrics_Active" + labels + " 1\n"));
+        assertTrue(metrics.contains("jolokia_test_metrics_Usage_used" + labels + " 20\n"));
+        assertTrue(metrics.contains("jolokia_test_metrics_Usage_max" + labels + " 40\n"));
+        assertFalse(metrics.contains("Name"));
+        assertTrue(metrics.endsWith("# EOF\n"));
+    }
+
+    @Test
+    public void attributeWithPath() throws IOException {
+        MetricsCollector collector = new MetricsCollector(" jolokia.test:type=metrics,*/Usage/used ; java.lang:type=Runtime/Uptime;", new AllowAllRestrictor());
+        assertTrue(collector.isEnabled());
+        String metrics = collect(collector);
+        assertTrue(metrics.contains("jolokia_test_metrics_Usage_used{"));
+        assertTrue(metrics.contains("java_lang_Runtime_Uptime "));
+        assertFalse(metrics.contains("Usage_max"));
+        assertFalse(metrics.contains("Count"));
+    }
+
+    @Test
+    public void registrationChanges() throws Exception {
+        MetricsCollector collector = new MetricsCollector("jolokia.test:*/Count", new AllowAllRestrictor());
+        assertTrue(collect(collector).contains("kind=\"x\""));
+
+        ObjectName other = new ObjectName("jolokia.test:type=metrics,kind=y");
+        server.registerMBean(new Sample(), other);
+        try {
+            assertTrue(collect(collector).contains("kind=\"y\""));
+        } finally {
+            server.unregisterMBean(other);
+        }
+        assertFalse(collect(collector).contains("kind=\"y\""));
+        server.unregisterMBean(name);
+        assertEquals(collect(collector), "# EOF\n");
+    }
+
+    @Test
+    public void restricted() throws IOException {
+        Restrictor restrictor = new AllowAllRestrictor() {
+            @Override
+            public boolean isAttributeReadAllowed(ObjectName pName, String pAttribute) {
+                return !"Count".equals(pAttribute);
+            }
+        };
+        String metrics = collect(new MetricsCollector("jolokia.test:*", restrictor));
+        assertFalse(metrics.contains("Count"));
+        assertTrue(metrics.contains("Active"));
+    }
+
+    @Test(expectedExceptions = SecurityException.class)
+    public void forbidden() throws IOException {
+        collect(new MetricsCollector("jolokia.test:*", new DenyAllRestrictor()));
+    }
+
+    @Test
+    public void noRules() {
+        assertFalse(new MetricsCollector("", new AllowAllRestrictor()).isEnabled());
+        assertFalse(new MetricsCollector(null, new AllowAllRestrictor()).isEnabled());
+    }
+
+    @Test
+    public void escapedRule() {
+        MetricRule rule = MetricRule.parse("Catalina:type=Manager,context=!/examples/activeSessions").get(0);
+        assertEquals(rule.getPattern().getKeyProperty("context"), "/examples");
+        assertEquals(rule.getAttribute(), "activeSessions");
+        assertTrue(rule.getPath().isEmpty());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void invalidRule() {
+        new MetricsCollector("no-mbean-name", new AllowAllRestrictor());
+    }
+
+    @Test
+    public void missingMBeanName() {
+        for (String rule : new String[] { "*", "/", "/Count", "*/Count" }) {
+            try {
+                MetricRule.parse(rule);
+                fail("IllegalArgumentException expected for rule " + rule);
+            } catch (IllegalArgumentException exp) {
+                assertTrue(exp.getMessage().contains("No MBean name"), exp.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void wildcardAttribute() {
+        MetricRule rule = MetricRule.parse("jolokia.test:*/*").get(0);
+        assertNull(rule.getAttribute());
+        assertTrue(rule.getPath().isEmpty());
+    }
+
+    @Test
+    public void sanitizedNames() {
+        assertEquals(MetricSamples.sanitizeName("java.lang_Memory Pool-1"), "java_lang_Memory_Pool_1");
+        assertEquals(MetricSamples.sanitizeName("1st"), "_1st");
+    }
+
+    // ===========================================================================
+
+    private String collect(MetricsCollector pCollector) throws IOException {
+        StringWriter writer = new StringWriter();
+        pCollector.collect(executor, writer);
+        return writer.toString();
+    }
+
+    public interface SampleMXBean {
+        int getCount();
+        double getRatio();
+        boolean isActive();
+        String getName();
+        MemoryUsage getUsage();
+    }
+
+    public static class Sample implements SampleMXBean {
+        public int getCount() {
+            return 42;
+        }
+
+        public double getRatio() {
+            return Double.NaN;
+        }
+
+        public boolean isActive() {
+            return true;
+        }
+
+        public String getName() {
+            return "sample";
+        }
+
+        public MemoryUsage getUsage() {
+            return new MemoryUsage(10, 20, 30, 40);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.jolokia.notification;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+
+import javax.management.*;
+
+import org.jolokia.backend.executor.AbstractMBeanServerExecutor;
+import org.testng.annotations.*;
+
+import static org.testng.Assert.*;
+
+/**
+ * Listeners must not stay registered at an MBean when the client is gone or
+ * adding the listener failed
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+public class NotificationListenerDelegateTest {
+
+    private MBeanServer server;
+    private ObjectName name;
+    private TestEmitter emitter;
+    private NotificationListenerDelegate delegate;
+
+    @BeforeMethod
+    public void setup() throws JMException {
+        server = MBeanServerFactory.newMBeanServer();
+        name = new ObjectName("jolokia.test:type=emitter");
+        emitter = new TestEmitter(name);
+        server.registerMBean(emitter, name);
+        delegate = new NotificationListenerDelegate(10, 60000L);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        delegate.destroy();
+    }
+
+    @Test
+    public void addAndUnregister() throws Exception {
+        String client = delegate.register();
+        delegate.addListener(new ServerExecutor(false), client, name, null, null);
+        assertEquals(emitter.getListenerCount(), 1);
+        delegate.unregister(client);
+        assertEquals(emitter.getListenerCount(), 0);
+    }
+
+    @Test
+    public void clientUnregisteredWhileAdding() throws Exception {
+        final String client = delegate.register();
+        ServerExecutor executor = new ServerExecutor(false) {
+            @Override
+            public <T> T call(ObjectName pObjectName, MBeanAction<T> pMBeanAction, Object... pExtraArgs)
+                    throws IOException, ReflectionException, MBeanException, AttributeNotFoundException, InstanceNotFoundException {
+                delegate.unregister(client);
+                return super.call(pObjectName, pMBeanAction, pExtraArgs);
+            }
+        };
+        delegate.addListener(executor, client, name, null, null);
+        assertEquals(emitter.getListenerCount(), 0);
+    }
+
+    @Test
+    public void rollbackOnFailure() throws Exception {
+        String client = delegate.register();
+        try {
+            // Listener gets added, but the call fails afterwards (like when timing out)
+            delegate.addListener(new ServerExecutor(true), client, name, null, null);
+            fail("Exception expected");
+        } catch (IOException exp) {
+            // Expected
+        }
+        assertEquals(emitter.getListenerCount(), 0);
+        assertEquals(delegate.list(client).size(), 0);
+    }
+
+    @Test
+    public void rollbackForUnknownMBean() throws Exception {
+        String client = delegate.register();
+        try {
+            delegate.addListener(new ServerExecutor(false), client, new ObjectName("jolokia.test:type=unknown"), null, null);
+            fail("Exception expected");
+        } catch (InstanceNotFoundException exp) {
+            // Expected
+        }
+        assertEquals(delegate.list(client).size(), 0);
+    }
+
+    @Test
+    public void removedBeforeAdded() throws Exception {
+        ListenerRegistration registration = new ListenerRegistration("1", name, null, null, new NotificationQueue(10));
+        registration.remove();
+        registration.add(server);
+        assertEquals(emitter.getListenerCount(), 0);
+    }
+
+    // ===========================================================================
+
+    private class ServerExecutor extends AbstractMBeanServerExecutor {
+
+        private final boolean failAfterCall;
+
+        ServerExecutor(boolean pFailAfterCall) {
+            failAfterCall = pFailAfterCall;
+        }
+
+        @Override
+        protected Set<MBeanServerConnection> getMBeanServers() {
+            return Collections.<MBeanServerConnection>singleton(server);
+        }
+
+        @Override
+        public <T> T call(ObjectName pObjectName, MBeanAction<T> pMBeanAction, Object... pExtraArgs)
+                throws IOException, ReflectionException, MBeanException, AttributeNotFoundException, InstanceNotFoundException {
+            T ret = super.call(pObjectName, pMBeanAction, pExtraArgs);
+            if (failAfterCall) {
+                throw new IOException("Timeout");
+            }
+            return ret;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package org.jolokia.notification;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.List;
+
+import org.json.simple.JSONObject;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * @author roland
+ * @since 1.6.3
+ */
+public class NotificationQueueTest {
+
+    @Test
+    public void fetchAll() {
+        NotificationQueue queue = new NotificationQueue(10);
+        queue.add("one");
+        queue.add("two");
+        JSONObject result = queue.fetch(0, 0);
+        List events = (List) result.get("notifications");
+        assertEquals(events.size(), 2);
+        assertEquals(events.get(0), "one");
+        assertEquals(events.get(1), "two");
+        assertEquals(result.get("dropped"), 0L);
+        assertEquals(queue.size(), 0);
+    }
+
+    @Test
+    public void fetchLimited() {
+        NotificationQueue queue = new NotificationQueue(10);
+        queue.add("one");
+        queue.add("two");
+        queue.add("three");
+        assertEquals(((List) queue.fetch(2, 0).get("notifications")).size(), 2);
+        assertEquals(((List) queue.fetch(2, 0).get("notifications")).get(0), "three");
+    }
+
+    @Test
+    public void overflow() {
+        NotificationQueue queue = new NotificationQueue(2);
+        queue.add("one");
+        queue.add("two");
+        queue.add("three");
+        JSONObject result = queue.fetch(0, 0);
+        List events = (List) result.get("notifications");
+        assertEquals(events.size(), 2);
+        assertEquals(events.get(0), "two");
+        assertEquals(result.get("dropped"), 1L);
+        // Reset after fetch
+        assertEquals(queue.fetch(0, 0).get("dropped"), 0L);
+    }
+
+    @Test
+    public void longPoll() throws InterruptedException {
+        final NotificationQueue queue = new NotificationQueue(10);
+        Thread producer = new Thread() {
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+                queue.add("late");
+            }
+        };
+        producer.start();
+        long start = System.currentTimeMillis();
+        List events = (List) queue.fetch(0, 10000).get("notifications");
+        assertTrue(System.currentTimeMillis() - start < 10000);
+        assertEquals(events.size(), 1);
+        assertEquals(events.get(0), "late");
+        producer.join();
+    }
+
+    @Test
+    public void timeoutWithoutEvents() {
+        NotificationQueue queue = new NotificationQueue(10);
+        long start = System.currentTimeMillis();
+        assertEquals(((List) queue.fetch(0, 100).get("notifications")).size(), 0);
+        assertTrue(System.currentTimeMillis() - start >= 100);
+    }
+
+    @Test
+    public void close() throws InterruptedException {
+        final NotificationQueue queue = new NotificationQueue(10);
+        Thread closer = new Thread() {
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+                queue.close();
+            }
+        };
+        closer.start();
+        long start = System.currentTimeMillis();
+        assertEquals(((List) queue.fetch(0, 10000).get("notifications")).size(), 0);
+        assertTrue(System.currentTimeMillis() - start < 10000);
+        assertTrue(queue.isClosed());
+        queue.add("ignored");
+        assertEquals(queue.size(), 0);
+        closer.join();
+    }
+}
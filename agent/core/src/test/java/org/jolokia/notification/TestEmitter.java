@@ -0,0 +1,69 @@
+package org.jolokia.notification;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.*;
+
+/**
+ * MBean emitting notifications on demand, used for testing
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+public class TestEmitter extends NotificationBroadcasterSupport implements TestEmitterMBean {
+
+    private final ObjectName name;
+    private long sequence;
+
+    // Number of listeners currently added
+    private final AtomicInteger listeners = new AtomicInteger();
+
+    public TestEmitter(ObjectName pName) {
+        name = pName;
+    }
+
+    public void emit(String pType, String pMessage) {
+        Notification notification = new Notification(pType, name, ++sequence, pMessage);
+        notification.setUserData("user:" + pMessage);
+        sendNotification(notification);
+    }
+
+    @Override
+    public void addNotificationListener(NotificationListener pListener, NotificationFilter pFilter, Object pHandback) {
+        super.addNotificationListener(pListener, pFilter, pHandback);
+        listeners.incrementAndGet();
+    }
+
+    @Override
+    public void removeNotificationListener(NotificationListener pListener) throws ListenerNotFoundException {
+        super.removeNotificationListener(pListener);
+        listeners.decrementAndGet();
+    }
+
+    @Override
+    public void removeNotificationListener(NotificationListener pListener, NotificationFilter pFilter, Object pHandback)
+            throws ListenerNotFoundException {
+        super.removeNotificationListener(pListener, pFilter, pHandback);
+        listeners.decrementAndGet();
+    }
+
+    public int getListenerCount() {
+        return listeners.get();
+    }
+}
@@ -63,6 +63,7 @@ public class JmxRequestBuilder {
             case VERSION: return (R) new JmxVersionRequest(request,params);
             case SEARCH: return (R) new JmxSearchRequest(request,params);
             case LIST: return (R) new JmxListRequest(request,params);
+            case NOTIFICATION: return (R) new JmxNotificationRequest(request,params);
         }
         throw new IllegalArgumentException("Unknown type " + type);
     }
@@ -112,6 +113,51 @@ public class JmxRequestBuilder {
         return this;
     }
 
+    public JmxRequestBuilder command(String pCommand) {
+        request.put("command", pCommand);
+        return this;
+    }
+
+    public JmxRequestBuilder client(String pClient) {
+        request.put("client", pClient);
+        return this;
+    }
+
+    public JmxRequestBuilder handle(String pHandle) {
+        request.put("handle", pHandle);
+        return this;
+    }
+
+    public JmxRequestBuilder filter(String ... pTypes) {
+        request.put("filter", Arrays.asList(pTypes));
+        return this;
+    }
+
+    public JmxRequestBuilder handback(Object pHandback) {
+        request.put("handback", pHandback);
+        return this;
+    }
+
+    public JmxRequestBuilder timeout(long pTimeout) {
+        request.put("timeout", pTimeout);
+        return this;
+    }
+
+    public JmxRequestBuilder requests(Map ... pRequests) {
+        request.put("requests", Arrays.asList(pRequests));
+        return this;
+    }
+
+    public JmxRequestBuilder interval(long pInterval) {
+        request.put("interval", pInterval);
+        return this;
+    }
+
+    public JmxRequestBuilder onlyChanged(boolean pOnlyChanged) {
+        request.put("onlyChanged", pOnlyChanged);
+        return this;
+    }
+
     public JmxRequestBuilder option(ConfigKey pKey, String pValue) {
         assert pKey.isRequestConfig();
         procConfig.put(pKey.getKeyValue(),pValue);
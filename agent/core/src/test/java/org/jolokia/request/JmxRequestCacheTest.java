@@ -0,0 +1,110 @@
+package org.jolokia.request;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import java.util.*;
+
+import javax.management.MalformedObjectNameException;
+
+import org.jolokia.util.RequestType;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * @author roland
+ * @since 1.6.3
+ */
+public class JmxRequestCacheTest {
+
+    @Test
+    public void singleRequest() throws MalformedObjectNameException {
+        JmxRequestCache cache = new JmxRequestCache(10);
+        JmxRequest request = new JmxRequestBuilder(RequestType.READ, "java.lang:type=Memory").attribute("HeapMemoryUsage").build();
+        String key = JmxRequestCache.createGetKey("read/java.lang:type=Memory/HeapMemoryUsage", null);
+
+        assertNull(cache.get(key));
+        cache.put(key, request);
+        JmxRequestCache.CachedRequests cached = cache.get(key);
+        assertFalse(cached.isBulk());
+        assertSame(cached.getRequest(), request);
+        assertEquals(cache.getHits(), 1);
+        assertEquals(cache.getMisses(), 1);
+    }
+
+    @Test
+    public void bulkRequest() throws MalformedObjectNameException {
+        JmxRequestCache cache = new JmxRequestCache(10);
+        List<JmxRequest> requests = Arrays.<JmxRequest>asList(
+                new JmxRequestBuilder(RequestType.READ, "java.lang:type=Memory").attribute("HeapMemoryUsage").build(),
+                new JmxRequestBuilder(RequestType.SEARCH, "java.lang:*").build());
+        String key = JmxRequestCache.createPostKey("[...]", null);
+        cache.putBulk(key, requests);
+        JmxRequestCache.CachedRequests cached = cache.get(key);
+        assertTrue(cached.isBulk());
+        assertEquals(cached.getRequests(), requests);
+    }
+
+    @Test
+    public void notCacheable() throws MalformedObjectNameException {
+        JmxRequestCache cache = new JmxRequestCache(10);
+        JmxRequest exec = new JmxRequestBuilder(RequestType.EXEC, "java.lang:type=Memory").operation("gc").build();
+        cache.put("exec", exec);
+        assertNull(cache.get("exec"));
+
+        // A single request which can't be cached prevents caching the whole bulk request
+        JmxRequest read = new JmxRequestBuilder(RequestType.READ, "java.lang:type=Memory").attribute("HeapMemoryUsage").build();
+        cache.putBulk("bulk", Arrays.asList(read, exec));
+        assertNull(cache.get("bulk"));
+
+        // Large bodies are not cached at all
+        char[] body = new char[JmxRequestCache.MAX_BODY_LENGTH + 1];
+        Arrays.fill(body, ' ');
+        assertNull(JmxRequestCache.createPostKey(new String(body), null));
+        cache.put(null, read);
+        assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void bounded() throws MalformedObjectNameException {
+        JmxRequestCache cache = new JmxRequestCache(2);
+        JmxRequest request = new JmxRequestBuilder(RequestType.VERSION).build();
+        cache.put("1", request);
+        cache.put("2", request);
+        // Touch "1" so that "2" is the least recently used one
+        assertNotNull(cache.get("1"));
+        cache.put("3", request);
+        assertEquals(cache.size(), 2);
+        assertNotNull(cache.get("1"));
+        assertNull(cache.get("2"));
+        assertNotNull(cache.get("3"));
+    }
+
+    @Test
+    public void keys() {
+        Map<String, String[]> params = new HashMap<String, String[]>();
+        params.put("maxDepth", new String[] { "2" });
+        params.put("ignoreErrors", new String[] { "true" });
+        Map<String, String[]> sameParams = new LinkedHashMap<String, String[]>();
+        sameParams.put("ignoreErrors", new String[] { "true" });
+        sameParams.put("maxDepth", new String[] { "2" });
+
+        assertEquals(JmxRequestCache.createGetKey("version", params), JmxRequestCache.createGetKey("version", sameParams));
+        assertFalse(JmxRequestCache.createGetKey("version", params).equals(JmxRequestCache.createGetKey("version", null)));
+        assertFalse(JmxRequestCache.createGetKey("version", null).equals(JmxRequestCache.createPostKey("version", null)));
+    }
+}
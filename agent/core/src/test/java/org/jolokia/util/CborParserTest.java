@@ -0,0 +1,143 @@
+package org.jolokia.util;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.ParseException;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * @author roland
+ * @since 1.6.3
+ */
+public class CborParserTest {
+
+    @Test
+    public void rfcExamples() throws ParseException {
+        // Examples from RFC 7049, Appendix A
+        assertParsed("00", 0L);
+        assertParsed("1818", 24L);
+        assertParsed("1b000000e8d4a51000", 1000000000000L);
+        assertParsed("3903e7", -1000L);
+        assertParsed("f90000", 0.0);
+        assertParsed("f93c00", 1.0);
+        assertParsed("f97bff", 65504.0);
+        assertParsed("f90001", 5.960464477539063e-8);
+        assertParsed("f9c400", -4.0);
+        assertParsed("f97c00", Double.POSITIVE_INFINITY);
+        assertParsed("fa47c35000", 100000.0);
+        assertParsed("fb3ff199999999999a", 1.1);
+        assertParsed("f4", false);
+        assertParsed("f5", true);
+        assertParsed("f6", null);
+        assertParsed("f7", null);
+        assertParsed("6449455446", "IETF");
+        assertParsed("64f0908591", "𐅑");
+        assertParsed("c074323031332d30332d32315432303a30343a30305a", "2013-03-21T20:04:00Z");
+        assertParsed("7f657374726561646d696e67ff", "streaming");
+        assertParsed("8301820203820405", array(1L, array(2L, 3L), array(4L, 5L)));
+        assertParsed("9f018202039f0405ffff", array(1L, array(2L, 3L), array(4L, 5L)));
+        assertParsed("a26161016162820203", object("a", 1L, "b", array(2L, 3L)));
+        assertParsed("bf6346756ef563416d7421ff", object("Fun", true, "Amt", -2L));
+        assertParsed("a201020304", object("1", 2L, "3", 4L));
+    }
+
+    @Test
+    public void stream() throws IOException, ParseException {
+        byte[] cbor = new byte[3000];
+        // Array of 2999 zeros, larger than the initial buffer
+        cbor[0] = (byte) 0x99;
+        cbor[1] = (byte) 0x0b;
+        cbor[2] = (byte) 0xb5;
+        JSONArray ret = (JSONArray) new CborParser().parse(new ByteArrayInputStream(cbor, 0, 2 + 1 + 2997));
+        assertEquals(ret.size(), 2997);
+    }
+
+    @Test
+    public void invalid() {
+        for (String hex : new String[] {
+                "", "18", "62c3", "8301", "a16161", "ff", "0000", "40", "1bffffffffffffffff",
+                "7f01ff", "9f01", "f8", "1c" }) {
+            try {
+                new CborParser().parse(bytes(hex));
+                fail("Parse exception expected for " + hex);
+            } catch (ParseException exp) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void maxNesting() throws ParseException {
+        byte[] cbor = new byte[2001];
+        Arrays.fill(cbor, (byte) 0x81);
+        cbor[2000] = 0;
+        try {
+            new CborParser().parse(cbor);
+            fail("Too deep nesting should be rejected");
+        } catch (ParseException exp) {
+            // Expected
+        }
+        assertEquals(new CborParser().parse(Arrays.copyOfRange(cbor, 1000, 2001)).toString(), deep(1000));
+    }
+
+    // =====================================================================================
+
+    private void assertParsed(String pHex, Object pExpected) throws ParseException {
+        assertEquals(new CborParser().parse(bytes(pHex)), pExpected, "Parsing " + pHex);
+    }
+
+    private byte[] bytes(String pHex) {
+        byte[] ret = new byte[pHex.length() / 2];
+        for (int i = 0; i < ret.length; i++) {
+            ret[i] = (byte) Integer.parseInt(pHex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return ret;
+    }
+
+    private JSONArray array(Object ... pValues) {
+        JSONArray ret = new JSONArray();
+        ret.addAll(Arrays.asList(pValues));
+        return ret;
+    }
+
+    private JSONObject object(Object ... pKeyValues) {
+        JSONObject ret = new JSONObject();
+        for (int i = 0; i < pKeyValues.length; i += 2) {
+            ret.put(pKeyValues[i], pKeyValues[i + 1]);
+        }
+        return ret;
+    }
+
+    private String deep(int pLevels) {
+        StringBuilder ret = new StringBuilder();
+        for (int i = 0; i < pLevels; i++) {
+            ret.append('[');
+        }
+        ret.append('0');
+        for (int i = 0; i < pLevels; i++) {
+            ret.append(']');
+        }
+        return ret.toString();
+    }
+}
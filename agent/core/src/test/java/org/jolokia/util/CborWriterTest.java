@@ -0,0 +1,160 @@
+package org.jolokia.util;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+
+import org.json.simple.*;
+import org.json.simple.parser.ParseException;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * @author roland
+ * @since 1.6.3
+ */
+public class CborWriterTest {
+
+    @Test
+    public void rfcExamples() throws IOException {
+        // Examples from RFC 7049, Appendix A
+        assertEncoding(0, "00");
+        assertEncoding(23, "17");
+        assertEncoding(24, "1818");
+        assertEncoding(1000, "1903e8");
+        assertEncoding(1000000, "1a000f4240");
+        assertEncoding(1000000000000L, "1b000000e8d4a51000");
+        assertEncoding(Long.MAX_VALUE, "1b7fffffffffffffff");
+        assertEncoding(-1, "20");
+        assertEncoding(-1000, "3903e7");
+        assertEncoding(Long.MIN_VALUE, "3b7fffffffffffffff");
+        assertEncoding(1.1, "fb3ff199999999999a");
+        assertEncoding(-4.1, "fbc010666666666666");
+        assertEncoding(false, "f4");
+        assertEncoding(true, "f5");
+        assertEncoding(null, "f6");
+        assertEncoding("", "60");
+        assertEncoding("IETF", "6449455446");
+        assertEncoding("\"\\", "62225c");
+        assertEncoding("ü", "62c3bc");
+        assertEncoding("水", "63e6b0b4");
+        assertEncoding("𐅑", "64f0908591");
+        assertEncoding(new JSONArray(), "80");
+        assertEncoding(Arrays.asList(1, Arrays.asList(2, 3), Arrays.asList(4, 5)), "8301820203820405");
+        assertEncoding(new JSONObject(), "a0");
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+        map.put("a", 1);
+        map.put("b", Arrays.asList(2, 3));
+        assertEncoding(map, "a26161016162820203");
+    }
+
+    @Test
+    public void numbers() throws IOException, ParseException {
+        // Same values as parsing the JSON representation
+        for (Object value : new Object[] {
+                42L, 17, (short) 3, (byte) -2, 3.1415, 1.5f, 0.1f, Double.NaN, Float.POSITIVE_INFINITY,
+                new BigDecimal("123.456"), new BigDecimal("1e3"), new BigInteger("-42") }) {
+            assertSameAsJson(value);
+        }
+        // Integers exceeding a long
+        assertEncoding(new BigInteger("18446744073709551616"), "fb43f0000000000000");
+    }
+
+    @Test
+    public void nested() throws IOException, ParseException {
+        JSONObject value = new JSONObject();
+        JSONArray list = new JSONArray();
+        list.add(1L);
+        list.add(null);
+        list.add("two");
+        list.add(new JSONObject());
+        value.put("list", list);
+        Map<Object, Object> map = new LinkedHashMap<Object, Object>();
+        map.put(1, Arrays.asList("a", "b"));
+        map.put(null, new JSONArray());
+        value.put("map", map);
+        value.put("nested", Collections.singletonMap("key/with\"quote", value.clone()));
+        value.put("serialized", new SerializedJson(Collections.singletonMap("x", 1.5)));
+        assertSameAsJson(value);
+        // Unknown values are written as strings
+        assertEncoding(Thread.State.NEW, "634e4557");
+    }
+
+    @Test
+    public void strings() throws IOException, ParseException {
+        assertSameAsJson("Grüße, 你好, 😀, \u0000\u007F");
+        // Unpaired surrogates are replaced like in the JSON output
+        assertEncoding("a\ud83db", "63613f62");
+        assertEncoding("\ude00\ud83d", "623f3f");
+    }
+
+    @Test
+    public void streamAware() throws IOException, ParseException {
+        JSONStreamAware custom = new JSONStreamAware() {
+            public void writeJSONString(Writer out) throws IOException {
+                out.write("{\"custom\":[1,2.5]}");
+            }
+        };
+        JSONAware aware = new JSONAware() {
+            public String toJSONString() {
+                return "[\"aware\"]";
+            }
+        };
+        assertSameAsJson(Arrays.asList(custom, aware));
+    }
+
+    @Test
+    public void largeOutput() throws IOException, ParseException {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 3 * CborWriter.BUFFER_SIZE; i++) {
+            value.append(i % 4 == 0 ? "x" : i % 4 == 1 ? "ä" : i % 4 == 2 ? "你" : "😀");
+        }
+        JSONArray array = new JSONArray();
+        for (int i = 0; i < 3; i++) {
+            array.add(value.toString());
+            array.add(i);
+        }
+        assertSameAsJson(array);
+    }
+
+    // =====================================================================================
+
+    private byte[] encode(Object pValue) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CborWriter writer = new CborWriter(out);
+        writer.writeValue(pValue);
+        writer.close();
+        return out.toByteArray();
+    }
+
+    private void assertEncoding(Object pValue, String pHex) throws IOException {
+        byte[] cbor = encode(pValue);
+        StringBuilder hex = new StringBuilder();
+        for (byte b : cbor) {
+            hex.append(String.format("%02x", b & 0xff));
+        }
+        assertEquals(hex.toString(), pHex, "Encoding of " + pValue);
+    }
+
+    private void assertSameAsJson(Object pValue) throws IOException, ParseException {
+        Object expected = new JsonParser().parse(JSONValue.toJSONString(pValue));
+        assertEquals(new CborParser().parse(encode(pValue)), expected, "Encoding of " + pValue);
+    }
+}
@@ -81,6 +81,26 @@ public class EscapeUtilTest {
         }
     }
 
+    @Test
+    public void splitEdgeCases() {
+        assertEquals(EscapeUtil.split("", PATH_ESCAPE, "/"), Arrays.<String>asList());
+        assertEquals(EscapeUtil.split("a/", PATH_ESCAPE, "/"), asList("a"));
+        assertEquals(EscapeUtil.split("a//b", PATH_ESCAPE, "/"), asList("a", "", "b"));
+        assertEquals(EscapeUtil.split("/a", PATH_ESCAPE, "/"), asList("", "a"));
+        // A single trailing escape is taken literally
+        assertEquals(EscapeUtil.split("a!", PATH_ESCAPE, "/"), asList("a!"));
+        assertEquals(EscapeUtil.split("a\\=b=c", CSV_ESCAPE, "="), asList("a=b", "c"));
+        // Multi char delimiters are still supported
+        assertEquals(EscapeUtil.split("a::b!::c", PATH_ESCAPE, "::"), asList("a", "b::c"));
+    }
+
+    @Test
+    public void wildcards() {
+        assertEquals(EscapeUtil.parsePath("a/*/b"), asList("a", null, "b"));
+        assertEquals(EscapeUtil.parsePath("a/b*/**"), asList("a", "b*", "**"));
+        assertEquals(EscapeUtil.combineToPath(asList("a", null, "b!/c")), "a/*/b!!!/c");
+    }
+
     @Test
     public void stackOverflowError() {
         StringBuilder longString = new StringBuilder();
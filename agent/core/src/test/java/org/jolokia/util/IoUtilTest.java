@@ -64,6 +64,29 @@ public class IoUtilTest {
         assertWriterClosed(writer);
     }
 
+    @Test
+    public void checkStreamWrite() throws IOException {
+        final boolean[] closed = new boolean[1];
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void close() throws IOException {
+                closed[0] = true;
+            }
+        };
+
+        JSONArray resp = new JSONArray();
+        for (int i = 0; i < 10000; i++) {
+            JSONObject data = new JSONObject();
+            data.put("value", "h\u00e9llo");
+            resp.add(data);
+        }
+        String respString = "callbackFunc(" + resp.toJSONString() + ");";
+
+        IoUtil.streamResponseAndClose(out,resp,"callbackFunc");
+        assertEquals(out.toString("UTF-8"), respString);
+        assertTrue(closed[0]);
+    }
+
     private void assertWriterClosed(OutputStreamWriter writer) {
         try {
             writer.write(1);
@@ -7,6 +7,7 @@ import javax.management.*;
 import org.testng.annotations.Test;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
 
 /**
  * @author roland
@@ -28,6 +29,26 @@ public class JmxUtilTest implements NotificationListener {
         JmxUtil.newObjectName("bla:blub:name=sogehtsnicht");
     }
 
+    @Test
+    public void cachedObjectName() throws MalformedObjectNameException {
+        ObjectName name = JmxUtil.getCachedObjectName("java.lang:type=cached");
+        assertEquals(name, new ObjectName("java.lang:type=cached"));
+        assertSame(JmxUtil.getCachedObjectName("java.lang:type=cached"), name);
+    }
+
+    @Test
+    public void cachedObjectNameIsBounded() throws MalformedObjectNameException {
+        for (int i = 0; i < JmxUtil.OBJECT_NAME_CACHE_SIZE + 10; i++) {
+            JmxUtil.getCachedObjectName("test:type=bounded,idx=" + i);
+        }
+        assertEquals(JmxUtil.getObjectNameCacheSize(), JmxUtil.OBJECT_NAME_CACHE_SIZE);
+    }
+
+    @Test(expectedExceptions = MalformedObjectNameException.class)
+    public void invalidCachedObjectName() throws MalformedObjectNameException {
+        JmxUtil.getCachedObjectName("bla:blub:name=sogehtsnicht");
+    }
+
     @Test
     public void addNotificationListenerTest() throws NotCompliantMBeanException, InstanceAlreadyExistsException, MBeanRegistrationException, InstanceNotFoundException {
         MBeanServer server = ManagementFactory.getPlatformMBeanServer();
@@ -0,0 +1,155 @@
+package org.jolokia.util;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * @author roland
+ * @since 1.6.3
+ */
+public class JsonParserTest {
+
+    @Test
+    public void request() throws ParseException {
+        String json = "{ \"type\" : \"read\", \"mbean\":\"java.lang:type=Memory\",\n" +
+                      "  \"attribute\": [\"HeapMemoryUsage\", \"NonHeapMemoryUsage\"],\t\"path\":\"used\"," +
+                      "  \"config\": { \"maxDepth\": 2, \"ignoreErrors\": true, \"empty\": {}, \"none\": null, \"list\": [] } }";
+        Object result = new JsonParser().parse(json);
+        assertTrue(result instanceof JSONObject);
+        assertEquals(result, new JSONParser().parse(json));
+
+        JSONObject request = (JSONObject) result;
+        assertEquals(request.get("attribute"), Arrays.asList("HeapMemoryUsage", "NonHeapMemoryUsage"));
+        assertTrue(request.get("attribute") instanceof JSONArray);
+        JSONObject config = (JSONObject) request.get("config");
+        assertEquals(config.get("maxDepth"), 2L);
+        assertEquals(config.get("ignoreErrors"), Boolean.TRUE);
+        assertTrue(config.containsKey("none"));
+        assertNull(config.get("none"));
+    }
+
+    @Test
+    public void numbers() throws ParseException {
+        JsonParser parser = new JsonParser();
+        assertEquals(parser.parse("0"), 0L);
+        assertEquals(parser.parse("-12"), -12L);
+        assertEquals(parser.parse("9223372036854775807"), Long.MAX_VALUE);
+        assertEquals(parser.parse("1.5"), 1.5);
+        assertEquals(parser.parse("-1.5e3"), -1500.0);
+        assertEquals(parser.parse("2E-2"), 0.02);
+        assertEquals(parser.parse("1e+2"), 100.0);
+    }
+
+    @Test
+    public void strings() throws ParseException {
+        JsonParser parser = new JsonParser();
+        assertEquals(parser.parse("\"plain\""), "plain");
+        assertEquals(parser.parse("\"\""), "");
+        assertEquals(parser.parse("\"a\\\"b\\\\c\\/d\\b\\f\\n\\r\\t\""), "a\"b\\c/d\b\f\n\r\t");
+        assertEquals(parser.parse("\"\\u00e4\\u20AC\\ud83d\\ude00\""), "\u00e4\u20ac\ud83d\ude00");
+        assertEquals(parser.parse("\"\u00e4\u4f60\""), "\u00e4\u4f60");
+    }
+
+    @Test
+    public void reuse() throws ParseException, IOException {
+        JsonParser parser = new JsonParser();
+        StringBuilder big = new StringBuilder("[");
+        for (int i = 0; i < 1000; i++) {
+            big.append(i > 0 ? "," : "").append("{\"value\":\"").append(i).append("\"}");
+        }
+        big.append("]");
+        assertEquals(((JSONArray) parser.parse(new StringReader(big.toString()))).size(), 1000);
+        assertEquals(parser.parse(new StringReader("[1]")), Arrays.asList(1L));
+        assertEquals(parser.parse(big.toString()), new JSONParser().parse(big.toString()));
+        assertEquals(parser.parse(" true "), Boolean.TRUE);
+
+        // Buffers grown for a very large input are dropped afterwards
+        StringBuilder huge = new StringBuilder("[");
+        for (int i = 0; i < 20000; i++) {
+            huge.append(i > 0 ? "," : "").append(i);
+        }
+        huge.append("]");
+        assertEquals(((JSONArray) parser.parse(new StringReader(huge.toString()))).size(), 20000);
+        assertEquals(parser.parse("[1]"), Arrays.asList(1L));
+        assertEquals(((JSONArray) parser.parse(huge.toString())).size(), 20000);
+        assertEquals(parser.parse(new StringReader("[2]")), Arrays.asList(2L));
+    }
+
+    @Test
+    public void invalid() {
+        for (String json : new String[] {
+                "", "  ", "{", "[1,", "[1 2]", "{\"a\" 1}", "{\"a\":1,}", "{a:1}", "\"open", "\"bad \\x escape\"",
+                "\"\\u12\"", "\"\\u12G4\"", "tru", "nul", "-", "1.", "1e", "1.5.3", "[1]]", "{} x",
+                "99999999999999999999" }) {
+            try {
+                new JsonParser().parse(json);
+                fail("Parse exception expected for '" + json + "'");
+            } catch (ParseException exp) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void deepNesting() throws ParseException {
+        StringBuilder deep = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            deep.append(i % 2 == 0 ? "[" : "{\"a\":");
+        }
+        try {
+            new JsonParser().parse(deep.toString());
+            fail("Parse exception expected for deeply nested input");
+        } catch (ParseException exp) {
+            assertEquals(exp.getErrorType(), ParseException.ERROR_UNEXPECTED_TOKEN);
+        }
+
+        // Nesting within the limit is fine, and the parser can be reused
+        JsonParser parser = new JsonParser();
+        for (int run = 0; run < 2; run++) {
+            StringBuilder ok = new StringBuilder();
+            for (int i = 0; i < 500; i++) {
+                ok.append("[");
+            }
+            for (int i = 0; i < 500; i++) {
+                ok.append("]");
+            }
+            assertTrue(parser.parse(ok.toString()) instanceof JSONArray);
+        }
+    }
+
+    @Test
+    public void errorPosition() {
+        try {
+            new JsonParser().parse("[1, x]");
+            fail();
+        } catch (ParseException exp) {
+            assertEquals(exp.getPosition(), 4);
+            assertEquals(exp.getErrorType(), ParseException.ERROR_UNEXPECTED_CHAR);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package org.jolokia.util;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.util.*;
+
+import org.json.simple.*;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * @author roland
+ * @since 1.6.3
+ */
+public class JsonWriterTest {
+
+    @Test
+    public void simpleValues() throws IOException {
+        for (Object value : new Object[] {
+                null, "hello", 42L, 17, 3.1415, Double.NaN, Double.POSITIVE_INFINITY, Float.NaN, 1.5f,
+                true, false, new BigDecimal("123.456"), Thread.State.NEW }) {
+            assertSameAsJsonSimple(value);
+        }
+    }
+
+    @Test
+    public void escaping() throws IOException {
+        assertSameAsJsonSimple("quote \" backslash \\ slash / ");
+        assertSameAsJsonSimple("\b\f\n\r\t\u0000\u001F\u007F\u0085\u009F\u00A0");
+        assertSameAsJsonSimple("\u2000\u2028\u20AC\u20FF\u2100");
+        assertSameAsJsonSimple("Gr\u00fc\u00dfe, \u4f60\u597d, \ud83d\ude00");
+    }
+
+    @Test
+    public void unpairedSurrogates() throws IOException {
+        // Same replacement as done by the JDK's UTF-8 encoder
+        assertSameAsJsonSimple("a\ud83db");
+        assertSameAsJsonSimple("a\ude00b");
+        assertSameAsJsonSimple("\ude00\ud83d");
+    }
+
+    @Test
+    public void nested() throws IOException {
+        JSONObject value = new JSONObject();
+        JSONArray list = new JSONArray();
+        list.add(1L);
+        list.add(null);
+        list.add("two");
+        list.add(new JSONObject());
+        value.put("list", list);
+        Map<Object, Object> map = new LinkedHashMap<Object, Object>();
+        map.put(1, Arrays.asList("a", "b"));
+        map.put(null, new JSONArray());
+        value.put("map", map);
+        value.put("nested", Collections.singletonMap("key/with\"quote", value.clone()));
+        assertSameAsJsonSimple(value);
+    }
+
+    @Test
+    public void streamAware() throws IOException {
+        JSONStreamAware custom = new JSONStreamAware() {
+            public void writeJSONString(Writer out) throws IOException {
+                out.write("{\"custom\":");
+                JSONValue.writeJSONString("\u00e4\ud83d\ude00", out);
+                out.write('}');
+            }
+        };
+        JSONAware aware = new JSONAware() {
+            public String toJSONString() {
+                return "[\"aware\"]";
+            }
+        };
+        assertSameAsJsonSimple(Arrays.asList(custom, aware));
+    }
+
+    @Test
+    public void largeOutput() throws IOException {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 3 * JsonWriter.BUFFER_SIZE; i++) {
+            // Mix of one, two, three and four byte sequences to cross buffer boundaries
+            value.append(i % 4 == 0 ? "x" : i % 4 == 1 ? "\u00e4" : i % 4 == 2 ? "\u4f60" : "\ud83d\ude00");
+        }
+        JSONArray array = new JSONArray();
+        for (int i = 0; i < 3; i++) {
+            array.add(value.toString());
+        }
+        assertSameAsJsonSimple(array);
+    }
+
+    // =====================================================================================
+
+    private void assertSameAsJsonSimple(Object pValue) throws IOException {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        Writer writer = new OutputStreamWriter(expected, "UTF-8");
+        JSONValue.writeJSONString(pValue, writer);
+        writer.close();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonWriter jsonWriter = new JsonWriter(out);
+        jsonWriter.writeValue(pValue);
+        jsonWriter.close();
+
+        assertEquals(out.toByteArray(), expected.toByteArray(), "Encoding of " + pValue);
+    }
+}
@@ -0,0 +1,56 @@
+package org.jolokia.util;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author roland
+ * @since 1.6.3
+ */
+public class MimeTypeUtilTest {
+
+    @Test
+    public void acceptsCbor() {
+        assertTrue(MimeTypeUtil.acceptsCbor("application/cbor"));
+        assertTrue(MimeTypeUtil.acceptsCbor("application/json;q=0.9, Application/CBOR"));
+        assertTrue(MimeTypeUtil.acceptsCbor("application/cbor; q=0.5, application/json"));
+        assertFalse(MimeTypeUtil.acceptsCbor(null));
+        assertFalse(MimeTypeUtil.acceptsCbor("*/*"));
+        assertFalse(MimeTypeUtil.acceptsCbor("application/json, text/plain"));
+        assertFalse(MimeTypeUtil.acceptsCbor("application/cbor;q=0, application/json"));
+        assertFalse(MimeTypeUtil.acceptsCbor("application/cbor;q=0.00"));
+    }
+
+    @Test
+    public void metricsContentType() {
+        assertTrue(MimeTypeUtil.getMetricsContentType("application/openmetrics-text; version=1.0.0,text/plain;q=0.5")
+                               .startsWith("application/openmetrics-text;"));
+        assertTrue(MimeTypeUtil.getMetricsContentType(null).startsWith("text/plain; version=0.0.4"));
+        assertTrue(MimeTypeUtil.getMetricsContentType("text/plain").startsWith("text/plain; version=0.0.4"));
+    }
+
+    @Test
+    public void isCbor() {
+        assertTrue(MimeTypeUtil.isCbor("application/cbor"));
+        assertTrue(MimeTypeUtil.isCbor("application/cbor; charset=binary"));
+        assertFalse(MimeTypeUtil.isCbor(null));
+        assertFalse(MimeTypeUtil.isCbor("application/json"));
+    }
+}
@@ -0,0 +1,94 @@
+package org.jolokia.util;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+import java.util.Arrays;
+import java.util.EmptyStackException;
+import java.util.Stack;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * @author roland
+ * @since 1.6.3
+ */
+public class PathCursorTest {
+
+    @Test
+    public void traversal() {
+        PathCursor cursor = PathCursor.of(Arrays.asList("a", null, "c"));
+        assertEquals(cursor.size(), 3);
+        assertEquals(cursor.current(), "a");
+
+        PathCursor next = cursor.next();
+        assertNull(next.current());
+        assertEquals(next.size(), 2);
+        assertEquals(next.next().current(), "c");
+        assertTrue(next.next().next().isEmpty());
+
+        // The original cursor is left untouched
+        assertEquals(cursor.current(), "a");
+        assertEquals(cursor.toList(), Arrays.asList("a", null, "c"));
+        assertEquals(next.toList(), Arrays.asList(null, "c"));
+    }
+
+    @Test
+    public void skip() {
+        PathCursor cursor = PathCursor.of(Arrays.asList("a", "b", "c"));
+        assertEquals(cursor.skip(2).current(), "c");
+        assertTrue(cursor.skip(3).isEmpty());
+        assertTrue(cursor.skip(5).isEmpty());
+        assertEquals(cursor.next().skip(1).current(), "c");
+    }
+
+    @Test
+    public void empty() {
+        assertSame(PathCursor.of(null), PathCursor.EMPTY);
+        assertSame(PathCursor.of(Arrays.<String>asList()), PathCursor.EMPTY);
+        assertTrue(PathCursor.EMPTY.isEmpty());
+        assertEquals(PathCursor.EMPTY.size(), 0);
+        assertSame(PathCursor.EMPTY.next(), PathCursor.EMPTY);
+        assertTrue(PathCursor.EMPTY.toList().isEmpty());
+    }
+
+    @Test(expectedExceptions = EmptyStackException.class)
+    public void currentOnEmpty() {
+        PathCursor.EMPTY.current();
+    }
+
+    @Test
+    public void fromPath() {
+        PathCursor cursor = PathCursor.of(EscapeUtil.parsePath("hello!/world/yeah"));
+        assertEquals(cursor.toList(), Arrays.asList("hello/world", "yeah"));
+        assertEquals(cursor.toString(), "hello!/world/yeah");
+        assertTrue(PathCursor.of(EscapeUtil.parsePath(null)).isEmpty());
+    }
+
+    @Test
+    public void stack() {
+        Stack<String> stack = EscapeUtil.extractElementsFromPath("a/b/c");
+        PathCursor cursor = PathCursor.fromStack(stack);
+        assertEquals(cursor.toList(), Arrays.asList("a", "b", "c"));
+        assertEquals(stack.size(), 3);
+        assertEquals(cursor.next().toStack(), EscapeUtil.extractElementsFromPath("b/c"));
+        assertSame(PathCursor.fromStack(null), PathCursor.EMPTY);
+        assertSame(PathCursor.fromStack(new Stack<String>()), PathCursor.EMPTY);
+        assertTrue(PathCursor.EMPTY.toStack().isEmpty());
+    }
+}
@@ -0,0 +1,85 @@
+package org.jolokia.util;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.*;
+import java.util.Arrays;
+
+import org.json.simple.*;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * @author roland
+ * @since 1.6.3
+ */
+public class SerializedJsonTest {
+
+    @Test
+    public void serialization() throws IOException {
+        JSONObject value = new JSONObject();
+        value.put("name", "Köln/€");
+        value.put("list", new JSONArray());
+        ((JSONArray) value.get("list")).addAll(Arrays.asList(1L, true, null));
+        SerializedJson json = new SerializedJson(value);
+        assertEquals(json.toJSONString(), value.toJSONString());
+
+        StringWriter writer = new StringWriter();
+        json.writeJSONString(writer);
+        assertEquals(writer.toString(), value.toJSONString());
+
+        // Embedded into another value
+        JSONObject response = new JSONObject();
+        response.put("value", json);
+        response.put("status", 200);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonWriter jsonWriter = new JsonWriter(out);
+        jsonWriter.writeValue(response);
+        jsonWriter.flush();
+        assertEquals(out.toString("UTF-8"), response.toJSONString());
+    }
+
+    @Test
+    public void largeValue() throws IOException {
+        JSONArray value = new JSONArray();
+        for (int i = 0; i < JsonWriter.BUFFER_SIZE; i++) {
+            value.add("value" + i);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonWriter jsonWriter = new JsonWriter(out);
+        jsonWriter.writeValue(Arrays.asList("start", new SerializedJson(value)));
+        jsonWriter.flush();
+        assertEquals(out.toString("UTF-8"), "[\"start\"," + value.toJSONString() + "]");
+    }
+
+    @Test
+    public void structure() {
+        JSONObject inner = new JSONObject();
+        inner.put("a", 1);
+        inner.put("b", 2);
+        inner.put("c", 3);
+        JSONObject value = new JSONObject();
+        value.put("inner", inner);
+        value.put("plain", "text");
+        SerializedJson json = new SerializedJson(value);
+        assertEquals(json.getDepth(), 3);
+        assertEquals(json.getMaxCollectionSize(), 3);
+        assertEquals(json.getObjectCount(), 6);
+        assertEquals(json.getSize(), value.toJSONString().getBytes().length);
+    }
+}
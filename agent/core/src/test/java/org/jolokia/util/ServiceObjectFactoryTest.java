@@ -16,12 +16,16 @@ package org.jolokia.util;
  * limitations under the License.
  */
 
+import java.io.*;
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.util.Iterator;
 import java.util.List;
 
 import org.testng.annotations.Test;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
 
 /**
  * @author roland
@@ -41,6 +45,47 @@ public class ServiceObjectFactoryTest {
         }
     }
 
+    @Test
+    public void cached() {
+        List<TestService> first = ServiceObjectFactory.createServiceObjects("service/test-services-default", "service/test-services");
+        List<TestService> second = ServiceObjectFactory.createServiceObjects("service/test-services-default", "service/test-services");
+        ServiceObjectFactory.clearCache();
+        List<TestService> third = ServiceObjectFactory.createServiceObjects("service/test-services-default", "service/test-services");
+        assertEquals(second.size(), first.size());
+        assertEquals(third.size(), first.size());
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(second.get(i).getName(), first.get(i).getName());
+            assertEquals(third.get(i).getName(), first.get(i).getName());
+            // Fresh objects for every call
+            assertNotSame(second.get(i), first.get(i));
+        }
+    }
+
+    @Test
+    public void redeployment() throws IOException {
+        File dir = File.createTempFile("services", "");
+        dir.delete();
+        File descriptor = new File(dir, "service/redeploy-services");
+        descriptor.getParentFile().mkdirs();
+        ClassLoader original = Thread.currentThread().getContextClassLoader();
+        try {
+            writeDescriptor(descriptor, Test1.class);
+            ClassLoader first = new URLClassLoader(new URL[] { dir.toURI().toURL() }, original);
+            assertEquals(createServices(first, "service/redeploy-services").get(0).getName(), "one");
+
+            // Same location, but a new class loader as for a redeployed application
+            writeDescriptor(descriptor, Test2.class);
+            assertEquals(createServices(first, "service/redeploy-services").get(0).getName(), "one");
+            ClassLoader second = new URLClassLoader(new URL[] { dir.toURI().toURL() }, original);
+            assertEquals(createServices(second, "service/redeploy-services").get(0).getName(), "two");
+        } finally {
+            Thread.currentThread().setContextClassLoader(original);
+            descriptor.delete();
+            descriptor.getParentFile().delete();
+            dir.delete();
+        }
+    }
+
     @Test(expectedExceptions = IllegalStateException.class,expectedExceptionsMessageRegExp = ".*bla\\.blub\\.NotExist.*")
     public void errorHandling() {
         List<TestService> service =
@@ -53,6 +98,20 @@ public class ServiceObjectFactoryTest {
         String bla = services.get(0);
     }
 
+    private List<TestService> createServices(ClassLoader pLoader, String pDescriptor) {
+        Thread.currentThread().setContextClassLoader(pLoader);
+        return ServiceObjectFactory.createServiceObjects(pDescriptor);
+    }
+
+    private void writeDescriptor(File pFile, Class pService) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(pFile), "UTF8");
+        try {
+            writer.write(pService.getName() + "\n");
+        } finally {
+            writer.close();
+        }
+    }
+
     interface TestService { String getName(); }
     public static class Test1 implements TestService { public String getName() { return "one"; } }
     public static class Test2 implements TestService { public String getName() { return "two"; } }
@@ -41,7 +41,9 @@ import org.jolokia.http.HttpRequestHandler;
 import org.jolokia.jvmagent.ParsedUri;
 import org.jolokia.restrictor.*;
 import org.jolokia.util.*;
+import org.json.simple.JSONArray;
 import org.json.simple.JSONAware;
+import org.json.simple.JSONObject;
 import org.json.simple.JSONStreamAware;
 
 /**
@@ -106,6 +108,7 @@ public class JolokiaHttpHandler implements HttpHandler {
         Restrictor restrictor = createRestrictor();
         backendManager = new BackendManager(configuration, logHandler, restrictor, pLazy);
         requestHandler = new HttpRequestHandler(configuration, backendManager, logHandler);
+        backendManager.setSubscriptionExecutor(requestHandler.getSubscriptionExecutor());
         if (listenForDiscoveryMcRequests(configuration)) {
             try {
                 String multicastGroup = configuration.get(ConfigKey.MULTICAST_GROUP);
@@ -218,13 +221,17 @@ public class JolokiaHttpHandler implements HttpHandler {
         JSONAware json = null;
         URI uri = pExchange.getRequestURI();
         ParsedUri parsedUri = new ParsedUri(uri, context);
+        String method = pExchange.getRequestMethod();
+        if ("GET".equalsIgnoreCase(method) && requestHandler.isMetricsRequest(parsedUri.getPathInfo())) {
+            handleMetrics(pExchange, parsedUri);
+            return;
+        }
         try {
             // Check access policy
             InetSocketAddress address = pExchange.getRemoteAddress();
             requestHandler.checkAccess(getHostName(address),
                                        address.getAddress().getHostAddress(),
                                        extractOriginOrReferer(pExchange));
-            String method = pExchange.getRequestMethod();
 
             // If a callback is given, check this is a valid javascript function name
             validateCallbackIfGiven(parsedUri);
@@ -250,6 +257,55 @@ public class JolokiaHttpHandler implements HttpHandler {
     }
 
 
+    // Metrics are returned as plain text, so errors are reported with an HTTP status
+    @SuppressWarnings("PMD.AvoidCatchingThrowable")
+    private void handleMetrics(final HttpExchange pExchange, ParsedUri pParsedUri) throws IOException {
+        final OutputStream body = pExchange.getResponseBody();
+        // Headers are sent with the first byte of the body, so an error before can still change the status
+        final boolean[] headersSent = new boolean[1];
+        OutputStream out = new FilterOutputStream(body) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                sendHeaders();
+                body.write(b, off, len);
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                sendHeaders();
+                body.write(b);
+            }
+
+            private void sendHeaders() throws IOException {
+                if (!headersSent[0]) {
+                    pExchange.sendResponseHeaders(200, 0);
+                    headersSent[0] = true;
+                }
+            }
+        };
+        try {
+            InetSocketAddress address = pExchange.getRemoteAddress();
+            requestHandler.checkAccess(getHostName(address),
+                                       address.getAddress().getHostAddress(),
+                                       extractOriginOrReferer(pExchange));
+            setHeaders(pExchange);
+            pExchange.getResponseHeaders().set("Content-Type",
+                                               MimeTypeUtil.getMetricsContentType(pExchange.getRequestHeaders().getFirst("Accept")));
+            Writer writer = new OutputStreamWriter(out, "UTF-8");
+            requestHandler.handleMetricsRequest(pParsedUri.getUri().toString(), writer);
+            writer.close();
+        } catch (Throwable exp) {
+            if (!(exp instanceof SecurityException)) {
+                logHandler.error("Error while collecting metrics: " + exp, exp);
+            }
+            if (!headersSent[0]) {
+                pExchange.getResponseHeaders().set("Content-Type", "text/plain");
+                pExchange.sendResponseHeaders(exp instanceof SecurityException ? 403 : 500, -1);
+            }
+            body.close();
+        }
+    }
+
     private void validateCallbackIfGiven(ParsedUri pUri) {
         String callback = pUri.getParameter(ConfigKey.CALLBACK.getKeyValue());
         if (callback != null && !MimeTypeUtil.isValidCallback(callback)) {
@@ -282,6 +338,9 @@ public class JolokiaHttpHandler implements HttpHandler {
         String encoding = null;
         Headers headers = pExchange.getRequestHeaders();
         String cType =  headers.getFirst("Content-Type");
+        if (MimeTypeUtil.isCbor(cType)) {
+            return requestHandler.handleCborPostRequest(pUri.toString(), pExchange.getRequestBody(), pUri.getParameterMap());
+        }
         if (cType != null) {
             Matcher matcher = contentTypePattern.matcher(cType);
             if (matcher.matches()) {
@@ -341,7 +400,9 @@ public class JolokiaHttpHandler implements HttpHandler {
 
     private void sendResponse(HttpExchange pExchange, ParsedUri pParsedUri, JSONAware pJson) throws IOException {
         boolean streaming = configuration.getAsBoolean(ConfigKey.STREAMING);
-        if (streaming) {
+        if (useCbor(pExchange, pParsedUri, pJson)) {
+            sendCborResponse(pExchange, pJson);
+        } else if (streaming) {
             JSONStreamAware jsonStream = (JSONStreamAware)pJson;
             sendStreamingResponse(pExchange, pParsedUri, jsonStream);
         } else {
@@ -356,16 +417,27 @@ public class JolokiaHttpHandler implements HttpHandler {
         if (pJson != null) {
             headers.set("Content-Type", getMimeType(pParsedUri) + "; charset=utf-8");
             pExchange.sendResponseHeaders(200, 0);
-            Writer writer = new OutputStreamWriter(pExchange.getResponseBody(), "UTF-8");
-
             String callback = pParsedUri.getParameter(ConfigKey.CALLBACK.getKeyValue());
-            IoUtil.streamResponseAndClose(writer, pJson, callback != null && MimeTypeUtil.isValidCallback(callback) ? callback : null);
+            IoUtil.streamResponseAndClose(pExchange.getResponseBody(), pJson, callback != null && MimeTypeUtil.isValidCallback(callback) ? callback : null);
         } else {
             headers.set("Content-Type", "text/plain");
             pExchange.sendResponseHeaders(200,-1);
         }
     }
 
+    private void sendCborResponse(HttpExchange pExchange, JSONAware pJson) throws IOException {
+        pExchange.getResponseHeaders().set("Content-Type", MimeTypeUtil.CBOR_MIME_TYPE);
+        pExchange.sendResponseHeaders(200, 0);
+        IoUtil.streamCborResponseAndClose(pExchange.getResponseBody(), pJson);
+    }
+
+    // CBOR is used if requested by the client, but not for JSONP or for streams of notifications
+    private boolean useCbor(HttpExchange pExchange, ParsedUri pParsedUri, JSONAware pJson) {
+        return pParsedUri.getParameter(ConfigKey.CALLBACK.getKeyValue()) == null &&
+               (pJson instanceof JSONObject || pJson instanceof JSONArray) &&
+               MimeTypeUtil.acceptsCbor(pExchange.getRequestHeaders().getFirst("Accept"));
+    }
+
     private void sendAllJSON(HttpExchange pExchange, ParsedUri pParsedUri, JSONAware pJson) throws IOException {
         OutputStream out = null;
         try {
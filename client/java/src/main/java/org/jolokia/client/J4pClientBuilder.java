@@ -98,6 +98,9 @@ public class J4pClientBuilder {
     // Extractor used creating responses
     private J4pResponseExtractor responseExtractor;
 
+    // Whether to use CBOR instead of JSON
+    private boolean cbor;
+
     /**
      * Package access constructor, use static method on J4pClient for creating
      * the builder.
@@ -392,6 +395,19 @@ public class J4pClientBuilder {
         return this;
     }
 
+    /**
+     * Use the binary CBOR encoding instead of JSON for talking to the agent. POST requests are sent CBOR encoded
+     * and a CBOR response is requested, which is smaller and faster to parse. The agent must support CBOR (Jolokia 1.6.3
+     * or later), otherwise only GET requests can be used.
+     *
+     * @param pCbor whether to use CBOR
+     * @return this builder object
+     */
+    public final J4pClientBuilder cbor(boolean pCbor) {
+        this.cbor = pCbor;
+        return this;
+    }
+
     /**
      * Set the SSL connection factory to use when connecting via SSL. This can be used to tune
      * the SSL setup (SSLv3, TLSv1.2...),
@@ -414,7 +430,8 @@ public class J4pClientBuilder {
     public J4pClient build() {
         return new J4pClient(url,createHttpClient(),
                              targetUrl != null ? new J4pTargetConfig(targetUrl,targetUser,targetPassword) :  null,
-                             responseExtractor);
+                             responseExtractor,
+                             cbor);
     }
 
     public HttpClient createHttpClient() {
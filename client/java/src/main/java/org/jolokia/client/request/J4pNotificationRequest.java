@@ -0,0 +1,287 @@
+package org.jolokia.client.request;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.*;
+
+import javax.management.ObjectName;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+/**
+ * Request for managing notification listeners and fetching notifications. Use the
+ * static factory methods for creating a request for a specific command.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+public class J4pNotificationRequest extends J4pRequest {
+
+    /**
+     * Notification sub commands
+     */
+    public enum Command {
+        REGISTER("register"),
+        UNREGISTER("unregister"),
+        ADD("add"),
+        REMOVE("remove"),
+        PING("ping"),
+        LIST("list"),
+        PULL("pull"),
+        SUBSCRIBE("subscribe");
+
+        private final String value;
+
+        Command(String pValue) {
+            value = pValue;
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+
+    private final Command command;
+    private String client;
+    private ObjectName mbean;
+    private List<String> filter;
+    private Object handback;
+    private String handle;
+    private long timeout;
+    private int max;
+    private List<J4pRequest> requests;
+    private long interval;
+    private boolean onlyChanged;
+
+    private J4pNotificationRequest(J4pTargetConfig pTargetConfig, Command pCommand, String pClient) {
+        super(J4pType.NOTIFICATION, pTargetConfig);
+        command = pCommand;
+        client = pClient;
+    }
+
+    /**
+     * Register a new notification client
+     *
+     * @param pTargetConfig proxy target configuration or <code>null</code> if no proxy should be used
+     * @return the request
+     */
+    public static J4pNotificationRequest register(J4pTargetConfig pTargetConfig) {
+        return new J4pNotificationRequest(pTargetConfig, Command.REGISTER, null);
+    }
+
+    /**
+     * Unregister a client and remove all of its listeners
+     *
+     * @param pTargetConfig proxy target configuration or <code>null</code> if no proxy should be used
+     * @param pClient client id as returned by a register request
+     * @return the request
+     */
+    public static J4pNotificationRequest unregister(J4pTargetConfig pTargetConfig, String pClient) {
+        return new J4pNotificationRequest(pTargetConfig, Command.UNREGISTER, pClient);
+    }
+
+    /**
+     * Add a notification listener
+     *
+     * @param pTargetConfig proxy target configuration or <code>null</code> if no proxy should be used
+     * @param pClient client id
+     * @param pMBean MBean to listen on
+     * @param pFilter notification types to listen for or <code>null</code> for all notifications
+     * @param pHandback handback returned with every notification, must be serializable to JSON
+     * @return the request
+     */
+    public static J4pNotificationRequest add(J4pTargetConfig pTargetConfig, String pClient, ObjectName pMBean,
+                                             List<String> pFilter, Object pHandback) {
+        J4pNotificationRequest ret = new J4pNotificationRequest(pTargetConfig, Command.ADD, pClient);
+        ret.mbean = pMBean;
+        ret.filter = pFilter;
+        ret.handback = pHandback;
+        return ret;
+    }
+
+    /**
+     * Remove a notification listener
+     *
+     * @param pTargetConfig proxy target configuration or <code>null</code> if no proxy should be used
+     * @param pClient client id
+     * @param pHandle handle as returned by an add request
+     * @return the request
+     */
+    public static J4pNotificationRequest remove(J4pTargetConfig pTargetConfig, String pClient, String pHandle) {
+        J4pNotificationRequest ret = new J4pNotificationRequest(pTargetConfig, Command.REMOVE, pClient);
+        ret.handle = pHandle;
+        return ret;
+    }
+
+    /**
+     * Refresh a client so that it doesn't expire
+     *
+     * @param pTargetConfig proxy target configuration or <code>null</code> if no proxy should be used
+     * @param pClient client id
+     * @return the request
+     */
+    public static J4pNotificationRequest ping(J4pTargetConfig pTargetConfig, String pClient) {
+        return new J4pNotificationRequest(pTargetConfig, Command.PING, pClient);
+    }
+
+    /**
+     * List all listeners of a client
+     *
+     * @param pTargetConfig proxy target configuration or <code>null</code> if no proxy should be used
+     * @param pClient client id
+     * @return the request
+     */
+    public static J4pNotificationRequest list(J4pTargetConfig pTargetConfig, String pClient) {
+        return new J4pNotificationRequest(pTargetConfig, Command.LIST, pClient);
+    }
+
+    /**
+     * Fetch pending notifications, waiting up to the given timeout if there are none
+     *
+     * @param pTargetConfig proxy target configuration or <code>null</code> if no proxy should be used
+     * @param pClient client id
+     * @param pTimeout how long to wait in milliseconds
+     * @param pMax maximum number of notifications to fetch, 0 for all
+     * @return the request
+     */
+    public static J4pNotificationRequest pull(J4pTargetConfig pTargetConfig, String pClient, long pTimeout, int pMax) {
+        J4pNotificationRequest ret = new J4pNotificationRequest(pTargetConfig, Command.PULL, pClient);
+        ret.timeout = pTimeout;
+        ret.max = pMax;
+        return ret;
+    }
+
+    /**
+     * Subscribe to a set of requests which are sampled periodically by the agent. The responses
+     * are fetched like notifications, each event containing the responses of one run.
+     * A subscription is removed with {@link #remove(J4pTargetConfig, String, String)}.
+     *
+     * @param pTargetConfig proxy target configuration or <code>null</code> if no proxy should be used
+     * @param pClient client id
+     * @param pRequests requests to sample
+     * @param pInterval sampling interval in milliseconds
+     * @param pOnlyChanged whether to deliver only responses whose value has changed
+     * @param pHandback handback returned with every event, must be serializable to JSON
+     * @return the request
+     */
+    public static J4pNotificationRequest subscribe(J4pTargetConfig pTargetConfig, String pClient,
+                                                   List<? extends J4pRequest> pRequests, long pInterval,
+                                                   boolean pOnlyChanged, Object pHandback) {
+        J4pNotificationRequest ret = new J4pNotificationRequest(pTargetConfig, Command.SUBSCRIBE, pClient);
+        ret.requests = new ArrayList<J4pRequest>(pRequests);
+        ret.interval = pInterval;
+        ret.onlyChanged = pOnlyChanged;
+        ret.handback = pHandback;
+        return ret;
+    }
+
+    /**
+     * Get the sub command
+     *
+     * @return command
+     */
+    public Command getCommand() {
+        return command;
+    }
+
+    /**
+     * Client id or <code>null</code> for a register request
+     *
+     * @return client id
+     */
+    public String getClient() {
+        return client;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    List<String> getRequestParts() {
+        if (command == Command.SUBSCRIBE) {
+            // Subscriptions must be sent via POST
+            return null;
+        }
+        List<String> ret = new ArrayList<String>();
+        ret.add(command.getValue());
+        if (client != null) {
+            ret.add(client);
+        }
+        switch (command) {
+            case ADD:
+                ret.add(mbean.getCanonicalName());
+                ret.add(filter != null ? serializeArgumentToRequestPart(filter) : "*");
+                if (handback != null) {
+                    ret.add(handback.toString());
+                }
+                break;
+            case REMOVE:
+                ret.add(handle);
+                break;
+            case PULL:
+                ret.add(Long.toString(timeout));
+                ret.add(Integer.toString(max));
+                break;
+            default:
+                break;
+        }
+        return ret;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    JSONObject toJson() {
+        JSONObject ret = super.toJson();
+        ret.put("command", command.getValue());
+        if (client != null) {
+            ret.put("client", client);
+        }
+        if (mbean != null) {
+            ret.put("mbean", mbean.getCanonicalName());
+        }
+        if (filter != null) {
+            JSONArray filterArr = new JSONArray();
+            filterArr.addAll(filter);
+            ret.put("filter", filterArr);
+        }
+        if (handback != null) {
+            ret.put("handback", serializeArgumentToJson(handback));
+        }
+        if (handle != null) {
+            ret.put("handle", handle);
+        }
+        if (command == Command.PULL) {
+            ret.put("timeout", timeout);
+            ret.put("max", max);
+        }
+        if (command == Command.SUBSCRIBE) {
+            JSONArray reqs = new JSONArray();
+            for (J4pRequest request : requests) {
+                reqs.add(request.toJson());
+            }
+            ret.put("requests", reqs);
+            ret.put("interval", interval);
+            ret.put("onlyChanged", onlyChanged);
+        }
+        return ret;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    J4pNotificationResponse createResponse(JSONObject pResponse) {
+        return new J4pNotificationResponse(this, pResponse);
+    }
+}
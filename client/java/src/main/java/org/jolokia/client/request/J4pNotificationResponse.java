@@ -0,0 +1,91 @@
+package org.jolokia.client.request;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.json.simple.JSONObject;
+
+/**
+ * Response for a {@link J4pNotificationRequest}. Dependent on the command,
+ * different accessors are useful.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+public final class J4pNotificationResponse extends J4pResponse<J4pNotificationRequest> {
+
+    J4pNotificationResponse(J4pNotificationRequest pRequest, JSONObject pResponse) {
+        super(pRequest, pResponse);
+    }
+
+    /**
+     * Client id returned by a register request
+     *
+     * @return the client id or <code>null</code> if this is not a response to a register request
+     */
+    public String getClientId() {
+        Object value = getValue();
+        return value instanceof Map ? (String) ((Map) value).get("id") : null;
+    }
+
+    /**
+     * Listener handle returned by an add request
+     *
+     * @return the listener handle or <code>null</code> if this is not a response to an add request
+     */
+    public String getHandle() {
+        Object value = getValue();
+        return value instanceof String ? (String) value : null;
+    }
+
+    /**
+     * Notifications returned by a pull request. Each entry is a map with the listener's
+     * <code>handle</code>, the <code>handback</code> (if any) and the <code>notification</code>
+     * itself (with the keys <code>type</code>, <code>source</code>, <code>sequenceNumber</code>,
+     * <code>timeStamp</code>, <code>message</code> and <code>userData</code>).
+     *
+     * @return list of notifications, which is empty if there are none
+     */
+    public List<JSONObject> getNotifications() {
+        Object value = getValue();
+        if (value instanceof Map) {
+            List<JSONObject> notifications = (List<JSONObject>) ((Map) value).get("notifications");
+            if (notifications != null) {
+                return notifications;
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Number of notifications which were dropped on the agent side because the
+     * client didn't fetch them fast enough.
+     *
+     * @return number of dropped notifications
+     */
+    public long getDropped() {
+        Object value = getValue();
+        if (value instanceof Map) {
+            Object dropped = ((Map) value).get("dropped");
+            return dropped instanceof Number ? ((Number) dropped).longValue() : 0L;
+        }
+        return 0L;
+    }
+}
@@ -79,7 +79,14 @@ public enum J4pQueryParameter {
      * the last time (given as epoch time in seconds since 1.1.1970) provided with
      * this parameterd
      */
-    IF_MODIFIED_SINCE("ifModifiedSince");
+    IF_MODIFIED_SINCE("ifModifiedSince"),
+
+    /**
+     * For READ requests with an MBean pattern the value "columnar" selects a compact
+     * response layout where MBean names and attribute names are given only once, followed
+     * by the attribute values for every MBean. {@link J4pReadResponse} understands both layouts.
+     */
+    READ_FORMAT("readFormat");
     // =======================================================================
 
     // Query parameter
@@ -21,19 +21,28 @@ import java.util.*;
 import javax.management.MalformedObjectNameException;
 import javax.management.ObjectName;
 
+import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 
 /**
  * Response for a {@link org.jolokia.client.request.J4pType#READ} request. Since a single
  * READ request can result in multiple values returned, this response object
  * allows for obtaining iteration of those values in case the MBean name given for the request
- * was a pattern of when multiple attributes were requested.
+ * was a pattern of when multiple attributes were requested. For pattern requests both the
+ * default layout and the columnar layout (see {@link J4pQueryParameter#READ_FORMAT}) are supported.
  *
  * @author roland
  * @since Apr 26, 2010
  */
 public final class J4pReadResponse extends J4pResponse<J4pReadRequest> {
 
+    // Keys of a pattern read result in columnar format
+    private static final String COLUMNAR_MBEANS = "mbeans";
+    private static final String COLUMNAR_ATTRIBUTES = "attributes";
+    private static final String COLUMNAR_VALUES = "values";
+    private static final String COLUMNAR_ERRORS = "errors";
+    private static final String COLUMNAR_MISSING = "missing";
+
     /**
      * Constructor, which should be used directly.
      *
@@ -48,7 +57,9 @@ public final class J4pReadResponse extends J4pResponse<J4pReadRequest> {
      * Get all MBean names for which the request fetched values. If the request
      * contained an MBean pattern then all MBean names matching this pattern and which contained
      * attributes of the given name are returned. If the MBean wasnt a pattern a single
-     * value collection with the single MBean name of the request is returned.
+     * value collection with the single MBean name of the request is returned. MBeans for which only
+     * an error was returned (when reading with "ignoreErrors") are included, but {@link #getAttributes(ObjectName)}
+     * and {@link #getValue(ObjectName, String)} throw an {@link IllegalArgumentException} with the error for them.
      *
      * @return list of MBean names
      * @throws MalformedObjectNameException if the returned MBean names could not be converted to
@@ -60,7 +71,7 @@ public final class J4pReadResponse extends J4pResponse<J4pReadRequest> {
             // The result value contains the list of fetched object names
             JSONObject values = getValue();
             Set<ObjectName> ret = new HashSet<ObjectName>();
-            for (Object name : values.keySet()) {
+            for (Object name : isColumnar(values) ? getColumnarObjectNames(values) : values.keySet()) {
                 ret.add(new ObjectName((String) name));
             }
             return ret;
@@ -198,11 +209,57 @@ public final class J4pReadResponse extends J4pResponse<J4pReadRequest> {
         ObjectName pMBeanFromRequest = getRequest().getObjectName();
         ObjectName objectName = pObjectName == null ? pMBeanFromRequest : pObjectName;
         JSONObject values = getValue();
-        JSONObject attributes = (JSONObject) values.get(objectName.getCanonicalName());
+        Object attributes = isColumnar(values) ?
+                getColumnarAttributes(values, objectName.getCanonicalName()) :
+                values.get(objectName.getCanonicalName());
         if (attributes == null) {
             throw new IllegalArgumentException("No ObjectName " + objectName + " found in the set of returned " +
                     " ObjectNames for requested pattern " + pMBeanFromRequest);
         }
-        return attributes;
+        if (!(attributes instanceof JSONObject)) {
+            // Only an error has been returned for this MBean (when reading with "ignoreErrors")
+            throw new IllegalArgumentException("No attributes but an error returned for ObjectName " + objectName +
+                    ": " + attributes);
+        }
+        return (JSONObject) attributes;
+    }
+
+    // A pattern read in columnar format. The keys can't be confused with MBean names which always contain a colon.
+    private boolean isColumnar(JSONObject pValues) {
+        return pValues.get(COLUMNAR_MBEANS) instanceof JSONArray &&
+               pValues.get(COLUMNAR_ATTRIBUTES) instanceof JSONArray &&
+               pValues.get(COLUMNAR_VALUES) instanceof JSONArray;
+    }
+
+    // All MBean names of a columnar result, including those for which only an error was returned
+    private Collection<Object> getColumnarObjectNames(JSONObject pValues) {
+        List<Object> ret = new ArrayList<Object>((JSONArray) pValues.get(COLUMNAR_MBEANS));
+        JSONObject errors = (JSONObject) pValues.get(COLUMNAR_ERRORS);
+        if (errors != null) {
+            ret.addAll(errors.keySet());
+        }
+        return ret;
+    }
+
+    // Collect the attribute values of a single MBean from a columnar result, the error if only an error
+    // was returned for the MBean or null if the MBean is not contained. Attributes which the MBean doesn't
+    // have are skipped, like in the default layout.
+    private Object getColumnarAttributes(JSONObject pValues, String pMBean) {
+        int idx = ((JSONArray) pValues.get(COLUMNAR_MBEANS)).indexOf(pMBean);
+        if (idx < 0) {
+            JSONObject errors = (JSONObject) pValues.get(COLUMNAR_ERRORS);
+            return errors != null ? errors.get(pMBean) : null;
+        }
+        JSONArray attributes = (JSONArray) pValues.get(COLUMNAR_ATTRIBUTES);
+        JSONArray row = (JSONArray) ((JSONArray) pValues.get(COLUMNAR_VALUES)).get(idx);
+        JSONObject missingPerMBean = (JSONObject) pValues.get(COLUMNAR_MISSING);
+        List missing = missingPerMBean != null ? (List) missingPerMBean.get(pMBean) : null;
+        JSONObject ret = new JSONObject();
+        for (int i = 0; i < attributes.size(); i++) {
+            if (missing == null || !missing.contains(attributes.get(i))) {
+                ret.put(attributes.get(i), row.get(i));
+            }
+        }
+        return ret;
     }
 }
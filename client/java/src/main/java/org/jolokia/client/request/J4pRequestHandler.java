@@ -26,6 +26,8 @@ import java.util.regex.Pattern;
 
 import org.apache.http.*;
 import org.apache.http.client.methods.*;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.util.EntityUtils;
 import org.json.simple.*;
@@ -47,6 +49,15 @@ public class J4pRequestHandler {
     // Optional default target configuration
     private J4pTargetConfig defaultTargetConfig;
 
+    // Whether to exchange CBOR instead of JSON with the agent
+    private boolean useCbor;
+
+    // Mime type for CBOR encoded requests and responses
+    private static final String CBOR_MIME_TYPE = "application/cbor";
+
+    // Older agents ignore the CBOR preference and answer with JSON
+    private static final String CBOR_ACCEPT = CBOR_MIME_TYPE + ", application/json;q=0.9, */*;q=0.1";
+
     /**
      * Constructor
      *
@@ -54,9 +65,22 @@ public class J4pRequestHandler {
      * @param pTargetConfig optional default target configuration for proxy requests
      */
     public J4pRequestHandler(String pJ4pServerUrl, J4pTargetConfig pTargetConfig) {
+        this(pJ4pServerUrl, pTargetConfig, false);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param pJ4pServerUrl URL to remote agent
+     * @param pTargetConfig optional default target configuration for proxy requests
+     * @param pUseCbor whether POST requests should be sent CBOR encoded and CBOR responses should be requested.
+     *                 Agents not supporting CBOR still answer with JSON, but they require JSON for POST requests.
+     */
+    public J4pRequestHandler(String pJ4pServerUrl, J4pTargetConfig pTargetConfig, boolean pUseCbor) {
         try {
             j4pServerUrl = new URI(pJ4pServerUrl);
             defaultTargetConfig = pTargetConfig;
+            useCbor = pUseCbor;
         } catch (URISyntaxException e) {
             throw new IllegalArgumentException("Invalid URL " + pJ4pServerUrl,e);
         }
@@ -96,15 +120,15 @@ public class J4pRequestHandler {
                     requestPath.append("/");
                     requestPath.append(escape(p));
                 }
-                return new HttpGet(createRequestURI(requestPath.toString(),queryParams));
+                return acceptCbor(new HttpGet(createRequestURI(requestPath.toString(),queryParams)));
             }
         }
 
         // We are using a post method as fallback
         JSONObject requestContent = getJsonRequestContent(pRequest);
         HttpPost postReq = new HttpPost(createRequestURI(j4pServerUrl.getPath(),queryParams));
-        postReq.setEntity(new StringEntity(requestContent.toJSONString(),"utf-8"));
-        return postReq;
+        postReq.setEntity(createEntity(requestContent));
+        return acceptCbor(postReq);
     }
 
     private boolean doUseProxy(J4pRequest pRequest) {
@@ -138,8 +162,8 @@ public class J4pRequestHandler {
             JSONObject requestContent = getJsonRequestContent(request);
             bulkRequest.add(requestContent);
         }
-        postReq.setEntity(new StringEntity(bulkRequest.toJSONString(),"utf-8"));
-        return postReq;
+        postReq.setEntity(createEntity(bulkRequest));
+        return acceptCbor(postReq);
     }
 
 
@@ -153,6 +177,9 @@ public class J4pRequestHandler {
     public JSONAware extractJsonResponse(HttpResponse pHttpResponse) throws IOException, ParseException {
         HttpEntity entity = pHttpResponse.getEntity();
         try {
+            if (isCbor(entity)) {
+                return (JSONAware) new CborParser().parse(entity.getContent());
+            }
             JSONParser parser = new JSONParser();
             Header contentEncoding = entity.getContentEncoding();
             if (contentEncoding != null) {
@@ -177,6 +204,34 @@ public class J4pRequestHandler {
 
     // =============================================================================================================
 
+    private HttpEntity createEntity(JSONAware pContent) throws UnsupportedEncodingException {
+        if (!useCbor) {
+            return new StringEntity(pContent.toJSONString(),"utf-8");
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            CborWriter writer = new CborWriter(out);
+            writer.writeValue(pContent);
+            writer.flush();
+        } catch (IOException exp) {
+            // Cannot happen for an in-memory stream
+            throw new IllegalStateException("Cannot encode " + pContent + " as CBOR: " + exp,exp);
+        }
+        return new ByteArrayEntity(out.toByteArray(), ContentType.create(CBOR_MIME_TYPE));
+    }
+
+    private HttpUriRequest acceptCbor(HttpUriRequest pRequest) {
+        if (useCbor) {
+            pRequest.setHeader(HttpHeaders.ACCEPT, CBOR_ACCEPT);
+        }
+        return pRequest;
+    }
+
+    private boolean isCbor(HttpEntity pEntity) {
+        Header contentType = pEntity != null ? pEntity.getContentType() : null;
+        return contentType != null && CBOR_MIME_TYPE.equalsIgnoreCase(contentType.getValue().split(";")[0].trim());
+    }
+
     private JSONObject getJsonRequestContent(J4pRequest pRequest) {
         JSONObject requestContent = pRequest.toJson();
         if (defaultTargetConfig != null && pRequest.getTargetConfig() == null) {
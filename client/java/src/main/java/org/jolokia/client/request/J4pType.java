@@ -29,6 +29,7 @@ public enum J4pType {
     EXEC("exec"),
     VERSION("version"),
     SEARCH("search"),
+    NOTIFICATION("notification"),
 
     // Unsupported:
     REGNOTIF("regnotif"),
@@ -122,6 +122,20 @@ public class BulkRequestIntegrationTest extends AbstractJ4pIntegrationTest {
         verifyOptionalBulkResponses(resp);
     }
 
+    @Test
+    public void bulkRequestsWithCbor() throws MalformedObjectNameException, J4pException {
+        J4pClient c = J4pClient.url(j4pUrl)
+                               .user("jolokia")
+                               .password("jolokia")
+                               .authenticator(new BasicAuthenticator().preemptive())
+                               .responseExtractor(ValidatingResponseExtractor.OPTIONAL)
+                               .cbor(true)
+                               .build();
+
+        List<J4pReadResponse> resp = c.execute(createBulkRequests());
+
+        verifyOptionalBulkResponses(resp);
+    }
 
     private void verifyOptionalBulkResponses(List<J4pReadResponse> resp) {
         assertEquals(3, resp.size());
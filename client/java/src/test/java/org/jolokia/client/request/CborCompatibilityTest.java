@@ -0,0 +1,175 @@
+package org.jolokia.client.request;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Check that the CBOR classes of the client and the agent understand each other. The client
+ * has its own copies of {@link CborParser} and {@link CborWriter}, so the same input is also run
+ * through both copies, which must behave identically.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+public class CborCompatibilityTest {
+
+    private static final String JSON =
+            "[{\"type\":\"read\",\"mbean\":\"java.lang:type=Memory\",\"attribute\":[\"HeapMemoryUsage\",\"Verbose\"]," +
+            "\"path\":\"used\",\"config\":{\"maxDepth\":2,\"ignoreErrors\":true}}," +
+            "{\"type\":\"exec\",\"mbean\":\"jolokia.it:type=operation\",\"operation\":\"doubleArguments\"," +
+            "\"arguments\":[1.5,-2,null,\"Gr\u00fc\u00dfe \ud83d\ude00\",false]}]";
+
+    @Test
+    public void requestToAgent() throws IOException, ParseException {
+        Object request = new JSONParser().parse(JSON);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CborWriter writer = new CborWriter(out);
+        writer.writeValue(request);
+        writer.flush();
+        assertEquals(new org.jolokia.util.CborParser().parse(out.toByteArray()), request);
+    }
+
+    @Test
+    public void responseFromAgent() throws IOException, ParseException {
+        JSONObject response = new JSONObject();
+        response.put("status", 200);
+        response.put("timestamp", 1546300800L);
+        response.put("value", new JSONParser().parse(JSON));
+        response.put("request", Arrays.asList("a", 2.5f));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        org.jolokia.util.CborWriter writer = new org.jolokia.util.CborWriter(out);
+        writer.writeValue(response);
+        writer.close();
+        assertEquals(new CborParser().parse(out.toByteArray()), new JSONParser().parse(response.toJSONString()));
+    }
+
+    @DataProvider
+    public Object[][] values() throws ParseException {
+        StringBuilder longString = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            longString.append("\u00e4\ud83d\ude00x");
+        }
+        Map<Object, Object> nonStringKeys = new LinkedHashMap<Object, Object>();
+        nonStringKeys.put(1, "one");
+        nonStringKeys.put(null, true);
+        return new Object[][] {
+                { null }, { true }, { false },
+                { 0 }, { 23 }, { 24 }, { 255 }, { 256 }, { 65535 }, { 65536 },
+                { Integer.MAX_VALUE }, { Long.MAX_VALUE }, { -1 }, { -24 }, { -25 }, { Long.MIN_VALUE },
+                { (byte) 7 }, { (short) -300 }, { new BigInteger("123456789012345678901234567890") },
+                { 1.5 }, { -0.0 }, { 2.5f }, { Double.NaN }, { Double.POSITIVE_INFINITY }, { new BigDecimal("0.1") },
+                { "" }, { "Gr\u00fc\u00dfe \ud83d\ude00" }, { "\ud83d" }, { longString.toString() },
+                { new JSONArray() }, { new JSONObject() }, { nonStringKeys },
+                { Arrays.asList(1, "two", 3.0, null) },
+                { new JSONParser().parse(JSON) },
+                { new StringBuilder("toString") }
+        };
+    }
+
+    @Test(dataProvider = "values")
+    public void sameEncoding(Object pValue) throws IOException {
+        ByteArrayOutputStream client = new ByteArrayOutputStream();
+        CborWriter clientWriter = new CborWriter(client);
+        clientWriter.writeValue(pValue);
+        clientWriter.flush();
+
+        ByteArrayOutputStream agent = new ByteArrayOutputStream();
+        org.jolokia.util.CborWriter agentWriter = new org.jolokia.util.CborWriter(agent);
+        agentWriter.writeValue(pValue);
+        agentWriter.flush();
+
+        assertEquals(client.toByteArray(), agent.toByteArray());
+    }
+
+    @DataProvider
+    public Object[][] encoded() {
+        return new Object[][] {
+                // Half and single precision floats
+                { bytes(0xf9, 0x3c, 0x00) }, { bytes(0xf9, 0x00, 0x01) }, { bytes(0xf9, 0x7c, 0x00) },
+                { bytes(0xf9, 0xfe, 0x00) }, { bytes(0xfa, 0x47, 0xc3, 0x50, 0x00) },
+                // undefined, tagged item and integer keys
+                { bytes(0xf7) }, { bytes(0xc1, 0x1a, 0x51, 0x4b, 0x67, 0xb0) }, { bytes(0xa1, 0x01, 0x02) },
+                // Indefinite length string, array and map
+                { bytes(0x7f, 0x61, 0x61, 0x62, 0x62, 0x63, 0xff) }, { bytes(0x9f, 0x01, 0x9f, 0xff, 0xff) },
+                { bytes(0xbf, 0x61, 0x61, 0x01, 0xff) },
+                // Invalid: empty, truncated, trailing data, integer > Long.MAX_VALUE, byte string,
+                // unexpected break, bad chunk, length beyond the end
+                { bytes() }, { bytes(0x19, 0x01) }, { bytes(0x01, 0x02) },
+                { bytes(0x1b, 0x80, 0, 0, 0, 0, 0, 0, 0) }, { bytes(0x41, 0x00) }, { bytes(0xff) },
+                { bytes(0x82, 0x01, 0xff) }, { bytes(0x7f, 0x01, 0xff) }, { bytes(0x7a, 0x7f, 0xff, 0xff, 0xff) },
+                { bytes(0xf8, 0x20) }, { nested(1001) }
+        };
+    }
+
+    @Test(dataProvider = "encoded")
+    public void sameDecoding(byte[] pCbor) throws IOException {
+        Object client, agent;
+        try {
+            client = new CborParser().parse(pCbor);
+        } catch (ParseException exp) {
+            client = exp.toString();
+        }
+        try {
+            agent = new org.jolokia.util.CborParser().parse(pCbor);
+        } catch (ParseException exp) {
+            agent = exp.toString();
+        }
+        assertEquals(client, agent);
+    }
+
+    @Test(dataProvider = "values")
+    public void sameRoundTrip(Object pValue) throws IOException, ParseException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CborWriter writer = new CborWriter(out);
+        writer.writeValue(pValue);
+        writer.flush();
+        byte[] cbor = out.toByteArray();
+        assertEquals(String.valueOf(new CborParser().parse(cbor)),
+                     String.valueOf(new org.jolokia.util.CborParser().parse(cbor)));
+    }
+
+    // ===========================================================================
+
+    private byte[] bytes(int ... pBytes) {
+        byte[] ret = new byte[pBytes.length];
+        for (int i = 0; i < pBytes.length; i++) {
+            ret[i] = (byte) pBytes[i];
+        }
+        return ret;
+    }
+
+    // Arrays nested to the given depth
+    private byte[] nested(int pDepth) {
+        byte[] ret = new byte[pDepth + 1];
+        Arrays.fill(ret, 0, pDepth, (byte) 0x81);
+        ret[pDepth] = (byte) 0xf6;
+        return ret;
+    }
+}
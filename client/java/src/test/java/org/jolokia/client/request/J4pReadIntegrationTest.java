@@ -303,6 +303,32 @@ public class J4pReadIntegrationTest extends AbstractJ4pIntegrationTest {
         }
     }
 
+    @Test
+    public void mbeanPatternColumnar() throws MalformedObjectNameException, J4pException {
+        Map<J4pQueryParameter,String> params = new HashMap<J4pQueryParameter, String>();
+        params.put(J4pQueryParameter.READ_FORMAT,"columnar");
+        for (J4pReadRequest req : readRequests("*:type=attribute","LongSeconds","List")) {
+            J4pReadResponse resp = j4pClient.execute(req,"POST",params);
+            Map respVal = resp.getValue();
+            assertEquals(Arrays.asList(itSetup.getAttributeMBean()),respVal.get("mbeans"));
+            assertEquals(Arrays.asList("LongSeconds","List"),respVal.get("attributes"));
+
+            assertEquals(1,resp.getObjectNames().size());
+            ObjectName name = new ObjectName(itSetup.getAttributeMBean());
+            Set<String> attrSet = new HashSet<String>(resp.getAttributes(name));
+            assertEquals(new HashSet<String>(Arrays.asList("LongSeconds","List")),attrSet);
+            Double longVal = resp.getValue(name,"LongSeconds");
+            assertNotNull(longVal);
+
+            try {
+                resp.getValue(name,"FCN");
+                fail();
+            } catch (IllegalArgumentException exp) {
+                assertTrue(exp.getMessage().contains("FCN"));
+            }
+        }
+    }
+
     @Test
     public void mxBeanReadTest() throws MalformedObjectNameException, J4pException {
         for (J4pReadRequest request  : readRequests("jolokia.it:type=mxbean","ComplexTestData")) {
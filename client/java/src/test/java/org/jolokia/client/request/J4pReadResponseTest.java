@@ -0,0 +1,120 @@
+package org.jolokia.client.request;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.*;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Pattern reads in the default and in the columnar layout must look the same through
+ * the accessors of the response.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+public class J4pReadResponseTest {
+
+    private static final String ERROR = "java.lang.IllegalStateException : Cannot read";
+
+    private static final String MAP_LAYOUT =
+            "{\"java.lang:type=GarbageCollection\":{\"gc3\":\"gcval3\",\"common\":\"com2\"}," +
+            " \"java.lang:type=Memory\":{\"mem0\":\"memval0\",\"common\":null}," +
+            " \"java.lang:type=Threading\":\"" + ERROR + "\"}";
+
+    private static final String COLUMNAR_LAYOUT =
+            "{\"mbeans\":[\"java.lang:type=GarbageCollection\",\"java.lang:type=Memory\"]," +
+            " \"attributes\":[\"mem0\",\"gc3\",\"common\"]," +
+            " \"values\":[[null,\"gcval3\",\"com2\"],[\"memval0\",null,null]]," +
+            " \"missing\":{\"java.lang:type=GarbageCollection\":[\"mem0\"],\"java.lang:type=Memory\":[\"gc3\"]}," +
+            " \"errors\":{\"java.lang:type=Threading\":\"" + ERROR + "\"}}";
+
+    @DataProvider
+    public Object[][] layouts() {
+        return new Object[][] { { MAP_LAYOUT }, { COLUMNAR_LAYOUT } };
+    }
+
+    @Test(dataProvider = "layouts")
+    public void objectNames(String pValue) throws Exception {
+        J4pReadResponse resp = response(pValue);
+        assertEquals(new HashSet<ObjectName>(resp.getObjectNames()),
+                     new HashSet<ObjectName>(Arrays.asList(new ObjectName("java.lang:type=GarbageCollection"),
+                                                           new ObjectName("java.lang:type=Memory"),
+                                                           new ObjectName("java.lang:type=Threading"))));
+    }
+
+    @Test(dataProvider = "layouts")
+    public void absentAttributesSkipped(String pValue) throws Exception {
+        J4pReadResponse resp = response(pValue);
+        ObjectName gc = new ObjectName("java.lang:type=GarbageCollection");
+        ObjectName memory = new ObjectName("java.lang:type=Memory");
+        assertEquals(new HashSet<String>(resp.getAttributes(gc)), new HashSet<String>(Arrays.asList("gc3", "common")));
+        assertEquals(new HashSet<String>(resp.getAttributes(memory)), new HashSet<String>(Arrays.asList("mem0", "common")));
+        assertEquals(resp.getValue(gc, "common"), "com2");
+        // A null value is kept, whereas an absent attribute is not found
+        assertNull(resp.getValue(memory, "common"));
+        try {
+            resp.getValue(gc, "mem0");
+            fail("Attribute mem0 is not provided by " + gc);
+        } catch (IllegalArgumentException exp) {
+            assertTrue(exp.getMessage().contains("mem0"));
+        }
+    }
+
+    @Test(dataProvider = "layouts")
+    public void erroredMBean(String pValue) throws Exception {
+        J4pReadResponse resp = response(pValue);
+        ObjectName threading = new ObjectName("java.lang:type=Threading");
+        try {
+            resp.getAttributes(threading);
+            fail("Only an error was returned for " + threading);
+        } catch (IllegalArgumentException exp) {
+            assertTrue(exp.getMessage().contains(ERROR));
+        }
+        try {
+            resp.getValue(threading, "common");
+            fail("Only an error was returned for " + threading);
+        } catch (IllegalArgumentException exp) {
+            assertTrue(exp.getMessage().contains(ERROR));
+        }
+    }
+
+    @Test(dataProvider = "layouts", expectedExceptions = IllegalArgumentException.class,
+          expectedExceptionsMessageRegExp = ".*No ObjectName.*")
+    public void unknownMBean(String pValue) throws Exception {
+        response(pValue).getAttributes(new ObjectName("java.lang:type=Runtime"));
+    }
+
+    // ==========================================================================================
+
+    private J4pReadResponse response(String pValue) throws MalformedObjectNameException, ParseException {
+        J4pReadRequest request = new J4pReadRequest("java.lang:type=*", "mem0", "gc3", "common");
+        JSONObject json = new JSONObject();
+        json.put("value", new JSONParser().parse(pValue));
+        json.put("status", 200L);
+        return new J4pReadResponse(request, json);
+    }
+}
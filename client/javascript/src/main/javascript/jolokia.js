@@ -68,8 +68,14 @@
             // Jolokia Javascript Client version
             this.CLIENT_VERSION = "1.6.2";
 
-            // Registered requests for fetching periodically
-            var jobs = [];
+            // Registered requests for fetching periodically, keyed by their handle
+            var jobs = {};
+
+            // Counter for creating job handles. Handles are never reused.
+            var jobCounter = 0;
+
+            // Streaming connection when the poller runs in streaming mode
+            var streamer = null;
 
             // Options used for every request
             var agentOptions = {};
@@ -322,9 +328,12 @@
                     throw "No requests given";
                 }
                 job.requests = requests;
-                var idx = jobs.length;
-                jobs[idx] = job;
-                return idx;
+                var handle = jobCounter++;
+                jobs[handle] = job;
+                if (streamer) {
+                    streamer.subscribe(handle);
+                }
+                return handle;
             };
 
             /**
@@ -333,8 +342,11 @@
              * @param handle
              */
             this.unregister = function(handle) {
-                if (handle < jobs.length) {
-                    jobs[handle] = undefined;
+                if (jobs.hasOwnProperty(handle)) {
+                    delete jobs[handle];
+                    if (streamer) {
+                        streamer.unsubscribe(handle);
+                    }
                 }
             };
 
@@ -343,11 +355,10 @@
              * @return Array of job handles or an empty array
              */
             this.jobs = function() {
-                var ret = [],
-                    len = jobs.length;
-                for (var i = 0; i < len; i++) {
-                    if (jobs[i]) {
-                        ret.push(i);
+                var ret = [];
+                for (var handle in jobs) {
+                    if (jobs.hasOwnProperty(handle)) {
+                        ret.push(parseInt(handle, 10));
                     }
                 }
                 return ret;
@@ -361,12 +372,23 @@
              * If the poller is already running (i.e. {@link #isRunning()} is <code>true</code> then the scheduler
              * is restarted, but only if the new interval differs from the currently active one.
              *
+             * If the option <code>stream</code> is set to true (either given here or at construction time), the
+             * registered requests are not polled but subscribed to on the agent, which samples them every
+             * <code>interval</code> milliseconds. The results are received over a single long-lived connection
+             * and only the responses whose value has changed are dispatched to the callbacks. For a job with a
+             * single <code>callback</code> this means that only the changed responses are given as arguments.
+             * Streaming requires an agent supporting the <code>notification</code> request type. If the agent's
+             * <code>streaming</code> option is switched off or the browser doesn't support streaming with
+             * <code>fetch()</code>, long-polling is used for receiving the results.
+             *
              * @param interval interval in milliseconds between two polling attempts
+             * @param opts optional options. Known option is <code>stream</code> for switching on streaming mode
              */
-            this.start = function(interval) {
+            this.start = function(interval, opts) {
                 interval = interval || agentOptions.fetchInterval || 30000;
+                var stream = opts && opts.stream != null ? opts.stream : agentOptions.stream;
                 if (pollerIsRunning) {
-                    if (interval === agentOptions.fetchInterval) {
+                    if (interval === agentOptions.fetchInterval && !!stream === !!streamer) {
                         // Nothing to do
                         return;
                     }
@@ -374,7 +396,12 @@
                     this.stop();
                 }
                 agentOptions.fetchInterval = interval;
-                this.timerId = setInterval(callJolokia(this,jobs), interval);
+                if (stream) {
+                    streamer = createStreamer(this, jobs, interval, agentOptions);
+                    streamer.start();
+                } else {
+                    this.timerId = setInterval(callJolokia(this,jobs), interval);
+                }
 
                 pollerIsRunning = true;
             };
@@ -386,6 +413,10 @@
                 if (!pollerIsRunning && this.timerId != undefined) {
                     return;
                 }
+                if (streamer) {
+                    streamer.stop();
+                    streamer = null;
+                }
                 clearInterval(this.timerId);
                 this.timerId = null;
 
@@ -413,14 +444,12 @@
             return function() {
                 var errorCbs = [],
                     successCbs = [],
-                    i, j,
-                    len = jobs.length;
+                    i, j;
                 var requests = [];
-                for (i = 0; i < len; i++) {
-                    var job = jobs[i];
-                    // Can happen when job has been deleted
-                    // TODO: Can be probably optimized so that only the existing keys of jobs can be visited
-                    if (!job) { continue;  }
+                for (var handle in jobs) {
+                    if (!jobs.hasOwnProperty(handle)) { continue; }
+                    var job = jobs[handle];
+                    i = parseInt(handle, 10);
                     var reqsLen = job.requests.length;
                     if (job.success) {
                         // Success/error pair of callbacks. For multiple request,
@@ -531,6 +560,275 @@
             }
         }
 
+        // ========================================================================
+        // Streaming mode
+
+        // How long a single pull waits on the agent when falling back to long-polling
+        var LONG_POLL_TIMEOUT = 30000;
+
+        // Create a streamer which subscribes the registered jobs at the agent. The agent samples
+        // the requests itself and sends only the changed responses over a single long-lived connection
+        // (or consecutive long-poll requests if streaming is not possible). Responses are dispatched
+        // to the job's callbacks. The job's handle is used as handback for the subscription.
+        function createStreamer(jolokia, jobs, interval, agentOptions) {
+            var clientId = null,
+                // Subscription handles as returned by the agent, keyed by job handle
+                subscriptions = {},
+                // Incremented on each connect and on stop so that stale callbacks are ignored
+                generation = 0,
+                running = false,
+                abortController = null;
+
+            return {
+                start: function() {
+                    running = true;
+                    connect();
+                },
+                stop: function() {
+                    running = false;
+                    generation++;
+                    if (abortController) {
+                        abortController.abort();
+                        abortController = null;
+                    }
+                    if (clientId) {
+                        // Removes all subscriptions on the agent, too
+                        notificationRequest({ command: "unregister", client: clientId }, "ignore", "ignore");
+                        clientId = null;
+                    }
+                    subscriptions = {};
+                },
+                subscribe: function(handle) {
+                    if (clientId) {
+                        subscribeJob(handle, generation);
+                    }
+                },
+                unsubscribe: function(handle) {
+                    var subscription = subscriptions[handle];
+                    delete subscriptions[handle];
+                    if (clientId && subscription != null) {
+                        notificationRequest({ command: "remove", client: clientId, handle: subscription }, "ignore", "ignore");
+                    }
+                }
+            };
+
+            // Register a new client, subscribe all jobs and open the stream
+            function connect() {
+                var gen = ++generation;
+                clientId = null;
+                subscriptions = {};
+                notificationRequest({ command: "register" }, function(resp) {
+                    if (gen !== generation) {
+                        return;
+                    }
+                    clientId = resp.value.id;
+                    for (var handle in jobs) {
+                        if (jobs.hasOwnProperty(handle)) {
+                            subscribeJob(handle, gen);
+                        }
+                    }
+                    openStream(gen);
+                }, function() {
+                    connectLater(gen);
+                }, function() {
+                    connectLater(gen);
+                });
+            }
+
+            function subscribeJob(handle, gen) {
+                var job = jobs[handle],
+                    requests = [];
+                for (var j = 0; j < job.requests.length; j++) {
+                    requests.push(prepareRequest(job, j));
+                }
+                notificationRequest({
+                    command: "subscribe",
+                    client: clientId,
+                    requests: requests,
+                    interval: interval,
+                    onlyChanged: true,
+                    handback: parseInt(handle, 10)
+                }, function(resp) {
+                    if (gen !== generation) {
+                        return;
+                    }
+                    if (jobs.hasOwnProperty(handle)) {
+                        subscriptions[handle] = resp.value;
+                    } else {
+                        // Unregistered in the meantime
+                        notificationRequest({ command: "remove", client: clientId, handle: resp.value }, "ignore", "ignore");
+                    }
+                });
+            }
+
+            function openStream(gen) {
+                if (!running || gen !== generation) {
+                    return;
+                }
+                if (window.fetch && window.ReadableStream && window.TextDecoder) {
+                    fetchStream(gen);
+                } else {
+                    longPoll(gen);
+                }
+            }
+
+            // Read newline delimited pull responses from a streaming connection
+            function fetchStream(gen) {
+                var url = addProcessingParameters(agentOptions.url.replace(/\/*$/, "") +
+                                                  "/notification/stream/" + Jolokia.escape(clientId), agentOptions),
+                    init = { headers: {}, cache: "no-store" },
+                    decoder = new TextDecoder(),
+                    buffer = "";
+                if (agentOptions.username && agentOptions.password && window.btoa) {
+                    init.headers["Authorization"] = "Basic " + window.btoa(agentOptions.username + ":" + agentOptions.password);
+                    init.credentials = "include";
+                }
+                if (window.AbortController) {
+                    abortController = new AbortController();
+                    init.signal = abortController.signal;
+                }
+                window.fetch(url, init).then(function(response) {
+                    if (!response.ok || !response.body) {
+                        throw new Error("Cannot open stream: HTTP status " + response.status);
+                    }
+                    var reader = response.body.getReader();
+                    return read();
+
+                    function read() {
+                        return reader.read().then(function(chunk) {
+                            if (gen !== generation) {
+                                reader.cancel();
+                                return;
+                            }
+                            if (chunk.done) {
+                                // Also the case if streaming is switched off at the agent and a single
+                                // response has been returned
+                                if (handleLine(buffer)) {
+                                    openStreamLater(gen);
+                                }
+                                return;
+                            }
+                            buffer += decoder.decode(chunk.value, { stream: true });
+                            var idx;
+                            while ((idx = buffer.indexOf("\n")) >= 0) {
+                                var line = buffer.substring(0, idx);
+                                buffer = buffer.substring(idx + 1);
+                                if (!handleLine(line)) {
+                                    reader.cancel();
+                                    return;
+                                }
+                            }
+                            return read();
+                        });
+                    }
+                }).then(null, function() {
+                    // Connection problem, try again with the same client
+                    openStreamLater(gen);
+                });
+
+                // Returns false if the client is not valid anymore, in which case we connect again
+                function handleLine(line) {
+                    line = $.trim(line);
+                    if (line.length === 0) {
+                        // Heartbeat
+                        return true;
+                    }
+                    var resp = JSON.parse(line);
+                    if (Jolokia.isError(resp)) {
+                        connectLater(gen);
+                        return false;
+                    }
+                    dispatchEvents(resp.value.notifications);
+                    return true;
+                }
+            }
+
+            // Fallback when streaming is not possible in this browser
+            function longPoll(gen) {
+                notificationRequest({ command: "pull", client: clientId, timeout: LONG_POLL_TIMEOUT }, function(resp) {
+                    if (gen !== generation) {
+                        return;
+                    }
+                    dispatchEvents(resp.value.notifications);
+                    longPoll(gen);
+                }, function() {
+                    connectLater(gen);
+                }, function() {
+                    openStreamLater(gen);
+                });
+            }
+
+            function connectLater(gen) {
+                later(gen, connect);
+            }
+
+            function openStreamLater(gen) {
+                later(gen, function() {
+                    openStream(gen);
+                });
+            }
+
+            function later(gen, func) {
+                if (running && gen === generation) {
+                    setTimeout(function() {
+                        if (running && gen === generation) {
+                            func();
+                        }
+                    }, interval);
+                }
+            }
+
+            // Dispatch the responses of subscription events to the job callbacks. Unchanged
+            // responses are null
+            function dispatchEvents(events) {
+                for (var i = 0; i < events.length; i++) {
+                    var event = events[i],
+                        job = jobs[event.handback],
+                        responses = event.responses;
+                    if (!responses || !job) {
+                        continue;
+                    }
+                    if (job.success) {
+                        for (var j = 0; j < responses.length; j++) {
+                            var resp = responses[j];
+                            if (resp == null) {
+                                continue;
+                            }
+                            if (Jolokia.isError(resp)) {
+                                if (job.error) {
+                                    job.error(resp, event.handback, j);
+                                }
+                            } else {
+                                job.success(resp, event.handback, j);
+                            }
+                        }
+                    } else {
+                        var changed = [];
+                        for (var k = 0; k < responses.length; k++) {
+                            if (responses[k] != null) {
+                                changed.push(responses[k]);
+                            }
+                        }
+                        if (changed.length > 0) {
+                            job.callback.apply(jolokia, changed);
+                        }
+                    }
+                }
+            }
+
+            function notificationRequest(request, success, error, ajaxError) {
+                var opts = {
+                    method: "post",
+                    success: success,
+                    error: error
+                };
+                if (ajaxError) {
+                    opts.ajaxError = ajaxError === "ignore" ? function() {} : ajaxError;
+                }
+                jolokia.request($.extend({ type: "notification" }, request), opts);
+            }
+        }
+
         // Construct a callback dispatcher for appropriately dispatching
         // to a single callback or within an array of callbacks
         function constructCallbackDispatcher(callback) {
@@ -576,6 +874,7 @@
                 method = $.isArray(request) ||
                          request.config ||
                          (request.type.toLowerCase() === "read" && $.isArray(request.attribute)) ||
+                         (request.type.toLowerCase() === "notification" && request.command === "subscribe") ||
                          request.target ?
                         "post" : "get";
             }
@@ -663,6 +962,23 @@
             },
             "list":function (request) {
                 return { path:request.path};
+            },
+            "notification":function (request) {
+                var ret = [ request.command ];
+                if (request.client) {
+                    ret.push(request.client);
+                }
+                if (request.command === "add") {
+                    ret.push(request.mbean, request.filter ? request.filter.join(",") : "*");
+                    if (request.handback != null) {
+                        ret.push(request.handback);
+                    }
+                } else if (request.command === "remove") {
+                    ret.push(request.handle);
+                } else if (request.command === "pull") {
+                    ret.push(request.timeout || 0, request.max || 0);
+                }
+                return { parts:ret };
             }
         };
 
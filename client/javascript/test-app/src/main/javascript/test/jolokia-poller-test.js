@@ -220,4 +220,37 @@ $(document).ready(function() {
         },500);
     });
 
+    asyncTest("Streaming mode with changed values only",function() {
+        var j4p = new Jolokia("/jolokia");
+        var counterS = 0,
+            counterE = 0,
+            handles = {};
+        var id = j4p.register({
+                success: function(resp, handle, idx) {
+                    counterS++;
+                    handles[handle] = true;
+                    equals(idx,0,"Only the first request delivers values");
+                    equals(resp.request.attribute,"ImplementationName");
+                },
+                error: function(resp, handle, idx) {
+                    counterE++;
+                    equals(resp.status,404);
+                    equals(idx,1);
+                }
+            },
+            { type: "READ", mbean: "JMImplementation:type=MBeanServerDelegate", attribute: "ImplementationName"},
+            { type: "READ", mbean: "bla.blu:type=foo", attribute: "blubber"});
+        j4p.start(100, { stream: true });
+        ok(j4p.isRunning(),"Poller should be running");
+        setTimeout(function() {
+            j4p.stop();
+            ok(!j4p.isRunning(),"Poller should be stopped");
+            // Values don't change, so each response is delivered only once
+            equals(counterS,1,"Constant value delivered once");
+            equals(counterE,1,"Constant error delivered once");
+            ok(handles[id],"Job handle given to callback");
+            start();
+        },1000);
+    });
+
 });
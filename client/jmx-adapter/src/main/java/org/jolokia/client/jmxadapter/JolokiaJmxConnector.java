@@ -119,6 +119,9 @@ public class JolokiaJmxConnector implements JMXConnector {
             "Client has been closed",
             null)
     );
+    if (this.adapter != null) {
+      this.adapter.close();
+    }
     this.adapter = null;
   }
 
@@ -16,6 +16,7 @@ import javax.management.AttributeList;
 import javax.management.AttributeNotFoundException;
 import javax.management.InstanceNotFoundException;
 import javax.management.InvalidAttributeValueException;
+import javax.management.ListenerNotFoundException;
 import javax.management.MBeanAttributeInfo;
 import javax.management.MBeanException;
 import javax.management.MBeanInfo;
@@ -69,6 +70,7 @@ public class RemoteJmxAdapter implements MBeanServerConnection {
   private String agentId;
   private HashMap<J4pQueryParameter, String> defaultProcessingOptions;
   protected final Map<ObjectName, MBeanInfo> mbeanInfoCache = new HashMap<ObjectName, MBeanInfo>();
+  private RemoteNotificationClient notificationClient;
   String agentVersion;
   String protocolVersion;
 
@@ -234,7 +236,7 @@ public class RemoteJmxAdapter implements MBeanServerConnection {
   }
 
   @SuppressWarnings("unchecked")
-  private <RESP extends J4pResponse<REQ>, REQ extends J4pRequest> RESP unwrapExecute(REQ pRequest)
+  <RESP extends J4pResponse<REQ>, REQ extends J4pRequest> RESP unwrapExecute(REQ pRequest)
       throws IOException, InstanceNotFoundException {
     try {
       pRequest.setPreferredHttpMethod("POST");
@@ -483,25 +485,9 @@ public class RemoteJmxAdapter implements MBeanServerConnection {
 
   @Override
   public void addNotificationListener(
-      ObjectName name, NotificationListener listener, NotificationFilter filter, Object handback) {
-    if (!isRunningInJConsole()
-        && !isRunningInJVisualVm()
-        && !isRunningInJmc()) {//just ignore in JConsole/JvisualVM as it wrecks the MBean page
-      throw new UnsupportedOperationException("addNotificationListener not supported for Jolokia");
-    }
-  }
-
-  private boolean isRunningInJVisualVm() {
-    final String version = System.getProperty("netbeans.productversion");
-    return version != null && version.contains("VisualVM");
-  }
-
-  private boolean isRunningInJConsole() {
-    return System.getProperty("jconsole.showOutputViewer") != null;
-  }
-
-  private boolean isRunningInJmc() {
-    return System.getProperty("running.in.jmc") != null;
+      ObjectName name, NotificationListener listener, NotificationFilter filter, Object handback)
+      throws InstanceNotFoundException, IOException {
+    getNotificationClient().addNotificationListener(name, listener, filter, handback);
   }
 
   @Override
@@ -522,16 +508,33 @@ public class RemoteJmxAdapter implements MBeanServerConnection {
   }
 
   @Override
-  public void removeNotificationListener(ObjectName name, NotificationListener listener) {
-    if(!isRunningInJmc() && !isRunningInJConsole() && !isRunningInJVisualVm()) {
-      throw new UnsupportedOperationException("removeNotificationListener not supported by Jolokia");
-    }
+  public void removeNotificationListener(ObjectName name, NotificationListener listener)
+      throws InstanceNotFoundException, ListenerNotFoundException, IOException {
+    getNotificationClient().removeNotificationListener(name, listener);
   }
 
   @Override
   public void removeNotificationListener(
-      ObjectName name, NotificationListener listener, NotificationFilter filter, Object handback) {
-    throw new UnsupportedOperationException("removeNotificationListener not supported by Jolokia");
+      ObjectName name, NotificationListener listener, NotificationFilter filter, Object handback)
+      throws InstanceNotFoundException, ListenerNotFoundException, IOException {
+    getNotificationClient().removeNotificationListener(name, listener, filter, handback);
+  }
+
+  private synchronized RemoteNotificationClient getNotificationClient() {
+    if (this.notificationClient == null) {
+      this.notificationClient = new RemoteNotificationClient(this);
+    }
+    return this.notificationClient;
+  }
+
+  /**
+   * Stop receiving notifications and remove all listeners registered on the agent
+   */
+  synchronized void close() {
+    if (this.notificationClient != null) {
+      this.notificationClient.close();
+      this.notificationClient = null;
+    }
   }
 
   @Override
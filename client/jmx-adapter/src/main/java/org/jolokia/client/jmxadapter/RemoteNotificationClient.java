@@ -0,0 +1,291 @@
+package org.jolokia.client.jmxadapter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.management.AttributeChangeNotification;
+import javax.management.InstanceNotFoundException;
+import javax.management.ListenerNotFoundException;
+import javax.management.MalformedObjectNameException;
+import javax.management.Notification;
+import javax.management.NotificationFilter;
+import javax.management.NotificationFilterSupport;
+import javax.management.NotificationListener;
+import javax.management.ObjectName;
+import org.jolokia.client.exception.J4pRemoteException;
+import org.jolokia.client.exception.UncheckedJmxAdapterException;
+import org.jolokia.client.request.J4pNotificationRequest;
+import org.jolokia.client.request.J4pNotificationResponse;
+import org.json.simple.JSONObject;
+
+/**
+ * I manage the notification listeners of a {@link RemoteJmxAdapter}. Listeners are added on the
+ * agent side for a notification client which is registered lazily with the first listener. A
+ * background thread long-polls the agent for notifications and dispatches them to the local
+ * listeners.
+ * <p>
+ * Type based filters ({@link NotificationFilterSupport}) are evaluated on the agent, all other
+ * filters are evaluated locally before a notification is handed to the listener.
+ */
+class RemoteNotificationClient implements Runnable {
+
+  // how long a single pull waits on the agent side
+  static final long PULL_TIMEOUT = 10000L;
+
+  // pause before retrying after a connection error
+  private static final long RETRY_INTERVAL = 5000L;
+
+  private final RemoteJmxAdapter adapter;
+
+  // registrations by the handle returned from the agent
+  private final Map<String, Registration> registrations = new LinkedHashMap<String, Registration>();
+
+  private String clientId;
+
+  private Thread poller;
+
+  private boolean running;
+
+  RemoteNotificationClient(RemoteJmxAdapter adapter) {
+    this.adapter = adapter;
+  }
+
+  synchronized void addNotificationListener(ObjectName name, NotificationListener listener,
+      NotificationFilter filter, Object handback) throws IOException, InstanceNotFoundException {
+    ensureRegistered();
+    final Registration registration = new Registration(name, listener, filter, handback);
+    registrations.put(addRemoteListener(registration), registration);
+    ensurePolling();
+  }
+
+  synchronized void removeNotificationListener(ObjectName name, NotificationListener listener)
+      throws ListenerNotFoundException, IOException, InstanceNotFoundException {
+    final List<String> handles = new ArrayList<String>();
+    for (Map.Entry<String, Registration> entry : registrations.entrySet()) {
+      if (entry.getValue().name.equals(name) && entry.getValue().listener == listener) {
+        handles.add(entry.getKey());
+      }
+    }
+    removeRegistrations(handles);
+  }
+
+  synchronized void removeNotificationListener(ObjectName name, NotificationListener listener,
+      NotificationFilter filter, Object handback)
+      throws ListenerNotFoundException, IOException, InstanceNotFoundException {
+    final List<String> handles = new ArrayList<String>();
+    for (Map.Entry<String, Registration> entry : registrations.entrySet()) {
+      final Registration registration = entry.getValue();
+      if (registration.name.equals(name) && registration.listener == listener
+          && registration.filter == filter && registration.handback == handback) {
+        handles.add(entry.getKey());
+      }
+    }
+    removeRegistrations(handles);
+  }
+
+  /**
+   * Stop polling and unregister from the agent, which removes all remote listeners
+   */
+  synchronized void close() {
+    running = false;
+    if (poller != null) {
+      poller.interrupt();
+      poller = null;
+    }
+    if (clientId != null) {
+      try {
+        adapter.unwrapExecute(J4pNotificationRequest.unregister(null, clientId));
+      } catch (Exception ignore) {
+        // agent might be gone already
+      }
+      clientId = null;
+    }
+    registrations.clear();
+  }
+
+  @Override
+  public void run() {
+    while (isActivePoller()) {
+      try {
+        final String id = currentClientId();
+        if (id == null) {
+          return;
+        }
+        J4pNotificationResponse response =
+            adapter.unwrapExecute(J4pNotificationRequest.pull(null, id, PULL_TIMEOUT, 0));
+        dispatch(response.getNotifications());
+      } catch (IOException e) {
+        pause();
+      } catch (InstanceNotFoundException e) {
+        pause();
+      } catch (UncheckedJmxAdapterException e) {
+        // most likely the client has expired on the agent side, so register again
+        try {
+          reRegister();
+        } catch (Exception retryException) {
+          pause();
+        }
+      }
+    }
+  }
+
+  // ==================================================================================
+
+  private void removeRegistrations(List<String> handles)
+      throws ListenerNotFoundException, IOException, InstanceNotFoundException {
+    if (handles.isEmpty()) {
+      throw new ListenerNotFoundException("No matching notification listener registered");
+    }
+    for (String handle : handles) {
+      registrations.remove(handle);
+      adapter.unwrapExecute(J4pNotificationRequest.remove(null, clientId, handle));
+    }
+    if (registrations.isEmpty()) {
+      close();
+    }
+  }
+
+  private void ensureRegistered() throws IOException, InstanceNotFoundException {
+    if (clientId == null) {
+      J4pNotificationResponse response = adapter.unwrapExecute(J4pNotificationRequest.register(null));
+      clientId = response.getClientId();
+    }
+  }
+
+  private void ensurePolling() {
+    if (poller == null) {
+      running = true;
+      poller = new Thread(this, "jolokia-notification-poller");
+      poller.setDaemon(true);
+      poller.start();
+    }
+  }
+
+  // a poller stops when closed or when it has been replaced by a new one
+  private synchronized boolean isActivePoller() {
+    return running && poller == Thread.currentThread();
+  }
+
+  private synchronized String currentClientId() {
+    return clientId;
+  }
+
+  private synchronized void reRegister() throws IOException, InstanceNotFoundException {
+    if (!running) {
+      return;
+    }
+    clientId = null;
+    ensureRegistered();
+    final List<Registration> existing = new ArrayList<Registration>(registrations.values());
+    registrations.clear();
+    for (Registration registration : existing) {
+      try {
+        registrations.put(addRemoteListener(registration), registration);
+      } catch (InstanceNotFoundException ignore) {
+        // MBean has been unregistered in the meantime
+      }
+    }
+  }
+
+  private String addRemoteListener(Registration registration)
+      throws IOException, InstanceNotFoundException {
+    try {
+      J4pNotificationResponse response = adapter.unwrapExecute(
+          J4pNotificationRequest.add(null, clientId, registration.name,
+              registration.remoteFilterTypes(), null));
+      return response.getHandle();
+    } catch (UncheckedJmxAdapterException e) {
+      if (e.getCause() instanceof J4pRemoteException
+          && "javax.management.InstanceNotFoundException"
+          .equals(((J4pRemoteException) e.getCause()).getErrorType())) {
+        throw new InstanceNotFoundException(registration.name.toString());
+      }
+      throw e;
+    }
+  }
+
+  private void dispatch(List<JSONObject> events) {
+    for (JSONObject event : events) {
+      final Registration registration;
+      synchronized (this) {
+        registration = registrations.get(event.get("handle"));
+      }
+      if (registration != null) {
+        final Notification notification =
+            toNotification(registration.name, (Map<?, ?>) event.get("notification"));
+        if (registration.filter == null || registration.filter.isNotificationEnabled(notification)) {
+          registration.listener.handleNotification(notification, registration.handback);
+        }
+      }
+    }
+  }
+
+  private Notification toNotification(ObjectName mbean, Map<?, ?> json) {
+    final String type = (String) json.get("type");
+    final Object source = toSource(mbean, (String) json.get("source"));
+    final long sequenceNumber = toLong(json.get("sequenceNumber"));
+    final long timeStamp = toLong(json.get("timeStamp"));
+    final String message = (String) json.get("message");
+    final Notification notification;
+    if (json.containsKey("attributeName")) {
+      notification = new AttributeChangeNotification(source, sequenceNumber, timeStamp, message,
+          (String) json.get("attributeName"), (String) json.get("attributeType"),
+          json.get("oldValue"), json.get("newValue"));
+    } else {
+      notification = new Notification(type, source, sequenceNumber, timeStamp, message);
+    }
+    notification.setUserData(json.get("userData"));
+    return notification;
+  }
+
+  private Object toSource(ObjectName mbean, String source) {
+    if (source == null) {
+      return mbean;
+    }
+    try {
+      return new ObjectName(source);
+    } catch (MalformedObjectNameException e) {
+      return source;
+    }
+  }
+
+  private long toLong(Object value) {
+    return value instanceof Number ? ((Number) value).longValue() : 0L;
+  }
+
+  private void pause() {
+    try {
+      Thread.sleep(RETRY_INTERVAL);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static class Registration {
+
+    private final ObjectName name;
+    private final NotificationListener listener;
+    private final NotificationFilter filter;
+    private final Object handback;
+
+    Registration(ObjectName name, NotificationListener listener, NotificationFilter filter,
+        Object handback) {
+      this.name = name;
+      this.listener = listener;
+      this.filter = filter;
+      this.handback = handback;
+    }
+
+    // types to filter on the agent side, only possible for a type based filter
+    List<String> remoteFilterTypes() {
+      if (filter instanceof NotificationFilterSupport) {
+        final List<String> types = new ArrayList<String>(
+            ((NotificationFilterSupport) filter).getEnabledTypes());
+        return types.isEmpty() ? null : types;
+      }
+      return null;
+    }
+  }
+}
@@ -23,6 +23,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import javax.management.Attribute;
 import javax.management.AttributeList;
 import javax.management.AttributeNotFoundException;
@@ -30,14 +31,17 @@ import javax.management.InstanceAlreadyExistsException;
 import javax.management.InstanceNotFoundException;
 import javax.management.IntrospectionException;
 import javax.management.InvalidAttributeValueException;
+import javax.management.ListenerNotFoundException;
 import javax.management.MBeanAttributeInfo;
 import javax.management.MBeanException;
 import javax.management.MBeanInfo;
 import javax.management.MBeanOperationInfo;
 import javax.management.MBeanServer;
 import javax.management.MBeanServerConnection;
+import javax.management.MBeanServerNotification;
 import javax.management.NotCompliantMBeanException;
 import javax.management.Notification;
+import javax.management.NotificationFilterSupport;
 import javax.management.NotificationListener;
 import javax.management.ObjectInstance;
 import javax.management.ObjectName;
@@ -654,11 +658,6 @@ public class JmxBridgeTest {
       Assert.fail("Operation should not be supported by adapter");
     } catch (UnsupportedOperationException ignore) {
     }
-    try {
-      this.adapter.addNotificationListener(RUNTIME, (NotificationListener) null, null, null);
-      Assert.fail("Operation should not be supported by adapter");
-    } catch (UnsupportedOperationException ignore) {
-    }
     try {
       this.adapter.addNotificationListener(RUNTIME, RUNTIME, null, null);
       Assert.fail("Operation should not be supported by adapter");
@@ -674,15 +673,42 @@ public class JmxBridgeTest {
       Assert.fail("Operation should not be supported by adapter");
     } catch (UnsupportedOperationException ignore) {
     }
+  }
+
+  @Test
+  public void testNotifications() throws Exception {
+    final List<Notification> received = Collections.synchronizedList(new LinkedList<Notification>());
+    final NotificationListener listener = new NotificationListener() {
+      @Override
+      public void handleNotification(Notification notification, Object handback) {
+        Assert.assertEquals(handback, "handback");
+        received.add(notification);
+      }
+    };
+    final NotificationFilterSupport filter = new NotificationFilterSupport();
+    filter.enableType(MBeanServerNotification.REGISTRATION_NOTIFICATION);
+    final ObjectName delegate = RemoteJmxAdapter.getObjectName("JMImplementation:type=MBeanServerDelegate");
+    final ObjectName emitted = RemoteJmxAdapter.getObjectName("jolokia.test:name=NotificationTrigger");
+    this.adapter.addNotificationListener(delegate, listener, filter, "handback");
     try {
-      this.adapter.removeNotificationListener(RUNTIME, (NotificationListener) null);
-      Assert.fail("Operation should not be supported by adapter");
-    } catch (UnsupportedOperationException ignore) {
+      ManagementFactory.getPlatformMBeanServer().registerMBean(new MBeanExample(), emitted);
+      await().until(new Callable<Boolean>() {
+        @Override
+        public Boolean call() {
+          return !received.isEmpty();
+        }
+      });
+      final Notification notification = received.get(0);
+      Assert.assertEquals(notification.getType(), MBeanServerNotification.REGISTRATION_NOTIFICATION);
+      Assert.assertEquals(notification.getSource(), delegate);
+    } finally {
+      this.adapter.removeNotificationListener(delegate, listener);
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(emitted);
     }
     try {
-      this.adapter.removeNotificationListener(RUNTIME, (NotificationListener) null, null, null);
-      Assert.fail("Operation should not be supported by adapter");
-    } catch (UnsupportedOperationException ignore) {
+      this.adapter.removeNotificationListener(delegate, listener);
+      Assert.fail("Listener should have been removed");
+    } catch (ListenerNotFoundException ignore) {
     }
   }
 
@@ -7,24 +7,48 @@ import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.KubernetesClientException;
 import java.io.IOException;
 import java.net.MalformedURLException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.management.remote.JMXConnector;
 import javax.management.remote.JMXServiceURL;
 import okhttp3.Response;
 import org.jolokia.client.J4pClient;
+import org.jolokia.client.exception.UncheckedJmxAdapterException;
 import org.jolokia.client.jmxadapter.JolokiaJmxConnector;
 import org.jolokia.client.jmxadapter.RemoteJmxAdapter;
 
 public class KubernetesJmxConnector extends JolokiaJmxConnector {
 
+  /**
+   * Environment key for how long (in ms) a resolved proxy path is remembered, 0 disables caching
+   */
+  public static final String PROXY_PATH_CACHE_TTL = "jolokia.kubernetes.proxyPathCacheTtl";
+
+  static final long DEFAULT_PROXY_PATH_CACHE_TTL = 60000L;
+
+  // upper limit of pods probed at the same time
+  private static final int MAX_PARALLEL_PROBES = 16;
+
   private static Pattern POD_PATTERN = Pattern
       .compile(
           "/?(?<namespace>[^/]+)/(?<protocol>https?:)?(?<podPattern>[^/^:]+)(?<port>:[^/]+)?/(?<path>.+)");
   private static KubernetesClient apiClient;
 
+  // proxy paths which have been successfully probed, by service url path and user
+  private static final Map<String, CachedProxyPath> PROXY_PATH_CACHE =
+      new ConcurrentHashMap<String, CachedProxyPath>();
+
   public KubernetesJmxConnector(JMXServiceURL serviceURL,
       Map<String, ?> environment) {
     super(serviceURL, environment);
@@ -40,6 +64,19 @@ public class KubernetesJmxConnector extends JolokiaJmxConnector {
     final Map<String, Object> mergedEnvironment = this.mergedEnvironment(env);
     KubernetesClient client = getApiClient();
 
+    final J4pClient cached = cachedConnection(client, mergedEnvironment);
+    if (cached != null) {
+      try {
+        this.adapter = createAdapter(cached);
+        this.postCreateAdapter();
+        return;
+      } catch (IOException e) {
+        // pod is probably gone, resolve again
+        PROXY_PATH_CACHE.remove(cacheKey(mergedEnvironment));
+      } catch (UncheckedJmxAdapterException e) {
+        PROXY_PATH_CACHE.remove(cacheKey(mergedEnvironment));
+      }
+    }
     this.adapter = createAdapter(expandAndProbeUrl(client, mergedEnvironment));
     this.postCreateAdapter();
   }
@@ -48,14 +85,19 @@ public class KubernetesJmxConnector extends JolokiaJmxConnector {
     return new RemoteJmxAdapter(client);
   }
 
-  public static KubernetesClient getApiClient() {
+  public static synchronized KubernetesClient getApiClient() {
     if (apiClient != null) {
       return apiClient;
     }
     return buildApiClient();
   }
 
-  public static KubernetesClient buildApiClient() {
+  // Visible for testing
+  static synchronized void setApiClient(KubernetesClient client) {
+    apiClient = client;
+  }
+
+  public static synchronized KubernetesClient buildApiClient() {
 
     return apiClient = new DefaultKubernetesClient();
   }
@@ -82,19 +124,19 @@ public class KubernetesJmxConnector extends JolokiaJmxConnector {
           if (exactPod != null
               && (connection = probeProxyPath(env, client, buildProxyPath(exactPod, protocol, port, path),
               headersForProbe)) != null) {
-            return connection;
+            return remember(env, connection);
           } else { //scan through pods in namespace if podname is a pattern
-
+            final List<StringBuilder> candidates = new ArrayList<StringBuilder>();
             for (final Pod pod :
                 client.pods().inNamespace(namespace).list().getItems()) {
               if (pod.getMetadata()
                   .getName().matches(podPattern)) {
-                if ((connection = probeProxyPath(env, client, buildProxyPath(pod, protocol, port, path),
-                    headersForProbe)) != null) {
-                  return connection;
-                }
+                candidates.add(buildProxyPath(pod, protocol, port, path));
               }
             }
+            if ((connection = probeInParallel(env, client, candidates, headersForProbe)) != null) {
+              return remember(env, connection);
+            }
           }
         }
       }
@@ -103,6 +145,93 @@ public class KubernetesJmxConnector extends JolokiaJmxConnector {
     throw new MalformedURLException("Unable to connect to proxypath " + proxyPath);
   }
 
+  /**
+   * Probe all candidates at the same time, the first successful one in the given order wins
+   */
+  private static J4pClient probeInParallel(final Map<String, Object> env,
+      final KubernetesClient client, List<StringBuilder> candidates,
+      final HashMap<String, String> headers) {
+    if (candidates.isEmpty()) {
+      return null;
+    } else if (candidates.size() == 1) {
+      return probeProxyPath(env, client, candidates.get(0), headers);
+    }
+    final ExecutorService executor = Executors
+        .newFixedThreadPool(Math.min(candidates.size(), MAX_PARALLEL_PROBES), new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(runnable, "jolokia-kubernetes-probe");
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+    try {
+      final List<Future<J4pClient>> probes = new ArrayList<Future<J4pClient>>();
+      for (final StringBuilder candidate : candidates) {
+        probes.add(executor.submit(new Callable<J4pClient>() {
+          @Override
+          public J4pClient call() {
+            return probeProxyPath(env, client, candidate, headers);
+          }
+        }));
+      }
+      for (Future<J4pClient> probe : probes) {
+        try {
+          final J4pClient connection = probe.get();
+          if (connection != null) {
+            return connection;
+          }
+        } catch (ExecutionException ignore) {
+        }
+      }
+      return null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private J4pClient cachedConnection(KubernetesClient client, Map<String, Object> env) {
+    final CachedProxyPath cached = PROXY_PATH_CACHE.get(cacheKey(env));
+    if (cached == null) {
+      return null;
+    }
+    if (cached.isExpired(System.currentTimeMillis())) {
+      PROXY_PATH_CACHE.remove(cacheKey(env));
+      return null;
+    }
+    return new J4pClient(cached.proxyPath,
+        new MinimalHttpClientAdapter((BaseClient) client, cached.proxyPath, env));
+  }
+
+  private J4pClient remember(Map<String, Object> env, J4pClient connection) {
+    final long ttl = getCacheTtl(env);
+    if (ttl > 0) {
+      PROXY_PATH_CACHE.put(cacheKey(env),
+          new CachedProxyPath(connection.getUri().toString(), System.currentTimeMillis() + ttl));
+    }
+    return connection;
+  }
+
+  private String cacheKey(Map<String, Object> env) {
+    final String[] credentials = (String[]) env.get(JMXConnector.CREDENTIALS);
+    return this.serviceUrl.getURLPath() + (credentials != null ? "|" + credentials[0] : "");
+  }
+
+  private static long getCacheTtl(Map<String, Object> env) {
+    final Object ttl = env.get(PROXY_PATH_CACHE_TTL);
+    return ttl != null ? Long.parseLong(ttl.toString()) : DEFAULT_PROXY_PATH_CACHE_TTL;
+  }
+
+  /**
+   * Forget all resolved proxy paths
+   */
+  public static void clearProxyPathCache() {
+    PROXY_PATH_CACHE.clear();
+  }
+
   private StringBuilder buildProxyPath(Pod pod, String protocol, String port, String path) {
     final StringBuilder url = new StringBuilder(pod.getMetadata().getSelfLink());
     if (protocol != null && !protocol.equals("http:")) {
@@ -156,4 +285,19 @@ public class KubernetesJmxConnector extends JolokiaJmxConnector {
     }
     return null;
   }
+
+  private static class CachedProxyPath {
+
+    private final String proxyPath;
+    private final long expires;
+
+    CachedProxyPath(String proxyPath, long expires) {
+      this.proxyPath = proxyPath;
+      this.expires = expires;
+    }
+
+    boolean isExpired(long now) {
+      return now > expires;
+    }
+  }
 }
@@ -13,9 +13,13 @@ import java.net.URL;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
 import javax.management.remote.JMXConnector;
+import okhttp3.ConnectionPool;
 import okhttp3.HttpUrl;
 import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
 import okhttp3.Protocol;
 import okhttp3.Request.Builder;
 import okhttp3.RequestBody;
@@ -50,6 +54,13 @@ import org.json.simple.parser.ParseException;
  */
 public class MinimalHttpClientAdapter implements HttpClient {
 
+  // all calls go through the same API server, so keep enough connections alive for many connectors
+  private static final int MAX_IDLE_CONNECTIONS = 32;
+  private static final long KEEP_ALIVE_MINUTES = 5;
+
+  // HTTP clients with a shared connection pool, one per kubernetes client
+  private static final Map<BaseClient, OkHttpClient> HTTP_CLIENTS = new WeakHashMap<BaseClient, OkHttpClient>();
+
   private final BaseClient client;
   private final String urlPath;
   private String user;
@@ -120,11 +131,27 @@ public class MinimalHttpClientAdapter implements HttpClient {
     for (Map.Entry<String, String> header : headers.entrySet()) {
       requestBuilder.addHeader(header.getKey(), header.getValue());
     }
-    return client.getHttpClient().newCall(
+    return httpClient(client).newCall(
         requestBuilder.build()
     ).execute();
   }
 
+  /**
+   * The HTTP client used for calls through the API server proxy. It is derived from the kubernetes
+   * client (so authentication is the same) but has a larger connection pool which is shared by all
+   * connectors using the same kubernetes client.
+   */
+  static synchronized OkHttpClient httpClient(BaseClient client) {
+    OkHttpClient httpClient = HTTP_CLIENTS.get(client);
+    if (httpClient == null) {
+      httpClient = client.getHttpClient().newBuilder()
+          .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+          .build();
+      HTTP_CLIENTS.put(client, httpClient);
+    }
+    return httpClient;
+  }
+
   private static URL buildHttpUri(BaseClient client, String resourcePath,
       String query) {
     final URL masterUrl = client.getMasterUrl();
@@ -138,6 +165,17 @@ public class MinimalHttpClientAdapter implements HttpClient {
   }
 
   protected HttpResponse convertResponse(Response response) throws IOException {
+    try {
+      return doConvertResponse(response);
+    } finally {
+      // always release the connection so that it can be reused
+      if (response.body() != null) {
+        response.body().close();
+      }
+    }
+  }
+
+  private HttpResponse doConvertResponse(Response response) throws IOException {
     final int responseCode = response.code();
     final BasicHttpResponse convertedResponse = new BasicHttpResponse(
         new BasicStatusLine(convertProtocol(response.protocol()), responseCode,
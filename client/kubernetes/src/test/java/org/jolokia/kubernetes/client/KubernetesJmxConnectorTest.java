@@ -0,0 +1,178 @@
+package org.jolokia.kubernetes.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.fabric8.kubernetes.client.ConfigBuilder;
+import io.fabric8.kubernetes.client.DefaultKubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.remote.JMXServiceURL;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Test connecting through a local stand-in for the kubernetes API server
+ */
+public class KubernetesJmxConnectorTest {
+
+  private static final String NAMESPACE = "test";
+
+  private static final long PROBE_DELAY = 500L;
+
+  private HttpServer server;
+  private KubernetesClient client;
+
+  // pods answering jolokia requests, all others fail
+  private final Set<String> healthyPods = Collections
+      .newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+  private final AtomicInteger podListings = new AtomicInteger();
+  private final AtomicInteger probes = new AtomicInteger();
+
+  @BeforeMethod
+  public void startApiServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/", new ApiServerHandler());
+    server.start();
+    client = new DefaultKubernetesClient(new ConfigBuilder()
+        .withMasterUrl("http://localhost:" + server.getAddress().getPort() + "/")
+        .withNamespace(NAMESPACE)
+        .build());
+    KubernetesJmxConnector.setApiClient(client);
+    KubernetesJmxConnector.clearProxyPathCache();
+    healthyPods.clear();
+    healthyPods.add("pod-c");
+  }
+
+  @AfterMethod
+  public void stopApiServer() {
+    KubernetesJmxConnector.setApiClient(null);
+    KubernetesJmxConnector.clearProxyPathCache();
+    client.close();
+    server.stop(0);
+  }
+
+  @Test
+  public void parallelProbing() throws IOException {
+    final long start = System.currentTimeMillis();
+    final KubernetesJmxConnector connector = connect(new HashMap<String, Object>());
+    // pod-a and pod-b are probed at the same time as pod-c
+    Assert.assertTrue(System.currentTimeMillis() - start < 2 * PROBE_DELAY);
+    // three probes plus the version request of the adapter
+    Assert.assertEquals(probes.get(), 4);
+    Assert.assertEquals(connector.getMBeanServerConnection().getDefaultDomain(), "DefaultDomain");
+    connector.close();
+  }
+
+  @Test
+  public void cachedProxyPath() throws IOException {
+    connect(new HashMap<String, Object>()).close();
+    Assert.assertEquals(podListings.get(), 1);
+    final int probesAfterFirstConnect = probes.get();
+
+    connect(new HashMap<String, Object>()).close();
+    // no lookup and only the version request of the adapter
+    Assert.assertEquals(podListings.get(), 1);
+    Assert.assertEquals(probes.get(), probesAfterFirstConnect + 1);
+  }
+
+  @Test
+  public void cacheDisabled() throws IOException {
+    final Map<String, Object> env = new HashMap<String, Object>();
+    env.put(KubernetesJmxConnector.PROXY_PATH_CACHE_TTL, "0");
+    connect(env).close();
+    connect(env).close();
+    Assert.assertEquals(podListings.get(), 2);
+  }
+
+  @Test
+  public void staleCacheEntry() throws IOException {
+    connect(new HashMap<String, Object>()).close();
+    healthyPods.remove("pod-c");
+    healthyPods.add("pod-b");
+    final KubernetesJmxConnector connector = connect(new HashMap<String, Object>());
+    Assert.assertEquals(podListings.get(), 2);
+    Assert.assertEquals(connector.getMBeanServerConnection().getDefaultDomain(), "DefaultDomain");
+    connector.close();
+  }
+
+  private KubernetesJmxConnector connect(Map<String, Object> env) throws IOException {
+    final KubernetesJmxConnector connector = new KubernetesJmxConnector(
+        new JMXServiceURL("service:jmx:kubernetes:///" + NAMESPACE + "/pod-.+:8778/jolokia/"), env);
+    connector.connect();
+    return connector;
+  }
+
+  private class ApiServerHandler implements HttpHandler {
+
+    private final String podsPath = "/api/v1/namespaces/" + NAMESPACE + "/pods";
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+      final String path = exchange.getRequestURI().getPath();
+      drain(exchange.getRequestBody());
+      if (path.equals(podsPath)) {
+        podListings.incrementAndGet();
+        respond(exchange, 200, "{\"apiVersion\":\"v1\",\"kind\":\"PodList\",\"metadata\":{},\"items\":["
+            + pod("pod-a") + "," + pod("pod-b") + "," + pod("pod-c") + "," + pod("other") + "]}");
+      } else if (path.startsWith(podsPath + "/") && path.contains("/proxy/")) {
+        probes.incrementAndGet();
+        final String pod = path.substring(podsPath.length() + 1, path.indexOf(':', podsPath.length()));
+        if (healthyPods.contains(pod)) {
+          respond(exchange, 200, "{\"status\":200,\"request\":{\"type\":\"version\"},"
+              + "\"value\":{\"agent\":\"1.6.3\",\"protocol\":\"7.2\",\"config\":{\"agentId\":\"" + pod
+              + "\"}},\"timestamp\":0}");
+        } else {
+          sleep();
+          respond(exchange, 503, "{\"kind\":\"Status\",\"apiVersion\":\"v1\",\"status\":\"Failure\","
+              + "\"message\":\"no endpoints available\",\"code\":503}");
+        }
+      } else {
+        // lookup of a single pod by the pattern as name
+        respond(exchange, 404, "{\"kind\":\"Status\",\"apiVersion\":\"v1\",\"status\":\"Failure\","
+            + "\"reason\":\"NotFound\",\"code\":404}");
+      }
+    }
+
+    private String pod(String name) {
+      return "{\"apiVersion\":\"v1\",\"kind\":\"Pod\",\"metadata\":{\"name\":\"" + name
+          + "\",\"namespace\":\"" + NAMESPACE + "\",\"selfLink\":\"" + podsPath + "/" + name + "\"}}";
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+      final byte[] bytes = body.getBytes("UTF-8");
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      exchange.sendResponseHeaders(status, bytes.length);
+      final OutputStream out = exchange.getResponseBody();
+      out.write(bytes);
+      out.close();
+    }
+
+    private void drain(InputStream in) throws IOException {
+      final byte[] buffer = new byte[1024];
+      while (in.read(buffer) != -1) {
+        // discard
+      }
+      in.close();
+    }
+
+    private void sleep() {
+      try {
+        Thread.sleep(PROBE_DELAY);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
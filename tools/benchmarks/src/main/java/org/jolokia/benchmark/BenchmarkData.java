@@ -0,0 +1,92 @@
+package org.jolokia.benchmark;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+/**
+ * Request and response payloads shared by the benchmarks, shaped like the
+ * bulk reads of a monitoring system
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {}
+
+    /**
+     * A bulk read request for the given number of MBeans
+     *
+     * @param pSize number of requests
+     * @return request as JSON string
+     */
+    static String bulkReadRequest(int pSize) {
+        JSONArray requests = new JSONArray();
+        for (int i = 0; i < pSize; i++) {
+            requests.add(readRequest(i));
+        }
+        return requests.toJSONString();
+    }
+
+    /**
+     * The response for a bulk read as created by the agent
+     *
+     * @param pSize number of responses
+     * @return list of responses
+     */
+    static JSONArray bulkReadResponse(int pSize) {
+        JSONArray responses = new JSONArray();
+        for (int i = 0; i < pSize; i++) {
+            JSONObject response = new JSONObject();
+            response.put("request", readRequest(i));
+            response.put("value", memoryUsage(i));
+            response.put("timestamp", 1546300800L + i);
+            response.put("status", 200);
+            responses.add(response);
+        }
+        return responses;
+    }
+
+    private static JSONObject readRequest(int pIdx) {
+        JSONObject request = new JSONObject();
+        request.put("type", "read");
+        request.put("mbean", "java.lang:type=MemoryPool,name=Pool " + pIdx);
+        JSONArray attributes = new JSONArray();
+        attributes.add("Usage");
+        attributes.add("PeakUsage");
+        request.put("attribute", attributes);
+        JSONObject config = new JSONObject();
+        config.put("ignoreErrors", "true");
+        request.put("config", config);
+        return request;
+    }
+
+    private static JSONObject memoryUsage(int pIdx) {
+        JSONObject value = new JSONObject();
+        for (String attribute : new String[] { "Usage", "PeakUsage" }) {
+            JSONObject usage = new JSONObject();
+            usage.put("init", 2555904L + pIdx);
+            usage.put("committed", 17170432L * (pIdx + 1));
+            usage.put("max", -1L);
+            usage.put("used", 16776544L + 31L * pIdx);
+            value.put(attribute, usage);
+        }
+        return value;
+    }
+}
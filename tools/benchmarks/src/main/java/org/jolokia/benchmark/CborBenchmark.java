@@ -0,0 +1,95 @@
+package org.jolokia.benchmark;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+import org.jolokia.util.*;
+import org.json.simple.parser.ParseException;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Writing and parsing of bulk responses encoded as CBOR compared to JSON. The
+ * size of both encodings is printed when setting up a trial.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CborBenchmark {
+
+    // Number of responses within a bulk response
+    @Param({ "1", "50" })
+    private int size;
+
+    private Object response;
+    private byte[] json;
+    private byte[] cbor;
+
+    private JsonParser jsonParser;
+    private CborParser cborParser;
+    private ByteArrayOutputStream out;
+
+    @Setup
+    public void setup() throws IOException {
+        response = BenchmarkData.bulkReadResponse(size);
+        jsonParser = new JsonParser();
+        cborParser = new CborParser();
+        out = new ByteArrayOutputStream(64 * 1024);
+
+        writeJson();
+        json = out.toByteArray();
+        writeCbor();
+        cbor = out.toByteArray();
+        System.out.printf("%nsize=%d: JSON %d bytes, CBOR %d bytes (%.0f%%)%n",
+                          size, json.length, cbor.length, 100.0 * cbor.length / json.length);
+    }
+
+    @Benchmark
+    public int writeJson() throws IOException {
+        out.reset();
+        JsonWriter writer = new JsonWriter(out);
+        writer.writeValue(response);
+        writer.flush();
+        return out.size();
+    }
+
+    @Benchmark
+    public int writeCbor() throws IOException {
+        out.reset();
+        CborWriter writer = new CborWriter(out);
+        writer.writeValue(response);
+        writer.flush();
+        return out.size();
+    }
+
+    @Benchmark
+    public Object parseJson() throws IOException, ParseException {
+        return jsonParser.parse(new InputStreamReader(new ByteArrayInputStream(json), "UTF-8"));
+    }
+
+    @Benchmark
+    public Object parseCbor() throws ParseException {
+        return cborParser.parse(cbor);
+    }
+}
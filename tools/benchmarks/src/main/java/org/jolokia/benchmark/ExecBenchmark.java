@@ -0,0 +1,157 @@
+package org.jolokia.benchmark;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.*;
+
+import org.jolokia.backend.executor.AbstractMBeanServerExecutor;
+import org.jolokia.config.Configuration;
+import org.jolokia.config.ProcessingParameters;
+import org.jolokia.converter.Converters;
+import org.jolokia.detector.ServerHandle;
+import org.jolokia.handler.JsonRequestHandler;
+import org.jolokia.handler.RequestHandlerManager;
+import org.jolokia.request.JmxExecRequest;
+import org.jolokia.request.JmxRequestFactory;
+import org.jolokia.restrictor.AllowAllRestrictor;
+import org.jolokia.util.RequestType;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Execution of operations by the exec handler, with and without caching the operations of the MBean
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExecBenchmark {
+
+    // Whether the operations are cached
+    @Param({ "true", "false" })
+    private boolean cached;
+
+    private MBeanServer server;
+    private ObjectName name;
+    private ServerExecutor executor;
+    private RequestHandlerManager handlerManager;
+    private JsonRequestHandler<JmxExecRequest> handler;
+
+    private JmxExecRequest noArgsRequest;
+    private JmxExecRequest argsRequest;
+
+    @Setup
+    public void setup() throws Exception {
+        server = MBeanServerFactory.newMBeanServer();
+        name = new ObjectName("jolokia.benchmark:type=Cache");
+        server.registerMBean(new Cache(), name);
+
+        executor = new ServerExecutor(server);
+        handlerManager = new RequestHandlerManager(new Converters(), new ServerHandle(null, null, null, null),
+                                                   new AllowAllRestrictor());
+        if (cached) {
+            handlerManager.listenForRegistrationChanges(executor);
+        }
+        handler = handlerManager.getRequestHandler(RequestType.EXEC);
+
+        ProcessingParameters params = new Configuration().getProcessingParameters(new HashMap<String, String>());
+        noArgsRequest = JmxRequestFactory.createGetRequest("exec/jolokia.benchmark:type=Cache/clear()", params);
+        argsRequest = JmxRequestFactory.createGetRequest("exec/jolokia.benchmark:type=Cache/evict/users/100", params);
+    }
+
+    @TearDown
+    public void tearDown() throws JMException {
+        handlerManager.destroy();
+        executor.unregisterFromMBeanNotifications();
+        server.unregisterMBean(name);
+    }
+
+    @Benchmark
+    public Object execNoArgs() throws Exception {
+        return handler.handleRequest(server, noArgsRequest);
+    }
+
+    @Benchmark
+    public Object execWithArgs() throws Exception {
+        return handler.handleRequest(server, argsRequest);
+    }
+
+    // ===========================================================================
+
+    // Executor listening for registration changes of a single MBeanServer
+    private static class ServerExecutor extends AbstractMBeanServerExecutor {
+
+        private final Set<MBeanServerConnection> servers;
+
+        ServerExecutor(MBeanServerConnection pServer) {
+            servers = Collections.singleton(pServer);
+            registerForMBeanNotifications();
+        }
+
+        @Override
+        protected Set<MBeanServerConnection> getMBeanServers() {
+            return servers;
+        }
+    }
+
+    public interface CacheMBean {
+        void clear();
+        void clear(String pRegion);
+        long evict(String pRegion, int pMax);
+        int size(String pRegion);
+        String[] getRegions();
+        void setMaxSize(int pSize);
+        int getMaxSize();
+    }
+
+    public static class Cache implements CacheMBean {
+        private int maxSize = 1000;
+
+        public void clear() {
+        }
+
+        public void clear(String pRegion) {
+        }
+
+        public long evict(String pRegion, int pMax) {
+            return pMax;
+        }
+
+        public int size(String pRegion) {
+            return 0;
+        }
+
+        public String[] getRegions() {
+            return new String[] { "users", "sessions" };
+        }
+
+        public void setMaxSize(int pSize) {
+            maxSize = pSize;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+    }
+}
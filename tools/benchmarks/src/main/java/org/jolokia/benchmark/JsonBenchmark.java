@@ -0,0 +1,89 @@
+package org.jolokia.benchmark;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+import org.jolokia.util.JsonParser;
+import org.jolokia.util.JsonWriter;
+import org.json.simple.JSONValue;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Parsing of bulk requests and writing of bulk responses with
+ * {@link JsonParser} and {@link JsonWriter} compared to json-simple
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+    // Number of requests within a bulk request
+    @Param({ "1", "50" })
+    private int size;
+
+    private String request;
+    private Object response;
+
+    private JsonParser parser;
+    private ByteArrayOutputStream out;
+
+    @Setup
+    public void setup() {
+        request = BenchmarkData.bulkReadRequest(size);
+        response = BenchmarkData.bulkReadResponse(size);
+        parser = new JsonParser();
+        out = new ByteArrayOutputStream(64 * 1024);
+    }
+
+    @Benchmark
+    public Object parseJsonSimple() throws ParseException {
+        return new JSONParser().parse(request);
+    }
+
+    @Benchmark
+    public Object parseJolokia() throws ParseException {
+        return parser.parse(request);
+    }
+
+    @Benchmark
+    public int writeJsonSimple() throws IOException {
+        out.reset();
+        Writer writer = new OutputStreamWriter(out, "UTF-8");
+        JSONValue.writeJSONString(response, writer);
+        writer.flush();
+        return out.size();
+    }
+
+    @Benchmark
+    public int writeJolokia() throws IOException {
+        out.reset();
+        JsonWriter writer = new JsonWriter(out);
+        writer.writeValue(response);
+        writer.flush();
+        return out.size();
+    }
+}
@@ -0,0 +1,83 @@
+package org.jolokia.benchmark;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.jolokia.config.Configuration;
+import org.jolokia.config.ProcessingParameters;
+import org.jolokia.request.JmxRequest;
+import org.jolokia.request.JmxRequestFactory;
+import org.jolokia.util.EscapeUtil;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Creation of requests from the path info of GET requests. The number of distinct MBean names
+ * requested in turn decides whether their object names are taken from the cache (1) or have to be
+ * created for every request (1000, more than the cache holds).
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestCreationBenchmark {
+
+    @Param({ "1", "1000" })
+    private int names;
+
+    private String[] readPaths;
+    private String[] execPaths;
+    private ProcessingParameters params;
+    private int idx;
+
+    @Setup
+    public void setup() {
+        readPaths = new String[names];
+        execPaths = new String[names];
+        for (int i = 0; i < names; i++) {
+            readPaths[i] = "read/java.lang:type=MemoryPool,name=Pool " + i + "/Usage/used";
+            execPaths[i] = "exec/jolokia.test:type=Cache,name=cache" + i + "/clear(java.lang.String,int)/region!/one/42";
+        }
+        params = new Configuration().getProcessingParameters(new HashMap<String, String>());
+    }
+
+    @Benchmark
+    public List<String> parsePath() {
+        return EscapeUtil.parsePath(readPaths[next()]);
+    }
+
+    @Benchmark
+    public JmxRequest createRead() {
+        return JmxRequestFactory.createGetRequest(readPaths[next()], params);
+    }
+
+    @Benchmark
+    public JmxRequest createExec() {
+        return JmxRequestFactory.createGetRequest(execPaths[next()], params);
+    }
+
+    private int next() {
+        idx = idx + 1 < names ? idx + 1 : 0;
+        return idx;
+    }
+}
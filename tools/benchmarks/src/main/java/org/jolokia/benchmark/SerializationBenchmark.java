@@ -0,0 +1,117 @@
+package org.jolokia.benchmark;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.AttributeNotFoundException;
+
+import org.jolokia.converter.Converters;
+import org.jolokia.converter.json.JsonConvertOptions;
+import org.jolokia.converter.json.ObjectToJsonConverter;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Conversion of a bean graph to JSON. Run it with <code>-prof gc</code> to see the
+ * allocations caused by the serialization context in addition to the resulting JSON objects.
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    // Number of children of the root node
+    @Param({ "10", "100" })
+    private int nodes;
+
+    private ObjectToJsonConverter converter;
+    private JsonConvertOptions options;
+    private Node root;
+
+    @Setup
+    public void setup() {
+        converter = new Converters().getToJsonConverter();
+        options = new JsonConvertOptions.Builder().maxDepth(10).maxObjects(100000).build();
+        root = new Node(null, 0);
+        for (int i = 1; i <= nodes; i++) {
+            Node child = new Node(root, i);
+            for (int j = 0; j < 3; j++) {
+                child.children.add(new Node(child, i * 10 + j));
+            }
+            root.children.add(child);
+        }
+    }
+
+    @Benchmark
+    public Object convertBeanGraph() throws AttributeNotFoundException {
+        return converter.convertToJson(root, null, options);
+    }
+
+    @Benchmark
+    public Object convertWithPath() throws AttributeNotFoundException {
+        return converter.convertToJson(root, Arrays.asList("children", "0", "attributes"), options);
+    }
+
+    // ===========================================================================
+
+    // Node with a back reference to its parent, which is serialized as a reference
+    public static class Node {
+        private final Node parent;
+        private final int id;
+        private final List<Node> children = new ArrayList<Node>();
+        private final Map<String, Object> attributes = new HashMap<String, Object>();
+
+        Node(Node pParent, int pId) {
+            parent = pParent;
+            id = pId;
+            attributes.put("created", new Date(1546300800000L + pId));
+            attributes.put("weight", pId * 1.5);
+            attributes.put("tags", new String[] { "node", "node-" + pId });
+        }
+
+        public Node getParent() {
+            return parent;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getName() {
+            return "Node " + id;
+        }
+
+        public boolean isLeaf() {
+            return children.isEmpty();
+        }
+
+        public List<Node> getChildren() {
+            return children;
+        }
+
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.jolokia.benchmark;
+
+/*
+ * Copyright 2009-2019 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.AttributeNotFoundException;
+import javax.management.openmbean.*;
+
+import org.jolokia.converter.Converters;
+import org.jolokia.converter.json.JsonConvertOptions;
+import org.jolokia.converter.json.ObjectToJsonConverter;
+import org.jolokia.util.EscapeUtil;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Reads with a wildcard path on large {@link CompositeData} and {@link TabularData} values,
+ * where the rest of the path is applied to every item
+ *
+ * @author roland
+ * @since 1.6.3
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WildcardPathBenchmark {
+
+    private static final String[] USAGE_ITEMS = { "init", "used", "committed", "max" };
+
+    // Number of items of the composite data and number of rows of the tabular data
+    @Param({ "100", "1000" })
+    private int size;
+
+    private ObjectToJsonConverter converter;
+    private JsonConvertOptions options;
+
+    private CompositeData composite;
+    private TabularData tabular;
+
+    private List<String> compositePath;
+    private List<String> tabularPath;
+
+    @Setup
+    public void setup() throws OpenDataException {
+        converter = new Converters().getToJsonConverter();
+        options = new JsonConvertOptions.Builder().maxObjects(100000).build();
+
+        CompositeType usageType = new CompositeType("Usage", "Memory usage", USAGE_ITEMS, USAGE_ITEMS,
+                new OpenType[] { SimpleType.LONG, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG });
+
+        String[] poolNames = new String[size];
+        OpenType[] poolTypes = new OpenType[size];
+        CompositeData[] usages = new CompositeData[size];
+        for (int i = 0; i < size; i++) {
+            poolNames[i] = "pool" + i;
+            poolTypes[i] = usageType;
+            usages[i] = new CompositeDataSupport(usageType, USAGE_ITEMS,
+                                                 new Object[] { 2555904L + i, 16776544L + 31L * i, 17170432L, -1L });
+        }
+        composite = new CompositeDataSupport(new CompositeType("Pools", "Memory pools", poolNames, poolNames, poolTypes),
+                                             poolNames, usages);
+
+        String[] rowItems = { "name", "count", "usage" };
+        CompositeType rowType = new CompositeType("Pool", "Memory pool", rowItems, rowItems,
+                new OpenType[] { SimpleType.STRING, SimpleType.LONG, usageType });
+        tabular = new TabularDataSupport(new TabularType("PoolTable", "Memory pools", rowType, new String[] { "name" }));
+        for (int i = 0; i < size; i++) {
+            tabular.put(new CompositeDataSupport(rowType, rowItems, new Object[] { poolNames[i], (long) i, usages[i] }));
+        }
+
+        compositePath = EscapeUtil.parsePath("*/used");
+        tabularPath = EscapeUtil.parsePath("*/usage/used");
+    }
+
+    @Benchmark
+    public Object compositeData() throws AttributeNotFoundException {
+        return converter.convertToJson(composite, compositePath, options);
+    }
+
+    @Benchmark
+    public Object tabularData() throws AttributeNotFoundException {
+        return converter.convertToJson(tabular, tabularPath, options);
+    }
+}